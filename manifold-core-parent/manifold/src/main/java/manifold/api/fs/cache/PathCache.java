@@ -16,22 +16,35 @@
 
 package manifold.api.fs.cache;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.Supplier;
 import manifold.api.fs.IDirectory;
 import manifold.api.fs.IFile;
+import manifold.api.fs.IFileSystem;
 import manifold.api.fs.IFileUtil;
+import manifold.api.fs.IResource;
 import manifold.api.host.AbstractTypeSystemListener;
 import manifold.api.host.IModule;
 import manifold.api.host.RefreshRequest;
 import manifold.util.JsonUtil;
 import manifold.util.ManClassUtil;
+import manifold.util.PerfLogUtil;
 import manifold.util.cache.FqnCache;
 import manifold.util.concurrent.ConcurrentHashSet;
 
@@ -39,19 +52,42 @@ import manifold.util.concurrent.ConcurrentHashSet;
  */
 public class PathCache
 {
+  /**
+   * System property to set the number of threads indexing the path, see {@link #PathCache(IModule, Supplier, Runnable, int)}
+   */
+  public static final String PARALLELISM = "manifold.pathcache.parallelism";
+
+  /**
+   * System property to persist the directory listings between builds, see {@link PathCacheSnapshot}
+   */
+  public static final String SNAPSHOT = "manifold.pathcache.snapshot";
+
   @SuppressWarnings({"FieldCanBeLocal", "UnusedDeclaration"})
   private CacheClearer _clearer;
   private final IModule _module;
   private final Supplier<Collection<IDirectory>> _pathSupplier;
   private final Runnable _clearHandler;
+  private final int _parallelism;
+  private volatile PathCacheSnapshot _snapshot;
   private Map<IFile, Set<String>> _reverseMap;
   private Map<String, FqnCache<IFile>> _filesByExtension;
 
   public PathCache( IModule module, Supplier<Collection<IDirectory>> pathSupplier, Runnable clearHandler )
+  {
+    this( module, pathSupplier, clearHandler, Integer.getInteger( PARALLELISM, 1 ) );
+  }
+
+  /**
+   * @param parallelism The number of threads used to index the path. If greater than one, directories are listed
+   *                    concurrently on a {@link ForkJoinPool}, otherwise they are listed on the calling thread. Either
+   *                    way the resulting cache is the same.
+   */
+  public PathCache( IModule module, Supplier<Collection<IDirectory>> pathSupplier, Runnable clearHandler, int parallelism )
   {
     _module = module;
     _pathSupplier = pathSupplier;
     _clearHandler = clearHandler;
+    _parallelism = parallelism;
     _reverseMap = new ConcurrentHashMap<>();
     init();
     _module.getHost().addTypeSystemListenerAsWeakRef( module, _clearer = new CacheClearer() );
@@ -59,15 +95,98 @@ public class PathCache
 
   private void init()
   {
+    long before = System.nanoTime();
+    _snapshot = loadSnapshot();
     Map<String, FqnCache<IFile>> filesByExtension = new ConcurrentHashMap<>();
-    for( IDirectory sourceEntry : _pathSupplier.get() )
+    if( _parallelism > 1 )
     {
-      if( IFileUtil.hasSourceFiles( sourceEntry ) )
+      initParallel( filesByExtension );
+    }
+    else
+    {
+      for( IDirectory sourceEntry : _pathSupplier.get() )
       {
-        addFilesInDir( "", sourceEntry, filesByExtension );
+        if( IFileUtil.hasSourceFiles( sourceEntry ) )
+        {
+          addFilesInDir( "", sourceEntry, filesByExtension );
+        }
       }
     }
     _filesByExtension = filesByExtension;
+    if( _snapshot != null )
+    {
+      _snapshot.save();
+      _snapshot = null;
+    }
+    PerfLogUtil.log( "PathCache.init() parallelism: " + _parallelism, before );
+  }
+
+  /**
+   * If enabled, loads the directory listings from the last scan of this module's path. The snapshot file is a sibling
+   * of the module's class output directory so that it is removed along with the build output.
+   */
+  private PathCacheSnapshot loadSnapshot()
+  {
+    if( !Boolean.getBoolean( SNAPSHOT ) )
+    {
+      return null;
+    }
+
+    File outputDir = _module.getOutputPath().stream()
+      .filter( dir -> dir.isJavaFile() && !dir.isInJar() )
+      .map( IResource::toJavaFile )
+      .min( Comparator.comparing( File::getAbsolutePath ) )
+      .orElse( null );
+    if( outputDir == null || outputDir.getAbsoluteFile().getParentFile() == null )
+    {
+      return null;
+    }
+    return PathCacheSnapshot.load(
+      new File( outputDir.getAbsoluteFile().getParentFile(), "." + outputDir.getName() + ".manifold-pathcache" ) );
+  }
+
+  private List<? extends IFile> listFiles( IDirectory dir )
+  {
+    PathCacheSnapshot snapshot = _snapshot;
+    return snapshot == null ? dir.listFiles() : snapshot.listFiles( dir );
+  }
+
+  private List<? extends IDirectory> listDirs( IDirectory dir )
+  {
+    PathCacheSnapshot snapshot = _snapshot;
+    return snapshot == null ? dir.listDirs() : snapshot.listDirs( dir );
+  }
+
+  /**
+   * Lists the path's directories in parallel, then adds the files to the cache on this thread in the same order the
+   * sequential scan visits them. The order matters because the first file found for a name wins, which is how the
+   * class/source path order is respected.
+   */
+  private void initParallel( Map<String, FqnCache<IFile>> filesByExtension )
+  {
+    ForkJoinPool pool = new ForkJoinPool( _parallelism );
+    try
+    {
+      List<ScanDirTask> tasks = new ArrayList<>();
+      for( IDirectory sourceEntry : _pathSupplier.get() )
+      {
+        if( IFileUtil.hasSourceFiles( sourceEntry ) )
+        {
+          ScanDirTask task = new ScanDirTask( "", sourceEntry );
+          pool.execute( task );
+          tasks.add( task );
+        }
+      }
+      for( ScanDirTask task : tasks )
+      {
+        task.join();
+        task.addTo( filesByExtension );
+      }
+    }
+    finally
+    {
+      pool.shutdown();
+    }
   }
 
   @SuppressWarnings("unused")
@@ -113,7 +232,7 @@ public class PathCache
   {
     if( !_module.getHost().isPathIgnored( relativePath ) )
     {
-      for( IFile file : dir.listFiles() )
+      for( IFile file : listFiles( dir ) )
       {
         String simpleName = file.getName();
         int iDot = simpleName.lastIndexOf( '.' );
@@ -125,7 +244,7 @@ public class PathCache
         addToExtension( fqn, file, filesByExtension );
         addToReverseMap( file, fqn );
       }
-      for( IDirectory subdir : dir.listDirs() )
+      for( IDirectory subdir : listDirs( dir ) )
       {
         if( isValidPackage( subdir ) )
         {
@@ -136,6 +255,107 @@ public class PathCache
     }
   }
 
+  /**
+   * Lists a directory's files and forks a task for each of its package directories. The tasks form a tree mirroring
+   * the directories, {@link #addTo} walks it to add the files in the order {@link #addFilesInDir} would add them.
+   * <p/>
+   * A directory of the default file system caches its listing under a lock global to the file system, so listing it
+   * from several threads would run one at a time. Such a directory is listed here with {@link Files} instead, outside
+   * the lock, unless a snapshot is in use.
+   */
+  private class ScanDirTask extends RecursiveAction
+  {
+    private final String _relativePath;
+    private final IDirectory _dir;
+    private List<IFile> _files = Collections.emptyList();
+    private List<ScanDirTask> _subtasks = Collections.emptyList();
+
+    ScanDirTask( String relativePath, IDirectory dir )
+    {
+      _relativePath = relativePath;
+      _dir = dir;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if( _module.getHost().isPathIgnored( _relativePath ) )
+      {
+        return;
+      }
+
+      List<IFile> files = new ArrayList<>();
+      List<IDirectory> dirs = new ArrayList<>();
+      list( files, dirs );
+      _files = files;
+
+      List<ScanDirTask> subtasks = new ArrayList<>();
+      for( IDirectory subdir : dirs )
+      {
+        if( isValidPackage( subdir ) )
+        {
+          subtasks.add( new ScanDirTask( appendResourceNameToPath( _relativePath, subdir.getName() ), subdir ) );
+        }
+      }
+      _subtasks = subtasks;
+      invokeAll( subtasks );
+    }
+
+    private void list( List<IFile> files, List<IDirectory> dirs )
+    {
+      if( _snapshot == null && _dir.isJavaFile() && !_dir.isInJar() )
+      {
+        IFileSystem fileSystem = _dir.getFileSystem();
+        try( DirectoryStream<Path> entries = Files.newDirectoryStream( _dir.toJavaFile().toPath() ) )
+        {
+          for( Path entry : entries )
+          {
+            if( Files.isDirectory( entry ) )
+            {
+              dirs.add( fileSystem.getIDirectory( entry.toFile() ) );
+            }
+            else
+            {
+              files.add( fileSystem.getIFile( entry.toFile() ) );
+            }
+          }
+          return;
+        }
+        catch( IOException ignore )
+        {
+          // list it the usual way
+          files.clear();
+          dirs.clear();
+        }
+      }
+      files.addAll( listFiles( _dir ) );
+      dirs.addAll( listDirs( _dir ) );
+    }
+
+    /**
+     * Adds the files of this task's directory, then those of each subdirectory, on the calling thread.
+     */
+    private void addTo( Map<String, FqnCache<IFile>> filesByExtension )
+    {
+      for( IFile file : _files )
+      {
+        String simpleName = file.getName();
+        int iDot = simpleName.lastIndexOf( '.' );
+        if( iDot > 0 )
+        {
+          simpleName = simpleName.substring( 0, iDot );
+        }
+        String fqn = appendResourceNameToPath( _relativePath, simpleName );
+        addToExtension( fqn, file, filesByExtension );
+        addToReverseMap( file, fqn );
+      }
+      for( ScanDirTask subtask : _subtasks )
+      {
+        subtask.addTo( filesByExtension );
+      }
+    }
+  }
+
   private boolean isValidPackage( IDirectory subdir )
   {
     // Exclude directories that are not actual packages such as META-INF that exist in jar files
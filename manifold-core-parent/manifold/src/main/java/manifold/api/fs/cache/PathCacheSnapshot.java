@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2018 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.api.fs.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import manifold.api.fs.IDirectory;
+import manifold.api.fs.IFile;
+import manifold.api.fs.jar.IJarFileDirectory;
+import manifold.util.PerfLogUtil;
+
+/**
+ * A persistent record of the directory listings {@link PathCache} made during its last scan. A directory is listed
+ * again only if its last modified time differs from the recorded one, otherwise its files and subdirectories are
+ * rebuilt from the recorded names without touching the file system. Since adding, removing or renaming an entry
+ * updates the directory's modified time, a no-op build re-lists nothing.
+ * <p/>
+ * A listing recorded within {@link #RACY_MILLIS} of its directory's modified time is not trusted, because the file
+ * system's timestamp granularity may hide a change made right after the listing.
+ * <p/>
+ * Only directories on the file system are recorded, jar directories are already listed from memory.
+ */
+class PathCacheSnapshot
+{
+  private static final int MAGIC = 0x4D504353; // MPCS
+  private static final int VERSION = 1;
+  private static final long RACY_MILLIS = 2000;
+
+  private final File _file;
+  private final Map<String, Listing> _previous;
+  private final Map<String, Listing> _current;
+  private final AtomicInteger _reused;
+  private final AtomicInteger _listed;
+
+  private PathCacheSnapshot( File file, Map<String, Listing> previous )
+  {
+    _file = file;
+    _previous = previous;
+    _current = new ConcurrentHashMap<>();
+    _reused = new AtomicInteger();
+    _listed = new AtomicInteger();
+  }
+
+  /**
+   * Loads the snapshot from {@code file}. If the file does not exist or is not readable, the snapshot starts empty and
+   * every directory is listed.
+   */
+  static PathCacheSnapshot load( File file )
+  {
+    Map<String, Listing> previous = new ConcurrentHashMap<>();
+    if( file.isFile() )
+    {
+      try( DataInputStream in = new DataInputStream( new BufferedInputStream( Files.newInputStream( file.toPath() ) ) ) )
+      {
+        if( in.readInt() == MAGIC && in.readInt() == VERSION )
+        {
+          int count = in.readInt();
+          for( int i = 0; i < count; i++ )
+          {
+            String path = in.readUTF();
+            previous.put( path, Listing.read( in ) );
+          }
+        }
+      }
+      catch( IOException | RuntimeException e )
+      {
+        // corrupt, start over
+        previous.clear();
+      }
+    }
+    return new PathCacheSnapshot( file, previous );
+  }
+
+  /**
+   * Writes the listings recorded during this scan, if any directory was listed or dropped since the last snapshot.
+   */
+  void save()
+  {
+    PerfLogUtil.log( "PathCacheSnapshot reused: " + _reused.get() + ", listed: " + _listed.get() );
+    if( _listed.get() == 0 && _current.size() == _previous.size() )
+    {
+      return;
+    }
+
+    try
+    {
+      File dir = _file.getAbsoluteFile().getParentFile();
+      Files.createDirectories( dir.toPath() );
+      File tmp = File.createTempFile( _file.getName(), ".tmp", dir );
+      try
+      {
+        try( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( tmp.toPath() ) ) ) )
+        {
+          out.writeInt( MAGIC );
+          out.writeInt( VERSION );
+          out.writeInt( _current.size() );
+          for( Map.Entry<String, Listing> entry : _current.entrySet() )
+          {
+            out.writeUTF( entry.getKey() );
+            entry.getValue().write( out );
+          }
+        }
+        Files.move( tmp.toPath(), _file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+      }
+      finally
+      {
+        //noinspection ResultOfMethodCallIgnored
+        tmp.delete();
+      }
+    }
+    catch( IOException e )
+    {
+      // the snapshot is an optimization, the next build just scans again
+      PerfLogUtil.log( "PathCacheSnapshot failed to write " + _file + ": " + e.getMessage() );
+    }
+  }
+
+  int getReusedCount()
+  {
+    return _reused.get();
+  }
+
+  int getListedCount()
+  {
+    return _listed.get();
+  }
+
+  List<? extends IFile> listFiles( IDirectory dir )
+  {
+    if( !isRecorded( dir ) )
+    {
+      return dir.listFiles();
+    }
+
+    Listing listing = getListing( dir );
+    List<IFile> files = new ArrayList<>( listing._files.length );
+    for( String name : listing._files )
+    {
+      files.add( dir.file( name ) );
+    }
+    return files;
+  }
+
+  List<? extends IDirectory> listDirs( IDirectory dir )
+  {
+    if( !isRecorded( dir ) )
+    {
+      return dir.listDirs();
+    }
+
+    Listing listing = getListing( dir );
+    List<IDirectory> dirs = new ArrayList<>( listing._dirs.length );
+    for( String name : listing._dirs )
+    {
+      dirs.add( dir.dir( name ) );
+    }
+    return dirs;
+  }
+
+  private static boolean isRecorded( IDirectory dir )
+  {
+    // the default file system's directories are JavaDirectoryImpl, PhysicalDirectoryImpl with the new api
+    return dir.isJavaFile() && !(dir instanceof IJarFileDirectory);
+  }
+
+  private Listing getListing( IDirectory dir )
+  {
+    String path = dir.getPath().getFileSystemPathString();
+    Listing listing = _current.get( path );
+    if( listing != null )
+    {
+      return listing;
+    }
+
+    long lastModified = dir.toJavaFile().lastModified();
+    listing = _previous.get( path );
+    if( listing != null && listing._lastModified == lastModified && listing._listedAt - lastModified > RACY_MILLIS )
+    {
+      _reused.incrementAndGet();
+    }
+    else
+    {
+      _listed.incrementAndGet();
+      // the directory changed since it was recorded, don't trust the file system's cached listing either
+      dir.clearCaches();
+      listing = new Listing( lastModified, System.currentTimeMillis(),
+        dir.listFiles().stream().map( IFile::getName ).toArray( String[]::new ),
+        dir.listDirs().stream().map( IDirectory::getName ).toArray( String[]::new ) );
+    }
+    _current.put( path, listing );
+    return listing;
+  }
+
+  private static class Listing
+  {
+    private final long _lastModified;
+    private final long _listedAt;
+    private final String[] _files;
+    private final String[] _dirs;
+
+    private Listing( long lastModified, long listedAt, String[] files, String[] dirs )
+    {
+      _lastModified = lastModified;
+      _listedAt = listedAt;
+      _files = files;
+      _dirs = dirs;
+    }
+
+    private static Listing read( DataInputStream in ) throws IOException
+    {
+      long lastModified = in.readLong();
+      long listedAt = in.readLong();
+      String[] files = readNames( in );
+      String[] dirs = readNames( in );
+      return new Listing( lastModified, listedAt, files, dirs );
+    }
+
+    private void write( DataOutputStream out ) throws IOException
+    {
+      out.writeLong( _lastModified );
+      out.writeLong( _listedAt );
+      writeNames( out, _files );
+      writeNames( out, _dirs );
+    }
+
+    private static String[] readNames( DataInputStream in ) throws IOException
+    {
+      String[] names = new String[in.readInt()];
+      for( int i = 0; i < names.length; i++ )
+      {
+        names[i] = in.readUTF();
+      }
+      return names;
+    }
+
+    private static void writeNames( DataOutputStream out, String[] names ) throws IOException
+    {
+      out.writeInt( names.length );
+      for( String name : names )
+      {
+        out.writeUTF( name );
+      }
+    }
+  }
+}
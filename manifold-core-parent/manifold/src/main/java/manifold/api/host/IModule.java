@@ -116,6 +116,16 @@ public interface IModule
     return tms == null ? Collections.emptySet() : tms;
   }
 
+  /**
+   * Called by a type manifold when the names of the types it produces may have changed e.g., after a resource file is
+   * created or deleted, so the module can update what it keeps about them.
+   *
+   * @param tm The type manifold whose type names changed
+   */
+  default void typeNamesChanged( ITypeManifold tm )
+  {
+  }
+
   default Set<ITypeManifold> findTypeManifoldsFor( IFile file )
   {
     return findTypeManifoldsFor( file, null );
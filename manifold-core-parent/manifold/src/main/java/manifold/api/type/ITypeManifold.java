@@ -106,6 +106,16 @@ public interface ITypeManifold extends IFileConnected, ISelfCompiled
    */
   String getPackage( String fqn );
 
+  /**
+   * Can this type manifold contribute source on a thread other than javac's while javac uses it? Only then are its
+   * types produced ahead of javac on a worker thread when prefetching is enabled with {@code -Dmanifold.javac.prefetch}.
+   * Default is {@code false}.
+   */
+  default boolean isThreadSafe()
+  {
+    return false;
+  }
+
   /**
    * Contribute source corresponding with the fqn.
    */
@@ -26,8 +26,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
@@ -38,20 +41,38 @@ import manifold.api.host.RefreshKind;
 import manifold.api.host.RefreshRequest;
 import manifold.api.service.BaseService;
 import manifold.util.ManClassUtil;
+import manifold.util.PerfLogUtil;
 import manifold.util.StreamUtil;
 import manifold.util.cache.FqnCache;
+import manifold.util.cache.FqnCacheNode;
 import manifold.util.concurrent.ConcurrentHashSet;
+import manifold.util.concurrent.LockingLazyVar;
 import manifold.util.concurrent.LocklessLazyVar;
 
 /**
  * A base class for a type manifold that is based on a resource file type, typically discernible by the file extension.
+ * <p/>
+ * The fqn-to-model cache and each model are made once, however many threads ask for them, so a subclass whose models
+ * and {@link #contribute} are thread-safe may return true from {@link #isThreadSafe()}. The models of such a subclass
+ * are made under a lock of their own, so different models are made in parallel. Making a model must then not make
+ * another one of the same type manifold, otherwise two threads making them in the opposite order deadlock.
  *
  * @param <M> The model you derive backing contributions of source code.
  */
 public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseService implements ITypeManifold
 {
+  /**
+   * If true, a refreshed resource file rebinds only the models derived from it, otherwise the fqn-to-model cache is
+   * cleared and rebuilt entirely. Set with {@code -Dmanifold.refresh.incremental=true}.
+   */
+  private static final LocklessLazyVar<Boolean> INCREMENTAL_REFRESH =
+    LocklessLazyVar.make( () -> Boolean.getBoolean( "manifold.refresh.incremental" ) );
+
   private IModule _module;
-  private LocklessLazyVar<FqnCache<LocklessLazyVar<M>>> _fqnToModel;
+  /** Guards building and rebinding the fqn-to-model cache, and making the models unless thread-safe */
+  private final Lock _lock = new ReentrantLock();
+  private LockingLazyVar<FqnCache<LazyModel<M>>> _fqnToModel;
+  private volatile Bindings _bindings;
   private BiFunction<String, Set<IFile>, M> _modelMapper;
   @SuppressWarnings("all")
   private CacheClearer _cacheClearer;
@@ -70,7 +91,7 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
   {
     _module = module;
     _modelMapper = modelMapper;
-    _fqnToModel = LocklessLazyVar.make( this::buildFqnToModelCache );
+    _fqnToModel = LockingLazyVar.make( _lock, this::buildFqnToModelCache );
     getModule().getHost().addTypeSystemListenerAsWeakRef( getModule(), _cacheClearer = createCacheClearer() );
   }
 
@@ -79,42 +100,23 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
     return new CacheClearer();
   }
 
-  private FqnCache<LocklessLazyVar<M>> buildFqnToModelCache()
+  /**
+   * @return The lock making a model. Models of a thread-safe type manifold each have their own, see class doc.
+   */
+  private Lock makeModelLock()
   {
-    FqnCache<LocklessLazyVar<M>> fqnToModel = new FqnCache<>();
+    return isThreadSafe() ? new ReentrantLock() : _lock;
+  }
+
+  private FqnCache<LazyModel<M>> buildFqnToModelCache()
+  {
+    FqnCache<LazyModel<M>> fqnToModel = new FqnCache<>();
     Map<String, Set<IFile>> primaryFqnToFiles = buildPrimaryFqnToFilesMap();
+    _bindings = new Bindings( primaryFqnToFiles );
 
     for( Map.Entry<String, Set<IFile>> entry : primaryFqnToFiles.entrySet() )
     {
-      String primaryFqn = entry.getKey();
-      Set<IFile> files = entry.getValue();
-      LocklessLazyVar<M> model = null;
-      String primaryFqnNoMinus;
-
-      // Map primary type to model
-      if( primaryFqn.charAt( 0 ) != '-' )
-      {
-        model = LocklessLazyVar.make( () -> _modelMapper.apply( primaryFqn, files ) );
-        fqnToModel.add( primaryFqn, model );
-        primaryFqnNoMinus = primaryFqn;
-      }
-      else
-      {
-        primaryFqnNoMinus = primaryFqn.substring( 1 );
-      }
-
-      // Map additional types to same model
-      for( IFile file : files )
-      {
-        for( String addFqn : getAdditionalTypes( primaryFqnNoMinus, file ) )
-        {
-          if( model == null )
-          {
-            model = LocklessLazyVar.make( () -> _modelMapper.apply( primaryFqnNoMinus, files ) );
-          }
-          fqnToModel.add( addFqn, model ); // use same model as base fqn
-        }
-      }
+      bindModel( fqnToModel, entry.getKey(), entry.getValue() );
     }
 
     // Add peripheral (global) types having separate model scheme
@@ -125,7 +127,7 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
       {
         if( fqnToModel.get( entry.getKey() ) == null )
         {
-          fqnToModel.add( entry.getKey(), entry.getValue() );
+          fqnToModel.add( entry.getKey(), new LazyModel<>( makeModelLock(), entry.getValue() ) );
         }
       }
     }
@@ -133,6 +135,51 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
     return fqnToModel;
   }
 
+  /**
+   * Maps the primary type and the additional types derived from {@code files} to a shared model.
+   *
+   * @param primaryFqn The primary type name, or the file's default name prefixed with '-' if the files have no primary
+   *                   type, but may have additional types.
+   */
+  private void bindModel( FqnCache<LazyModel<M>> fqnToModel, String primaryFqn, Set<IFile> files )
+  {
+    Set<String> bound = new HashSet<>();
+    LazyModel<M> model = null;
+    String primaryFqnNoMinus;
+
+    // Map primary type to model
+    if( primaryFqn.charAt( 0 ) != '-' )
+    {
+      model = new LazyModel<>( makeModelLock(), () -> _modelMapper.apply( primaryFqn, files ) );
+      fqnToModel.add( primaryFqn, model );
+      bound.add( primaryFqn );
+      primaryFqnNoMinus = primaryFqn;
+    }
+    else
+    {
+      primaryFqnNoMinus = primaryFqn.substring( 1 );
+    }
+
+    // Map additional types to same model
+    for( IFile file : files )
+    {
+      for( String addFqn : getAdditionalTypes( primaryFqnNoMinus, file ) )
+      {
+        if( model == null )
+        {
+          model = new LazyModel<>( makeModelLock(), () -> _modelMapper.apply( primaryFqnNoMinus, files ) );
+        }
+        fqnToModel.add( addFqn, model ); // use same model as base fqn
+        bound.add( addFqn );
+      }
+    }
+
+    if( _bindings != null )
+    {
+      _bindings.bound( primaryFqn, bound );
+    }
+  }
+
   private Map<String, Set<IFile>> buildPrimaryFqnToFilesMap()
   {
     Map<String, Set<IFile>> primaryFqnToFiles = new HashMap<>();
@@ -151,25 +198,111 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
         IFile file = fileCache.get( fqn );
         if( file != null && handlesFile( file ) )
         {
-          String primaryFqn = getTypeNameForFile( fqn, file );
-          if( primaryFqn != null )
+          addToPrimaryFqnToFiles( fqn, file, primaryFqnToFiles );
+        }
+      }
+    }
+    return primaryFqnToFiles;
+  }
+
+  private String addToPrimaryFqnToFiles( String fqn, IFile file, Map<String, Set<IFile>> primaryFqnToFiles )
+  {
+    String primaryFqn = getTypeNameForFile( fqn, file );
+    if( primaryFqn == null )
+    {
+      return null;
+    }
+
+    String pfqn = primaryFqn.isEmpty() ? '-' + fqn : primaryFqn;
+    Set<IFile> files = primaryFqnToFiles.get( pfqn );
+    if( files == null )
+    {
+      files = new ConcurrentHashSet<>();
+    }
+    if( !isDuplicate( file, files ) )
+    {
+      files.add( file );
+      primaryFqnToFiles.put( pfqn, files );
+    }
+    return pfqn;
+  }
+
+  /**
+   * Rebinds only the models derived from {@code file}, as opposed to clearing the whole fqn-to-model cache. Any model
+   * sharing a primary type with {@code file} is rebound with the updated set of files, other models are untouched.
+   * The path cache must already reflect the change, which it does since its listener is notified early.
+   * <p/>
+   * The {@link CacheClearer}'s per-type methods are not called for the refreshed types. They update a model's files
+   * in place, here the affected models are replaced with new lazy ones made from the current files, so no model is
+   * left with the old files. {@link CacheClearer#preRefresh} and {@link CacheClearer#postRefresh} are still called for
+   * subclasses keeping their own caches.
+   * <p/>
+   * Holds the lock building the cache, so a rebind and a build on other threads do not interleave.
+   */
+  private void rebindModels( IFile file, RefreshKind kind )
+  {
+    _lock.lock();
+    try
+    {
+      if( _fqnToModel.isLoaded() && _bindings != null )
+      {
+        rebindModels( _fqnToModel.get(), file, kind );
+      }
+      // else nothing is cached yet, the cache is built from scratch when first used
+    }
+    finally
+    {
+      _lock.unlock();
+    }
+  }
+
+  private void rebindModels( FqnCache<LazyModel<M>> fqnToModel, IFile file, RefreshKind kind )
+  {
+    long before = System.nanoTime();
+
+    // unbind the models the file contributed to
+    Set<String> affected = new HashSet<>( _bindings.removeFile( file ) );
+    for( String pfqn : affected )
+    {
+      for( String fqn : _bindings.unbind( pfqn ) )
+      {
+        fqnToModel.remove( fqn );
+      }
+    }
+
+    // add the file back under its current name[s]
+    if( kind != RefreshKind.DELETION && handlesFile( file ) )
+    {
+      Set<String> fqns = getModule().getPathCache().getFqnForFile( file );
+      if( fqns != null )
+      {
+        for( String fqn : fqns )
+        {
+          String pfqn = addToPrimaryFqnToFiles( fqn, file, _bindings._primaryFqnToFiles );
+          Set<IFile> files = pfqn == null ? null : _bindings._primaryFqnToFiles.get( pfqn );
+          if( files != null && files.contains( file ) )
           {
-            String pfqn = primaryFqn.isEmpty() ? '-' + fqn : primaryFqn;
-            Set<IFile> files = primaryFqnToFiles.get( pfqn );
-            if( files == null )
+            _bindings.addPrimaryFqn( file, pfqn );
+            affected.add( pfqn );
+            for( String boundFqn : _bindings.unbind( pfqn ) )
             {
-              files = new ConcurrentHashSet<>();
-            }
-            if( !isDuplicate( file, files ) )
-            {
-              files.add( file );
-              primaryFqnToFiles.put( pfqn, files );
+              fqnToModel.remove( boundFqn );
             }
           }
         }
       }
     }
-    return primaryFqnToFiles;
+
+    // rebind the affected models
+    for( String pfqn : affected )
+    {
+      Set<IFile> files = _bindings._primaryFqnToFiles.get( pfqn );
+      if( files != null )
+      {
+        bindModel( fqnToModel, pfqn, files );
+      }
+    }
+    PerfLogUtil.log( "rebindModels() " + file.getName() + " (" + affected.size() + " models)", before );
   }
 
   protected boolean isDuplicate( IFile file, Set<IFile> files )
@@ -243,7 +376,7 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
 
   protected M getModel( String topLevel )
   {
-    LocklessLazyVar<M> lazyModel = _fqnToModel.get().get( topLevel );
+    LazyModel<M> lazyModel = _fqnToModel.get().get( topLevel );
     return lazyModel == null ? null : lazyModel.get();
   }
 
@@ -285,14 +418,19 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
   @Override
   public RefreshKind refreshedFile( IFile file, String[] types, RefreshKind kind )
   {
-    _fqnToModel.clear();
+    if( !INCREMENTAL_REFRESH.get() )
+    {
+      _fqnToModel.clear();
+      getModule().typeNamesChanged( this );
+    }
+    // else the models bound to the file are rebound when the cache clearer is notified, see rebindModels()
     return kind;
   }
 
   @Override
   public boolean isType( String fqn )
   {
-    FqnCache<LocklessLazyVar<M>> fqnCache = _fqnToModel.get();
+    FqnCache<LazyModel<M>> fqnCache = _fqnToModel.get();
     if( fqnCache.isEmpty() )
     {
       return false;
@@ -326,7 +464,7 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
   @SuppressWarnings("WeakerAccess")
   public String findTopLevelFqn( String fqn )
   {
-    FqnCache<LocklessLazyVar<M>> fqnCache = _fqnToModel.get();
+    FqnCache<LazyModel<M>> fqnCache = _fqnToModel.get();
     if( fqnCache.isEmpty() )
     {
       return null;
@@ -334,7 +472,7 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
 
     while( true )
     {
-      LocklessLazyVar<M> lazyModel = fqnCache.get( fqn );
+      LazyModel<M> lazyModel = fqnCache.get( fqn );
       if( lazyModel != null )
       {
         return fqn;
@@ -351,7 +489,7 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
   @Override
   public boolean isTopLevelType( String fqn )
   {
-    FqnCache<LocklessLazyVar<M>> fqnCache = _fqnToModel.get();
+    FqnCache<LazyModel<M>> fqnCache = _fqnToModel.get();
     if( fqnCache.isEmpty() )
     {
       return false;
@@ -371,7 +509,7 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
   public String contribute( JavaFileManager.Location location, String fqn, String existing, DiagnosticListener<JavaFileObject> errorHandler )
   {
     String topLevel = findTopLevelFqn( fqn );
-    LocklessLazyVar<M> lazyModel = _fqnToModel.get().get( topLevel );
+    LazyModel<M> lazyModel = _fqnToModel.get().get( topLevel );
 
     M model = lazyModel.get();
     String source = contribute( location, topLevel, existing, model, errorHandler );
@@ -379,7 +517,7 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
     if( !model.isProcessing() )
     {
       // Now remove the model since we don't need it anymore
-      lazyModel.clear();
+      lazyModel.release();
     }
 
     return source;
@@ -388,7 +526,7 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
   @Override
   public Collection<String> getAllTypeNames()
   {
-    FqnCache<LocklessLazyVar<M>> fqnCache = _fqnToModel.get();
+    FqnCache<LazyModel<M>> fqnCache = _fqnToModel.get();
     if( fqnCache.isEmpty() )
     {
       return Collections.emptySet();
@@ -397,13 +535,48 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
     return fqnCache.getFqns();
   }
 
+  /**
+   * The names {@link #findTopLevelFqn(String)} resolves to. Unlike {@link #getAllTypeNames()} this includes a top-level
+   * type nested in the name of another e.g., {@code abc.Foo} along with an additional type {@code abc.Foo.Bar}.
+   */
+  public Collection<String> getTopLevelTypeNames()
+  {
+    FqnCache<LazyModel<M>> fqnCache = _fqnToModel.get();
+    Set<String> names = new HashSet<>();
+    fqnCache.visitNodeDepthFirst( node -> {
+      if( node.getUserData() != null )
+      {
+        names.add( node.getFqn() );
+      }
+      return true;
+    } );
+    return names;
+  }
+
+  /**
+   * The type names in {@code namespace} are the leaf children of the namespace's node in the fqn-to-model cache, which
+   * are the same names {@link #getAllTypeNames()} has in that package. Since the cache is a tree, the cost is
+   * proportional to the size of the package, not the size of the project.
+   */
   @Override
   public Collection<TypeName> getTypeNames( String namespace )
   {
-    return getAllTypeNames().stream()
-      .filter( fqn -> ManClassUtil.getPackage( fqn ).equals( namespace ) )
-      .map( fqn -> new TypeName( fqn, _module, TypeName.Kind.TYPE, TypeName.Visibility.PUBLIC ) )
-      .collect( Collectors.toSet() );
+    FqnCache<LazyModel<M>> fqnCache = _fqnToModel.get();
+    FqnCacheNode<LazyModel<M>> node = namespace.isEmpty() ? fqnCache : fqnCache.getNode( namespace );
+    if( node == null || node.isLeaf() )
+    {
+      return Collections.emptySet();
+    }
+
+    Set<TypeName> typeNames = new HashSet<>();
+    for( FqnCacheNode<LazyModel<M>> child : node.getChildren() )
+    {
+      if( child.isLeaf() )
+      {
+        typeNames.add( new TypeName( child.getFqn(), _module, TypeName.Kind.TYPE, TypeName.Visibility.PUBLIC ) );
+      }
+    }
+    return typeNames;
   }
 
   @Override
@@ -422,7 +595,17 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
   @Override
   public void clear()
   {
-    _fqnToModel.clear();
+    _lock.lock();
+    try
+    {
+      _fqnToModel.clear();
+      _bindings = null;
+    }
+    finally
+    {
+      _lock.unlock();
+    }
+    getModule().typeNamesChanged( this );
   }
 
   public static String getContent( IFile file )
@@ -441,6 +624,63 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
     return null;
   }
 
+  /**
+   * Which files make up each primary type and which type names are bound to the primary type's model, so a refresh can
+   * find the models derived from a file.
+   */
+  private static class Bindings
+  {
+    private final Map<String, Set<IFile>> _primaryFqnToFiles;
+    private final Map<IFile, Set<String>> _fileToPrimaryFqns;
+    private final Map<String, Set<String>> _primaryFqnToBound;
+
+    private Bindings( Map<String, Set<IFile>> primaryFqnToFiles )
+    {
+      _primaryFqnToFiles = new ConcurrentHashMap<>( primaryFqnToFiles );
+      _fileToPrimaryFqns = new ConcurrentHashMap<>();
+      _primaryFqnToBound = new ConcurrentHashMap<>();
+      primaryFqnToFiles.forEach( ( pfqn, files ) -> files.forEach( file -> addPrimaryFqn( file, pfqn ) ) );
+    }
+
+    private void bound( String primaryFqn, Set<String> fqns )
+    {
+      _primaryFqnToBound.put( primaryFqn, fqns );
+    }
+
+    private Set<String> unbind( String primaryFqn )
+    {
+      Set<String> fqns = _primaryFqnToBound.remove( primaryFqn );
+      return fqns == null ? Collections.emptySet() : fqns;
+    }
+
+    private Set<String> removeFile( IFile file )
+    {
+      Set<String> primaryFqns = _fileToPrimaryFqns.remove( file );
+      if( primaryFqns == null )
+      {
+        return Collections.emptySet();
+      }
+      for( String pfqn : primaryFqns )
+      {
+        Set<IFile> files = _primaryFqnToFiles.get( pfqn );
+        if( files != null )
+        {
+          files.remove( file );
+          if( files.isEmpty() )
+          {
+            _primaryFqnToFiles.remove( pfqn );
+          }
+        }
+      }
+      return primaryFqns;
+    }
+
+    private void addPrimaryFqn( IFile file, String primaryFqn )
+    {
+      _fileToPrimaryFqns.computeIfAbsent( file, k -> new ConcurrentHashSet<>() ).add( primaryFqn );
+    }
+  }
+
   protected class CacheClearer extends AbstractTypeSystemListener
   {
     @Override
@@ -480,6 +720,15 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
 
       preRefresh( request );
 
+      if( INCREMENTAL_REFRESH.get() )
+      {
+        // replaces the affected models, no need for the per-type methods below, see rebindModels()
+        rebindModels( request.file, request.kind );
+        postRefresh( request );
+        getModule().typeNamesChanged( ResourceFileTypeManifold.this );
+        return;
+      }
+
       switch( request.kind )
       {
         case MODIFICATION:
@@ -509,6 +758,7 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
       }
 
       postRefresh( request );
+      getModule().typeNamesChanged( ResourceFileTypeManifold.this );
     }
 
     public void deletedType( Set<IFile> files, String type )
@@ -539,7 +789,7 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
       }
       else
       {
-        _fqnToModel.get().add( type, LocklessLazyVar.make( () -> _modelMapper.apply( type, files ) ) );
+        _fqnToModel.get().add( type, new LazyModel<>( makeModelLock(), () -> _modelMapper.apply( type, files ) ) );
       }
     }
 
@@ -555,7 +805,47 @@ public abstract class ResourceFileTypeManifold<M extends IModel> extends BaseSer
       }
       else
       {
-        _fqnToModel.get().add( type, LocklessLazyVar.make( () -> _modelMapper.apply( type, files ) ) );
+        _fqnToModel.get().add( type, new LazyModel<>( makeModelLock(), () -> _modelMapper.apply( type, files ) ) );
+      }
+    }
+  }
+
+  /**
+   * A model made once however many threads ask for it. Unless the type manifold is thread-safe its models share a lock,
+   * so a model made from another one does not deadlock with a thread making them in the other order. A peripheral
+   * model is made by the subclass's own lazy var, which is released along with this one.
+   */
+  private static class LazyModel<M> extends LockingLazyVar<M>
+  {
+    private final Supplier<M> _make;
+    private final LocklessLazyVar<M> _peripheral;
+
+    LazyModel( Lock lock, Supplier<M> make )
+    {
+      super( lock );
+      _make = make;
+      _peripheral = null;
+    }
+
+    LazyModel( Lock lock, LocklessLazyVar<M> peripheral )
+    {
+      super( lock );
+      _make = peripheral::get;
+      _peripheral = peripheral;
+    }
+
+    @Override
+    protected M init()
+    {
+      return _make.get();
+    }
+
+    void release()
+    {
+      clear();
+      if( _peripheral != null )
+      {
+        _peripheral.clear();
       }
     }
   }
@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticListener;
@@ -52,12 +53,20 @@ import static manifold.api.type.ContributorKind.Primary;
 @SuppressWarnings("WeakerAccess")
 public abstract class SimpleModule implements IModule
 {
+  /**
+   * Set to true to enable the index of type names to type manifolds, so a lookup asks only the type manifolds that may
+   * produce the type instead of every type manifold, see {@link TypeManifoldIndex}.
+   */
+  public static final String TYPE_MANIFOLD_INDEX = "manifold.typemanifold.index";
+
   private IManifoldHost _host;
   private List<IDirectory> _classpath;
   private List<IDirectory> _sourcePath;
   private List<IDirectory> _outputPath;
   private SortedSet<ITypeManifold> _typeManifolds;
   private LocklessLazyVar<PathCache> _pathCache;
+  private LocklessLazyVar<TypeManifoldIndex> _typeManifoldIndex;
+  private boolean _indexed;
 
   public SimpleModule( IManifoldHost host, List<IDirectory> classpath, List<IDirectory> sourcePath, List<IDirectory> outputPath )
   {
@@ -66,6 +75,7 @@ public abstract class SimpleModule implements IModule
     _sourcePath = sourcePath;
     _outputPath = outputPath;
     _pathCache = LocklessLazyVar.make( this::makePathCache );
+    _typeManifoldIndex = LocklessLazyVar.make( () -> new TypeManifoldIndex( _typeManifolds ) );
   }
 
   @Override
@@ -132,6 +142,36 @@ public abstract class SimpleModule implements IModule
     return _typeManifolds;
   }
 
+  @Override
+  public Set<ITypeManifold> findTypeManifoldsFor( String fqn, Predicate<ITypeManifold> predicate )
+  {
+    if( !_indexed )
+    {
+      return IModule.super.findTypeManifoldsFor( fqn, predicate );
+    }
+
+    Set<ITypeManifold> tms = null;
+    for( ITypeManifold tm : _typeManifoldIndex.get().findCandidates( fqn ) )
+    {
+      if( (predicate == null || predicate.test( tm )) &&
+          tm.isType( fqn ) )
+      {
+        tms = tms == null ? new HashSet<>( 2 ) : tms;
+        tms.add( tm );
+      }
+    }
+    return tms == null ? Collections.emptySet() : tms;
+  }
+
+  @Override
+  public void typeNamesChanged( ITypeManifold tm )
+  {
+    if( _indexed && _typeManifoldIndex.isLoaded() )
+    {
+      _typeManifoldIndex.get().invalidate( tm );
+    }
+  }
+
   public JavaFileObject produceFile( String fqn, JavaFileManager.Location location, DiagnosticListener<JavaFileObject> errorHandler )
   {
     //noinspection unchecked
@@ -194,6 +234,7 @@ public abstract class SimpleModule implements IModule
 
       _typeManifolds = loadTypeManifolds();
       _typeManifolds.forEach( tm -> tm.init( this ) );
+      _indexed = Boolean.getBoolean( TYPE_MANIFOLD_INDEX );
     }
   }
 
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.internal.host;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import manifold.api.type.ITypeManifold;
+import manifold.api.type.ResourceFileTypeManifold;
+import manifold.util.PerfLogUtil;
+import manifold.util.cache.FqnCache;
+import manifold.util.cache.FqnCacheNode;
+
+/**
+ * Maps the top-level type names of a module's type manifolds to the manifolds producing them, so a lookup asks
+ * {@link ITypeManifold#isType(String)} of only the manifolds that can answer yes.
+ * <p/>
+ * A {@link ResourceFileTypeManifold} is a type only if a name along the type's path is one of its top-level names, see
+ * {@link ResourceFileTypeManifold#findTopLevelFqn(String)}. These manifolds are indexed by their top-level names, a
+ * lookup walks the type's path in the index and collects the manifolds found along the way. Manifolds overriding
+ * {@code isType()} or {@code findTopLevelFqn()} may not follow this rule, e.g. an extension producer's types are not
+ * its files' names, they are not indexed and are always candidates.
+ * <p/>
+ * A manifold's names are indexed on the first lookup after it is added or {@link #invalidate(ITypeManifold) invalidated},
+ * the names of the other manifolds stay as they are.
+ */
+class TypeManifoldIndex
+{
+  private final Set<ITypeManifold> _all;
+  private final List<ITypeManifold> _unindexed;
+  private final FqnCache<Set<ITypeManifold>> _topLevelToTms;
+  private final Map<ITypeManifold, Collection<String>> _indexedNames;
+  private final Set<ITypeManifold> _stale;
+
+  TypeManifoldIndex( Set<ITypeManifold> tms )
+  {
+    _all = tms;
+    _unindexed = new ArrayList<>();
+    _topLevelToTms = new FqnCache<>();
+    _indexedNames = new HashMap<>();
+    _stale = new LinkedHashSet<>();
+    for( ITypeManifold tm: tms )
+    {
+      if( isIndexable( tm ) )
+      {
+        _stale.add( tm );
+      }
+      else
+      {
+        _unindexed.add( tm );
+      }
+    }
+  }
+
+  /**
+   * The type names of {@code tm} changed, index them again on the next lookup.
+   */
+  synchronized void invalidate( ITypeManifold tm )
+  {
+    if( _indexedNames.containsKey( tm ) )
+    {
+      _stale.add( tm );
+    }
+  }
+
+  private void reindexStale()
+  {
+    long before = System.nanoTime();
+    int count = _stale.size();
+    while( !_stale.isEmpty() )
+    {
+      ITypeManifold tm = _stale.iterator().next();
+      _stale.remove( tm );
+      reindex( tm );
+    }
+    PerfLogUtil.log( "TypeManifoldIndex reindexed: " + count + "/" + _all.size(), before );
+  }
+
+  private void reindex( ITypeManifold tm )
+  {
+    for( String name: _indexedNames.getOrDefault( tm, Collections.emptySet() ) )
+    {
+      Set<ITypeManifold> set = _topLevelToTms.get( name );
+      if( set != null )
+      {
+        set.remove( tm );
+        if( set.isEmpty() )
+        {
+          // don't remove the node, names nested in this one may be indexed
+          _topLevelToTms.getNode( name ).setUserData( null );
+        }
+      }
+    }
+
+    Collection<String> names = ((ResourceFileTypeManifold<?>)tm).getTopLevelTypeNames();
+    for( String name: names )
+    {
+      Set<ITypeManifold> set = _topLevelToTms.get( name );
+      if( set == null )
+      {
+        _topLevelToTms.add( name, set = new HashSet<>( 2 ) );
+      }
+      set.add( tm );
+    }
+    _indexedNames.put( tm, names );
+  }
+
+  /**
+   * @return The type manifolds that may produce {@code fqn}, confirm with {@link ITypeManifold#isType(String)}.
+   */
+  synchronized Iterable<ITypeManifold> findCandidates( String fqn )
+  {
+    if( !_stale.isEmpty() )
+    {
+      reindexStale();
+    }
+
+    if( fqn.indexOf( '<' ) >= 0 || fqn.indexOf( '[' ) >= 0 )
+    {
+      // not a plain dotted name, the index can't walk it
+      return _all;
+    }
+
+    List<ITypeManifold> candidates = null;
+    FqnCacheNode<Set<ITypeManifold>> node = _topLevelToTms;
+    for( String part: FqnCache.getParts( fqn.replace( '$', '.' ) ) )
+    {
+      node = node.getChild( part );
+      if( node == null )
+      {
+        break;
+      }
+      Set<ITypeManifold> tms = node.getUserData();
+      if( tms != null )
+      {
+        candidates = candidates == null ? new ArrayList<>( _unindexed ) : candidates;
+        for( ITypeManifold tm: tms )
+        {
+          if( !candidates.contains( tm ) )
+          {
+            candidates.add( tm );
+          }
+        }
+      }
+    }
+    return candidates == null ? _unindexed : candidates;
+  }
+
+  private static boolean isIndexable( ITypeManifold tm )
+  {
+    if( !(tm instanceof ResourceFileTypeManifold) )
+    {
+      return false;
+    }
+    return isInherited( tm, "isType" ) && isInherited( tm, "findTopLevelFqn" );
+  }
+
+  private static boolean isInherited( ITypeManifold tm, String methodName )
+  {
+    try
+    {
+      return tm.getClass().getMethod( methodName, String.class ).getDeclaringClass() == ResourceFileTypeManifold.class;
+    }
+    catch( NoSuchMethodException e )
+    {
+      return false;
+    }
+  }
+}
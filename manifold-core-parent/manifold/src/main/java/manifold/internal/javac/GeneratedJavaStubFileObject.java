@@ -37,6 +37,7 @@ public class GeneratedJavaStubFileObject extends SimpleJavaFileObject implements
   private long _timestamp;
   private SourceSupplier _sourceSupplier;
   private LocklessLazyVar<String> _src = LocklessLazyVar.make( () -> _sourceSupplier.getSource() );
+  private volatile SourcePrefetcher.Prefetch _prefetched;
 
   public GeneratedJavaStubFileObject( String name, SourceSupplier sourceSupplier )
   {
@@ -87,9 +88,26 @@ public class GeneratedJavaStubFileObject extends SimpleJavaFileObject implements
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Starts producing the source on a worker thread, if the source can be produced off the javac thread.
+   */
+  void prefetch( SourcePrefetcher prefetcher )
+  {
+    if( _prefetched == null && !_src.isLoaded() && _sourceSupplier.isPrefetchable() )
+    {
+      _prefetched = prefetcher.submit( _src::get );
+    }
+  }
+
   @Override
   public CharSequence getCharContent( boolean ignoreEncodingErrors )
   {
+    SourcePrefetcher.Prefetch prefetched = _prefetched;
+    if( prefetched != null )
+    {
+      _prefetched = null;
+      SourcePrefetcher.await( prefetched );
+    }
     String source = _src.get();
     maybeDumpSource( source );
     return source;
@@ -54,6 +54,11 @@ public class IssueReporter<T> implements DiagnosticListener<T>
 
   public void report( Diagnostic<? extends T> diagnostic )
   {
+    if( SourcePrefetcher.defer( () -> report( diagnostic ) ) )
+    {
+      return;
+    }
+
     //## would rather use javax.annotation.processing.Messager, but it doesn't give us what we want
     Log issueLogger = Log.instance( _context.get() );
 
@@ -16,12 +16,33 @@
 
 package manifold.internal.javac;
 
+import com.sun.source.tree.AnnotatedTypeTree;
+import com.sun.source.tree.AnnotationTree;
+import com.sun.source.tree.ArrayTypeTree;
+import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.InstanceOfTree;
+import com.sun.source.tree.IntersectionTypeTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewArrayTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.ParameterizedTypeTree;
 import com.sun.source.tree.Tree;
+import com.sun.source.tree.TypeCastTree;
+import com.sun.source.tree.TypeParameterTree;
+import com.sun.source.tree.UnionTypeTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.tree.WildcardTree;
 import com.sun.source.util.DocTrees;
 import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreeScanner;
 import com.sun.source.util.Trees;
 import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.api.JavacTaskImpl;
 import com.sun.tools.javac.api.JavacTool;
 import com.sun.tools.javac.tree.JCTree;
 import java.io.File;
@@ -29,14 +50,19 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.net.URI;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.tools.DiagnosticCollector;
 import javax.tools.DiagnosticListener;
@@ -51,7 +77,9 @@ import manifold.api.fs.IResource;
 import manifold.api.host.IManifoldHost;
 import manifold.api.host.IModule;
 import manifold.util.JreUtil;
+import manifold.util.ManClassUtil;
 import manifold.util.Pair;
+import manifold.util.PerfLogUtil;
 import manifold.util.SourcePathUtil;
 import manifold.util.concurrent.LocklessLazyVar;
 
@@ -63,6 +91,8 @@ import manifold.util.concurrent.LocklessLazyVar;
  */
 public class JavaParser implements IJavaParser
 {
+  private static final Pattern QUALIFIED_NAME = Pattern.compile( "[\\w$]+(\\.[\\w$]+)*" );
+
   private final IManifoldHost _host;
   private JavaCompiler _javac;
   private JavaFileManager _fileManager;
@@ -278,6 +308,314 @@ public class JavaParser implements IJavaParser
     }
   }
 
+  /**
+   * @return The class previously compiled for {@code fqn} by this parser, or null if it is not compiled. Never compiles.
+   */
+  public InMemoryClassJavaFileObject findCompiledClass( String fqn )
+  {
+    init();
+
+    return _mfm.findCompiledFile( fqn );
+  }
+
+  /**
+   * Compiles specified Java class name along with the closure of manifold types it references, all in a single javac
+   * task. The resulting class files are cached, therefore subsequent calls to {@link #compile(String, Iterable, DiagnosticCollector)}
+   * or this method for any type in the closure find the compiled class without invoking javac again.
+   *
+   * @param maxBatchSize The maximum number of types to include in the batch
+   */
+  public InMemoryClassJavaFileObject compileBatch( String fqn, Iterable<String> options, int maxBatchSize, DiagnosticCollector<JavaFileObject> errorHandler )
+  {
+    init();
+
+    InMemoryClassJavaFileObject compiledClass = _mfm.findCompiledFile( fqn );
+    if( compiledClass != null )
+    {
+      return compiledClass;
+    }
+
+    Pair<JavaFileObject, String> fileObj = findJavaSource( fqn, errorHandler );
+    if( fileObj == null )
+    {
+      return null;
+    }
+
+    long before = System.nanoTime();
+    int check = _mfm.pushRuntimeMode();
+    try
+    {
+      StringWriter errors = new StringWriter();
+      JavacTaskImpl javacTask = (JavacTaskImpl)_javac.getTask(
+        errors, _mfm, errorHandler, options, null, Collections.emptyList() );
+      // prepares the compiler, there are no files to parse yet
+      javacTask.parse();
+      com.sun.tools.javac.main.JavaCompiler compiler =
+        com.sun.tools.javac.main.JavaCompiler.instance( javacTask.getContext() );
+      Map<String, CompilationUnitTree> batch = parseManifoldTypeClosure( compiler, fileObj.getSecond(),
+        fileObj.getFirst(), maxBatchSize, errorHandler );
+      initTypeProcessing( javacTask, batch.keySet() );
+      javacTask.enter( batch.values() );
+      // attribute and generate one type at a time, as javac does by default, so a type failing to compile does not stop
+      // the types before it
+      compiler = com.sun.tools.javac.main.JavaCompiler.instance( javacTask.getContext() );
+      while( !compiler.todo.isEmpty() )
+      {
+        compiler.generate( compiler.desugar( compiler.flow( compiler.attribute( compiler.todo.remove() ) ) ) );
+      }
+      compiler.reportDeferredDiagnostics();
+      compiler.close();
+      PerfLogUtil.log( "compileBatch() " + fqn + " (" + batch.size() + " types)", before );
+      return _mfm.findCompiledFile( fileObj.getSecond() );
+    }
+    catch( IOException e )
+    {
+      throw new RuntimeException( e );
+    }
+    finally
+    {
+      _mfm.popRuntimeMode( check );
+    }
+  }
+
+  /**
+   * Parses the closure of manifold types reachable by name from {@code fqn}'s source, each file once with the
+   * {@code compiler} of the batch. Nothing is attributed, so a name is a candidate if it resolves to a primary manifold
+   * type either as qualified, as imported, or as a member of the referencing type's package.
+   */
+  private Map<String, CompilationUnitTree> parseManifoldTypeClosure( com.sun.tools.javac.main.JavaCompiler compiler,
+                                                                     String fqn, JavaFileObject root, int maxBatchSize,
+                                                                     DiagnosticCollector<JavaFileObject> errorHandler )
+  {
+    Map<String, CompilationUnitTree> closure = new LinkedHashMap<>();
+    closure.put( fqn, compiler.parse( root ) );
+    ArrayDeque<String> queue = new ArrayDeque<>();
+    queue.add( fqn );
+    while( !queue.isEmpty() && closure.size() < maxBatchSize )
+    {
+      String next = queue.remove();
+      if( next.equals( fqn ) && !isBatchable( root ) )
+      {
+        // the root's references are followed only if it is a manifold type
+        continue;
+      }
+      for( String candidate: findReferencedNames( next, closure.get( next ) ) )
+      {
+        if( closure.size() >= maxBatchSize )
+        {
+          break;
+        }
+        if( closure.containsKey( candidate ) || _mfm.findCompiledFile( candidate ) != null ||
+            getHost().getSingleModule().findTypeManifoldsFor( candidate ).isEmpty() )
+        {
+          continue;
+        }
+        Pair<JavaFileObject, String> found = findJavaSource( candidate, errorHandler );
+        if( found != null && isBatchable( found.getFirst() ) && !closure.containsKey( found.getSecond() ) )
+        {
+          closure.put( found.getSecond(), compiler.parse( found.getFirst() ) );
+          queue.add( found.getSecond() );
+        }
+      }
+    }
+    return closure;
+  }
+
+  private boolean isBatchable( JavaFileObject file )
+  {
+    // exclude extended classes, those are not compiled at runtime, and types the manifold compiles itself
+    return file instanceof GeneratedJavaStubFileObject &&
+           ((GeneratedJavaStubFileObject)file).isPrimary() &&
+           !((GeneratedJavaStubFileObject)file).isSelfCompile();
+  }
+
+  /**
+   * @return The names in type positions of {@code tree}: declared types of variables, fields and methods, extends and
+   * implements clauses, casts, instanceof, new, generic arguments, annotations, class literals and qualifiers of static
+   * calls, each resolved as qualified, as imported, and as a member of {@code fqn}'s package.
+   */
+  private Set<String> findReferencedNames( String fqn, CompilationUnitTree tree )
+  {
+    List<String> imports = new ArrayList<>();
+    tree.getImports().forEach( imp -> imports.add( imp.getQualifiedIdentifier().toString() ) );
+    TypeNameScanner scanner = new TypeNameScanner( ManClassUtil.getPackage( fqn ), imports );
+    scanner.scan( tree.getTypeDecls(), null );
+    Set<String> names = scanner._names;
+    names.addAll( imports );
+    names.remove( fqn );
+    names.removeIf( name -> !QUALIFIED_NAME.matcher( name ).matches() );
+    return names;
+  }
+
+  private static class TypeNameScanner extends TreeScanner<Void, Void>
+  {
+    private final String _pkg;
+    private final List<String> _imports;
+    private final Set<String> _names;
+
+    TypeNameScanner( String pkg, List<String> imports )
+    {
+      _pkg = pkg;
+      _imports = imports;
+      _names = new LinkedHashSet<>();
+    }
+
+    @Override
+    public Void visitClass( ClassTree node, Void aVoid )
+    {
+      addType( node.getExtendsClause() );
+      node.getImplementsClause().forEach( this::addType );
+      return super.visitClass( node, aVoid );
+    }
+
+    @Override
+    public Void visitTypeParameter( TypeParameterTree node, Void aVoid )
+    {
+      node.getBounds().forEach( this::addType );
+      return super.visitTypeParameter( node, aVoid );
+    }
+
+    @Override
+    public Void visitMethod( MethodTree node, Void aVoid )
+    {
+      addType( node.getReturnType() );
+      node.getThrows().forEach( this::addType );
+      return super.visitMethod( node, aVoid );
+    }
+
+    @Override
+    public Void visitVariable( VariableTree node, Void aVoid )
+    {
+      addType( node.getType() );
+      return super.visitVariable( node, aVoid );
+    }
+
+    @Override
+    public Void visitTypeCast( TypeCastTree node, Void aVoid )
+    {
+      addType( node.getType() );
+      return super.visitTypeCast( node, aVoid );
+    }
+
+    @Override
+    public Void visitInstanceOf( InstanceOfTree node, Void aVoid )
+    {
+      addType( node.getType() );
+      return super.visitInstanceOf( node, aVoid );
+    }
+
+    @Override
+    public Void visitNewClass( NewClassTree node, Void aVoid )
+    {
+      addType( node.getIdentifier() );
+      node.getTypeArguments().forEach( this::addType );
+      return super.visitNewClass( node, aVoid );
+    }
+
+    @Override
+    public Void visitNewArray( NewArrayTree node, Void aVoid )
+    {
+      addType( node.getType() );
+      return super.visitNewArray( node, aVoid );
+    }
+
+    @Override
+    public Void visitMethodInvocation( MethodInvocationTree node, Void aVoid )
+    {
+      node.getTypeArguments().forEach( this::addType );
+      Tree select = node.getMethodSelect();
+      if( select instanceof MemberSelectTree &&
+          ((MemberSelectTree)select).getExpression() instanceof MemberSelectTree )
+      {
+        // qualified static call e.g., abc.Foo.bar()
+        addType( ((MemberSelectTree)select).getExpression() );
+      }
+      return super.visitMethodInvocation( node, aVoid );
+    }
+
+    @Override
+    public Void visitMemberReference( MemberReferenceTree node, Void aVoid )
+    {
+      if( node.getMode() == MemberReferenceTree.ReferenceMode.NEW )
+      {
+        addType( node.getQualifierExpression() );
+      }
+      return super.visitMemberReference( node, aVoid );
+    }
+
+    @Override
+    public Void visitMemberSelect( MemberSelectTree node, Void aVoid )
+    {
+      if( node.getIdentifier().contentEquals( "class" ) )
+      {
+        addType( node.getExpression() );
+      }
+      return super.visitMemberSelect( node, aVoid );
+    }
+
+    @Override
+    public Void visitAnnotation( AnnotationTree node, Void aVoid )
+    {
+      addType( node.getAnnotationType() );
+      return super.visitAnnotation( node, aVoid );
+    }
+
+    private void addType( Tree type )
+    {
+      if( type instanceof IdentifierTree || type instanceof MemberSelectTree )
+      {
+        addName( type.toString() );
+      }
+      else if( type instanceof ParameterizedTypeTree )
+      {
+        addType( ((ParameterizedTypeTree)type).getType() );
+        ((ParameterizedTypeTree)type).getTypeArguments().forEach( this::addType );
+      }
+      else if( type instanceof ArrayTypeTree )
+      {
+        addType( ((ArrayTypeTree)type).getType() );
+      }
+      else if( type instanceof WildcardTree )
+      {
+        addType( ((WildcardTree)type).getBound() );
+      }
+      else if( type instanceof UnionTypeTree )
+      {
+        ((UnionTypeTree)type).getTypeAlternatives().forEach( this::addType );
+      }
+      else if( type instanceof IntersectionTypeTree )
+      {
+        ((IntersectionTypeTree)type).getBounds().forEach( this::addType );
+      }
+      else if( type instanceof AnnotatedTypeTree )
+      {
+        addType( ((AnnotatedTypeTree)type).getUnderlyingType() );
+      }
+    }
+
+    private void addName( String name )
+    {
+      int iDot = name.indexOf( '.' );
+      String first = iDot < 0 ? name : name.substring( 0, iDot );
+      if( iDot > 0 )
+      {
+        _names.add( name );
+      }
+      _names.add( _pkg.isEmpty() ? name : _pkg + '.' + name );
+      for( String imp: _imports )
+      {
+        if( imp.endsWith( '.' + first ) )
+        {
+          _names.add( imp + name.substring( first.length() ) );
+        }
+        else if( imp.endsWith( ".*" ) )
+        {
+          _names.add( imp.substring( 0, imp.length() - 1 ) + name );
+        }
+      }
+    }
+  }
+
   /**
    * Compiles fresh, no caching.  Intended for use with parser feedback tooling e.g., a Java editor.
    */
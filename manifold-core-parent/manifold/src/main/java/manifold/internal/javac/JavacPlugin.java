@@ -92,6 +92,12 @@ public class JavacPlugin implements Plugin, TaskListener
   public static final String ARG_EXCEPTIONS = "exceptions";
   /** disables &lt;clinit&gt; bootstap */
   public static final String ARG_NO_BOOTSTRAP = "no-bootstrap";
+  /** compiles @Jailbreak member access to invokedynamic call sites instead of reflective calls */
+  public static final String ARG_JAILBREAK_INDY = "jailbreak-indy";
+  /** compiles calls through structural interfaces to invokedynamic call sites instead of proxy calls */
+  public static final String ARG_STRUCTURAL_INDY = "structural-indy";
+  /** generates structural proxy classes for casts with a concrete static type, instead of at runtime */
+  public static final String ARG_STRUCTURAL_PROXIES = "structural-proxies";
   /** all plugin args */
   public static final String[] ARGS =
   {
@@ -100,6 +106,9 @@ public class JavacPlugin implements Plugin, TaskListener
     ARG_STRINGS,
     ARG_EXCEPTIONS,
     ARG_NO_BOOTSTRAP,
+    ARG_JAILBREAK_INDY,
+    ARG_STRUCTURAL_INDY,
+    ARG_STRUCTURAL_PROXIES,
   };
 
   private static final String OTHER_SOURCE_FILES = "other.source.files";
@@ -141,6 +150,7 @@ public class JavacPlugin implements Plugin, TaskListener
   private Map<Context, Set<Symbol>> _seenModules;
   private Map<String, Boolean> _argPresent;
   private ConcurrentHashSet<Pair<String, JavaFileManager.Location>> _extraClasses;
+  private SourcePrefetcher _sourcePrefetcher;
 
   public static JavacPlugin instance()
   {
@@ -169,6 +179,7 @@ public class JavacPlugin implements Plugin, TaskListener
     processArgs( jpe, args );
 
     _host = new JavacManifoldHost();
+    _sourcePrefetcher = SourcePrefetcher.make();
     hijackJavacFileManager();
     task.addTaskListener( this );
   }
@@ -267,6 +278,14 @@ public class JavacPlugin implements Plugin, TaskListener
     return _otherInputFiles;
   }
 
+  /**
+   * @return The prefetcher producing generated sources ahead of javac, or null if prefetching is not enabled.
+   */
+  SourcePrefetcher getSourcePrefetcher()
+  {
+    return _sourcePrefetcher;
+  }
+
   @SuppressWarnings("WeakerAccess")
   public TreeMaker getTreeMaker()
   {
@@ -960,4 +979,19 @@ public class JavacPlugin implements Plugin, TaskListener
   {
     return _argPresent.get( ARG_NO_BOOTSTRAP );
   }
+
+  public boolean isJailbreakIndy()
+  {
+    return _argPresent.get( ARG_JAILBREAK_INDY );
+  }
+
+  public boolean isStructuralIndy()
+  {
+    return _argPresent.get( ARG_STRUCTURAL_INDY );
+  }
+
+  public boolean isStructuralProxies()
+  {
+    return _argPresent.get( ARG_STRUCTURAL_PROXIES );
+  }
 }
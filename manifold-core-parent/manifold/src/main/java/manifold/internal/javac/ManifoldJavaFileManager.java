@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import javax.tools.DiagnosticListener;
 import javax.tools.FileObject;
@@ -248,11 +249,29 @@ class ManifoldJavaFileManager extends JavacFileManagerBridge<JavaFileManager> im
           }
         }
       }
+      prefetch( newList );
       list = newList;
     }
     return list;
   }
 
+  private void prefetch( List<JavaFileObject> files )
+  {
+    SourcePrefetcher prefetcher = _fromJavaC ? JavacPlugin.instance().getSourcePrefetcher() : null;
+    if( prefetcher == null )
+    {
+      return;
+    }
+
+    for( JavaFileObject file : files )
+    {
+      if( file instanceof GeneratedJavaStubFileObject )
+      {
+        ((GeneratedJavaStubFileObject)file).prefetch( prefetcher );
+      }
+    }
+  }
+
   private boolean isCorrectModule( IModule module, Location location, Iterable<JavaFileObject> patchableFiles, JavaFileObject file, String fqn )
   {
     if( !(location instanceof ManPatchModuleLocation) )
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2018 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.internal.javac;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Produces the source of generated types on a bounded pool of worker threads ahead of javac reading them. Enable it
+ * with the {@code manifold.javac.prefetch} system property, the value of which is the number of worker threads e.g.,
+ * {@code -Dmanifold.javac.prefetch=4}.
+ * <p/>
+ * When {@link ManifoldJavaFileManager#list} finds the types of a package, their sources are submitted here, so by the
+ * time javac completes a class its source is likely finished. Only the types of type manifolds declaring themselves
+ * thread-safe are prefetched, see {@link manifold.api.type.ITypeManifold#isThreadSafe()}, since a worker runs a type
+ * manifold while javac uses it.
+ * <p/>
+ * Since javac's {@code Log} is not thread-safe, diagnostics a worker reports through {@link IssueReporter} are deferred
+ * and replayed on the javac thread when it reads the source. That covers the listener passed to {@code contribute()}.
+ * Diagnostics reported to any other listener, such as one a type manifold keeps or javac's {@code Log} used directly,
+ * are not deferred, they are reported on the worker thread. If javac gets to a source before a worker starts on it,
+ * the task is cancelled and the source is produced on the javac thread as usual.
+ */
+class SourcePrefetcher
+{
+  static final String PREFETCH = "manifold.javac.prefetch";
+
+  private static final ThreadLocal<List<Runnable>> DEFERRED = new ThreadLocal<>();
+
+  private final ThreadPoolExecutor _executor;
+
+  /**
+   * @return A prefetcher, or null if prefetching is not enabled.
+   */
+  static SourcePrefetcher make()
+  {
+    int threads = Integer.getInteger( PREFETCH, 0 );
+    return threads > 0 ? new SourcePrefetcher( threads ) : null;
+  }
+
+  private SourcePrefetcher( int threads )
+  {
+    AtomicInteger count = new AtomicInteger();
+    _executor = new ThreadPoolExecutor( threads, threads, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+      r -> {
+        Thread thread = new Thread( r, "manifold-prefetch-" + count.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+      } );
+    // idle workers go away, no need to shut down when compilation ends
+    _executor.allowCoreThreadTimeOut( true );
+  }
+
+  /**
+   * Runs {@code produce} on a worker thread.
+   *
+   * @return The prefetch, pass to {@link #await(Prefetch)} on the javac thread.
+   */
+  Prefetch submit( Runnable produce )
+  {
+    Prefetch prefetch = new Prefetch( produce );
+    _executor.execute( prefetch );
+    return prefetch;
+  }
+
+  /**
+   * Waits for a prefetch to finish and replays its diagnostics on the calling thread. If the prefetch has not started,
+   * it never will. If it failed, its diagnostics are dropped. Either way the caller then produces the source itself,
+   * reporting diagnostics as usual.
+   */
+  static void await( Prefetch prefetch )
+  {
+    if( prefetch.claim() )
+    {
+      prefetch.cancel( false );
+      return;
+    }
+
+    try
+    {
+      prefetch.get().forEach( Runnable::run );
+    }
+    catch( ExecutionException | CancellationException ignore )
+    {
+    }
+    catch( InterruptedException e )
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return True if the calling thread is a prefetch worker, in which case {@code report} runs later on the javac thread.
+   */
+  static boolean defer( Runnable report )
+  {
+    List<Runnable> deferred = DEFERRED.get();
+    if( deferred == null )
+    {
+      return false;
+    }
+    deferred.add( report );
+    return true;
+  }
+
+  /**
+   * Produces the source on a worker, unless the javac thread claims it first. Note a running task can still be
+   * cancelled, so cancelling alone does not tell whether the worker started.
+   */
+  static class Prefetch extends FutureTask<List<Runnable>>
+  {
+    private final AtomicBoolean _claimed;
+
+    private Prefetch( Runnable produce )
+    {
+      this( produce, new AtomicBoolean() );
+    }
+
+    private Prefetch( Runnable produce, AtomicBoolean claimed )
+    {
+      super( () -> {
+        List<Runnable> deferred = new ArrayList<>();
+        if( claimed.compareAndSet( false, true ) )
+        {
+          DEFERRED.set( deferred );
+          try
+          {
+            produce.run();
+          }
+          finally
+          {
+            DEFERRED.remove();
+          }
+        }
+        return deferred;
+      } );
+      _claimed = claimed;
+    }
+
+    private boolean claim()
+    {
+      return _claimed.compareAndSet( false, true );
+    }
+  }
+}
@@ -67,6 +67,19 @@ public class SourceSupplier
            _sps.stream().anyMatch( tm -> tm.isSelfCompile( _fqn ) );
   }
 
+  /**
+   * Can the source be produced off the javac thread? Only if all the type manifolds producing it say they are
+   * thread-safe, see {@link ITypeManifold#isThreadSafe()}. Supplemental producers such as extensions work with javac's
+   * symbols and trees, which are not thread-safe.
+   */
+  public boolean isPrefetchable()
+  {
+    return _sps != null && !_sps.isEmpty() &&
+           _sps.stream().allMatch( ITypeManifold::isThreadSafe ) &&
+           _sps.stream().noneMatch( tm -> tm.getContributorKind() == ContributorKind.Supplemental ||
+                                          tm.isSelfCompile( _fqn ) );
+  }
+
   public byte[] compile()
   {
     return _sps.stream()
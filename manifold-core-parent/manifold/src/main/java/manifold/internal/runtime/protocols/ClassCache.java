@@ -0,0 +1,531 @@
+/*
+ * Copyright (c) 2018 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.internal.runtime.protocols;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import manifold.api.fs.IFile;
+import manifold.api.type.ContributorKind;
+import manifold.api.type.ITypeManifold;
+import manifold.internal.host.RuntimeManifoldHost;
+import manifold.internal.javac.InMemoryClassJavaFileObject;
+import manifold.util.PerfLogUtil;
+import manifold.util.StreamUtil;
+import manifold.util.concurrent.LocklessLazyVar;
+
+/**
+ * An opt-in, content-addressed, on-disk cache of class files compiled at runtime from manifold types. Enable it with
+ * the {@code manifold.class.cache} system property, the value of which is the cache directory e.g.,
+ * {@code -Dmanifold.class.cache=/var/cache/myapp/manifold}.
+ * <p/>
+ * An entry's key is a SHA-256 digest of the class name, the compiler options, the JDK version, the version of the
+ * manifold core and of each type manifold producing the type, and the location and content of each resource file the
+ * type is produced from. Since any change to these inputs yields a different key, such a stale entry is never found;
+ * it is simply orphaned. The class may also depend on other manifold types e.g., a JSON type referencing another JSON
+ * file, so when an entry is written it records a digest of the resource files of each manifold type the class
+ * references, directly or through the classes of those types, including the dependencies recorded for the types loaded
+ * from the cache. If one of those files differs on read, the entry is stale and is treated as a miss. Neither the key
+ * nor the check on read generates Java source or involves the {@link manifold.internal.javac.JavaParser}, a hit only
+ * reads files. Entries are written to a temp file and then atomically moved into place, and an entry that fails to
+ * verify on read is deleted and treated as a miss.
+ */
+class ClassCache
+{
+  private static final String CLASS_CACHE_DIR = "manifold.class.cache";
+  private static final int MAGIC = 0x4D414E45; // MANE
+  private static final int CLASSFILE_MAGIC = 0xCAFEBABE;
+
+  /**
+   * The version of the code of a class, such as a type manifold generating the source of the cached classes
+   */
+  private static final ClassValue<String> CODE_VERSIONS = new ClassValue<String>()
+  {
+    @Override
+    protected String computeValue( Class<?> type )
+    {
+      return getCodeVersion( type );
+    }
+  };
+
+  private static final LocklessLazyVar<ClassCache> INSTANCE =
+    LocklessLazyVar.make( () -> {
+      String dir = System.getProperty( CLASS_CACHE_DIR );
+      return dir == null || dir.isEmpty()
+             ? null
+             : new ClassCache( new File( dir ).toPath(),
+               fqn -> RuntimeManifoldHost.get().getSingleModule().findTypeManifoldsFor( fqn ),
+               ClassCache::findCompiledClass );
+    } );
+
+  private final Path _dir;
+  private final Function<String, Set<ITypeManifold>> _typeManifoldFinder;
+  private final Function<String, byte[]> _compiledClassFinder;
+  private final String _versionStamp;
+  private final AtomicInteger _hits;
+  private final AtomicInteger _misses;
+
+  /**
+   * @return The class cache, or null if the cache is not enabled.
+   */
+  static ClassCache instance()
+  {
+    return INSTANCE.get();
+  }
+
+  /**
+   * @param typeManifoldFinder  Finds the type manifolds producing a type by name
+   * @param compiledClassFinder Finds the bytecode of a class already compiled by name, or null if it is not compiled.
+   *                            Only used when writing an entry.
+   */
+  ClassCache( Path dir, Function<String, Set<ITypeManifold>> typeManifoldFinder, Function<String, byte[]> compiledClassFinder )
+  {
+    _dir = dir;
+    _typeManifoldFinder = typeManifoldFinder;
+    _compiledClassFinder = compiledClassFinder;
+    _versionStamp = makeVersionStamp();
+    _hits = new AtomicInteger();
+    _misses = new AtomicInteger();
+  }
+
+  /**
+   * Makes the cache key for the class {@code fqn}.
+   *
+   * @return The key or null if the type is not cacheable e.g., it is not produced from resource files.
+   */
+  String makeKey( String fqn, List<String> options )
+  {
+    Set<ITypeManifold> tms = _typeManifoldFinder.apply( fqn );
+    Set<IFile> resourceFiles = findResourceFiles( fqn, tms );
+    if( resourceFiles.isEmpty() )
+    {
+      return null;
+    }
+
+    try
+    {
+      MessageDigest md = newDigest();
+      update( md, fqn );
+      update( md, String.join( " ", options ) );
+      update( md, _versionStamp );
+      // a new version of a manifold may generate different source from the same resources
+      for( String tmVersion: tms.stream()
+        .map( tm -> tm.getClass().getName() + ' ' + CODE_VERSIONS.get( tm.getClass() ) )
+        .sorted().collect( Collectors.toList() ) )
+      {
+        update( md, tmVersion );
+      }
+      for( Map.Entry<String, String> file: digest( resourceFiles ).entrySet() )
+      {
+        update( md, file.getKey() );
+        update( md, file.getValue() );
+      }
+      return toHex( md.digest() );
+    }
+    catch( IOException | RuntimeException e )
+    {
+      // a resource file is not readable, don't cache
+      return null;
+    }
+  }
+
+  /**
+   * @return True if there is an entry for {@code key}. It may still turn out stale or corrupt, see {@link #get}.
+   */
+  boolean contains( String key )
+  {
+    return Files.isRegularFile( getEntry( key ) );
+  }
+
+  /**
+   * @return The cached bytecode for {@code key}, or null if it is not cached.
+   */
+  byte[] get( String fqn, String key )
+  {
+    Path entry = getEntry( key );
+    byte[] bytes = Files.isRegularFile( entry ) ? read( entry, key ) : null;
+    if( bytes == null )
+    {
+      PerfLogUtil.logHitMiss( "classCache miss " + fqn, _hits.get(), _misses.incrementAndGet() );
+    }
+    else
+    {
+      PerfLogUtil.logHitMiss( "classCache hit " + fqn, _hits.incrementAndGet(), _misses.get() );
+    }
+    return bytes;
+  }
+
+  /**
+   * @param options The compiler options of the class, as given to {@link #makeKey(String, List)}
+   */
+  void put( String fqn, List<String> options, String key, byte[] bytes )
+  {
+    Path entry = getEntry( key );
+    try
+    {
+      Files.createDirectories( entry.getParent() );
+      Path tmp = Files.createTempFile( entry.getParent(), key, ".tmp" );
+      try
+      {
+        Map<String, String> dependencies = findDependencies( fqn, options, bytes );
+        ByteArrayOutputStream content = new ByteArrayOutputStream( bytes.length + 64 );
+        try( DataOutputStream out = new DataOutputStream( content ) )
+        {
+          out.writeInt( MAGIC );
+          out.writeUTF( key );
+          out.writeInt( dependencies.size() );
+          for( Map.Entry<String, String> dependency: dependencies.entrySet() )
+          {
+            out.writeUTF( dependency.getKey() );
+            out.writeUTF( dependency.getValue() );
+          }
+          out.writeInt( bytes.length );
+          out.write( bytes );
+        }
+        Files.write( tmp, content.toByteArray() );
+        Files.move( tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+      }
+      finally
+      {
+        Files.deleteIfExists( tmp );
+      }
+    }
+    catch( IOException | RuntimeException e )
+    {
+      // the cache is an optimization, failing to write an entry is not fatal
+      PerfLogUtil.log( "classCache failed to write " + entry + ": " + e.getMessage() );
+    }
+  }
+
+  private byte[] read( Path entry, String key )
+  {
+    try( DataInputStream in = new DataInputStream( Files.newInputStream( entry ) ) )
+    {
+      if( in.readInt() == MAGIC && in.readUTF().equals( key ) )
+      {
+        boolean current = true;
+        for( int i = in.readInt(); i > 0; i-- )
+        {
+          String uri = in.readUTF();
+          String digest = in.readUTF();
+          current = current && digest.equals( digest( URI.create( uri ) ) );
+        }
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully( bytes );
+        if( current && bytes.length > 4 && in.read() < 0 &&
+            ((bytes[0] & 0xff) << 24 | (bytes[1] & 0xff) << 16 | (bytes[2] & 0xff) << 8 | (bytes[3] & 0xff)) == CLASSFILE_MAGIC )
+        {
+          return bytes;
+        }
+      }
+    }
+    catch( IOException | RuntimeException ignore )
+    {
+    }
+
+    // corrupt or truncated entry, or a resource file it depends on changed
+    try
+    {
+      Files.deleteIfExists( entry );
+    }
+    catch( IOException ignore )
+    {
+    }
+    return null;
+  }
+
+  /**
+   * @return The dependencies recorded in the entry for {@code key}, by file URI, or null if there is no readable entry
+   */
+  private Map<String, String> readDependencies( String key )
+  {
+    Path entry = getEntry( key );
+    if( !Files.isRegularFile( entry ) )
+    {
+      return null;
+    }
+    try( DataInputStream in = new DataInputStream( Files.newInputStream( entry ) ) )
+    {
+      if( in.readInt() != MAGIC || !in.readUTF().equals( key ) )
+      {
+        return null;
+      }
+      Map<String, String> dependencies = new TreeMap<>();
+      for( int i = in.readInt(); i > 0; i-- )
+      {
+        dependencies.put( in.readUTF(), in.readUTF() );
+      }
+      return dependencies;
+    }
+    catch( IOException | RuntimeException e )
+    {
+      return null;
+    }
+  }
+
+  /**
+   * @return The resource files {@code fqn} is produced from, or an empty set if its class is not cacheable
+   */
+  private Set<IFile> findResourceFiles( String fqn )
+  {
+    return findResourceFiles( fqn, _typeManifoldFinder.apply( fqn ) );
+  }
+
+  private Set<IFile> findResourceFiles( String fqn, Set<ITypeManifold> tms )
+  {
+    // extended Java classes are not produced from resources, and a manifold compiling its types itself is not cached
+    if( tms.isEmpty() ||
+        tms.stream().noneMatch( tm -> tm.getContributorKind() == ContributorKind.Primary ||
+                                      tm.getContributorKind() == ContributorKind.Partial ) ||
+        tms.stream().anyMatch( tm -> tm.isSelfCompile( fqn ) ) )
+    {
+      return Collections.emptySet();
+    }
+    return tms.stream().flatMap( tm -> tm.findFilesForType( fqn ).stream() ).collect( Collectors.toSet() );
+  }
+
+  /**
+   * @return A digest of the resource files of each manifold type the class file references, by file URI. References
+   * are followed through the classes of those types compiled in this process. A class loaded from the cache instead
+   * was not compiled here, the dependencies recorded in its entry are included.
+   */
+  private Map<String, String> findDependencies( String fqn, List<String> options, byte[] bytes ) throws IOException
+  {
+    Set<IFile> files = new HashSet<>();
+    Map<String, String> recorded = new TreeMap<>();
+    Set<String> visited = new HashSet<>();
+    visited.add( fqn );
+    ArrayDeque<byte[]> queue = new ArrayDeque<>();
+    queue.add( bytes );
+    while( !queue.isEmpty() )
+    {
+      for( String name: findClassNames( queue.remove() ) )
+      {
+        if( !visited.add( name ) )
+        {
+          continue;
+        }
+
+        // a nested class is produced from its top-level class's resources
+        int iDollar = name.indexOf( '$' );
+        String topLevel = iDollar > 0 ? name.substring( 0, iDollar ) : name;
+        Set<IFile> resourceFiles = topLevel.equals( fqn ) ? Collections.emptySet() : findResourceFiles( topLevel );
+        if( !resourceFiles.isEmpty() || topLevel.equals( fqn ) )
+        {
+          files.addAll( resourceFiles );
+          byte[] referenced = _compiledClassFinder.apply( name );
+          if( referenced != null )
+          {
+            queue.add( referenced );
+          }
+          else if( !topLevel.equals( fqn ) )
+          {
+            String key = makeKey( name, options );
+            Map<String, String> dependencies = key == null ? null : readDependencies( key );
+            if( dependencies != null )
+            {
+              recorded.putAll( dependencies );
+            }
+          }
+        }
+      }
+    }
+    Map<String, String> dependencies = digest( files );
+    recorded.forEach( dependencies::putIfAbsent );
+    return dependencies;
+  }
+
+  private static Map<String, String> digest( Set<IFile> files ) throws IOException
+  {
+    Map<String, String> digests = new TreeMap<>();
+    for( IFile file: files )
+    {
+      URI uri = file.toURI();
+      digests.put( uri.toString(), digest( uri ) );
+    }
+    return digests;
+  }
+
+  private static String digest( URI uri ) throws IOException
+  {
+    URLConnection connection = uri.toURL().openConnection();
+    // don't keep a jar file open
+    connection.setUseCaches( false );
+    try( InputStream in = connection.getInputStream() )
+    {
+      MessageDigest md = newDigest();
+      md.update( StreamUtil.getContent( in ) );
+      return toHex( md.digest() );
+    }
+  }
+
+  /**
+   * @return The names of the classes in the constant pool of the class file
+   */
+  private static List<String> findClassNames( byte[] bytes ) throws IOException
+  {
+    DataInputStream in = new DataInputStream( new ByteArrayInputStream( bytes ) );
+    in.skipBytes( 8 ); // magic, minor and major version
+    int count = in.readUnsignedShort();
+    String[] utf8 = new String[count];
+    int[] classNameIndexes = new int[count];
+    for( int i = 1; i < count; i++ )
+    {
+      int tag = in.readUnsignedByte();
+      switch( tag )
+      {
+        case 1: // Utf8
+          utf8[i] = in.readUTF();
+          break;
+        case 7: // Class
+          classNameIndexes[i] = in.readUnsignedShort();
+          break;
+        case 8: // String
+        case 16: // MethodType
+        case 19: // Module
+        case 20: // Package
+          in.skipBytes( 2 );
+          break;
+        case 15: // MethodHandle
+          in.skipBytes( 3 );
+          break;
+        case 3: // Integer
+        case 4: // Float
+        case 9: // Fieldref
+        case 10: // Methodref
+        case 11: // InterfaceMethodref
+        case 12: // NameAndType
+        case 17: // Dynamic
+        case 18: // InvokeDynamic
+          in.skipBytes( 4 );
+          break;
+        case 5: // Long
+        case 6: // Double
+          in.skipBytes( 8 );
+          i++; // takes two entries
+          break;
+        default:
+          throw new IOException( "Unexpected constant pool tag: " + tag );
+      }
+    }
+
+    List<String> names = new ArrayList<>();
+    for( int nameIndex: classNameIndexes )
+    {
+      String name = nameIndex == 0 ? null : utf8[nameIndex];
+      if( name != null )
+      {
+        // array classes e.g., [[Ljava/lang/String;
+        name = name.substring( name.lastIndexOf( '[' ) + 1 );
+        if( name.length() != 1 )
+        {
+          names.add( (name.endsWith( ";" ) ? name.substring( 1, name.length() - 1 ) : name).replace( '/', '.' ) );
+        }
+      }
+    }
+    return names;
+  }
+
+  private static byte[] findCompiledClass( String fqn )
+  {
+    InMemoryClassJavaFileObject cls = RuntimeManifoldHost.get().getJavaParser().findCompiledClass( fqn );
+    return cls == null ? null : cls.getBytes();
+  }
+
+  private Path getEntry( String key )
+  {
+    return _dir.resolve( key.substring( 0, 2 ) ).resolve( key + ".class" );
+  }
+
+  private static String makeVersionStamp()
+  {
+    return System.getProperty( "java.vendor" ) + ' ' + System.getProperty( "java.version" ) + ' ' +
+           System.getProperty( "java.vm.version" ) + ' ' + CODE_VERSIONS.get( ClassCache.class );
+  }
+
+  /**
+   * @return The implementation version of {@code type}'s package and the path, time and size of the file it is loaded
+   * from
+   */
+  private static String getCodeVersion( Class<?> type )
+  {
+    Package pkg = type.getPackage();
+    String version = pkg == null ? null : pkg.getImplementationVersion();
+    CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+    URL location = codeSource == null ? null : codeSource.getLocation();
+    if( location != null && "file".equals( location.getProtocol() ) )
+    {
+      // covers snapshot builds where the version alone does not identify the build
+      File file = new File( location.getPath() );
+      version += ' ' + location.getPath() + ' ' + file.lastModified() + ' ' + file.length();
+    }
+    return String.valueOf( version );
+  }
+
+  private static MessageDigest newDigest()
+  {
+    try
+    {
+      return MessageDigest.getInstance( "SHA-256" );
+    }
+    catch( NoSuchAlgorithmException e )
+    {
+      throw new IllegalStateException( e );
+    }
+  }
+
+  private static void update( MessageDigest md, String s )
+  {
+    md.update( s.getBytes( StandardCharsets.UTF_8 ) );
+    md.update( (byte)0 );
+  }
+
+  private static String toHex( byte[] bytes )
+  {
+    StringBuilder sb = new StringBuilder( bytes.length * 2 );
+    for( byte b: bytes )
+    {
+      sb.append( Character.forDigit( (b >> 4) & 0xf, 16 ) ).append( Character.forDigit( b & 0xf, 16 ) );
+    }
+    return sb.toString();
+  }
+}
@@ -26,6 +26,7 @@ import java.net.URLConnection;
 import java.net.URLDecoder;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
@@ -39,6 +40,7 @@ import manifold.internal.javac.JavaCompileIssuesException;
 import manifold.internal.javac.StringJavaFileObject;
 import manifold.util.Pair;
 import manifold.util.PerfLogUtil;
+import manifold.util.concurrent.LocklessLazyVar;
 
 /**
  */
@@ -50,6 +52,13 @@ public class ManClassesUrlConnection extends URLConnection
     "java/", "javax/", "sun/"
   };
   private static final String META_INF_MANIFEST_MF = "META-INF/MANIFEST.MF";
+  private static final List<String> COMPILE_OPTIONS = Arrays.asList( "-source", "8", "-g", "-nowarn", "-Xlint:none", "-proc:none", "-parameters" );
+  /**
+   * If greater than one, a runtime compile of a manifold type includes up to this many of the manifold types it
+   * references, all compiled in one javac task. Set with {@code -Dmanifold.runtime.batch=<size>}.
+   */
+  private static final LocklessLazyVar<Integer> BATCH_SIZE =
+    LocklessLazyVar.make( () -> Integer.getInteger( "manifold.runtime.batch", 0 ) );
   private static final ThreadLocal<Map<String, Supplier<String>>> _proxySupplierByFqn = ThreadLocal.withInitial( HashMap::new );
 
   public static Supplier<String> getProxySupplier( String fqnProxy )
@@ -68,6 +77,7 @@ public class ManClassesUrlConnection extends URLConnection
   }
 
   private JavaFileObject _javaSrcFile;
+  private String _classCacheKey;
   private Supplier<String> _proxySupplier;
   private String _javaFqn;
 
@@ -99,7 +109,7 @@ public class ManClassesUrlConnection extends URLConnection
     {
       return false;
     }
-    if( _javaSrcFile == null && _proxySupplier == null && !_bDirectory )
+    if( _javaSrcFile == null && _classCacheKey == null && _proxySupplier == null && !_bDirectory )
     {
       //noinspection deprecation
       String strPath = URLDecoder.decode( getURL().getPath() );
@@ -123,7 +133,7 @@ public class ManClassesUrlConnection extends URLConnection
           _bDirectory = true;
         }
       }
-      _bInvalid = _javaSrcFile == null && _proxySupplier == null && !_bDirectory;
+      _bInvalid = _javaSrcFile == null && _classCacheKey == null && _proxySupplier == null && !_bDirectory;
     }
     return !_bInvalid;
   }
@@ -164,6 +174,16 @@ public class ManClassesUrlConnection extends URLConnection
     {
       if( strType != null )
       {
+        ClassCache classCache = ClassCache.instance();
+        String key = classCache == null ? null : classCache.makeKey( strType, COMPILE_OPTIONS );
+        if( key != null && classCache.contains( key ) )
+        {
+          // a cached class needs no source, see compileJavaClass()
+          _classCacheKey = key;
+          _javaFqn = strType;
+          return;
+        }
+
         // If there were a class file for the Java type on disk, it would have loaded by now (the manifoldclass protocol is last).
         // Therefore we compile and load the java class from the Java source file, eventually a JavaType based on the resulting class
         // may load, if a source-based one hasn't already loaded.
@@ -174,6 +194,8 @@ public class ManClassesUrlConnection extends URLConnection
           {
             _javaSrcFile = pair.getFirst();
             _javaFqn = strType;
+            // cache the class compiled from the source
+            _classCacheKey = key;
           }
         }
         catch( NoClassDefFoundError e )
@@ -200,7 +222,7 @@ public class ManClassesUrlConnection extends URLConnection
   @Override
   public InputStream getInputStream() throws IOException
   {
-    if( _javaSrcFile != null || _proxySupplier != null )
+    if( _javaSrcFile != null || _classCacheKey != null || _proxySupplier != null )
     {
       // Avoid compiling until the bytes are actually requested;
       // sun.misc.URLClassPath grabs the inputstream twice, the first time is for practice :)
@@ -238,7 +260,7 @@ public class ManClassesUrlConnection extends URLConnection
 //        {
 //          _buf = _bytecodeSupplier.get();
 //        }
-        if( _javaSrcFile != null )
+        if( _javaSrcFile != null || _classCacheKey != null )
         {
           _buf = compileJavaClass();
         }
@@ -307,11 +329,29 @@ public class ManClassesUrlConnection extends URLConnection
         }
         else
         {
+          ClassCache classCache = ClassCache.instance();
+          String key = _classCacheKey;
+          if( key != null )
+          {
+            byte[] bytes = classCache.get( _javaFqn, key );
+            if( bytes != null )
+            {
+              return bytes;
+            }
+          }
+
           DiagnosticCollector<JavaFileObject> errorHandler = new DiagnosticCollector<>();
-          InMemoryClassJavaFileObject cls = RuntimeManifoldHost.get().getJavaParser().compile( _javaFqn, Arrays.asList( "-source", "8", "-g", "-nowarn", "-Xlint:none", "-proc:none", "-parameters" ), errorHandler );
+          InMemoryClassJavaFileObject cls = BATCH_SIZE.get() > 1
+            ? RuntimeManifoldHost.get().getJavaParser().compileBatch( _javaFqn, COMPILE_OPTIONS, BATCH_SIZE.get(), errorHandler )
+            : RuntimeManifoldHost.get().getJavaParser().compile( _javaFqn, COMPILE_OPTIONS, errorHandler );
           if( cls != null )
           {
-            return cls.getBytes();
+            byte[] bytes = cls.getBytes();
+            if( key != null )
+            {
+              classCache.put( _javaFqn, COMPILE_OPTIONS, key, bytes );
+            }
+            return bytes;
           }
           throw new JavaCompileIssuesException( _javaFqn, errorHandler );
         }
@@ -334,7 +374,7 @@ public class ManClassesUrlConnection extends URLConnection
       {
         DiagnosticCollector<JavaFileObject> errorHandler = new DiagnosticCollector<>();
         StringJavaFileObject fileObj = new StringJavaFileObject( _javaFqn, source );
-        InMemoryClassJavaFileObject cls = RuntimeManifoldHost.get().getJavaParser().compile( fileObj, _javaFqn, Arrays.asList( "-source", "8", "-g", "-nowarn", "-Xlint:none", "-proc:none", "-parameters" ), errorHandler );
+        InMemoryClassJavaFileObject cls = RuntimeManifoldHost.get().getJavaParser().compile( fileObj, _javaFqn, COMPILE_OPTIONS, errorHandler );
         if( cls != null )
         {
           return cls.getBytes();
@@ -16,6 +16,7 @@
 
 package manifold.util;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -70,37 +71,7 @@ public class JsonUtil
    */
   public static void toJson( Map thisMap, StringBuilder sb, int indent )
   {
-    int iKey = 0;
-    if( isNewLine( sb ) )
-    {
-      indent( sb, indent );
-    }
-    sb.append( "{\n" );
-    if( thisMap.size() > 0 )
-    {
-      for( Object key : thisMap.keySet() )
-      {
-        indent( sb, indent + 2 );
-        sb.append( '\"' ).append( key ).append( '\"' ).append( ": " );
-        Object value = thisMap.get( key );
-        if( value instanceof Map )
-        {
-          toJson( (Map)value, sb, indent + 2 );
-        }
-        else if( value instanceof Iterable )
-        {
-          listToJson( sb, indent + 2, (Iterable)value );
-        }
-        else
-        {
-          appendValue( sb, value );
-        }
-        appendCommaNewLine( sb, iKey < thisMap.size() - 1 );
-        iKey++;
-      }
-    }
-    indent( sb, indent );
-    sb.append( "}" );
+    toJson( sb, indent, (Object)thisMap );
   }
 
   /**
@@ -129,58 +100,34 @@ public class JsonUtil
    */
   public static void toJson( StringBuilder target, int margin, Object value )
   {
-    if( value instanceof Pair )
-    {
-      value = ((Pair)value).getSecond();
-    }
-    if( value instanceof Map )
+    JsonWriter writer = new JsonWriter( target, false );
+    writer._last = target.length() > 0 ? target.charAt( target.length() - 1 ) : 0;
+    try
     {
-      toJson( ((Map)value), target, margin );
+      writer.writeValue( margin, value );
     }
-    else if( value instanceof Iterable )
+    catch( IOException e )
     {
-      listToJson( target, margin, (Iterable)value );
-    }
-    else
-    {
-      appendValue( target, value );
+      // StringBuilder does not throw
+      throw new RuntimeException( e );
     }
   }
 
-  private static boolean isNewLine( StringBuilder sb )
+  /**
+   * Writes the specified JSON {@code value} to {@code target} as it is traversed, without first building the
+   * document in memory. Use a {@link java.io.Writer} target to stream large documents.
+   *
+   * @param compact If true, write without line breaks and indentation, otherwise the format is the same as
+   *                {@link #toJson(Object)}
+   */
+  public static void toJson( Appendable target, Object value, boolean compact ) throws IOException
   {
-    return sb.length() > 0 && sb.charAt( sb.length() - 1 ) == '\n';
+    new JsonWriter( target, compact ).writeValue( 0, value );
   }
 
   public static void listToJson( StringBuilder sb, int indent, Iterable value )
   {
-    sb.append( '[' );
-    int i = 0;
-    for( Iterator iter = value.iterator(); iter.hasNext(); )
-    {
-      Object comp = iter.next();
-      if( i == 0 )
-      {
-        sb.append( "\n" );
-      }
-      if( comp instanceof Map )
-      {
-        toJson( (Map)comp, sb, indent + 2 );
-      }
-      else if( comp instanceof Iterable )
-      {
-        listToJson( sb, indent + 2, (Iterable)comp );
-      }
-      else
-      {
-        indent( sb, indent + 2 );
-        appendValue( sb, comp );
-      }
-      appendCommaNewLine( sb, iter.hasNext() );
-      i++;
-    }
-    indent( sb, indent );
-    sb.append( "]" );
+    toJson( sb, indent, (Object)value );
   }
 
   /**
@@ -193,54 +140,271 @@ public class JsonUtil
     return sb.toString();
   }
 
-
-  private static void appendCommaNewLine( StringBuilder sb, boolean bComma )
+  private static void indent( Appendable target, int indent ) throws IOException
   {
-    if( bComma )
+    while( indent > 0 )
     {
-      sb.append( ',' );
+      int count = Math.min( indent, SPACES.length() );
+      target.append( SPACES, 0, count );
+      indent -= count;
     }
-    sb.append( "\n" );
   }
+  private static final String SPACES = "                                ";
 
-  private static void indent( StringBuilder sb, int indent )
+  public static StringBuilder appendValue( StringBuilder sb, Object comp )
   {
-    int i = 0;
-    while( i < indent )
+    try
+    {
+      new JsonWriter( sb, false ).writeScalar( comp );
+    }
+    catch( IOException e )
     {
-      sb.append( ' ' );
-      i++;
+      // StringBuilder does not throw
+      throw new RuntimeException( e );
     }
+    return sb;
   }
 
-  public static StringBuilder appendValue( StringBuilder sb, Object comp )
+  /**
+   * Writes JSON directly to an {@link Appendable}. Keeps track of the last character written in place of looking
+   * back at the output, which is not possible with a stream.
+   */
+  private static class JsonWriter
   {
-    if( comp instanceof String )
+    private final Appendable _target;
+    private final boolean _compact;
+    private char _last;
+
+    JsonWriter( Appendable target, boolean compact )
     {
-      sb.append( '\"' );
-      sb.append( ManEscapeUtil.escapeForJavaStringLiteral( (String)comp ) );
-      sb.append( '\"' );
+      _target = target;
+      _compact = compact;
     }
-    else if( comp instanceof Integer ||
-             comp instanceof Long ||
-             comp instanceof Double ||
-             comp instanceof Float ||
-             comp instanceof Short ||
-             comp instanceof Character ||
-             comp instanceof Byte ||
-             comp instanceof Boolean )
+
+    void writeValue( int indent, Object value ) throws IOException
     {
-      sb.append( comp );
+      if( value instanceof Pair )
+      {
+        value = ((Pair)value).getSecond();
+      }
+      if( value instanceof Map )
+      {
+        writeMap( indent, (Map<?, ?>)value );
+      }
+      else if( value instanceof Iterable )
+      {
+        writeList( indent, (Iterable<?>)value );
+      }
+      else
+      {
+        writeScalar( value );
+      }
     }
-    else if( comp == null )
+
+    private void writeMap( int indent, Map<?, ?> map ) throws IOException
     {
-      sb.append( "null" );
+      if( _compact )
+      {
+        append( '{' );
+        boolean first = true;
+        for( Map.Entry<?, ?> entry: map.entrySet() )
+        {
+          if( !first )
+          {
+            append( ',' );
+          }
+          first = false;
+          append( '"' ).append( String.valueOf( entry.getKey() ) ).append( "\":" );
+          writeValue( 0, entry.getValue() );
+        }
+        append( '}' );
+        return;
+      }
+
+      if( _last == '\n' )
+      {
+        indent( indent );
+      }
+      append( "{\n" );
+      int remaining = map.size();
+      for( Map.Entry<?, ?> entry: map.entrySet() )
+      {
+        indent( indent + 2 );
+        append( '"' ).append( String.valueOf( entry.getKey() ) ).append( "\": " );
+        writeValue( indent + 2, entry.getValue() );
+        appendCommaNewLine( --remaining > 0 );
+      }
+      indent( indent );
+      append( '}' );
     }
-    else
+
+    private void writeList( int indent, Iterable<?> list ) throws IOException
     {
-      throw new IllegalStateException( "Unsupported expando type: " + comp.getClass() );
+      append( '[' );
+      boolean first = true;
+      for( Iterator<?> iter = list.iterator(); iter.hasNext(); )
+      {
+        Object comp = iter.next();
+        if( _compact )
+        {
+          if( !first )
+          {
+            append( ',' );
+          }
+          writeValue( 0, comp );
+        }
+        else
+        {
+          if( first )
+          {
+            append( '\n' );
+          }
+          if( comp instanceof Pair )
+          {
+            comp = ((Pair)comp).getSecond();
+          }
+          if( !(comp instanceof Map) && !(comp instanceof Iterable) )
+          {
+            indent( indent + 2 );
+          }
+          writeValue( indent + 2, comp );
+          appendCommaNewLine( iter.hasNext() );
+        }
+        first = false;
+      }
+      if( !_compact )
+      {
+        indent( indent );
+      }
+      append( ']' );
+    }
+
+    void writeScalar( Object comp ) throws IOException
+    {
+      if( comp instanceof String )
+      {
+        append( '"' );
+        writeEscaped( (String)comp );
+        append( '"' );
+      }
+      else if( comp instanceof Integer ||
+               comp instanceof Long ||
+               comp instanceof Double ||
+               comp instanceof Float ||
+               comp instanceof Short ||
+               comp instanceof Character ||
+               comp instanceof Byte ||
+               comp instanceof Boolean )
+      {
+        append( String.valueOf( comp ) );
+      }
+      else if( comp == null )
+      {
+        append( "null" );
+      }
+      else
+      {
+        throw new IllegalStateException( "Unsupported expando type: " + comp.getClass() );
+      }
+    }
+
+    /**
+     * Same escapes as {@link ManEscapeUtil#escapeForJavaStringLiteral(String)}, but unescaped runs are written
+     * directly from {@code value}
+     */
+    private void writeEscaped( String value ) throws IOException
+    {
+      int start = 0;
+      for( int i = 0; i < value.length(); i++ )
+      {
+        char c = value.charAt( i );
+        if( c >= ' ' && c <= '~' && c != '"' && c != '\\' )
+        {
+          continue;
+        }
+
+        if( i > start )
+        {
+          append( value, start, i );
+        }
+        start = i + 1;
+        switch( c )
+        {
+          case '\b':
+            append( "\\b" );
+            break;
+          case '\t':
+            append( "\\t" );
+            break;
+          case '\n':
+            append( "\\n" );
+            break;
+          case '\f':
+            append( "\\f" );
+            break;
+          case '\r':
+            append( "\\r" );
+            break;
+          case '"':
+            append( "\\\"" );
+            break;
+          case '\\':
+            append( "\\\\" );
+            break;
+          default:
+            append( "\\u" );
+            for( int shift = 12; shift >= 0; shift -= 4 )
+            {
+              append( Character.forDigit( (c >> shift) & 0xF, 16 ) );
+            }
+        }
+      }
+      if( start < value.length() )
+      {
+        append( value, start, value.length() );
+      }
+    }
+
+    private void appendCommaNewLine( boolean bComma ) throws IOException
+    {
+      if( bComma )
+      {
+        append( ',' );
+      }
+      append( '\n' );
+    }
+
+    private void indent( int indent ) throws IOException
+    {
+      if( indent > 0 )
+      {
+        JsonUtil.indent( _target, indent );
+        _last = ' ';
+      }
+    }
+
+    private JsonWriter append( char c ) throws IOException
+    {
+      _target.append( c );
+      _last = c;
+      return this;
+    }
+
+    private JsonWriter append( String s ) throws IOException
+    {
+      if( !s.isEmpty() )
+      {
+        _target.append( s );
+        _last = s.charAt( s.length() - 1 );
+      }
+      return this;
+    }
+
+    private void append( String s, int start, int end ) throws IOException
+    {
+      _target.append( s, start, end );
+      _last = s.charAt( end - 1 );
     }
-    return sb;
   }
 
   public static String toXml( Object jsonValue )
@@ -251,6 +415,22 @@ public class JsonUtil
   }
 
   public static void toXml( Object jsonValue, String name, StringBuilder target, int indent )
+  {
+    try
+    {
+      toXml( jsonValue, name, (Appendable)target, indent );
+    }
+    catch( IOException e )
+    {
+      // StringBuilder does not throw
+      throw new RuntimeException( e );
+    }
+  }
+
+  /**
+   * Writes the specified JSON value as XML directly to {@code target}, without first building the document in memory.
+   */
+  public static void toXml( Object jsonValue, String name, Appendable target, int indent ) throws IOException
   {
     if( jsonValue instanceof Map )
     {
@@ -267,14 +447,14 @@ public class JsonUtil
   }
 
   /**
-   * Serializes this {@link Map} instance into an XML formatted StringBuilder {@code target}
+   * Serializes this {@link Map} instance into an XML formatted {@code target}
    * with the specified {@code indent} of spaces.
    *
    * @param name   The name of the root element to nest the Map XML
-   * @param target A {@link StringBuilder} to write the XML in
+   * @param target An {@link Appendable} to write the XML in
    * @param indent The margin of spaces to indent the XML
    */
-  private static void toXml( Map bindings, String name, StringBuilder target, int indent )
+  private static void toXml( Map bindings, String name, Appendable target, int indent ) throws IOException
   {
     indent( target, indent );
     target.append( '<' ).append( name );
@@ -311,7 +491,7 @@ public class JsonUtil
     }
   }
 
-  private static void toXml( Iterable value, String name, StringBuilder target, int indent )
+  private static void toXml( Iterable value, String name, Appendable target, int indent ) throws IOException
   {
     indent( target, indent );
     target.append( "<" ).append( name );
@@ -338,7 +518,7 @@ public class JsonUtil
         else
         {
           indent( target, indent + 4 );
-          target.append( "<li>" ).append( comp ).append( "</li>\n" );
+          target.append( "<li>" ).append( String.valueOf( comp ) ).append( "</li>\n" );
         }
       }
       indent( target, indent + 2 );
@@ -350,7 +530,7 @@ public class JsonUtil
     }
   }
 
-  private static void toXml( String value, String name, StringBuilder target, int indent )
+  private static void toXml( String value, String name, Appendable target, int indent ) throws IOException
   {
     indent( target, indent );
     target.append( '<' ).append( name ).append( ">" );
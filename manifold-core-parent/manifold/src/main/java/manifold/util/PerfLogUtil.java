@@ -49,4 +49,26 @@ public class PerfLogUtil
 
     System.out.println( label + ": " + ((System.nanoTime() - nanosBefore) / 1_000_000) + "ms" );
   }
+
+  public static void log( String message )
+  {
+    //noinspection ConstantConditions
+    if( !PERF.get() )
+    {
+      return;
+    }
+
+    System.out.println( message );
+  }
+
+  public static void logHitMiss( String label, int hits, int misses )
+  {
+    //noinspection ConstantConditions
+    if( !PERF.get() )
+    {
+      return;
+    }
+
+    System.out.println( label + ": " + hits + " hits, " + misses + " misses" );
+  }
 }
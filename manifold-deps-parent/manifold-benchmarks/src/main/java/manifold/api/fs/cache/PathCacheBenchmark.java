@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2018 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.api.fs.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import manifold.api.fs.IDirectory;
+import manifold.api.host.IManifoldHost;
+import manifold.api.host.IModule;
+import manifold.internal.host.RuntimeManifoldHost;
+import manifold.internal.host.SimpleModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Indexes a tree of 259 directories and 5180 resource files with {@link PathCache}, sequentially and in parallel. The
+ * file system's directory listings are cleared before each scan, so each scan lists the directories again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathCacheBenchmark
+{
+  @Param({"1", "2", "4"})
+  public int parallelism;
+
+  private File _root;
+  private IManifoldHost _host;
+  private IModule _module;
+  private IDirectory _dir;
+
+  @Setup
+  public void makeTree() throws IOException
+  {
+    _root = Files.createTempDirectory( "pathcache" ).toFile();
+    makeTree( _root, 3, 6, 20 );
+    _host = new RuntimeManifoldHost();
+    _dir = _host.getFileSystem().getIDirectory( _root );
+    _module = new SimpleModule( _host, Collections.emptyList(), Collections.singletonList( _dir ),
+      Collections.emptyList() )
+    {
+      @Override
+      public String getName()
+      {
+        return "pathcache";
+      }
+    };
+  }
+
+  @TearDown
+  public void deleteTree() throws IOException
+  {
+    try( Stream<Path> paths = Files.walk( _root.toPath() ) )
+    {
+      //noinspection ResultOfMethodCallIgnored
+      paths.sorted( Comparator.reverseOrder() ).map( Path::toFile ).forEach( File::delete );
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void clearListings()
+  {
+    _host.getFileSystem().clearAllCaches();
+  }
+
+  @Benchmark
+  public PathCache scan()
+  {
+    return new PathCache( _module, () -> Collections.singletonList( _dir ), () -> {}, parallelism );
+  }
+
+  private static void makeTree( File dir, int depth, int dirsPerLevel, int filesPerDir ) throws IOException
+  {
+    //noinspection ResultOfMethodCallIgnored
+    dir.mkdirs();
+    for( int i = 0; i < filesPerDir; i++ )
+    {
+      String ext = i % 3 == 0 ? ".json" : i % 3 == 1 ? ".graphql" : ".properties";
+      Files.write( new File( dir, "Res" + i + ext ).toPath(), new byte[0] );
+    }
+    if( depth > 0 )
+    {
+      for( int i = 0; i < dirsPerLevel; i++ )
+      {
+        makeTree( new File( dir, "pkg" + i ), depth - 1, dirsPerLevel, filesPerDir );
+      }
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.api.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses a JSON array of {@code count} objects, about 110 bytes each, from each kind of input {@link Json#fromJson}
+ * takes. {@link #parseBytesAsString} is what a caller with a stream had to do before there was a stream overload. The
+ * heap is fixed so the parse, not heap growth, is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class JsonParseBenchmark
+{
+  @Param({"1000", "50000"})
+  public int count;
+
+  private String _json;
+  private byte[] _bytes;
+
+  @Setup
+  public void makeSample()
+  {
+    StringBuilder sb = new StringBuilder( "[" );
+    for( int i = 0; i < count; i++ )
+    {
+      if( i > 0 )
+      {
+        sb.append( ",\n" );
+      }
+      sb.append( "{\"id\": " ).append( i )
+        .append( ", \"name\": \"item number " ).append( i ).append( "\"" )
+        .append( ", \"price\": " ).append( i * 1.5 )
+        .append( ", \"tags\": [\"x\", \"y\\n\"], \"active\": " ).append( i % 2 == 0 )
+        .append( ", \"note\": null}" );
+    }
+    _json = sb.append( "]" ).toString();
+    _bytes = _json.getBytes( StandardCharsets.UTF_8 );
+  }
+
+  @Benchmark
+  public Object parseString()
+  {
+    return Json.fromJson( _json );
+  }
+
+  @Benchmark
+  public Object parseBytesAsString()
+  {
+    return Json.fromJson( new String( _bytes, StandardCharsets.UTF_8 ) );
+  }
+
+  @Benchmark
+  public Object parseReader()
+  {
+    return Json.fromJson( new StringReader( _json ) );
+  }
+
+  @Benchmark
+  public Object parseInputStream()
+  {
+    return Json.fromJson( new ByteArrayInputStream( _bytes ) );
+  }
+}
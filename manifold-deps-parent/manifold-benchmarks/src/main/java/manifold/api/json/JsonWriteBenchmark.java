@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.api.json;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes a parsed JSON array of {@code count} objects to an output stream, as a caller sending it or saving it does.
+ * {@link #viaString} builds the document in a StringBuilder and encodes the String, what {@link Writer} did before it
+ * streamed. {@link #streamToWriter} and {@link #streamCompactToWriter} stream it through a UTF-8 Writer. The stream
+ * discards the bytes, so only the writing is measured.
+ * <p>
+ * Run with {@code -prof gc} to compare the allocation, {@code gc.alloc.rate.norm} is the bytes allocated per document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class JsonWriteBenchmark
+{
+  @Param({"1000", "50000"})
+  public int count;
+
+  private Writer _writer;
+  private final CountingStream _out = new CountingStream();
+
+  @Setup
+  public void makeSample()
+  {
+    StringBuilder sb = new StringBuilder( "[" );
+    for( int i = 0; i < count; i++ )
+    {
+      if( i > 0 )
+      {
+        sb.append( ",\n" );
+      }
+      sb.append( "{\"id\": " ).append( i )
+        .append( ", \"name\": \"item number " ).append( i ).append( "\"" )
+        .append( ", \"price\": " ).append( i * 1.5 )
+        .append( ", \"tags\": [\"x\", \"y\\n\"], \"active\": " ).append( i % 2 == 0 )
+        .append( ", \"note\": null}" );
+    }
+    _writer = new Writer( Json.fromJson( sb.append( "]" ).toString() ) );
+  }
+
+  @Benchmark
+  public long viaString() throws IOException
+  {
+    _out.write( _writer.toJson().getBytes( StandardCharsets.UTF_8 ) );
+    return _out._count;
+  }
+
+  @Benchmark
+  public long streamToWriter() throws IOException
+  {
+    try( java.io.Writer out = newWriter() )
+    {
+      _writer.toJson( out );
+    }
+    return _out._count;
+  }
+
+  @Benchmark
+  public long streamCompactToWriter() throws IOException
+  {
+    try( java.io.Writer out = newWriter() )
+    {
+      _writer.toJson( out, true );
+    }
+    return _out._count;
+  }
+
+  private java.io.Writer newWriter()
+  {
+    return new BufferedWriter( new OutputStreamWriter( _out, StandardCharsets.UTF_8 ) );
+  }
+
+  private static class CountingStream extends OutputStream
+  {
+    private long _count;
+
+    @Override
+    public void write( int b )
+    {
+      _count++;
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len )
+    {
+      _count += len;
+    }
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.api.type;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import manifold.api.fs.IFile;
+import manifold.api.host.IManifoldHost;
+import manifold.api.host.IModule;
+import manifold.api.host.ITypeSystemListener;
+import manifold.api.host.RefreshKind;
+import manifold.api.host.RefreshRequest;
+import manifold.internal.host.RuntimeManifoldHost;
+import manifold.internal.host.SimpleModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Refreshes one modified resource file among {@code files}, the way an IDE host does: the manifold's
+ * {@code refreshedFile()} is called, then the type system listeners are notified. Then the modified type's model and
+ * another type's model are read, as the IDE does to update the type.
+ * <p>
+ * With {@code refresh=full}, the default, the refresh drops the manifold's whole fqn-to-model cache and reading a model
+ * builds it again from all the files. With {@code refresh=incremental}, {@code -Dmanifold.refresh.incremental=true},
+ * only the models of the modified file are rebound, see {@link ResourceFileTypeManifold#rebindModels}. Each parameter
+ * combination runs in its own JVM, so the flag is set before the manifold first reads it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RefreshBenchmark
+{
+  private static final int FILES_PER_PACKAGE = 100;
+
+  @Param({"1000", "10000"})
+  public int files;
+
+  @Param({"full", "incremental"})
+  public String refresh;
+
+  private File _root;
+  private ListeningHost _host;
+  private IModule _module;
+  private TextManifold _tm;
+  private IFile _modified;
+  private RefreshRequest _request;
+
+  @Setup
+  public void makeProject() throws IOException
+  {
+    System.setProperty( "manifold.refresh.incremental", String.valueOf( refresh.equals( "incremental" ) ) );
+
+    _root = Files.createTempDirectory( "refresh" ).toFile();
+    for( int i = 0; i < files; i++ )
+    {
+      File file = new File( _root, "pkg" + i / FILES_PER_PACKAGE + "/Type" + i + ".txt" );
+      //noinspection ResultOfMethodCallIgnored
+      file.getParentFile().mkdirs();
+      Files.write( file.toPath(), new byte[0] );
+    }
+
+    _host = new ListeningHost();
+    _tm = new TextManifold();
+    _module = new SimpleModule( _host, Collections.emptyList(),
+      Collections.singletonList( _host.getFileSystem().getIDirectory( _root ) ), Collections.emptyList() )
+    {
+      @Override
+      public String getName()
+      {
+        return "refresh";
+      }
+
+      @Override
+      public Set<ITypeManifold> getTypeManifolds()
+      {
+        return Collections.singleton( _tm );
+      }
+    };
+    _tm.init( _module );
+
+    _modified = _host.getFileSystem().getIFile( new File( _root, "pkg0/Type0.txt" ) );
+    _request = new RefreshRequest( _modified, new String[]{"pkg0.Type0"}, _module, RefreshKind.MODIFICATION );
+    if( _tm.getModel( "pkg0.Type0" ) == null )
+    {
+      throw new IllegalStateException( "pkg0.Type0 not found" );
+    }
+  }
+
+  @TearDown
+  public void deleteProject() throws IOException
+  {
+    try( Stream<Path> paths = Files.walk( _root.toPath() ) )
+    {
+      //noinspection ResultOfMethodCallIgnored
+      paths.sorted( Comparator.reverseOrder() ).map( Path::toFile ).forEach( File::delete );
+    }
+  }
+
+  @Benchmark
+  public Object refreshModifiedFile()
+  {
+    _tm.refreshedFile( _modified, _request.types, _request.kind );
+    _host.refresh( _request );
+    _tm.getModel( "pkg0.Type0" );
+    return _tm.getModel( "pkg1.Type" + FILES_PER_PACKAGE );
+  }
+
+  /**
+   * Keeps the listeners and notifies them of a refresh, those asking to be notified early first
+   */
+  private static class ListeningHost extends RuntimeManifoldHost
+  {
+    private final List<ITypeSystemListener> _listeners = new ArrayList<>();
+
+    @Override
+    public void addTypeSystemListenerAsWeakRef( Object ctx, ITypeSystemListener listener )
+    {
+      _listeners.add( listener );
+    }
+
+    void refresh( RefreshRequest request )
+    {
+      _listeners.stream().filter( ITypeSystemListener::notifyEarly ).forEach( l -> l.refreshedTypes( request ) );
+      _listeners.stream().filter( l -> !l.notifyEarly() ).forEach( l -> l.refreshedTypes( request ) );
+    }
+  }
+
+  private static class TextManifold extends JavaTypeManifold<TextModel>
+  {
+    @Override
+    public void init( IModule module )
+    {
+      init( module, ( fqn, files ) -> new TextModel( module.getHost(), fqn, files ) );
+    }
+
+    @Override
+    public boolean handlesFileExtension( String fileExtension )
+    {
+      return fileExtension.equals( "txt" );
+    }
+
+    @Override
+    public boolean isInnerType( String topLevelFqn, String relativeInner )
+    {
+      return false;
+    }
+
+    @Override
+    protected String contribute( JavaFileManager.Location location, String topLevelFqn, String existing,
+                                 TextModel model, DiagnosticListener<JavaFileObject> errorHandler )
+    {
+      return "";
+    }
+  }
+
+  private static class TextModel implements IModel
+  {
+    private final IManifoldHost _host;
+    private final String _fqn;
+    private final Set<IFile> _files;
+
+    TextModel( IManifoldHost host, String fqn, Set<IFile> files )
+    {
+      _host = host;
+      _fqn = fqn;
+      _files = files;
+    }
+
+    @Override
+    public IManifoldHost getHost()
+    {
+      return _host;
+    }
+
+    @Override
+    public String getFqn()
+    {
+      return _fqn;
+    }
+
+    @Override
+    public Set<IFile> getFiles()
+    {
+      return _files;
+    }
+
+    @Override
+    public void addFile( IFile file )
+    {
+      _files.add( file );
+    }
+
+    @Override
+    public void removeFile( IFile file )
+    {
+      _files.remove( file );
+    }
+
+    @Override
+    public void updateFile( IFile file )
+    {
+    }
+  }
+}
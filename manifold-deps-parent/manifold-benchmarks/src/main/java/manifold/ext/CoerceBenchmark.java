@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.ext;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import manifold.ext.api.IBindingsBacked;
+import manifold.ext.api.ICallHandler;
+import manifold.ext.api.ICoercionProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Coerces a value as a getter on a JSON type does, with {@link RuntimeMethods#coerce(Object, Class)} and with the
+ * implementation it had before {@link Coercer}, copied here as {@link OldCoerce}.
+ * <ul>
+ * <li>{@code int}: an Integer to int</li>
+ * <li>{@code double}: a Double to long</li>
+ * <li>{@code enum}: a String to an enum constant</li>
+ * <li>{@code list}: a list of 10 Strings to enum constants. The old coerce copies the list, the new one returns a view
+ * converting elements as they are read, so each element is read here.</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoerceBenchmark
+{
+  @Param({"int", "double", "enum", "list"})
+  public String kind;
+
+  private Object _value;
+  private Class<?> _type;
+
+  @Setup
+  public void makeValue()
+  {
+    switch( kind )
+    {
+      case "int":
+        _value = 42;
+        _type = int.class;
+        break;
+      case "double":
+        _value = 42.5;
+        _type = long.class;
+        break;
+      case "enum":
+        _value = "BLUE";
+        _type = Color.class;
+        break;
+      case "list":
+        List<String> list = new ArrayList<>();
+        for( int i = 0; i < 10; i++ )
+        {
+          list.add( Color.values()[i % 3].name() );
+        }
+        _value = list;
+        _type = Color.class;
+        break;
+      default:
+        throw new IllegalArgumentException( kind );
+    }
+  }
+
+  @Benchmark
+  public void oldCoerce( Blackhole bh )
+  {
+    consume( OldCoerce.coerce( _value, _type ), bh );
+  }
+
+  @Benchmark
+  public void newCoerce( Blackhole bh )
+  {
+    consume( RuntimeMethods.coerce( _value, _type ), bh );
+  }
+
+  private static void consume( Object result, Blackhole bh )
+  {
+    if( result instanceof List )
+    {
+      for( Object e : (List)result )
+      {
+        bh.consume( e );
+      }
+    }
+    else
+    {
+      bh.consume( result );
+    }
+  }
+
+  public enum Color
+  {
+    RED, GREEN, BLUE
+  }
+
+  /**
+   * RuntimeMethods.coerce() before the coercion decisions were cached per type
+   */
+  @SuppressWarnings({"unchecked", "ConstantConditions"})
+  private static class OldCoerce
+  {
+    static Object coerce( Object value, Class<?> type )
+    {
+      if( value == null )
+      {
+        if( type.isPrimitive() )
+        {
+          return defaultPrimitiveValue( type );
+        }
+        return null;
+      }
+
+      if( IBindingsBacked.class.isAssignableFrom( type ) )
+      {
+        return value;
+      }
+
+      if( value instanceof List )
+      {
+        Class<?> finalType = type;
+        //noinspection unchecked
+        return ((List)value).stream()
+        .map( e -> coerce( e, finalType ) )
+        .collect( Collectors.toList() );
+      }
+
+      if( type.isPrimitive() )
+      {
+        type = box( type );
+      }
+
+      Class<?> valueClass = value.getClass();
+      if( valueClass == type || type.isAssignableFrom( valueClass ) )
+      {
+        return value;
+      }
+
+      Object result = callCoercionProviders( value, type );
+      if( result != ICallHandler.UNHANDLED )
+      {
+        return result;
+      }
+
+      Object boxedValue = coerceBoxed( value, type );
+      if( boxedValue != null )
+      {
+        return boxedValue;
+      }
+
+      if( type == BigInteger.class )
+      {
+        if( value instanceof Number )
+        {
+          return BigInteger.valueOf( ((Number)value).longValue() );
+        }
+        if( value instanceof Boolean )
+        {
+          return ((Boolean)value) ? BigInteger.ONE : BigInteger.ZERO;
+        }
+        return new BigInteger( value.toString() );
+      }
+
+      if( type == BigDecimal.class )
+      {
+        if( value instanceof Boolean )
+        {
+          return ((Boolean)value) ? BigDecimal.ONE : BigDecimal.ZERO;
+        }
+        return new BigDecimal( value.toString() );
+      }
+
+      if( type == String.class )
+      {
+        return String.valueOf( value );
+      }
+
+      if( type.isEnum() )
+      {
+        String name = String.valueOf( value );
+        //noinspection unchecked
+        return Enum.valueOf( (Class<Enum>)type, name );
+      }
+
+      if( type.isArray() && valueClass.isArray() )
+      {
+        int length = Array.getLength( value );
+        Class<?> componentType = type.getComponentType();
+        Object array = Array.newInstance( componentType, length );
+        for( int i = 0; i < length; i++ )
+        {
+          Array.set( array, i, coerce( Array.get( value, i ), componentType ) );
+        }
+        return array;
+      }
+
+      // let the ClassCastException happen
+      return value;
+    }
+
+    private static Object defaultPrimitiveValue( Class<?> type )
+    {
+      if( type == int.class ||
+          type == short.class )
+      {
+        return 0;
+      }
+      if( type == byte.class )
+      {
+        return (byte)0;
+      }
+      if( type == long.class )
+      {
+        return 0L;
+      }
+      if( type == float.class )
+      {
+        return 0f;
+      }
+      if( type == double.class )
+      {
+        return 0d;
+      }
+      if( type == boolean.class )
+      {
+        return false;
+      }
+      if( type == char.class )
+      {
+        return (char)0;
+      }
+      if( type == void.class )
+      {
+        return null;
+      }
+      throw new IllegalArgumentException( "Unsupported primitive type: " + type.getSimpleName() );
+    }
+
+    private static Object coerceBoxed( Object value, Class<?> type )
+    {
+      if( type == Boolean.class || type == boolean.class )
+      {
+        if( value instanceof Number )
+        {
+          return ((Number)value).intValue() != 0;
+        }
+        return Boolean.parseBoolean( value.toString() );
+      }
+
+      if( type == Byte.class || type == byte.class )
+      {
+        if( value instanceof Number )
+        {
+          return ((Number)value).byteValue() != 0;
+        }
+        if( value instanceof Boolean )
+        {
+          return ((Boolean)value) ? (byte)1 : (byte)0;
+        }
+        return Byte.parseByte( value.toString() );
+      }
+
+      if( type == Character.class || type == char.class )
+      {
+        if( value instanceof Number )
+        {
+          return (char)((Number)value).intValue();
+        }
+        String s = value.toString();
+        return s.isEmpty() ? (char)0 : s.charAt( 0 );
+      }
+
+      if( type == Short.class || type == short.class )
+      {
+        if( value instanceof Number )
+        {
+          return ((Number)value).shortValue();
+        }
+        if( value instanceof Boolean )
+        {
+          return ((Boolean)value) ? (short)1 : (short)0;
+        }
+        return Short.parseShort( value.toString() );
+      }
+
+      if( type == Integer.class || type == int.class )
+      {
+        if( value instanceof Number )
+        {
+          return ((Number)value).intValue();
+        }
+        if( value instanceof Boolean )
+        {
+          return ((Boolean)value) ? 1 : 0;
+        }
+        return Integer.parseInt( value.toString() );
+      }
+
+      if( type == Long.class || type == long.class )
+      {
+        if( value instanceof Number )
+        {
+          return ((Number)value).longValue();
+        }
+        if( value instanceof Boolean )
+        {
+          return ((Boolean)value) ? 1L : 0L;
+        }
+        return Long.parseLong( value.toString() );
+      }
+
+      if( type == Float.class || type == float.class )
+      {
+        if( value instanceof Number )
+        {
+          return ((Number)value).floatValue();
+        }
+        if( value instanceof Boolean )
+        {
+          return ((Boolean)value) ? 1f : 0f;
+        }
+        return Float.parseFloat( value.toString() );
+      }
+
+      if( type == Double.class || type == double.class )
+      {
+        if( value instanceof Number )
+        {
+          return ((Number)value).doubleValue();
+        }
+        if( value instanceof Boolean )
+        {
+          return ((Boolean)value) ? 1d : 0d;
+        }
+        return Double.parseDouble( value.toString() );
+      }
+      return null;
+    }
+
+    private static Object callCoercionProviders( Object value, Class<?> type )
+    {
+      for( ICoercionProvider coercer: CoercionProviders.get() )
+      {
+        Object coercedValue = coercer.coerce( value, type );
+        if( coercedValue != ICallHandler.UNHANDLED )
+        {
+          return coercedValue;
+        }
+      }
+      return ICallHandler.UNHANDLED;
+    }
+
+    private static Class<?> box( Class<?> type )
+    {
+      if( type == boolean.class )
+      {
+        return Boolean.class;
+      }
+      if( type == byte.class )
+      {
+        return Byte.class;
+      }
+      if( type == char.class )
+      {
+        return Character.class;
+      }
+      if( type == short.class )
+      {
+        return Short.class;
+      }
+      if( type == int.class )
+      {
+        return Integer.class;
+      }
+      if( type == long.class )
+      {
+        return Long.class;
+      }
+      if( type == float.class )
+      {
+        return Float.class;
+      }
+      if( type == double.class )
+      {
+        return Double.class;
+      }
+      throw new IllegalStateException();
+    }
+  }
+}
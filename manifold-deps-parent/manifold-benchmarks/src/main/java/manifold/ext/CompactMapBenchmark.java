@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2018 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.ext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds 1000 maps of 5 members, as the objects of a parsed JSON array, with a {@link LinkedHashMap} and with
+ * {@link CompactMap}s sharing one {@link CompactMap.Shapes}. With {@code keys=unique} every map has its own keys, so the
+ * compact maps run out of shapes and switch to LinkedHashMaps.
+ * <p>
+ * Run with {@code -prof gc}, {@code gc.alloc.rate.norm} is the bytes allocated per 1000 maps. Besides the maps that
+ * includes values arrays outgrown as members are added, so it is an upper bound on what the maps retain.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactMapBenchmark
+{
+  private static final int MAPS = 1000;
+
+  @Param({"shared", "unique"})
+  public String keys;
+
+  private String[][] _keys;
+
+  @Setup
+  public void makeKeys()
+  {
+    _keys = new String[MAPS][];
+    for( int i = 0; i < MAPS; i++ )
+    {
+      String suffix = keys.equals( "unique" ) ? String.valueOf( i ) : "";
+      _keys[i] = new String[] {"id" + suffix, "name" + suffix, "price" + suffix, "active" + suffix, "note" + suffix};
+    }
+  }
+
+  @Benchmark
+  public Object[] linkedHashMap()
+  {
+    Object[] maps = new Object[MAPS];
+    for( int i = 0; i < MAPS; i++ )
+    {
+      maps[i] = fill( new LinkedHashMap<>(), _keys[i] );
+    }
+    return maps;
+  }
+
+  @Benchmark
+  public Object[] compactMap()
+  {
+    CompactMap.Shapes shapes = new CompactMap.Shapes();
+    Object[] maps = new Object[MAPS];
+    for( int i = 0; i < MAPS; i++ )
+    {
+      CompactMap map = new CompactMap( shapes );
+      fill( map, _keys[i] );
+      map.trimToSize();
+      maps[i] = map;
+    }
+    return maps;
+  }
+
+  private static Map<String, Object> fill( Map<String, Object> map, String[] keys )
+  {
+    map.put( keys[0], 7 );
+    map.put( keys[1], "name" );
+    map.put( keys[2], 1.5 );
+    map.put( keys[3], Boolean.TRUE );
+    map.put( keys[4], null );
+    return map;
+  }
+}
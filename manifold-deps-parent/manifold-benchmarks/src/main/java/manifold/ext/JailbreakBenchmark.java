@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.ext;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Accesses a private field and calls a private method as code compiled with {@code @Jailbreak} does, through
+ * {@link ReflectionRuntimeMethods} by default and through {@link JailbreakCallSites} with the {@code jailbreak-indy}
+ * plugin argument. The call site handles are bootstrapped once and held in static final fields, as an
+ * {@code invokedynamic} instruction holds its linked call site. The {@code direct} benchmarks access the same members
+ * of a class where they are public, for reference.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JailbreakBenchmark
+{
+  private static final Class[] ADD_PARAMS = {int.class};
+
+  private static final MethodHandle GET_COUNT;
+  private static final MethodHandle SET_COUNT;
+  private static final MethodHandle ADD;
+
+  static
+  {
+    try
+    {
+      String owner = Secret.class.getName();
+      GET_COUNT = callSite( "_count", methodType( int.class, Secret.class ), owner, JailbreakCallSites.GET_FIELD, "" );
+      SET_COUNT = callSite( "_count", methodType( int.class, Secret.class, int.class ), owner,
+        JailbreakCallSites.SET_FIELD, "" );
+      ADD = callSite( "add", methodType( int.class, Secret.class, int.class ), owner, JailbreakCallSites.METHOD,
+        "(I)I" );
+    }
+    catch( ReflectiveOperationException e )
+    {
+      throw new ExceptionInInitializerError( e );
+    }
+  }
+
+  private final Secret _secret = new Secret();
+  private final Open _open = new Open();
+  private int _value = 7;
+
+  @Benchmark
+  public int getFieldReflective()
+  {
+    return ReflectionRuntimeMethods.getField_int( _secret, "_count" );
+  }
+
+  @Benchmark
+  public int getFieldIndy() throws Throwable
+  {
+    return (int)GET_COUNT.invokeExact( _secret );
+  }
+
+  @Benchmark
+  public int getFieldDirect()
+  {
+    return _open._count;
+  }
+
+  @Benchmark
+  public int setFieldReflective()
+  {
+    return ReflectionRuntimeMethods.setField_int( _secret, "_count", _value );
+  }
+
+  @Benchmark
+  public int setFieldIndy() throws Throwable
+  {
+    return (int)SET_COUNT.invokeExact( _secret, _value );
+  }
+
+  @Benchmark
+  public int setFieldDirect()
+  {
+    return _open._count = _value;
+  }
+
+  @Benchmark
+  public int callMethodReflective()
+  {
+    return ReflectionRuntimeMethods.invoke_int( _secret, "add", ADD_PARAMS, new Object[] {_value} );
+  }
+
+  @Benchmark
+  public int callMethodIndy() throws Throwable
+  {
+    return (int)ADD.invokeExact( _secret, _value );
+  }
+
+  @Benchmark
+  public int callMethodDirect()
+  {
+    return _open.add( _value );
+  }
+
+  private static MethodHandle callSite( String name, MethodType type, String owner, int kind,
+                                        String descriptor ) throws ReflectiveOperationException
+  {
+    return JailbreakCallSites.bootstrap( MethodHandles.lookup(), name, type, owner, kind, descriptor ).dynamicInvoker();
+  }
+
+  @SuppressWarnings("unused")
+  static class Secret
+  {
+    private int _count = 1;
+
+    private int add( int n )
+    {
+      return _count + n;
+    }
+  }
+
+  @SuppressWarnings("WeakerAccess")
+  static class Open
+  {
+    public int _count = 1;
+
+    public int add( int n )
+    {
+      return _count + n;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.ext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import manifold.internal.runtime.Bootstrap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Makes a structural proxy class the way the runtime does the first time an object is cast to a structural interface,
+ * by generating the class file directly with {@link StructuralTypeProxyGenerator#defineProxy} and by compiling its
+ * source with {@link StructuralTypeProxyGenerator#compileProxy}. Each proxy class is made once, so it is measured in
+ * single-shot mode with a new class name per shot. The first shots of {@code compileProxy} include warming up javac.
+ * <p>
+ * On Java 8 javac is in tools.jar, which is not in benchmarks.jar, run with it on the class path:
+ * <pre>
+ *   java -cp $JAVA_HOME/lib/tools.jar:target/benchmarks.jar org.openjdk.jmh.Main ProxyGeneration
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class ProxyGenerationBenchmark
+{
+  private static final AtomicInteger NEXT = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void initRuntime()
+  {
+    // compileProxy() loads the proxy source through the Manifold class loading protocol
+    Bootstrap.init();
+  }
+
+  @Benchmark
+  public Class defineProxy()
+  {
+    return StructuralTypeProxyGenerator.defineProxy( Coordinate.class, Point.class, "Point_defined" + NEXT.incrementAndGet() );
+  }
+
+  @Benchmark
+  public Class compileProxy()
+  {
+    return StructuralTypeProxyGenerator.compileProxy( Coordinate.class, Point.class, "Point_compiled" + NEXT.incrementAndGet() );
+  }
+
+  public interface Coordinate
+  {
+    double getX();
+    double getY();
+    void setLocation( double x, double y );
+    String getName();
+  }
+
+  public static class Point
+  {
+    public double x;
+    public double y;
+
+    public double getX()
+    {
+      return x;
+    }
+
+    public double getY()
+    {
+      return y;
+    }
+
+    public void setLocation( double x, double y )
+    {
+      this.x = x;
+      this.y = y;
+    }
+
+    public String getName()
+    {
+      return "point";
+    }
+  }
+}
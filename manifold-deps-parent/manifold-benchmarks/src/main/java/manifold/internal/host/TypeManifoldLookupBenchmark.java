@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.internal.host;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import manifold.api.fs.IFile;
+import manifold.api.host.IManifoldHost;
+import manifold.api.host.IModule;
+import manifold.api.type.IModel;
+import manifold.api.type.ITypeManifold;
+import manifold.api.type.JavaTypeManifold;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Finds the type manifolds for a type name with {@link SimpleModule#findTypeManifoldsFor(String)} in a module having
+ * {@code manifolds} resource manifolds of 100 files each. With {@code lookup=linear}, the default, every manifold is
+ * asked {@code isType()}. With {@code lookup=indexed}, {@code -Dmanifold.typemanifold.index=true}, only the manifolds
+ * the {@link TypeManifoldIndex} has for the name are asked. Each parameter combination runs in its own JVM, so the flag
+ * is set before the module reads it.
+ * <p>
+ * {@link #findResourceType} looks up a type of one of the manifolds, {@link #findJavaType} a Java type no manifold
+ * produces, which is what most of the names javac asks about are.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeManifoldLookupBenchmark
+{
+  private static final int FILES_PER_MANIFOLD = 100;
+
+  @Param({"5", "30"})
+  public int manifolds;
+
+  @Param({"linear", "indexed"})
+  public String lookup;
+
+  private File _root;
+  private SimpleModule _module;
+  private String _resourceType;
+
+  @Setup
+  public void makeModule() throws IOException
+  {
+    System.setProperty( SimpleModule.TYPE_MANIFOLD_INDEX, String.valueOf( lookup.equals( "indexed" ) ) );
+
+    _root = Files.createTempDirectory( "lookup" ).toFile();
+    for( int m = 0; m < manifolds; m++ )
+    {
+      for( int i = 0; i < FILES_PER_MANIFOLD; i++ )
+      {
+        File file = new File( _root, "pkg" + i % 10 + "/Type" + m + '_' + i + ".ext" + m );
+        //noinspection ResultOfMethodCallIgnored
+        file.getParentFile().mkdirs();
+        Files.write( file.toPath(), new byte[0] );
+      }
+    }
+
+    RuntimeManifoldHost host = new RuntimeManifoldHost();
+    _module = new SimpleModule( host, Collections.emptyList(),
+      Collections.singletonList( host.getFileSystem().getIDirectory( _root ) ), Collections.emptyList() )
+    {
+      @Override
+      public String getName()
+      {
+        return "lookup";
+      }
+
+      @Override
+      public SortedSet<ITypeManifold> loadTypeManifolds()
+      {
+        SortedSet<ITypeManifold> tms = new TreeSet<>( getTypeManifoldSorter() );
+        for( int m = 0; m < manifolds; m++ )
+        {
+          tms.add( new ExtManifold( "ext" + m ) );
+        }
+        return tms;
+      }
+    };
+    _module.initializeTypeManifolds();
+
+    _resourceType = "pkg9.Type" + (manifolds - 1) + "_99";
+    if( _module.findTypeManifoldsFor( _resourceType ).size() != 1 ||
+        !_module.findTypeManifoldsFor( String.class.getName() ).isEmpty() )
+    {
+      throw new IllegalStateException( "unexpected lookup result" );
+    }
+  }
+
+  @TearDown
+  public void deleteFiles() throws IOException
+  {
+    try( Stream<Path> paths = Files.walk( _root.toPath() ) )
+    {
+      //noinspection ResultOfMethodCallIgnored
+      paths.sorted( Comparator.reverseOrder() ).map( Path::toFile ).forEach( File::delete );
+    }
+  }
+
+  @Benchmark
+  public Set<ITypeManifold> findResourceType()
+  {
+    return _module.findTypeManifoldsFor( _resourceType );
+  }
+
+  @Benchmark
+  public Set<ITypeManifold> findJavaType()
+  {
+    return _module.findTypeManifoldsFor( "java.lang.String" );
+  }
+
+  /**
+   * A resource manifold for one file extension
+   */
+  private static class ExtManifold extends JavaTypeManifold<ExtModel>
+  {
+    private final String _ext;
+
+    ExtManifold( String ext )
+    {
+      _ext = ext;
+    }
+
+    @Override
+    public void init( IModule module )
+    {
+      init( module, ( fqn, files ) -> new ExtModel( module.getHost(), fqn, files ) );
+    }
+
+    @Override
+    public boolean handlesFileExtension( String fileExtension )
+    {
+      return fileExtension.equals( _ext );
+    }
+
+    @Override
+    public boolean isInnerType( String topLevelFqn, String relativeInner )
+    {
+      return false;
+    }
+
+    @Override
+    protected String contribute( JavaFileManager.Location location, String topLevelFqn, String existing,
+                                 ExtModel model, DiagnosticListener<JavaFileObject> errorHandler )
+    {
+      return "";
+    }
+  }
+
+  private static class ExtModel implements IModel
+  {
+    private final IManifoldHost _host;
+    private final String _fqn;
+    private final Set<IFile> _files;
+
+    ExtModel( IManifoldHost host, String fqn, Set<IFile> files )
+    {
+      _host = host;
+      _fqn = fqn;
+      _files = files;
+    }
+
+    @Override
+    public IManifoldHost getHost()
+    {
+      return _host;
+    }
+
+    @Override
+    public String getFqn()
+    {
+      return _fqn;
+    }
+
+    @Override
+    public Set<IFile> getFiles()
+    {
+      return _files;
+    }
+
+    @Override
+    public void addFile( IFile file )
+    {
+      _files.add( file );
+    }
+
+    @Override
+    public void removeFile( IFile file )
+    {
+      _files.remove( file );
+    }
+
+    @Override
+    public void updateFile( IFile file )
+    {
+    }
+  }
+}
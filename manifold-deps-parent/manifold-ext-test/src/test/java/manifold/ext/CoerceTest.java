@@ -0,0 +1,82 @@
+package manifold.ext;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ */
+public class CoerceTest extends TestCase
+{
+  public void testNull()
+  {
+    assertEquals( 0, RuntimeMethods.coerce( null, int.class ) );
+    assertEquals( false, RuntimeMethods.coerce( null, boolean.class ) );
+    assertNull( RuntimeMethods.coerce( null, Integer.class ) );
+    assertNull( RuntimeMethods.coerce( null, String.class ) );
+  }
+
+  public void testBoxed()
+  {
+    assertEquals( 2, RuntimeMethods.coerce( 2.7, int.class ) );
+    assertEquals( 5L, RuntimeMethods.coerce( "5", Long.class ) );
+    assertEquals( true, RuntimeMethods.coerce( 1, boolean.class ) );
+    assertEquals( (byte)3, RuntimeMethods.coerce( 3, byte.class ) );
+    assertEquals( 'x', RuntimeMethods.coerce( "xyz", char.class ) );
+    assertEquals( 1.5f, RuntimeMethods.coerce( 1.5, float.class ) );
+  }
+
+  public void testByte()
+  {
+    assertEquals( (byte)3, RuntimeMethods.coerce( 3, Byte.class ) );
+    assertEquals( (byte)3, RuntimeMethods.coerce( 3.9, byte.class ) );
+    assertEquals( (byte)0, RuntimeMethods.coerce( 256, byte.class ) );
+    assertEquals( (byte)-1, RuntimeMethods.coerce( 255L, Byte.class ) );
+    assertEquals( (byte)1, RuntimeMethods.coerce( true, byte.class ) );
+    assertEquals( (byte)0, RuntimeMethods.coerce( false, Byte.class ) );
+    assertEquals( (byte)12, RuntimeMethods.coerce( "12", Byte.class ) );
+    assertEquals( (byte)0, RuntimeMethods.coerce( null, byte.class ) );
+    assertNull( RuntimeMethods.coerce( null, Byte.class ) );
+  }
+
+  public void testOther()
+  {
+    assertEquals( BigInteger.valueOf( 5 ), RuntimeMethods.coerce( 5, BigInteger.class ) );
+    assertEquals( BigDecimal.ONE, RuntimeMethods.coerce( true, BigDecimal.class ) );
+    assertEquals( "7", RuntimeMethods.coerce( 7, String.class ) );
+    assertEquals( DayOfWeek.MONDAY, RuntimeMethods.coerce( "MONDAY", DayOfWeek.class ) );
+    assertEquals( Arrays.asList( 1, 2 ), RuntimeMethods.coerce( Arrays.asList( 1.5, 2.5 ), int.class ) );
+    assertTrue( Arrays.equals( new int[] {1, 3},
+      (int[])RuntimeMethods.coerce( new Object[] {1.2, "3"}, int[].class ) ) );
+
+    Object value = new Object();
+    assertSame( value, RuntimeMethods.coerce( value, Object.class ) );
+  }
+
+  public void testListView()
+  {
+    List<Object> bindingsList = new ArrayList<>( Arrays.asList( 1.5, "2", 3 ) );
+    //noinspection unchecked
+    List<Object> view = (List<Object>)RuntimeMethods.coerce( bindingsList, long.class );
+    assertEquals( Arrays.asList( 1L, 2L, 3L ), view );
+
+    view.set( 0, 7L );
+    view.add( 8L );
+    view.remove( 1 );
+    assertEquals( Arrays.asList( 7L, 3, 8L ), bindingsList );
+    assertEquals( Arrays.asList( 7L, 3L, 8L ), view );
+
+    bindingsList.add( "9" );
+    assertEquals( 9L, view.get( 3 ) );
+
+    List<Object> nested = Arrays.asList( Arrays.asList( "1", "2" ), Collections.singletonList( 3.0 ) );
+    assertEquals( Arrays.asList( Arrays.asList( 1, 2 ), Collections.singletonList( 3 ) ),
+      RuntimeMethods.coerce( nested, int.class ) );
+  }
+
+}
@@ -0,0 +1,219 @@
+package manifold.ext;
+
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import junit.framework.TestCase;
+import manifold.ext.api.ICoercionProvider;
+import manifold.util.StreamUtil;
+
+import static manifold.ext.api.ICallHandler.UNHANDLED;
+
+public class CoercionDispatcherTest extends TestCase
+{
+  public void testValueDependentProviderKeepsPrecedence()
+  {
+    HexProvider hex = new HexProvider();
+    DecimalProvider decimal = new DecimalProvider();
+    CoercionDispatcher<ICoercionProvider> dispatcher = new CoercionDispatcher<>( () -> Arrays.asList( hex, decimal ) );
+
+    assertEquals( 10, dispatcher.coerce( "10", Integer.class ) );
+    // same value class and target type, but the value-dependent provider handles this one
+    assertEquals( 16, dispatcher.coerce( "#10", Integer.class ) );
+    assertEquals( 10, dispatcher.coerce( "10", Integer.class ) );
+    assertEquals( 3, hex._coerceCalls );
+    assertEquals( 2, decimal._coerceCalls );
+
+    assertEquals( "#a", dispatcher.toBindingValue( 10 ) );
+    assertEquals( "#b", dispatcher.toBindingValue( 11 ) );
+    assertEquals( 2, hex._toBindingValueCalls );
+  }
+
+  public void testClassDecidedProvidersAreSkipped()
+  {
+    CountingProvider none = new CountingProvider();
+    DecimalProvider decimal = new DecimalProvider();
+    CoercionDispatcher<ICoercionProvider> dispatcher = new CoercionDispatcher<>( () -> Arrays.asList( none, decimal ) );
+
+    for( int i = 0; i < 3; i++ )
+    {
+      assertEquals( i, dispatcher.coerce( String.valueOf( i ), Integer.class ) );
+      assertSame( UNHANDLED, dispatcher.coerce( "x", Long.class ) );
+      assertEquals( "5", dispatcher.toBindingValue( 5 ) );
+    }
+    // asked once per value class and target type, then skipped
+    assertEquals( 2, none._coerceCalls );
+    assertEquals( 1, none._toBindingValueCalls );
+    assertEquals( 4, decimal._coerceCalls );
+  }
+
+  public void testClassDecidedForSomeTypes()
+  {
+    // decides by value only for Integer
+    HexProvider hex = new HexProvider()
+    {
+      @Override
+      public boolean isClassDecided( Class<?> type )
+      {
+        return type != Integer.class;
+      }
+    };
+    DecimalProvider decimal = new DecimalProvider();
+    CoercionDispatcher<ICoercionProvider> dispatcher = new CoercionDispatcher<>( () -> Arrays.asList( hex, decimal ) );
+
+    for( int i = 0; i < 3; i++ )
+    {
+      assertEquals( 10, dispatcher.coerce( "10", Integer.class ) );
+      assertSame( UNHANDLED, dispatcher.coerce( "10", Long.class ) );
+    }
+    // both are asked for each Integer coercion, neither is asked again for Long
+    assertEquals( 4, hex._coerceCalls );
+    assertEquals( 4, decimal._coerceCalls );
+  }
+
+  public void testIndexDoesNotKeepClasses() throws Exception
+  {
+    CoercionDispatcher<ICoercionProvider> dispatcher =
+      new CoercionDispatcher<>( () -> Collections.singletonList( new CountingProvider() ) );
+    WeakReference<ClassLoader> loader = coerceFromNewLoader( dispatcher );
+    for( int i = 0; i < 50 && loader.get() != null; i++ )
+    {
+      System.gc();
+      Thread.sleep( 20 );
+    }
+    assertNull( loader.get() );
+  }
+
+  /**
+   * Coerces an instance of {@link Value} loaded in a new class loader
+   */
+  private static WeakReference<ClassLoader> coerceFromNewLoader( CoercionDispatcher<ICoercionProvider> dispatcher )
+    throws Exception
+  {
+    byte[] bytes;
+    try( InputStream in = Value.class.getResourceAsStream( "/" + Value.class.getName().replace( '.', '/' ) + ".class" ) )
+    {
+      bytes = StreamUtil.getContent( in );
+    }
+    ClassLoader loader = new ClassLoader( CoercionDispatcherTest.class.getClassLoader() )
+    {
+      @Override
+      protected Class<?> loadClass( String name, boolean resolve ) throws ClassNotFoundException
+      {
+        return name.equals( Value.class.getName() )
+               ? defineClass( name, bytes, 0, bytes.length )
+               : super.loadClass( name, resolve );
+      }
+    };
+    Object value = loader.loadClass( Value.class.getName() ).newInstance();
+    assertSame( UNHANDLED, dispatcher.coerce( value, String.class ) );
+    assertSame( UNHANDLED, dispatcher.toBindingValue( value ) );
+    return new WeakReference<>( loader );
+  }
+
+  public static class Value
+  {
+  }
+
+  public void testProviderBreakingContract()
+  {
+    // claims to be class decided, but handles only some values
+    CountingProvider even = new CountingProvider()
+    {
+      @Override
+      public Object coerce( Object value, Class<?> type )
+      {
+        super.coerce( value, type );
+        return (Integer)value % 2 == 0 ? "even" : UNHANDLED;
+      }
+    };
+    CountingProvider odd = new CountingProvider()
+    {
+      @Override
+      public Object coerce( Object value, Class<?> type )
+      {
+        super.coerce( value, type );
+        return "odd";
+      }
+    };
+    List<ICoercionProvider> providers = Arrays.asList( even, odd );
+    CoercionDispatcher<ICoercionProvider> dispatcher = new CoercionDispatcher<>( () -> providers );
+
+    assertEquals( "even", dispatcher.coerce( 2, String.class ) );
+    assertEquals( "odd", dispatcher.coerce( 3, String.class ) );
+    assertEquals( "even", dispatcher.coerce( 4, String.class ) );
+  }
+
+  private static class CountingProvider implements ICoercionProvider
+  {
+    int _coerceCalls;
+    int _toBindingValueCalls;
+
+    @Override
+    public Object coerce( Object value, Class<?> type )
+    {
+      _coerceCalls++;
+      return UNHANDLED;
+    }
+
+    @Override
+    public Object toBindingValue( Object value )
+    {
+      _toBindingValueCalls++;
+      return UNHANDLED;
+    }
+
+    @Override
+    public boolean isClassDecided()
+    {
+      return true;
+    }
+  }
+
+  /** Handles only "#" prefixed strings, so it is not class decided */
+  private static class HexProvider extends CountingProvider
+  {
+    @Override
+    public Object coerce( Object value, Class<?> type )
+    {
+      super.coerce( value, type );
+      if( type == Integer.class && value instanceof String && ((String)value).startsWith( "#" ) )
+      {
+        return Integer.parseInt( ((String)value).substring( 1 ), 16 );
+      }
+      return UNHANDLED;
+    }
+
+    @Override
+    public Object toBindingValue( Object value )
+    {
+      super.toBindingValue( value );
+      return value instanceof Integer && (Integer)value >= 10 ? "#" + Integer.toHexString( (Integer)value ) : UNHANDLED;
+    }
+
+    @Override
+    public boolean isClassDecided()
+    {
+      return false;
+    }
+  }
+
+  private static class DecimalProvider extends CountingProvider
+  {
+    @Override
+    public Object coerce( Object value, Class<?> type )
+    {
+      super.coerce( value, type );
+      return type == Integer.class && value instanceof String ? Integer.valueOf( (String)value ) : UNHANDLED;
+    }
+
+    @Override
+    public Object toBindingValue( Object value )
+    {
+      super.toBindingValue( value );
+      return value instanceof Integer ? String.valueOf( value ) : UNHANDLED;
+    }
+  }
+}
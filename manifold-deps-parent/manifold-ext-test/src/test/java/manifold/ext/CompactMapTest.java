@@ -0,0 +1,109 @@
+package manifold.ext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import junit.framework.TestCase;
+
+/**
+ */
+public class CompactMapTest extends TestCase
+{
+  public void testMatchesLinkedHashMap()
+  {
+    Map<String, Object> compact = new CompactMap();
+    Map<String, Object> linked = new LinkedHashMap<>();
+    for( int i = 0; i < 100; i++ )
+    {
+      String key = "k" + (i * 7 % 30);
+      assertEquals( linked.put( key, i ), compact.put( key, i ) );
+      if( i % 5 == 0 )
+      {
+        String removed = "k" + (i % 11);
+        assertEquals( linked.remove( removed ), compact.remove( removed ) );
+      }
+      assertEquals( linked, compact );
+      assertEquals( compact, linked );
+      assertEquals( linked.hashCode(), compact.hashCode() );
+      assertEquals( new ArrayList<>( linked.keySet() ), new ArrayList<>( compact.keySet() ) );
+    }
+    assertNull( compact.get( "missing" ) );
+    assertFalse( compact.containsKey( "missing" ) );
+  }
+
+  public void testIteratorWritesThrough()
+  {
+    Map<String, Object> compact = new CompactMap();
+    compact.put( "a", 1 );
+    compact.put( "b", 2 );
+    compact.put( "c", 3 );
+    for( Iterator<Map.Entry<String, Object>> iter = compact.entrySet().iterator(); iter.hasNext(); )
+    {
+      Map.Entry<String, Object> entry = iter.next();
+      if( entry.getKey().equals( "b" ) )
+      {
+        iter.remove();
+      }
+      else
+      {
+        entry.setValue( (Integer)entry.getValue() * 10 );
+      }
+    }
+    assertEquals( Arrays.asList( "a", "c" ), new ArrayList<>( compact.keySet() ) );
+    assertEquals( 10, compact.get( "a" ) );
+    assertEquals( 30, compact.get( "c" ) );
+  }
+
+  public void testManyKeys()
+  {
+    Map<String, Object> compact = new CompactMap();
+    for( int i = 0; i < 200; i++ )
+    {
+      compact.put( "key" + i, i );
+    }
+    assertEquals( 200, compact.size() );
+    assertEquals( 150, compact.get( "key150" ) );
+    assertEquals( "key0", compact.keySet().iterator().next() );
+  }
+
+  public void testSharedShapes()
+  {
+    CompactMap.Shapes shapes = new CompactMap.Shapes();
+    for( int i = 0; i < 5000; i++ )
+    {
+      // unique keys use up the shapes, later maps switch to LinkedHashMaps
+      Map<String, Object> compact = new CompactMap( shapes );
+      Map<String, Object> linked = new LinkedHashMap<>();
+      for( String key: new String[] {"id", "name" + i, "tag" + (i % 3)} )
+      {
+        assertEquals( linked.put( key, i ), compact.put( key, i ) );
+      }
+      assertEquals( linked, compact );
+      assertEquals( new ArrayList<>( linked.keySet() ), new ArrayList<>( compact.keySet() ) );
+    }
+  }
+
+  public void testDataBindings()
+  {
+    DataBindings compact = DataBindings.compact( 2 );
+    compact.put( "name", "Scott" );
+    compact.put( "age", 29 );
+    DataBindings linked = new DataBindings();
+    linked.put( "name", "Scott" );
+    linked.put( "age", 29 );
+    assertEquals( linked, compact );
+    assertEquals( compact, linked );
+
+    Function<Integer, DataBindings> supplier = DataBindings.compact( new CompactMap.Shapes() );
+    DataBindings first = supplier.apply( 2 );
+    first.putAll( linked );
+    DataBindings second = supplier.apply( 2 );
+    second.putAll( linked );
+    assertEquals( first, second );
+    assertEquals( linked, second );
+  }
+
+}
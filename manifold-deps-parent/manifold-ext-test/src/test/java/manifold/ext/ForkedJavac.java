@@ -0,0 +1,130 @@
+package manifold.ext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import junit.framework.Assert;
+import junit.framework.TestFailure;
+import junit.framework.TestResult;
+import junit.framework.TestSuite;
+import manifold.util.StreamUtil;
+
+/**
+ * Compiles sources in a separate javac process with the Manifold plugin, the way a build using plugin arguments other
+ * than the ones this module is compiled with would, and runs tests compiled that way.
+ */
+public class ForkedJavac
+{
+  /**
+   * Compiles {@code sources} to {@code out} with {@code -Xplugin:Manifold <pluginArgs>}, the classpath is this process'
+   * and {@code out}
+   */
+  public static void compile( File out, String pluginArgs, File... sources ) throws Exception
+  {
+    String classpath = System.getProperty( "java.class.path" );
+    List<String> command = new ArrayList<>( Arrays.asList(
+      findJavac(), "-d", out.getPath(), "-cp", out.getPath() + File.pathSeparator + classpath,
+      "-processorpath", classpath, "-Xplugin:Manifold " + pluginArgs ) );
+    Arrays.stream( sources ).forEach( source -> command.add( source.getPath() ) );
+    Process javac = new ProcessBuilder( command ).redirectErrorStream( true ).start();
+    String output = StreamUtil.getContent( StreamUtil.getInputStreamReader( javac.getInputStream() ) );
+    Assert.assertEquals( output, 0, javac.waitFor() );
+  }
+
+  /**
+   * @return The source file of a top-level class in this module's tests
+   */
+  public static File testSource( Class<?> cls )
+  {
+    return new File( System.getProperty( "basedir", "." ),
+      "src/test/java/" + cls.getName().replace( '.', '/' ) + ".java" );
+  }
+
+  /**
+   * @return True if the class file of {@code cls} in {@code classes}, or on the classpath if {@code classes} is null,
+   * refers to {@code referenced}
+   */
+  public static boolean references( File classes, Class<?> cls, Class<?> referenced ) throws IOException
+  {
+    String path = cls.getName().replace( '.', '/' ) + ".class";
+    byte[] bytes;
+    try( InputStream in = classes == null
+                          ? cls.getClassLoader().getResourceAsStream( path )
+                          : new File( classes, path ).toURI().toURL().openStream() )
+    {
+      bytes = StreamUtil.getContent( in );
+    }
+    // the class name is a UTF8 constant, the same bytes in ISO-8859-1 as an ASCII name
+    return new String( bytes, StandardCharsets.ISO_8859_1 ).contains( referenced.getName().replace( '.', '/' ) );
+  }
+
+  /**
+   * Runs the tests in {@code testClass}, loaded from {@code classes} along with its nested classes, and fails if any of
+   * them fail
+   */
+  public static void assertPasses( File classes, Class<?> testClass ) throws Exception
+  {
+    try( ChildFirstLoader loader = new ChildFirstLoader( classes, ForkedJavac.class.getClassLoader() ) )
+    {
+      Class<?> cls = loader.loadClass( testClass.getName() );
+      Assert.assertNotSame( testClass, cls );
+
+      TestResult result = new TestResult();
+      new TestSuite( cls.asSubclass( junit.framework.TestCase.class ) ).run( result );
+      List<TestFailure> failures = new ArrayList<>( Collections.list( result.failures() ) );
+      failures.addAll( Collections.list( result.errors() ) );
+      Assert.assertTrue( failures.toString(), result.runCount() > 0 && failures.isEmpty() );
+    }
+  }
+
+  private static String findJavac()
+  {
+    File javaHome = new File( System.getProperty( "java.home" ) );
+    if( javaHome.getName().equals( "jre" ) )
+    {
+      // Java 8 runs from the jre directory of the jdk
+      javaHome = javaHome.getParentFile();
+    }
+    return new File( javaHome, "bin" + File.separatorChar + "javac" ).getPath();
+  }
+
+  /**
+   * Loads classes in {@code classes} itself, the ones compiled here shadow the same classes compiled with the module
+   */
+  private static class ChildFirstLoader extends URLClassLoader
+  {
+    ChildFirstLoader( File classes, ClassLoader parent ) throws IOException
+    {
+      super( new URL[]{classes.toURI().toURL()}, parent );
+    }
+
+    @Override
+    protected Class<?> loadClass( String name, boolean resolve ) throws ClassNotFoundException
+    {
+      synchronized( getClassLoadingLock( name ) )
+      {
+        Class<?> cls = findLoadedClass( name );
+        if( cls == null )
+        {
+          if( findResource( name.replace( '.', '/' ) + ".class" ) == null )
+          {
+            return super.loadClass( name, resolve );
+          }
+          cls = findClass( name );
+        }
+        if( resolve )
+        {
+          resolveClass( cls );
+        }
+        return cls;
+      }
+    }
+  }
+}
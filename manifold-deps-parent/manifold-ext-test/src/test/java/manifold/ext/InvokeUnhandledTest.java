@@ -0,0 +1,110 @@
+package manifold.ext;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import junit.framework.TestCase;
+import manifold.ext.api.ICallHandler;
+import manifold.ext.api.IProxyFactory;
+import manifold.util.ReflectUtil;
+
+public class InvokeUnhandledTest extends TestCase
+{
+  public void testInvokeUnhandled()
+  {
+    Greeter greeter = new Greeter();
+    RuntimeMethods.assignStructuralIdentity( greeter, Greeting.class );
+
+    assertEquals( "hello, Fred", RuntimeMethods.invokeUnhandled( greeter, Named.class, "greet",
+      String.class, new Class[]{String.class}, new Object[]{"Fred"} ) );
+    // inherited from a super interface
+    assertEquals( 1L, RuntimeMethods.invokeUnhandled( greeter, Named.class, "count",
+      long.class, new Class[0], new Object[0] ) );
+    // not a method of any interface assigned to greeter, again from the cache
+    for( int i = 0; i < 2; i++ )
+    {
+      assertSame( ICallHandler.UNHANDLED, RuntimeMethods.invokeUnhandled( greeter, Named.class, "greet",
+        String.class, new Class[]{Object.class}, new Object[]{"Fred"} ) );
+    }
+    // the proxied interface is excluded
+    assertSame( ICallHandler.UNHANDLED, RuntimeMethods.invokeUnhandled( greeter, Greeting.class, "greet",
+      String.class, new Class[]{String.class}, new Object[]{"Fred"} ) );
+  }
+
+  public void testNoProxyForMethodOfReceiver()
+  {
+    Greeter greeter = new Greeter();
+    RuntimeMethods.assignStructuralIdentity( greeter, Greeting.class );
+    for( int i = 0; i < 2; i++ )
+    {
+      assertEquals( "hello, Fred", RuntimeMethods.invokeUnhandled( greeter, Named.class, "greet",
+        String.class, new Class[]{String.class}, new Object[]{"Fred"} ) );
+    }
+    // Greeter has the method, it is called without a proxy
+    assertFalse( proxyFactories( Greeting.class ).containsKey( Greeter.class ) );
+  }
+
+  public void testProxyFactoryLookedUpOnce()
+  {
+    Sizer sizer = new Sizer();
+    RuntimeMethods.assignStructuralIdentity( sizer, Sized.class );
+    assertEquals( 3L, RuntimeMethods.invokeUnhandled( sizer, Named.class, "size",
+      long.class, new Class[0], new Object[0] ) );
+    // Sizer's method returns an int, the call is made through a proxy
+    assertTrue( proxyFactories( Sized.class ).containsKey( Sizer.class ) );
+
+    proxyFactories( Sized.class ).clear();
+    assertEquals( 3L, RuntimeMethods.invokeUnhandled( sizer, Named.class, "size",
+      long.class, new Class[0], new Object[0] ) );
+    // the proxy is made with the cached handle, not with its factory
+    assertFalse( proxyFactories( Sized.class ).containsKey( Sizer.class ) );
+  }
+
+  private static Map<Class, IProxyFactory> proxyFactories( Class<?> iface )
+  {
+    //noinspection unchecked
+    Map<Class, Map<Class, IProxyFactory>> proxyCache =
+      (Map<Class, Map<Class, IProxyFactory>>)ReflectUtil.field( RuntimeMethods.class, "PROXY_CACHE" ).getStatic();
+    return proxyCache.computeIfAbsent( iface, k -> new ConcurrentHashMap<>() );
+  }
+
+  public interface Named
+  {
+    String getName();
+  }
+
+  public interface Counted
+  {
+    int count();
+  }
+
+  public interface Greeting extends Counted
+  {
+    String greet( String name );
+  }
+
+  public interface Sized
+  {
+    long size();
+  }
+
+  public static class Sizer
+  {
+    public int size()
+    {
+      return 3;
+    }
+  }
+
+  public static class Greeter
+  {
+    public String greet( String name )
+    {
+      return "hello, " + name;
+    }
+
+    public int count()
+    {
+      return 1;
+    }
+  }
+}
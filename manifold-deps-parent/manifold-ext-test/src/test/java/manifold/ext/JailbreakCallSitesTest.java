@@ -0,0 +1,75 @@
+package manifold.ext;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import junit.framework.TestCase;
+import manifold.util.ReflectUtil;
+
+import static java.lang.invoke.MethodType.methodType;
+import static manifold.ext.JailbreakCallSites.*;
+
+public class JailbreakCallSitesTest extends TestCase
+{
+  private static final String SECRET_PARAM = "manifold.ext.stuff.SecretParam";
+  private static final String SECRET_CLASS = "manifold.ext.stuff.SecretClass";
+  private static final String STATICS = Statics.class.getName();
+
+  public void testConstructorsAndInstanceMembers() throws Throwable
+  {
+    // the classes are not accessible here, so the call sites use Object for them
+    Object param = callSite( "new", methodType( Object.class ), SECRET_PARAM, CONSTRUCTOR, "()V" ).invoke();
+    MethodHandle setFoo = callSite( "_foo", methodType( int.class, Object.class, int.class ), SECRET_PARAM, SET_FIELD, "" );
+    assertEquals( 9, (int)setFoo.invoke( param, 9 ) );
+    MethodHandle getFoo = callSite( "_foo", methodType( int.class, Object.class ), SECRET_PARAM, GET_FIELD, "" );
+    assertEquals( 9, (int)getFoo.invoke( param ) );
+
+    Object secret = callSite( "new", methodType( Object.class, Object.class ), SECRET_CLASS, CONSTRUCTOR,
+      "(Lmanifold/ext/stuff/SecretParam;)V" ).invoke( param );
+    MethodHandle getParam = callSite( "getParam", methodType( Object.class, Object.class ), SECRET_CLASS, METHOD,
+      "()Lmanifold/ext/stuff/SecretParam;" );
+    assertSame( param, getParam.invoke( secret ) );
+
+    // final field
+    Object otherParam = callSite( "new", methodType( Object.class ), SECRET_PARAM, CONSTRUCTOR, "()V" ).invoke();
+    MethodHandle setParam = callSite( "_param", methodType( Object.class, Object.class, Object.class ), SECRET_CLASS,
+      SET_FIELD, "" );
+    assertSame( otherParam, setParam.invoke( secret, otherParam ) );
+    assertSame( otherParam, getParam.invoke( secret ) );
+  }
+
+  public void testStaticMembers() throws Throwable
+  {
+    MethodHandle greet = callSite( "greet", methodType( String.class, String.class ), STATICS, STATIC_METHOD,
+      "(Ljava/lang/String;)Ljava/lang/String;" );
+    assertEquals( "hello Scott", greet.invoke( "Scott" ) );
+
+    MethodHandle setCount = callSite( "_count", methodType( long.class, long.class ), STATICS, SET_STATIC_FIELD, "" );
+    assertEquals( 8L, (long)setCount.invoke( 8L ) );
+    MethodHandle getCount = callSite( "_count", methodType( long.class ), STATICS, GET_STATIC_FIELD, "" );
+    assertEquals( 8L, (long)getCount.invoke() );
+
+    // static final field
+    MethodHandle setName = callSite( "NAME", methodType( String.class, String.class ), STATICS, SET_STATIC_FIELD, "" );
+    assertEquals( "changed", setName.invoke( "changed" ) );
+    assertEquals( "changed", ReflectUtil.field( Statics.class, "NAME" ).getStatic() );
+  }
+
+  private static MethodHandle callSite( String name, MethodType type, String owner, int kind, String descriptor )
+    throws ReflectiveOperationException
+  {
+    return bootstrap( MethodHandles.lookup(), name, type, owner, kind, descriptor ).dynamicInvoker();
+  }
+
+  @SuppressWarnings("unused")
+  private static class Statics
+  {
+    private static final String NAME = String.valueOf( "name" );
+    private static long _count;
+
+    private static String greet( String name )
+    {
+      return "hello " + name;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package manifold.ext;
+
+import junit.framework.TestCase;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Runs {@link JailbreakTest} compiled with the {@code jailbreak-indy} plugin argument, where {@code @Jailbreak} access
+ * is an invokedynamic call site instead of a reflective call
+ */
+public class JailbreakIndyTest extends TestCase
+{
+  private TemporaryFolder _tmp;
+
+  @Override
+  protected void setUp() throws Exception
+  {
+    _tmp = new TemporaryFolder();
+    _tmp.create();
+  }
+
+  @Override
+  protected void tearDown() throws Exception
+  {
+    _tmp.delete();
+  }
+
+  public void testJailbreakTest() throws Exception
+  {
+    assertFalse( ForkedJavac.references( null, JailbreakTest.class, JailbreakCallSites.class ) );
+
+    ForkedJavac.compile( _tmp.getRoot(), "strings jailbreak-indy", ForkedJavac.testSource( JailbreakTest.class ) );
+    assertTrue( ForkedJavac.references( _tmp.getRoot(), JailbreakTest.class, JailbreakCallSites.class ) );
+    ForkedJavac.assertPasses( _tmp.getRoot(), JailbreakTest.class );
+  }
+}
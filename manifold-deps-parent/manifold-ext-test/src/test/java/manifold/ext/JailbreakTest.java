@@ -27,6 +27,13 @@ public class JailbreakTest extends TestCase
     assertEquals( getName(), jailbreak().fName );
   }
 
+  public void testNestedInSecretClass()
+  {
+    manifold.ext.stuff.@Jailbreak SecretClass secret =
+      new manifold.ext.stuff.@Jailbreak SecretClass( new manifold.ext.stuff.@Jailbreak SecretParam() );
+    assertEquals( 5, secret.readNested( secret.makeNested( 5 ) ) );
+  }
+
   public void testAccessPrivateMembersDeclaredInSupers()
   {
     @Jailbreak Leaf leaf = new Leaf();
@@ -0,0 +1,99 @@
+package manifold.ext;
+
+import java.awt.Point;
+import java.util.HashMap;
+import java.util.Map;
+import junit.framework.TestCase;
+import manifold.api.type.ActualName;
+
+public class ProxyGeneratorTest extends TestCase
+{
+  public void testStructuralProxy() throws Exception
+  {
+    Class proxyClass = StructuralTypeProxyGenerator.defineProxy( Shape.class, Box.class, "Box_structural" );
+    assertNotNull( proxyClass );
+    Box box = new Box();
+    Shape shape = (Shape)proxyClass.getConstructors()[0].newInstance( box );
+
+    // fields
+    shape.setWidth( 3 );
+    assertEquals( 3, box.width );
+    assertEquals( 3, shape.getWidth() );
+    box.name = "box";
+    assertEquals( "box", shape.getName() );
+
+    // methods
+    box.height = 2;
+    assertEquals( 6L, shape.area() );
+    assertEquals( 6, (int)shape.size() );
+    shape.resize( 2 );
+    assertEquals( 24L, shape.area() );
+    assertEquals( "box[6, 4]", shape.describe( "[", "]" ) );
+  }
+
+  public void testStructuralProxyFallsBack()
+  {
+    // `grow` is not a public method of Point, the proxy must be compiled
+    assertNull( StructuralTypeProxyGenerator.defineProxy( Growable.class, Point.class, "Point_growable" ) );
+  }
+
+  public void testDynamicProxy() throws Exception
+  {
+    Class proxyClass = DynamicTypeProxyGenerator.defineProxy( Shape.class, HashMap.class, "HashMap_dynamic" );
+    assertNotNull( proxyClass );
+    Map<String, Object> map = new HashMap<>();
+    Shape shape = (Shape)proxyClass.getConstructors()[0].newInstance( map );
+
+    shape.setWidth( 5 );
+    assertEquals( 5, map.get( "Width" ) );
+    assertEquals( 5, shape.getWidth() );
+    map.put( "the name", "map" );
+    assertEquals( "map", shape.getName() );
+  }
+
+  public interface Shape
+  {
+    int getWidth();
+    void setWidth( int width );
+    @ActualName( "the name" )
+    String getName();
+    long area();
+    Integer size();
+    void resize( int factor );
+    CharSequence describe( String open, String close );
+  }
+
+  public interface Growable
+  {
+    void grow( int amount );
+  }
+
+  public static class Box
+  {
+    public int width;
+    public int height;
+    public String name;
+
+    public int area()
+    {
+      return width * height;
+    }
+
+    public int size()
+    {
+      return area();
+    }
+
+    public Box resize( int factor )
+    {
+      width *= factor;
+      height *= factor;
+      return this;
+    }
+
+    public String describe( String open, String close )
+    {
+      return name + open + width + ", " + height + close;
+    }
+  }
+}
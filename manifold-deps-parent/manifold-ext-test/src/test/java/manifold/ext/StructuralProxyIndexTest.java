@@ -0,0 +1,112 @@
+package manifold.ext;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+import junit.framework.TestCase;
+
+public class StructuralProxyIndexTest extends TestCase
+{
+  public void testFindProxyClass() throws Exception
+  {
+    Map<String, StructuralProxyIndex.Entry> index = new TreeMap<>();
+    put( index, Named.class, Person.class, PersonNamedProxy.class.getName() );
+    // stale entry, the proxy's constructor does not take the root class
+    put( index, Named.class, Pet.class, PersonNamedProxy.class.getName() );
+    // stale entry, the proxy class does not exist
+    put( index, Runnable.class, Person.class, "abc.Missing" );
+    // stale entry, the interface or root class changed since the proxy was generated
+    index.put( StructuralProxyIndex.key( Named.class.getName(), Dog.class.getName() ),
+      new StructuralProxyIndex.Entry( PersonNamedProxy.class.getName(), "0" ) );
+
+    File dir = Files.createTempDirectory( "proxies" ).toFile();
+    File indexFile = new File( dir, StructuralProxyIndex.INDEX_FILE );
+    assertTrue( indexFile.getParentFile().mkdirs() );
+    try( Writer writer = new FileWriter( indexFile ) )
+    {
+      StructuralProxyIndex.write( writer, index );
+    }
+
+    ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+    Thread.currentThread().setContextClassLoader( new URLClassLoader( new URL[]{dir.toURI().toURL()}, contextLoader ) );
+    try
+    {
+      assertSame( PersonNamedProxy.class, StructuralProxyIndex.findProxyClass( Named.class, Person.class ) );
+      assertNull( StructuralProxyIndex.findProxyClass( Named.class, Pet.class ) );
+      assertNull( StructuralProxyIndex.findProxyClass( Runnable.class, Person.class ) );
+      assertNull( StructuralProxyIndex.findProxyClass( Named.class, Dog.class ) );
+      assertNull( StructuralProxyIndex.findProxyClass( Comparable.class, Person.class ) );
+    }
+    finally
+    {
+      Thread.currentThread().setContextClassLoader( contextLoader );
+    }
+  }
+
+  public void testSignature()
+  {
+    String signature = StructuralProxyIndex.signature( Named.class, Person.class );
+    assertEquals( signature, StructuralProxyIndex.signature( Named.class, Person.class ) );
+    // same members, different class
+    assertFalse( signature.equals( StructuralProxyIndex.signature( Named.class, Pet.class ) ) );
+    // members of the superclass
+    assertFalse( StructuralProxyIndex.signature( Named.class, Dog.class ).equals(
+      StructuralProxyIndex.signature( Named.class, Pet.class ) ) );
+  }
+
+  private static void put( Map<String, StructuralProxyIndex.Entry> index, Class<?> iface, Class<?> rootClass, String proxyName )
+  {
+    index.put( StructuralProxyIndex.key( iface.getName(), rootClass.getName() ),
+      new StructuralProxyIndex.Entry( proxyName, StructuralProxyIndex.signature( iface, rootClass ) ) );
+  }
+
+  public interface Named
+  {
+    String getName();
+  }
+
+  public static class Person
+  {
+    public String getName()
+    {
+      return "Fred";
+    }
+  }
+
+  public static class Pet
+  {
+    public String getName()
+    {
+      return "Rex";
+    }
+  }
+
+  public static class Dog extends Pet
+  {
+    public String getBreed()
+    {
+      return "Mutt";
+    }
+  }
+
+  public static class PersonNamedProxy implements Named
+  {
+    private final Person _root;
+
+    public PersonNamedProxy( Person root )
+    {
+      _root = root;
+    }
+
+    @Override
+    public String getName()
+    {
+      return _root.getName();
+    }
+  }
+}
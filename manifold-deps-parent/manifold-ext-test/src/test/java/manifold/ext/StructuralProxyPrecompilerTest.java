@@ -0,0 +1,147 @@
+package manifold.ext;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+import junit.framework.TestCase;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Compiles sources in a separate javac process with the {@code structural-proxies} plugin argument, then checks the
+ * proxies it generated are listed in the index and used at runtime.
+ */
+public class StructuralProxyPrecompilerTest extends TestCase
+{
+  private TemporaryFolder _tmp;
+  private File _src;
+  private File _out;
+
+  @Override
+  protected void setUp() throws Exception
+  {
+    _tmp = new TemporaryFolder();
+    _tmp.create();
+    _src = _tmp.newFolder( "src" );
+    _out = _tmp.newFolder( "out" );
+  }
+
+  @Override
+  protected void tearDown() throws Exception
+  {
+    _tmp.delete();
+  }
+
+  public void testProxiesGeneratedAndUsed() throws Exception
+  {
+    // all from source, the proxies wait for the interface and root classes to be generated
+    compile(
+      write( "precompiled/Named.java",
+        "package precompiled;\n" +
+        "@manifold.ext.api.Structural\n" +
+        "public interface Named { String getName(); }" ),
+      write( "precompiled/Person.java",
+        "package precompiled;\n" +
+        "public class Person { public String getName() { return \"Fred\"; } }" ),
+      write( "precompiled/Handler.java",
+        "package precompiled;\n" +
+        "public class Handler {\n" +
+        "  public Object call( Class iface, String name, String actualName, Class returnType, Class[] paramTypes, Object[] args ) {\n" +
+        "    return \"structural \" + name;\n" +
+        "  }\n" +
+        "}" ),
+      write( "precompiled/Dynamic.java",
+        "package precompiled;\n" +
+        "public class Dynamic implements manifold.ext.api.ICallHandler {\n" +
+        "  public Object call( Class iface, String name, String actualName, Class returnType, Class[] paramTypes, Object[] args ) {\n" +
+        "    return \"nominal \" + name;\n" +
+        "  }\n" +
+        "}" ),
+      write( "precompiled/Casts.java",
+        "package precompiled;\n" +
+        "public class Casts {\n" +
+        "  public static String person() { return ((Named)new Person()).getName(); }\n" +
+        "  public static String handler() { return ((Named)new Handler()).getName(); }\n" +
+        "  public static String dynamic() { return ((Named)new Dynamic()).getName(); }\n" +
+        "}" ) );
+
+    Map<String, StructuralProxyIndex.Entry> index = readIndex();
+    assertEquals( 3, index.size() );
+    assertProxy( "precompiled.Person", index, "person", "Fred" );
+    assertProxy( "precompiled.Handler", index, "handler", "structural getName" );
+    assertProxy( "precompiled.Dynamic", index, "dynamic", "nominal getName" );
+
+    // incremental, the interface is now a class file in the output directory and the root class is from source
+    compile(
+      write( "precompiled/Pet.java",
+        "package precompiled;\n" +
+        "public class Pet { public String getName() { return \"Rex\"; } }" ),
+      write( "precompiled/MoreCasts.java",
+        "package precompiled;\n" +
+        "public class MoreCasts {\n" +
+        "  public static String pet() { return ((Named)new Pet()).getName(); }\n" +
+        "}" ) );
+
+    Map<String, StructuralProxyIndex.Entry> merged = readIndex();
+    assertEquals( 4, merged.size() );
+    assertTrue( merged.entrySet().containsAll( index.entrySet() ) );
+    assertProxy( "precompiled.Person", merged, "person", "Fred" );
+    assertProxy( "precompiled.Pet", merged, "pet", "Rex" );
+  }
+
+  /**
+   * Calls the cast method in a new class loader and checks the call was made with the proxy listed in the index for
+   * {@code rootName}, and that the proxy, as generated at compile-time, handles the call as the runtime would
+   */
+  private void assertProxy( String rootName, Map<String, StructuralProxyIndex.Entry> index, String castMethod, String expectedName ) throws Exception
+  {
+    StructuralProxyIndex.Entry entry = index.get( StructuralProxyIndex.key( "precompiled.Named", rootName ) );
+    assertNotNull( entry );
+    String proxyName = entry._proxyName;
+    assertTrue( new File( _out, proxyName.replace( '.', File.separatorChar ) + ".class" ).isFile() );
+
+    try( URLClassLoader loader = new URLClassLoader( new URL[]{_out.toURI().toURL()}, getClass().getClassLoader() ) )
+    {
+      String castsClass = castMethod.equals( "pet" ) ? "precompiled.MoreCasts" : "precompiled.Casts";
+      assertEquals( expectedName, loader.loadClass( castsClass ).getMethod( castMethod ).invoke( null ) );
+
+      Class<?> proxyClass = loader.loadClass( proxyName );
+      Class<?> iface = loader.loadClass( "precompiled.Named" );
+      Class<?> rootClass = loader.loadClass( rootName );
+      assertSame( proxyClass, StructuralProxyIndex.findProxyClass( iface, rootClass ) );
+      // the call above was made with the proxy from the index
+      DynamicProxyFactory proxyFactory = (DynamicProxyFactory)RuntimeMethods.getProxyFactory( iface, rootClass );
+      assertSame( proxyClass, proxyFactory.getConstructor().getDeclaringClass() );
+    }
+  }
+
+  private Map<String, StructuralProxyIndex.Entry> readIndex() throws IOException
+  {
+    Map<String, StructuralProxyIndex.Entry> index = new TreeMap<>();
+    try( Reader reader = new FileReader( new File( _out, StructuralProxyIndex.INDEX_FILE ) ) )
+    {
+      StructuralProxyIndex.read( reader, index );
+    }
+    return index;
+  }
+
+  private File write( String path, String source ) throws IOException
+  {
+    File file = new File( _src, path );
+    //noinspection ResultOfMethodCallIgnored
+    file.getParentFile().mkdirs();
+    Files.write( file.toPath(), source.getBytes( StandardCharsets.UTF_8 ) );
+    return file;
+  }
+
+  private void compile( File... sources ) throws Exception
+  {
+    ForkedJavac.compile( _out, "structural-proxies", sources );
+  }
+}
@@ -0,0 +1,108 @@
+package manifold.ext.structural;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import junit.framework.TestCase;
+import manifold.ext.StructuralCallSites;
+
+/**
+ */
+public class StructuralCallSitesTest extends TestCase
+{
+  public void testReceiverClasses() throws Throwable
+  {
+    MethodHandle getX = getX();
+    // direct
+    assertEquals( 1.0, (double)getX.invoke( new Point( 1, 2 ) ) );
+    // proxied, the x field satisfies getX()
+    assertEquals( 3.0, (double)getX.invoke( new Fields( 3, 4 ) ) );
+    // nominal
+    assertEquals( 5.0, (double)getX.invoke( new Nominal( 5, 6 ) ) );
+
+    // cached
+    assertEquals( 7.0, (double)getX.invoke( new Point( 7, 8 ) ) );
+    assertEquals( 9.0, (double)getX.invoke( new Fields( 9, 10 ) ) );
+    assertEquals( 11.0, (double)getX.invoke( new Nominal( 11, 12 ) ) );
+  }
+
+  public void testMegamorphic() throws Throwable
+  {
+    MethodHandle getX = getX();
+    Object[] receivers = {
+      new Point( 1, 0 ), new Rectangle( 2, 0, 1, 1 ), new Point2D.Double( 3, 0 ), new Point2D.Float( 4, 0 ),
+      new Rectangle2D.Double( 5, 0, 1, 1 ), new Rectangle2D.Float( 6, 0, 1, 1 ), new Ellipse2D.Double( 7, 0, 1, 1 ),
+      new Ellipse2D.Float( 8, 0, 1, 1 ), new Arc2D.Double( 9, 0, 1, 1, 0, 90, Arc2D.PIE ),
+      new RoundRectangle2D.Double( 10, 0, 1, 1, 1, 1 ), new Fields( 11, 0 )};
+    for( int i = 0; i < 2; i++ )
+    {
+      for( int j = 0; j < receivers.length; j++ )
+      {
+        assertEquals( j + 1.0, (double)getX.invoke( receivers[j] ) );
+      }
+    }
+  }
+
+  public void testNullReceiver() throws Throwable
+  {
+    try
+    {
+      //noinspection UnusedAssignment
+      double x = (double)getX().invoke( (Object)null );
+      fail();
+    }
+    catch( NullPointerException e )
+    {
+      // expected
+    }
+  }
+
+  private static MethodHandle getX() throws ReflectiveOperationException
+  {
+    return StructuralCallSites.bootstrap( MethodHandles.lookup(), "getX",
+      MethodType.methodType( double.class, Object.class ), Coordinate.class.getName(), "()D" ).dynamicInvoker();
+  }
+
+  public static class Fields
+  {
+    public double x;
+    public double y;
+
+    Fields( double x, double y )
+    {
+      this.x = x;
+      this.y = y;
+    }
+  }
+
+  private static class Nominal implements Coordinate
+  {
+    private final double _x;
+    private final double _y;
+
+    Nominal( double x, double y )
+    {
+      _x = x;
+      _y = y;
+    }
+
+    @Override
+    public double getX()
+    {
+      return _x;
+    }
+
+    @Override
+    public double getY()
+    {
+      return _y;
+    }
+  }
+}
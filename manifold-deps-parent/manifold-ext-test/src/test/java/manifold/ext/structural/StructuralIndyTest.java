@@ -0,0 +1,37 @@
+package manifold.ext.structural;
+
+import junit.framework.TestCase;
+import manifold.ext.ForkedJavac;
+import manifold.ext.StructuralCallSites;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Runs {@link StructuralTypeTest} compiled with the {@code structural-indy} plugin argument, where a call through a
+ * structural interface is an inline-cached invokedynamic call site instead of a call on a proxy
+ */
+public class StructuralIndyTest extends TestCase
+{
+  private TemporaryFolder _tmp;
+
+  @Override
+  protected void setUp() throws Exception
+  {
+    _tmp = new TemporaryFolder();
+    _tmp.create();
+  }
+
+  @Override
+  protected void tearDown() throws Exception
+  {
+    _tmp.delete();
+  }
+
+  public void testStructuralTypeTest() throws Exception
+  {
+    assertFalse( ForkedJavac.references( null, StructuralTypeTest.class, StructuralCallSites.class ) );
+
+    ForkedJavac.compile( _tmp.getRoot(), "strings structural-indy", ForkedJavac.testSource( StructuralTypeTest.class ) );
+    assertTrue( ForkedJavac.references( _tmp.getRoot(), StructuralTypeTest.class, StructuralCallSites.class ) );
+    ForkedJavac.assertPasses( _tmp.getRoot(), StructuralTypeTest.class );
+  }
+}
@@ -14,4 +14,25 @@ class SecretClass
   {
     return _param;
   }
+
+  Nested makeNested( int value )
+  {
+    return new Nested( value );
+  }
+
+  int readNested( Nested nested )
+  {
+    return nested._value;
+  }
+
+  // public, but not accessible outside the package since SecretClass is not
+  public static class Nested
+  {
+    private final int _value;
+
+    public Nested( int value )
+    {
+      _value = value;
+    }
+  }
 }
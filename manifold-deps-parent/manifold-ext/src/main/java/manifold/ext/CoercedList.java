@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.ext;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * A view of a bindings list with its elements coerced on access. Changes write through to the bindings list as
+ * binding values, see {@link RuntimeMethods#coerceToBindingValue(Object)}.
+ */
+class CoercedList extends AbstractList<Object>
+{
+  private final List<Object> _bindingsList;
+  private final Coercer _coercer;
+
+  CoercedList( List<Object> bindingsList, Coercer coercer )
+  {
+    _bindingsList = bindingsList;
+    _coercer = coercer;
+  }
+
+  @Override
+  public Object get( int index )
+  {
+    return _coercer.coerce( _bindingsList.get( index ) );
+  }
+
+  @Override
+  public int size()
+  {
+    return _bindingsList.size();
+  }
+
+  @Override
+  public Object set( int index, Object element )
+  {
+    return _coercer.coerce( _bindingsList.set( index, RuntimeMethods.coerceToBindingValue( element ) ) );
+  }
+
+  @Override
+  public void add( int index, Object element )
+  {
+    _bindingsList.add( index, RuntimeMethods.coerceToBindingValue( element ) );
+  }
+
+  @Override
+  public Object remove( int index )
+  {
+    return _coercer.coerce( _bindingsList.remove( index ) );
+  }
+
+  @Override
+  public void clear()
+  {
+    _bindingsList.clear();
+  }
+
+  @Override
+  public Iterator<Object> iterator()
+  {
+    return listIterator();
+  }
+
+  @Override
+  public ListIterator<Object> listIterator( int index )
+  {
+    ListIterator<Object> iter = _bindingsList.listIterator( index );
+    return new ListIterator<Object>()
+    {
+      @Override
+      public boolean hasNext()
+      {
+        return iter.hasNext();
+      }
+
+      @Override
+      public Object next()
+      {
+        return _coercer.coerce( iter.next() );
+      }
+
+      @Override
+      public boolean hasPrevious()
+      {
+        return iter.hasPrevious();
+      }
+
+      @Override
+      public Object previous()
+      {
+        return _coercer.coerce( iter.previous() );
+      }
+
+      @Override
+      public int nextIndex()
+      {
+        return iter.nextIndex();
+      }
+
+      @Override
+      public int previousIndex()
+      {
+        return iter.previousIndex();
+      }
+
+      @Override
+      public void remove()
+      {
+        iter.remove();
+      }
+
+      @Override
+      public void set( Object element )
+      {
+        iter.set( RuntimeMethods.coerceToBindingValue( element ) );
+      }
+
+      @Override
+      public void add( Object element )
+      {
+        iter.add( RuntimeMethods.coerceToBindingValue( element ) );
+      }
+    };
+  }
+}
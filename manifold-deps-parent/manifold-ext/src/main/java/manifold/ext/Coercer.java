@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.ext;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.function.Function;
+import manifold.ext.api.IBindingsBacked;
+import manifold.ext.api.ICallHandler;
+
+/**
+ * Coerces values to a target type, see {@link RuntimeMethods#coerce(Object, Class)}. Everything depending only on the
+ * target type is worked out once when the coercer is made, so a getter on a JSON type costs a {@link ClassValue}
+ * lookup and a direct conversion instead of walking through all the cases on each call.
+ */
+final class Coercer
+{
+  private static final ClassValue<Coercer> COERCERS = new ClassValue<Coercer>()
+  {
+    @Override
+    protected Coercer computeValue( Class<?> type )
+    {
+      return new Coercer( type );
+    }
+  };
+
+  static Coercer get( Class<?> type )
+  {
+    return COERCERS.get( type );
+  }
+
+  /** The target type, boxed if primitive */
+  private final Class<?> _type;
+  private final Object _nullValue;
+  private final boolean _bindingsBacked;
+  /** Applies if the value is not already an instance of the type and no coercion provider handles it */
+  private final Function<Object, Object> _conversion;
+
+  private Coercer( Class<?> type )
+  {
+    _nullValue = type.isPrimitive() ? defaultPrimitiveValue( type ) : null;
+    _bindingsBacked = IBindingsBacked.class.isAssignableFrom( type );
+    _type = type.isPrimitive() && type != void.class ? box( type ) : type;
+    _conversion = makeConversion( type, _type );
+  }
+
+  Object coerce( Object value )
+  {
+    if( value == null )
+    {
+      return _nullValue;
+    }
+
+    if( _bindingsBacked )
+    {
+      return value;
+    }
+
+    if( value instanceof List )
+    {
+      // a view, so the list is not copied on each call and changes to it write through
+      //noinspection unchecked
+      return new CoercedList( (List<Object>)value, this );
+    }
+
+    if( _type.isInstance( value ) )
+    {
+      return value;
+    }
+
+    Object result = CoercionProviders.coerce( value, _type );
+    if( result != ICallHandler.UNHANDLED )
+    {
+      return result;
+    }
+
+    return _conversion.apply( value );
+  }
+
+  private static Function<Object, Object> makeConversion( Class<?> declaredType, Class<?> type )
+  {
+    if( declaredType == void.class )
+    {
+      return value -> {
+        throw new IllegalStateException();
+      };
+    }
+
+    if( type == Boolean.class )
+    {
+      return value -> value instanceof Number
+                      ? ((Number)value).intValue() != 0
+                      : Boolean.parseBoolean( value.toString() );
+    }
+
+    if( type == Byte.class )
+    {
+      // a Number narrows to byteValue()
+      return value -> {
+        if( value instanceof Number )
+        {
+          return ((Number)value).byteValue();
+        }
+        if( value instanceof Boolean )
+        {
+          return ((Boolean)value) ? (byte)1 : (byte)0;
+        }
+        return Byte.parseByte( value.toString() );
+      };
+    }
+
+    if( type == Character.class )
+    {
+      return value -> {
+        if( value instanceof Number )
+        {
+          return (char)((Number)value).intValue();
+        }
+        String s = value.toString();
+        return s.isEmpty() ? (char)0 : s.charAt( 0 );
+      };
+    }
+
+    if( type == Short.class )
+    {
+      return value -> {
+        if( value instanceof Number )
+        {
+          return ((Number)value).shortValue();
+        }
+        if( value instanceof Boolean )
+        {
+          return ((Boolean)value) ? (short)1 : (short)0;
+        }
+        return Short.parseShort( value.toString() );
+      };
+    }
+
+    if( type == Integer.class )
+    {
+      return value -> {
+        if( value instanceof Number )
+        {
+          return ((Number)value).intValue();
+        }
+        if( value instanceof Boolean )
+        {
+          return ((Boolean)value) ? 1 : 0;
+        }
+        return Integer.parseInt( value.toString() );
+      };
+    }
+
+    if( type == Long.class )
+    {
+      return value -> {
+        if( value instanceof Number )
+        {
+          return ((Number)value).longValue();
+        }
+        if( value instanceof Boolean )
+        {
+          return ((Boolean)value) ? 1L : 0L;
+        }
+        return Long.parseLong( value.toString() );
+      };
+    }
+
+    if( type == Float.class )
+    {
+      return value -> {
+        if( value instanceof Number )
+        {
+          return ((Number)value).floatValue();
+        }
+        if( value instanceof Boolean )
+        {
+          return ((Boolean)value) ? 1f : 0f;
+        }
+        return Float.parseFloat( value.toString() );
+      };
+    }
+
+    if( type == Double.class )
+    {
+      return value -> {
+        if( value instanceof Number )
+        {
+          return ((Number)value).doubleValue();
+        }
+        if( value instanceof Boolean )
+        {
+          return ((Boolean)value) ? 1d : 0d;
+        }
+        return Double.parseDouble( value.toString() );
+      };
+    }
+
+    if( type == BigInteger.class )
+    {
+      return value -> {
+        if( value instanceof Number )
+        {
+          return BigInteger.valueOf( ((Number)value).longValue() );
+        }
+        if( value instanceof Boolean )
+        {
+          return ((Boolean)value) ? BigInteger.ONE : BigInteger.ZERO;
+        }
+        return new BigInteger( value.toString() );
+      };
+    }
+
+    if( type == BigDecimal.class )
+    {
+      return value -> {
+        if( value instanceof Boolean )
+        {
+          return ((Boolean)value) ? BigDecimal.ONE : BigDecimal.ZERO;
+        }
+        return new BigDecimal( value.toString() );
+      };
+    }
+
+    if( type == String.class )
+    {
+      return String::valueOf;
+    }
+
+    if( type.isEnum() )
+    {
+      //noinspection unchecked
+      Class<Enum> enumType = (Class<Enum>)type;
+      return value -> Enum.valueOf( enumType, String.valueOf( value ) );
+    }
+
+    if( type.isArray() )
+    {
+      Class<?> componentType = type.getComponentType();
+      Coercer componentCoercer = get( componentType );
+      return value -> {
+        if( !value.getClass().isArray() )
+        {
+          // let the ClassCastException happen
+          return value;
+        }
+        int length = Array.getLength( value );
+        Object array = Array.newInstance( componentType, length );
+        for( int i = 0; i < length; i++ )
+        {
+          Array.set( array, i, componentCoercer.coerce( Array.get( value, i ) ) );
+        }
+        return array;
+      };
+    }
+
+    // let the ClassCastException happen
+    return value -> value;
+  }
+
+  private static Object defaultPrimitiveValue( Class<?> type )
+  {
+    if( type == int.class ||
+        type == short.class )
+    {
+      return 0;
+    }
+    if( type == byte.class )
+    {
+      return (byte)0;
+    }
+    if( type == long.class )
+    {
+      return 0L;
+    }
+    if( type == float.class )
+    {
+      return 0f;
+    }
+    if( type == double.class )
+    {
+      return 0d;
+    }
+    if( type == boolean.class )
+    {
+      return false;
+    }
+    if( type == char.class )
+    {
+      return (char)0;
+    }
+    if( type == void.class )
+    {
+      return null;
+    }
+    throw new IllegalArgumentException( "Unsupported primitive type: " + type.getSimpleName() );
+  }
+
+  private static Class<?> box( Class<?> type )
+  {
+    if( type == boolean.class )
+    {
+      return Boolean.class;
+    }
+    if( type == byte.class )
+    {
+      return Byte.class;
+    }
+    if( type == char.class )
+    {
+      return Character.class;
+    }
+    if( type == short.class )
+    {
+      return Short.class;
+    }
+    if( type == int.class )
+    {
+      return Integer.class;
+    }
+    if( type == long.class )
+    {
+      return Long.class;
+    }
+    if( type == float.class )
+    {
+      return Float.class;
+    }
+    if( type == double.class )
+    {
+      return Double.class;
+    }
+    throw new IllegalStateException();
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.ext;
+
+import java.util.List;
+import java.util.function.Supplier;
+import manifold.ext.api.ICoercionProvider;
+
+import static manifold.ext.api.ICallHandler.UNHANDLED;
+
+/**
+ * Dispatches coercions to the first of a list of {@link ICoercionProvider}s handling them. Leading providers that
+ * declined a coercion and are {@linkplain ICoercionProvider#isClassDecided(Class) class decided} are remembered by
+ * value class and target type, so subsequent coercions skip them. Providers deciding by value are always asked, in
+ * order. The index is held in {@link ClassValue}s, it does not keep the classes from being unloaded.
+ */
+public class CoercionDispatcher<P extends ICoercionProvider>
+{
+  private static final int UNKNOWN = -1;
+
+  private final Supplier<List<P>> _providers;
+  /** target type -> value class -> index of the first provider to ask */
+  private final ClassValue<ClassValue<int[]>> _coerceIndex;
+  /** value class -> index of the first provider to ask */
+  private final ClassValue<int[]> _toBindingValueIndex;
+
+  public CoercionDispatcher( Supplier<List<P>> providers )
+  {
+    _providers = providers;
+    _coerceIndex = new ClassValue<ClassValue<int[]>>()
+    {
+      @Override
+      protected ClassValue<int[]> computeValue( Class<?> type )
+      {
+        return makeIndex();
+      }
+    };
+    _toBindingValueIndex = makeIndex();
+  }
+
+  /**
+   * @return The value coerced by the first provider handling it, or {@link manifold.ext.api.ICallHandler#UNHANDLED}
+   */
+  public Object coerce( Object value, Class<?> type )
+  {
+    List<P> providers = _providers.get();
+    int[] index = _coerceIndex.get( type ).get( value.getClass() );
+    int first = index[0];
+    int firstToAsk = UNKNOWN;
+    for( int i = first == UNKNOWN ? 0 : first; i < providers.size(); i++ )
+    {
+      P provider = providers.get( i );
+      Object coercedValue = provider.coerce( value, type );
+      if( firstToAsk == UNKNOWN && (coercedValue != UNHANDLED || !provider.isClassDecided( type )) )
+      {
+        firstToAsk = i;
+      }
+      if( coercedValue != UNHANDLED )
+      {
+        if( first == UNKNOWN )
+        {
+          index[0] = firstToAsk;
+        }
+        return coercedValue;
+      }
+    }
+    if( first == UNKNOWN )
+    {
+      index[0] = firstToAsk == UNKNOWN ? providers.size() : firstToAsk;
+    }
+    return UNHANDLED;
+  }
+
+  /**
+   * @return The value coerced by the first provider handling it, or {@link manifold.ext.api.ICallHandler#UNHANDLED}
+   */
+  public Object toBindingValue( Object value )
+  {
+    List<P> providers = _providers.get();
+    int[] index = _toBindingValueIndex.get( value.getClass() );
+    int first = index[0];
+    int firstToAsk = UNKNOWN;
+    for( int i = first == UNKNOWN ? 0 : first; i < providers.size(); i++ )
+    {
+      P provider = providers.get( i );
+      Object coercedValue = provider.toBindingValue( value );
+      if( firstToAsk == UNKNOWN && (coercedValue != UNHANDLED || !provider.isClassDecided()) )
+      {
+        firstToAsk = i;
+      }
+      if( coercedValue != UNHANDLED )
+      {
+        if( first == UNKNOWN )
+        {
+          index[0] = firstToAsk;
+        }
+        return coercedValue;
+      }
+    }
+    if( first == UNKNOWN )
+    {
+      index[0] = firstToAsk == UNKNOWN ? providers.size() : firstToAsk;
+    }
+    return UNHANDLED;
+  }
+
+  private static ClassValue<int[]> makeIndex()
+  {
+    return new ClassValue<int[]>()
+    {
+      @Override
+      protected int[] computeValue( Class<?> type )
+      {
+        return new int[] {UNKNOWN};
+      }
+    };
+  }
+}
@@ -28,12 +28,30 @@ public class CoercionProviders
 {
   private static final LocklessLazyVar<List<ICoercionProvider>> _coercionProviders =
     LocklessLazyVar.make( CoercionProviders::loadCoercionProviders );
+  private static final CoercionDispatcher<ICoercionProvider> _dispatcher =
+    new CoercionDispatcher<>( CoercionProviders::get );
 
   public static List<ICoercionProvider> get()
   {
     return _coercionProviders.get();
   }
 
+  /**
+   * Coerce {@code value} with the first provider handling it, see {@link CoercionDispatcher}.
+   */
+  public static Object coerce( Object value, Class<?> type )
+  {
+    return _dispatcher.coerce( value, type );
+  }
+
+  /**
+   * Coerce {@code value} to a bindings value with the first provider handling it, see {@link CoercionDispatcher}.
+   */
+  public static Object toBindingValue( Object value )
+  {
+    return _dispatcher.toBindingValue( value );
+  }
+
   private static List<ICoercionProvider> loadCoercionProviders()
   {
     try
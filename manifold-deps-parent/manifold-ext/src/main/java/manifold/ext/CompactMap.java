@@ -0,0 +1,441 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.ext;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * A map for the many small objects typical of JSON, use it to back {@link DataBindings} in place of a
+ * {@link LinkedHashMap}. Insertion order is preserved. Values are kept in an array. The keys, along with an
+ * open-addressing index of them, are kept in a <i>shape</i> shared by all maps of the same {@link Shapes} having the
+ * same keys added in the same order, such as the objects of a JSON array parsed together.
+ * <p>
+ * A map switches to a LinkedHashMap when a key is removed or when its keys leave the shapes, because it has more keys
+ * than a shape holds or its {@link Shapes} has too many shapes.
+ * <p>
+ * Like LinkedHashMap, this class is not thread-safe.
+ */
+public class CompactMap extends AbstractMap<String, Object>
+{
+  /** The maximum number of keys in a shape, beyond this a LinkedHashMap is used */
+  private static final int MAX_SHAPE_SIZE = 64;
+  /** The maximum number of shapes following a shape, limits shapes made from varied keys */
+  private static final int MAX_TRANSITIONS = 64;
+  /** The maximum number of shapes in a {@link Shapes} */
+  private static final int MAX_SHAPES = 1 << 12;
+  private static final Object[] NO_VALUES = {};
+
+  private final Shapes _shapes;
+  private Shape _shape;
+  private Object[] _values;
+  /** Used in place of the shape and values if there are too many keys */
+  private Map<String, Object> _map;
+
+  public CompactMap()
+  {
+    this( 0 );
+  }
+
+  public CompactMap( int initialCapacity )
+  {
+    this( new Shapes(), initialCapacity );
+  }
+
+  /**
+   * @param shapes The shapes to share with other maps, such as the other objects of a JSON parse
+   */
+  public CompactMap( Shapes shapes )
+  {
+    this( shapes, 0 );
+  }
+
+  public CompactMap( Shapes shapes, int initialCapacity )
+  {
+    _shapes = shapes;
+    _shape = shapes._empty;
+    _values = initialCapacity <= 0 ? NO_VALUES : new Object[Math.min( initialCapacity, MAX_SHAPE_SIZE )];
+  }
+
+  @Override
+  public int size()
+  {
+    return _map != null ? _map.size() : _shape._keys.length;
+  }
+
+  @Override
+  public boolean containsKey( Object key )
+  {
+    return _map != null ? _map.containsKey( key ) : _shape.indexOf( key ) >= 0;
+  }
+
+  @Override
+  public Object get( Object key )
+  {
+    if( _map != null )
+    {
+      return _map.get( key );
+    }
+    int index = _shape.indexOf( key );
+    return index < 0 ? null : _values[index];
+  }
+
+  @Override
+  public Object put( String key, Object value )
+  {
+    if( _map != null )
+    {
+      return _map.put( key, value );
+    }
+
+    int index = _shape.indexOf( key );
+    if( index >= 0 )
+    {
+      Object old = _values[index];
+      _values[index] = value;
+      return old;
+    }
+
+    Objects.requireNonNull( key );
+    Shape next = _shape.next( key, _shapes );
+    if( next == null )
+    {
+      toMap().put( key, value );
+      return null;
+    }
+    int size = _shape._keys.length;
+    if( size == _values.length )
+    {
+      _values = Arrays.copyOf( _values, Math.max( 4, Math.min( size * 2, MAX_SHAPE_SIZE ) ) );
+    }
+    _values[size] = value;
+    _shape = next;
+    return null;
+  }
+
+  @Override
+  public Object remove( Object key )
+  {
+    if( _map != null )
+    {
+      return _map.remove( key );
+    }
+
+    if( _shape.indexOf( key ) < 0 )
+    {
+      return null;
+    }
+    return toMap().remove( key );
+  }
+
+  @Override
+  public void clear()
+  {
+    _shape = _shapes._empty;
+    _values = NO_VALUES;
+    _map = null;
+  }
+
+  @Override
+  public void forEach( BiConsumer<? super String, ? super Object> action )
+  {
+    if( _map != null )
+    {
+      _map.forEach( action );
+      return;
+    }
+    String[] keys = _shape._keys;
+    for( int i = 0; i < keys.length; i++ )
+    {
+      action.accept( keys[i], _values[i] );
+    }
+  }
+
+  /**
+   * Releases unused capacity, for instance after a JSON object is fully parsed.
+   */
+  public void trimToSize()
+  {
+    if( _map == null && _values.length > _shape._keys.length )
+    {
+      _values = _shape._keys.length == 0 ? NO_VALUES : Arrays.copyOf( _values, _shape._keys.length );
+    }
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet()
+  {
+    return new AbstractSet<Entry<String, Object>>()
+    {
+      @Override
+      public int size()
+      {
+        return CompactMap.this.size();
+      }
+
+      @Override
+      public void clear()
+      {
+        CompactMap.this.clear();
+      }
+
+      @Override
+      public Iterator<Entry<String, Object>> iterator()
+      {
+        return _map != null ? _map.entrySet().iterator() : new EntryIterator();
+      }
+    };
+  }
+
+  private Map<String, Object> toMap()
+  {
+    String[] keys = _shape._keys;
+    Map<String, Object> map = new LinkedHashMap<>( keys.length * 2 );
+    for( int i = 0; i < keys.length; i++ )
+    {
+      map.put( keys[i], _values[i] );
+    }
+    _shape = _shapes._empty;
+    _values = NO_VALUES;
+    _map = map;
+    return map;
+  }
+
+  /**
+   * Iterates the keys of the shape at the time the iterator was made, removing an entry switches the map to a
+   * LinkedHashMap still having the rest of them.
+   */
+  private class EntryIterator implements Iterator<Entry<String, Object>>
+  {
+    private final String[] _keys = _shape._keys;
+    private int _next;
+    private int _last = -1;
+
+    @Override
+    public boolean hasNext()
+    {
+      return _next < _keys.length;
+    }
+
+    @Override
+    public Entry<String, Object> next()
+    {
+      if( !hasNext() )
+      {
+        throw new NoSuchElementException();
+      }
+      _last = _next++;
+      return new KeyEntry( _keys[_last] );
+    }
+
+    @Override
+    public void remove()
+    {
+      if( _last < 0 )
+      {
+        throw new IllegalStateException();
+      }
+      CompactMap.this.remove( _keys[_last] );
+      _last = -1;
+    }
+  }
+
+  /**
+   * An entry reading and writing through the map, so it stays valid as other entries are removed.
+   */
+  private class KeyEntry implements Entry<String, Object>
+  {
+    private final String _key;
+
+    KeyEntry( String key )
+    {
+      _key = key;
+    }
+
+    @Override
+    public String getKey()
+    {
+      return _key;
+    }
+
+    @Override
+    public Object getValue()
+    {
+      return get( _key );
+    }
+
+    @Override
+    public Object setValue( Object value )
+    {
+      return put( _key, value );
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+      if( !(o instanceof Entry) )
+      {
+        return false;
+      }
+      Entry<?, ?> that = (Entry<?, ?>)o;
+      return _key.equals( that.getKey() ) && Objects.equals( getValue(), that.getValue() );
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return _key.hashCode() ^ Objects.hashCode( getValue() );
+    }
+
+    @Override
+    public String toString()
+    {
+      return _key + "=" + getValue();
+    }
+  }
+
+  /**
+   * The shapes shared by a group of maps, such as the objects of one JSON parse. Only the maps refer to their shapes,
+   * so the shapes and their keys are reclaimed along with the maps. The number of shapes is limited, further maps
+   * switch to a LinkedHashMap.
+   * <p>
+   * Maps of the same shapes may be used from different threads.
+   */
+  public static final class Shapes
+  {
+    private final Shape _empty = new Shape( new String[0] );
+    private final AtomicInteger _count = new AtomicInteger();
+  }
+
+  /**
+   * The keys of a map in insertion order with an index of them. Shapes form a tree of transitions from the empty
+   * shape, one per key added, so maps built with the same keys in the same order have the same shape.
+   */
+  private static final class Shape
+  {
+    final String[] _keys;
+    /** Open-addressing table of key positions plus one, zero marks an empty slot */
+    private final int[] _table;
+    /** Shapes following this one, made on the first transition */
+    private volatile Map<String, Shape> _transitions;
+
+    private Shape( String[] keys )
+    {
+      _keys = keys;
+      int capacity = 1;
+      while( capacity < keys.length * 2 )
+      {
+        capacity <<= 1;
+      }
+      _table = new int[capacity];
+      int mask = capacity - 1;
+      for( int i = 0; i < keys.length; i++ )
+      {
+        int slot = hash( keys[i] ) & mask;
+        while( _table[slot] != 0 )
+        {
+          slot = (slot + 1) & mask;
+        }
+        _table[slot] = i + 1;
+      }
+    }
+
+    int indexOf( Object key )
+    {
+      if( key == null )
+      {
+        return -1;
+      }
+      int mask = _table.length - 1;
+      for( int slot = hash( key ) & mask; ; slot = (slot + 1) & mask )
+      {
+        int position = _table[slot];
+        if( position == 0 )
+        {
+          return -1;
+        }
+        String k = _keys[position - 1];
+        if( k == key || k.equals( key ) )
+        {
+          return position - 1;
+        }
+      }
+    }
+
+    /**
+     * @return The shape having {@code key} added to this shape's keys, or null if the shape would be too large or
+     * {@code shapes} has too many shapes
+     */
+    Shape next( String key, Shapes shapes )
+    {
+      if( _keys.length >= MAX_SHAPE_SIZE )
+      {
+        return null;
+      }
+
+      Map<String, Shape> transitions = _transitions;
+      if( transitions == null )
+      {
+        synchronized( this )
+        {
+          transitions = _transitions;
+          if( transitions == null )
+          {
+            _transitions = transitions = new ConcurrentHashMap<>( 4 );
+          }
+        }
+      }
+      Shape next = transitions.get( key );
+      if( next != null )
+      {
+        return next;
+      }
+      if( transitions.size() >= MAX_TRANSITIONS || shapes._count.get() >= MAX_SHAPES )
+      {
+        // too varied to share
+        return null;
+      }
+      return transitions.computeIfAbsent( key, k -> {
+        shapes._count.incrementAndGet();
+        return new Shape( append( k ) );
+      } );
+    }
+
+    private String[] append( String key )
+    {
+      String[] keys = Arrays.copyOf( _keys, _keys.length + 1 );
+      keys[_keys.length] = key;
+      return keys;
+    }
+
+    private static int hash( Object key )
+    {
+      int h = key.hashCode();
+      return h ^ (h >>> 16);
+    }
+  }
+}
@@ -21,6 +21,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import javax.script.Bindings;
 
 /**
@@ -67,6 +68,29 @@ public class DataBindings implements Bindings
     this( new LinkedHashMap<>( size ) );
   }
 
+  /**
+   * Makes bindings backed by a {@link CompactMap} having its own shapes. To save memory with many small objects use
+   * {@link #compact(CompactMap.Shapes)} so they share shapes.
+   *
+   * @param size the initial size of the bindings
+   */
+  public static DataBindings compact( int size )
+  {
+    return new DataBindings( new CompactMap( size ) );
+  }
+
+  /**
+   * Makes a supplier of bindings backed by {@link CompactMap}s sharing {@code shapes}, which use much less memory than
+   * LinkedHashMaps with many small objects. Use as a {@code bindingsSupplier} to deep copy JSON values, see
+   * {@code JsonUtil.deepCopyValue()}.
+   *
+   * @param shapes the shapes shared by the bindings, such as a new {@code CompactMap.Shapes} per copy
+   */
+  public static Function<Integer, DataBindings> compact( CompactMap.Shapes shapes )
+  {
+    return size -> new DataBindings( new CompactMap( shapes, size ) );
+  }
+
   /**
    * Sets the specified key/value in the underlying {@code map} field.
    *
@@ -47,18 +47,31 @@ class DynamicProxyFactory implements IProxyFactory
 
   DynamicProxyFactory( Class iface, Class rootClass )
   {
-    String relativeProxyName = rootClass.getCanonicalName().replace( '.', '_' ) + STRUCTURAL_PROXY + iface.getCanonicalName().replace( '.', '_' );
-    Class proxyClass;
+    this( makeProxyClass( iface, rootClass ) );
+  }
+
+  /**
+   * @param proxyClass A proxy class generated ahead of time, see {@link StructuralProxyIndex}
+   */
+  DynamicProxyFactory( Class proxyClass )
+  {
+    _ctor = proxyClass.getConstructors()[0];
+    ReflectUtil.setAccessible( _ctor );
+  }
+
+  private static Class makeProxyClass( Class iface, Class rootClass )
+  {
+    String relativeProxyName = getRelativeProxyName( iface, rootClass );
     if( hasCallHandlerMethod( rootClass ) )
     {
-      proxyClass = DynamicTypeProxyGenerator.makeProxy( iface, rootClass, relativeProxyName );
-    }
-    else
-    {
-      proxyClass = StructuralTypeProxyGenerator.makeProxy( iface, rootClass, relativeProxyName );
+      return DynamicTypeProxyGenerator.makeProxy( iface, rootClass, relativeProxyName );
     }
-    _ctor = proxyClass.getConstructors()[0];
-    ReflectUtil.setAccessible( _ctor );
+    return StructuralTypeProxyGenerator.makeProxy( iface, rootClass, relativeProxyName );
+  }
+
+  static String getRelativeProxyName( Class iface, Class rootClass )
+  {
+    return rootClass.getCanonicalName().replace( '.', '_' ) + STRUCTURAL_PROXY + iface.getCanonicalName().replace( '.', '_' );
   }
 
   @Override
@@ -74,7 +87,12 @@ class DynamicProxyFactory implements IProxyFactory
     }
   }
 
-  private static boolean hasCallHandlerMethod( Class rootClass )
+  Constructor getConstructor()
+  {
+    return _ctor;
+  }
+
+  static boolean hasCallHandlerMethod( Class rootClass )
   {
     if( ICallHandler.class.isAssignableFrom( rootClass ) )
     {
@@ -86,6 +104,11 @@ class DynamicProxyFactory implements IProxyFactory
       // Structurally implements ICallHandler
       return true;
     }
+    if( Map.class.isAssignableFrom( rootClass ) )
+    {
+      // MapStructExt implements ICallHandler, no need to consult the compiler
+      return true;
+    }
 
     // maybe has an extension satisfying ICallHandler
     return hasCallHandlerFromExtension( rootClass );
@@ -117,7 +140,7 @@ class DynamicProxyFactory implements IProxyFactory
     return isCallHandler;
   }
 
-  private static boolean hasCallMethod( BasicJavacTask javacTask, Symbol.ClassSymbol classSymbol )
+  static boolean hasCallMethod( BasicJavacTask javacTask, Symbol.ClassSymbol classSymbol )
   {
     Name call = Names.instance( javacTask.getContext() ).fromString( "call" );
     Iterable<Symbol> elems = IDynamicJdk.instance().getMembersByName( classSymbol, call );
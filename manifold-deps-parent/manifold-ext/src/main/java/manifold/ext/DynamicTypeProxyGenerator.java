@@ -18,12 +18,20 @@ package manifold.ext;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import manifold.api.type.ActualName;
 import manifold.ext.api.AbstractDynamicTypeProxy;
 import manifold.ext.api.ICallHandler;
+import manifold.ext.extensions.java.util.Map.MapStructExt;
 import manifold.internal.runtime.protocols.ManClassesUrlConnection;
 
+import static manifold.ext.ProxyClassWriter.ACC_FINAL;
+import static manifold.ext.ProxyClassWriter.ACC_PRIVATE;
+import static manifold.ext.ProxyClassWriter.ACC_PUBLIC;
+import static manifold.ext.ProxyClassWriter.descriptor;
+
 /**
  * Used at runtime to dynamically proxy a type that dynamically implements a structural interface via {@link ICallHandler}
  * e.g., an Extension Method for {@link ICallHandler#call} on {@link Map} could delegate get/set accessor calls to the map's
@@ -40,6 +48,165 @@ class DynamicTypeProxyGenerator
   }
 
   static Class makeProxy( Class<?> iface, Class<?> rootClass, final String name )
+  {
+    Class proxyClass = defineProxy( iface, rootClass, name );
+    return proxyClass != null ? proxyClass : compileProxy( iface, rootClass, name );
+  }
+
+  /**
+   * Generates the proxy class file directly, without compiling source, when the root class's {@code call} method is
+   * known: it implements {@link ICallHandler}, declares a public {@code call} method, or is a {@link Map} extended with
+   * {@link MapStructExt}.
+   *
+   * @return The proxy class or null if the proxy must be compiled from source
+   */
+  static Class defineProxy( Class<?> iface, Class<?> rootClass, String name )
+  {
+    ProxyClassWriter writer = generateProxyClass( iface, rootClass, name );
+    return writer == null ? null : writer.defineClass( iface.getClassLoader(), rootClass.getClassLoader(),
+      DynamicTypeProxyGenerator.class.getClassLoader() );
+  }
+
+  /**
+   * @return The proxy class file or null if the proxy must be compiled from source
+   */
+  static ProxyClassWriter generateProxyClass( Class<?> iface, Class<?> rootClass, String name )
+  {
+    Method callHandler = findCallHandler( rootClass );
+    if( callHandler == null )
+    {
+      return null;
+    }
+
+    ProxyClassWriter writer = new ProxyClassWriter( getNamespace( iface ) + '.' + name, AbstractDynamicTypeProxy.class, iface );
+    writer.field( ACC_PRIVATE | ACC_FINAL, "_root", rootClass );
+
+    ProxyClassWriter.Code ctor = writer.code();
+    ctor.load( Object.class, 0 );
+    ctor.load( rootClass, 1 );
+    ctor.invokeSpecial( AbstractDynamicTypeProxy.class, "<init>", void.class, Object.class );
+    ctor.load( Object.class, 0 );
+    ctor.load( rootClass, 1 );
+    ctor.putField( writer.getInternalName(), "_root", rootClass );
+    ctor.returnValue( void.class );
+    writer.method( ACC_PUBLIC, "<init>", descriptor( void.class, rootClass ), ctor );
+
+    Set<String> signatures = new HashSet<>();
+    for( Method mi : iface.getMethods() )
+    {
+      String descriptor = descriptor( mi.getReturnType(), mi.getParameterTypes() );
+      if( !isForwarded( mi ) || !signatures.add( mi.getName() + descriptor ) )
+      {
+        continue;
+      }
+      writer.method( ACC_PUBLIC, mi.getName(), descriptor, genCall( writer, mi, iface, rootClass, callHandler ) );
+    }
+
+    return writer;
+  }
+
+  /**
+   * @return The method {@code _root.call(...)} resolves to, or null if it may resolve to an extension method other than
+   * {@link MapStructExt#call}
+   */
+  private static Method findCallHandler( Class<?> rootClass )
+  {
+    Class[] params = {Class.class, String.class, String.class, Class.class, Class[].class, Object[].class};
+    try
+    {
+      if( ICallHandler.class.isAssignableFrom( rootClass ) )
+      {
+        return ICallHandler.class.getMethod( "call", params );
+      }
+      try
+      {
+        Method call = rootClass.getMethod( "call", params );
+        return Modifier.isStatic( call.getModifiers() ) || call.getReturnType().isPrimitive() ? null : call;
+      }
+      catch( NoSuchMethodException e )
+      {
+        // not declared
+      }
+      if( Map.class.isAssignableFrom( rootClass ) )
+      {
+        Class[] extParams = new Class[params.length + 1];
+        extParams[0] = Map.class;
+        System.arraycopy( params, 0, extParams, 1, params.length );
+        return MapStructExt.class.getMethod( "call", extParams );
+      }
+      return null;
+    }
+    catch( NoSuchMethodException e )
+    {
+      throw new IllegalStateException( e );
+    }
+  }
+
+  /**
+   * Generates the equivalent of {@link #handleCall} with the result coerced to the method's return type
+   */
+  private static ProxyClassWriter.Code genCall( ProxyClassWriter writer, Method mi, Class<?> iface, Class<?> rootClass,
+                                                Method callHandler )
+  {
+    ActualName anno = mi.getAnnotation( ActualName.class );
+    Class<?> returnType = mi.getReturnType();
+    Class<?>[] params = mi.getParameterTypes();
+
+    ProxyClassWriter.Code code = writer.code();
+    code.load( Object.class, 0 );
+    code.getField( writer.getInternalName(), "_root", rootClass );
+    code.classLiteral( iface );
+    code.string( mi.getName() );
+    code.string( anno == null ? null : anno.value() );
+    code.classLiteral( returnType );
+    code.newArray( Class.class, params.length );
+    for( int i = 0; i < params.length; i++ )
+    {
+      code.dup();
+      code.intConst( i );
+      code.classLiteral( params[i] );
+      code.arrayStore();
+    }
+    code.newArray( Object.class, params.length );
+    int slot = 1;
+    for( int i = 0; i < params.length; i++ )
+    {
+      code.dup();
+      code.intConst( i );
+      slot = code.load( params[i], slot );
+      if( params[i].isPrimitive() )
+      {
+        code.box( params[i] );
+      }
+      code.arrayStore();
+    }
+
+    Class<?> owner = callHandler.getDeclaringClass();
+    if( Modifier.isStatic( callHandler.getModifiers() ) )
+    {
+      code.invokeStatic( owner, "call", callHandler.getReturnType(), callHandler.getParameterTypes() );
+    }
+    else
+    {
+      code.invokeInstance( owner == ICallHandler.class ? owner : rootClass, "call", callHandler.getReturnType(),
+        callHandler.getParameterTypes() );
+    }
+
+    if( returnType == void.class )
+    {
+      code.pop( callHandler.getReturnType() );
+    }
+    else
+    {
+      code.classLiteral( returnType );
+      code.invokeStatic( RuntimeMethods.class, "coerce", Object.class, Object.class, Class.class );
+      code.cast( returnType );
+    }
+    code.returnValue( returnType );
+    return code;
+  }
+
+  static Class compileProxy( Class<?> iface, Class<?> rootClass, final String name )
   {
     DynamicTypeProxyGenerator gen = new DynamicTypeProxyGenerator();
     String fqnProxy = getNamespace( iface ) + '.' + name;
@@ -100,17 +267,16 @@ class DynamicTypeProxyGenerator
     return sb.toString();
   }
 
+  private static boolean isForwarded( Method mi )
+  {
+    return !mi.isDefault() && !Modifier.isStatic( mi.getModifiers() ) &&
+           mi.getAnnotation( ExtensionMethod.class ) == null &&
+           !StructuralTypeProxyGenerator.isObjectMethod( mi );
+  }
+
   private void genInterfaceMethodDecl( StringBuilder sb, Method mi, Class ifaceType )
   {
-    if( mi.isDefault() || Modifier.isStatic( mi.getModifiers() ) )
-    {
-      return;
-    }
-    if( mi.getAnnotation( ExtensionMethod.class ) != null )
-    {
-      return;
-    }
-    if( StructuralTypeProxyGenerator.isObjectMethod( mi ) )
+    if( !isForwarded( mi ) )
     {
       return;
     }
@@ -40,6 +40,7 @@ import manifold.api.type.JavaTypeManifold;
 import manifold.api.type.ResourceFileTypeManifold;
 import manifold.ext.api.Extension;
 import manifold.internal.javac.IssueReporter;
+import manifold.internal.javac.JavacPlugin;
 import manifold.internal.javac.TypeProcessor;
 import manifold.util.StreamUtil;
 import manifold.util.concurrent.LocklessLazyVar;
@@ -52,9 +53,19 @@ public class ExtensionManifold extends JavaTypeManifold<Model> implements ITypeP
   public static final String EXTENSIONS_PACKAGE = "extensions";
   private static final Set<String> FILE_EXTENSIONS = new HashSet<>( Arrays.asList( "java", "class" ) );
 
+  private final LocklessLazyVar<StructuralProxyPrecompiler> _structuralProxyPrecompiler =
+    LocklessLazyVar.make( StructuralProxyPrecompiler::new );
+
   public void init( IModule module )
   {
     init( module, ( fqn, files ) -> new Model( fqn, files, this ) );
+
+    JavacPlugin javacPlugin = JavacPlugin.instance();
+    if( javacPlugin != null && javacPlugin.isStructuralProxies() && module.getHost() == javacPlugin.getHost() )
+    {
+      // listen for generated classes from the start, a class may be generated before a cast referencing it is compiled
+      _structuralProxyPrecompiler.get();
+    }
   }
 
   @Override
@@ -252,6 +263,11 @@ public class ExtensionManifold extends JavaTypeManifold<Model> implements ITypeP
     }
   }
 
+  StructuralProxyPrecompiler getStructuralProxyPrecompiler()
+  {
+    return _structuralProxyPrecompiler.get();
+  }
+
   private class ExtensionCacheHandler extends CacheClearer
   {
     @Override
@@ -29,6 +29,7 @@ import com.sun.tools.javac.comp.AttrContext;
 import com.sun.tools.javac.comp.AttrContextEnv;
 import com.sun.tools.javac.comp.Env;
 import com.sun.tools.javac.comp.Resolve;
+import com.sun.tools.javac.jvm.ClassFile;
 import com.sun.tools.javac.model.JavacElements;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCExpression;
@@ -62,6 +63,7 @@ import manifold.api.type.ITypeManifold;
 import manifold.api.type.IncrementalCompile;
 import manifold.api.type.Precompile;
 import manifold.ext.api.Extension;
+import manifold.ext.api.ICallHandler;
 import manifold.ext.api.Jailbreak;
 import manifold.ext.api.Self;
 import manifold.ext.api.Structural;
@@ -75,11 +77,16 @@ import manifold.util.JreUtil;
 import manifold.util.Pair;
 import manifold.util.ReflectUtil;
 import manifold.util.concurrent.ConcurrentHashSet;
+import manifold.util.concurrent.LocklessLazyVar;
 
 /**
  */
 public class ExtensionTransformer extends TreeTranslator
 {
+  private static final LocklessLazyVar<ReflectUtil.ConstructorRef> DYNAMIC_METHOD_SYMBOL =
+    LocklessLazyVar.make( () -> ReflectUtil.constructor( Symbol.DynamicMethodSymbol.class,
+      Name.class, Symbol.class, int.class, Symbol.MethodSymbol.class, Type.class, Object[].class ) );
+
   private final ExtensionManifold _sp;
   private final TypeProcessor _tp;
   private boolean _bridgeMethod;
@@ -341,12 +348,47 @@ public class ExtensionTransformer extends TreeTranslator
 
     if( TypeUtil.isStructuralInterface( _tp, tree.type.tsym ) )
     {
+      precompileStructuralProxy( tree );
       tree.expr = replaceCastExpression( tree.getExpression(), tree.type );
       tree.type = getObjectClass().type;
     }
     result = tree;
   }
 
+  /**
+   * With the {@code structural-proxies} plugin argument, generates the proxy for a cast from a concrete class at
+   * compile-time, see {@link StructuralProxyPrecompiler}
+   */
+  private void precompileStructuralProxy( JCTypeCast tree )
+  {
+    JavacPlugin javacPlugin = JavacPlugin.instance();
+    if( javacPlugin == null || !javacPlugin.isStructuralProxies() )
+    {
+      return;
+    }
+
+    Type rootType = tree.getExpression().type;
+    if( !(rootType instanceof Type.ClassType) ||
+        (rootType.tsym.flags() & (Flags.INTERFACE | Flags.ABSTRACT | Flags.COMPOUND)) != 0 )
+    {
+      // the proxy is keyed to the runtime class, which is known only for a concrete class
+      return;
+    }
+
+    Types types = _tp.getTypes();
+    if( types.isSubtype( types.erasure( rootType ), types.erasure( tree.type ) ) )
+    {
+      // nominal cast, no proxy
+      return;
+    }
+
+    Symbol.ClassSymbol rootSym = (Symbol.ClassSymbol)rootType.tsym;
+    Symbol.ClassSymbol callHandlerSym = IDynamicJdk.instance().getTypeElement( _tp.getContext(), _tp.getCompilationUnit(), ICallHandler.class.getName() );
+    boolean isCallHandler = types.isAssignable( types.erasure( rootType ), callHandlerSym.type ) ||
+                            DynamicProxyFactory.hasCallMethod( (BasicJavacTask)_tp.getJavacTask(), rootSym );
+    _sp.getStructuralProxyPrecompiler().addProxy( (Symbol.ClassSymbol)tree.type.tsym, rootSym, isCallHandler );
+  }
+
   private void eraseCompilerGeneratedCast( JCTypeCast tree )
   {
     // the javac compiler generates casts e.g., for a generic call such as List#get()
@@ -1259,6 +1301,12 @@ public class ExtensionTransformer extends TreeTranslator
     JCExpression methodSelect = theCall.getMethodSelect();
     if( methodSelect instanceof JCTree.JCFieldAccess )
     {
+      JCTree.JCMethodInvocation indyCall = replaceStructuralCallWithIndy( theCall );
+      if( indyCall != null )
+      {
+        return indyCall;
+      }
+
       Symtab symbols = _tp.getSymtab();
       Names names = Names.instance( _tp.getContext() );
       Symbol.ClassSymbol reflectMethodClassSym = IDynamicJdk.instance().getTypeElement( _tp.getContext(), _tp.getCompilationUnit(), RuntimeMethods.class.getName() );
@@ -1295,6 +1343,31 @@ public class ExtensionTransformer extends TreeTranslator
     return null;
   }
 
+  /**
+   * With the {@code structural-indy} plugin argument, replaces a call through a structural interface with an
+   * {@code invokedynamic} call site bootstrapped by {@link StructuralCallSites}, the receiver is the first argument.
+   *
+   * @return The call site, or null if the proxy call should be used
+   */
+  private JCTree.JCMethodInvocation replaceStructuralCallWithIndy( JCTree.JCMethodInvocation theCall )
+  {
+    JavacPlugin javacPlugin = JavacPlugin.instance();
+    if( javacPlugin == null || !javacPlugin.isStructuralIndy() || !isIndySupported() )
+    {
+      return null;
+    }
+
+    JCTree.JCFieldAccess m = (JCTree.JCFieldAccess)theCall.getMethodSelect();
+    Types types = Types.instance( _tp.getContext() );
+    Type methodType = types.erasure( m.sym.type );
+    Type.MethodType indyType = new Type.MethodType(
+      methodType.getParameterTypes().prepend( _tp.getSymtab().objectType ),
+      methodType.getReturnType(), List.nil(), _tp.getSymtab().methodClass );
+    return makeIndyCall( theCall, StructuralCallSites.class, m.sym.name.toString(), indyType,
+      new Object[]{m.sym.owner.flatName().toString(), methodDescriptor( methodType )},
+      theCall.getArguments().prepend( m.selected ), theCall.varargsElement );
+  }
+
   private JCExpression replaceCastExpression( JCExpression expression, Type type )
   {
     TreeMaker make = _tp.getTreeMaker();
@@ -1407,6 +1480,14 @@ public class ExtensionTransformer extends TreeTranslator
       {
         return tree;
       }
+      JCTree.JCMethodInvocation indyCall = replaceWithIndy( tree, m.sym,
+        isStatic ? JailbreakCallSites.STATIC_METHOD : JailbreakCallSites.METHOD,
+        isStatic ? tree.getArguments() : tree.getArguments().prepend( m.selected ), tree.varargsElement );
+      if( indyCall != null )
+      {
+        return indyCall;
+      }
+
       Type returnType = ((Symbol.MethodSymbol)m.sym).getReturnType();
       Symbol.MethodSymbol reflectMethodSym = findReflectUtilMethod( tree, returnType, isStatic );
 
@@ -1490,6 +1571,14 @@ public class ExtensionTransformer extends TreeTranslator
       return tree;
     }
 
+    JCTree.JCMethodInvocation indyCall = replaceWithIndy( tree, tree.sym,
+      isStatic ? JailbreakCallSites.GET_STATIC_FIELD : JailbreakCallSites.GET_FIELD,
+      isStatic ? List.nil() : List.of( tree.selected ), null );
+    if( indyCall != null )
+    {
+      return indyCall;
+    }
+
     Symbol.MethodSymbol reflectMethodSym = findFieldAccessReflectUtilMethod( tree, type, isStatic, false );
 
     ArrayList<JCExpression> newArgs = new ArrayList<>();
@@ -1526,6 +1615,14 @@ public class ExtensionTransformer extends TreeTranslator
       return assignTree;
     }
 
+    JCTree.JCMethodInvocation indyCall = replaceWithIndy( assignTree, tree.sym,
+      isStatic ? JailbreakCallSites.SET_STATIC_FIELD : JailbreakCallSites.SET_FIELD,
+      isStatic ? List.of( assignTree.rhs ) : List.of( tree.selected, assignTree.rhs ), null );
+    if( indyCall != null )
+    {
+      return indyCall;
+    }
+
     Type type = tree.sym.type;
     Symbol.MethodSymbol reflectMethodSym = findFieldAccessReflectUtilMethod( tree, type, isStatic, true );
 
@@ -1569,6 +1666,13 @@ public class ExtensionTransformer extends TreeTranslator
       return tree;
     }
 
+    JCTree.JCMethodInvocation indyCall = replaceWithIndy( tree, tree.constructor, JailbreakCallSites.CONSTRUCTOR,
+      tree.getArguments(), tree.varargsElement );
+    if( indyCall != null )
+    {
+      return indyCall;
+    }
+
     List<Symbol.VarSymbol> parameters = ((Symbol.MethodSymbol)tree.constructor).getParameters();
     ArrayList<JCExpression> paramTypes = new ArrayList<>();
     for( Symbol.VarSymbol param: parameters )
@@ -1608,6 +1712,191 @@ public class ExtensionTransformer extends TreeTranslator
     return reflectCall;
   }
 
+  /**
+   * With the {@code jailbreak-indy} plugin argument, replaces {@code @Jailbreak} member access with an
+   * {@code invokedynamic} call site bootstrapped by {@link JailbreakCallSites}. Types in the call site's descriptor the
+   * calling class may not access are replaced with Object, the bootstrap casts to the member's types.
+   *
+   * @return The call site, or null if the reflective replacement should be used
+   */
+  private JCTree.JCMethodInvocation replaceWithIndy( JCExpression tree, Symbol member, int kind,
+                                                    List<JCExpression> args, Type varargsElement )
+  {
+    JavacPlugin javacPlugin = JavacPlugin.instance();
+    if( javacPlugin == null || !javacPlugin.isJailbreakIndy() || !isIndySupported() )
+    {
+      return null;
+    }
+
+    if( kind == JailbreakCallSites.CONSTRUCTOR && member.owner.hasOuterInstance() )
+    {
+      return null;
+    }
+    Types types = Types.instance( _tp.getContext() );
+    if( varargsElement != null && !isAccessibleType( types.erasure( varargsElement ) ) )
+    {
+      return null;
+    }
+
+    Type ownerType = types.erasure( member.owner.type );
+    Type memberType = types.erasure( member.type );
+    ArrayList<Type> paramTypes = new ArrayList<>();
+    Type returnType;
+    String descriptor = "";
+    switch( kind )
+    {
+      case JailbreakCallSites.METHOD:
+        paramTypes.add( ownerType );
+        // fall through
+      case JailbreakCallSites.STATIC_METHOD:
+        paramTypes.addAll( memberType.getParameterTypes() );
+        returnType = memberType.getReturnType();
+        descriptor = methodDescriptor( memberType );
+        break;
+      case JailbreakCallSites.CONSTRUCTOR:
+        paramTypes.addAll( memberType.getParameterTypes() );
+        returnType = ownerType;
+        descriptor = methodDescriptor( memberType );
+        break;
+      case JailbreakCallSites.GET_FIELD:
+        paramTypes.add( ownerType );
+        // fall through
+      case JailbreakCallSites.GET_STATIC_FIELD:
+        returnType = memberType;
+        break;
+      case JailbreakCallSites.SET_FIELD:
+        paramTypes.add( ownerType );
+        // fall through
+      case JailbreakCallSites.SET_STATIC_FIELD:
+        paramTypes.add( memberType );
+        returnType = memberType;
+        break;
+      default:
+        throw new IllegalArgumentException( "kind: " + kind );
+    }
+
+    Type.MethodType indyType = new Type.MethodType(
+      List.from( paramTypes.stream().map( this::accessibleType ).collect( Collectors.toList() ) ),
+      accessibleType( returnType ), List.nil(), _tp.getSymtab().methodClass );
+    String name = kind == JailbreakCallSites.CONSTRUCTOR ? "new" : member.name.toString();
+    return makeIndyCall( tree, JailbreakCallSites.class, name, indyType,
+      new Object[]{member.owner.flatName().toString(), kind, descriptor}, args, varargsElement );
+  }
+
+  private boolean isIndySupported()
+  {
+    // the DynamicMethodSymbol constructor used here is that of Java 8 through 11
+    return DYNAMIC_METHOD_SYMBOL.get() != null;
+  }
+
+  /**
+   * Makes an {@code invokedynamic} call site replacing {@code tree}, bootstrapped by the {@code bootstrap} method of
+   * {@code bootstrapClass}. The bootstrap method's parameters after the {@code Lookup}, name and {@code MethodType}
+   * correspond with {@code staticArgs}, which are String or Integer constants.
+   */
+  private JCTree.JCMethodInvocation makeIndyCall( JCExpression tree, Class<?> bootstrapClass, String name,
+                                                  Type.MethodType indyType, Object[] staticArgs,
+                                                  List<JCExpression> args, Type varargsElement )
+  {
+    Symtab symtab = _tp.getSymtab();
+    List<Type> bsmParamTypes = List.of( symtab.methodHandleLookupType, symtab.stringType, symtab.methodTypeType );
+    for( Object staticArg: staticArgs )
+    {
+      bsmParamTypes = bsmParamTypes.append( staticArg instanceof Integer ? symtab.intType : symtab.stringType );
+    }
+
+    Names names = Names.instance( _tp.getContext() );
+    Symbol.ClassSymbol bootstrapClassSym =
+      IDynamicJdk.instance().getTypeElement( _tp.getContext(), _tp.getCompilationUnit(), bootstrapClass.getName() );
+    Symbol.MethodSymbol bsm = resolveMethod( tree.pos(), names.fromString( "bootstrap" ), bootstrapClassSym.type,
+      bsmParamTypes );
+    Symbol dynSym = (Symbol)DYNAMIC_METHOD_SYMBOL.get().newInstance(
+      names.fromString( name ), symtab.noSymbol, ClassFile.REF_invokeStatic, bsm, indyType, staticArgs );
+
+    TreeMaker make = _tp.getTreeMaker();
+    JCTree.JCFieldAccess indySelect =
+      make.Select( memberAccess( make, _tp.getElementUtil(), bootstrapClass.getName() ), dynSym.name );
+    indySelect.sym = dynSym;
+    indySelect.type = indyType;
+    assignTypes( indySelect.selected, bootstrapClassSym );
+
+    JCTree.JCMethodInvocation indyCall = make.Apply( List.nil(), indySelect, args );
+    indyCall.varargsElement = varargsElement;
+    indyCall.setPos( tree.pos );
+    indyCall.type = tree.type;
+    return indyCall;
+  }
+
+  private Type accessibleType( Type type )
+  {
+    return isAccessibleType( type ) ? type : _tp.getSymtab().objectType;
+  }
+
+  /**
+   * Is the erased {@code type} accessible at runtime to the class being compiled
+   */
+  private boolean isAccessibleType( Type type )
+  {
+    if( type.isPrimitiveOrVoid() )
+    {
+      return true;
+    }
+    if( type instanceof Type.ArrayType )
+    {
+      return isAccessibleType( ((Type.ArrayType)type).elemtype );
+    }
+    Symbol.PackageSymbol pkg = type.tsym.packge();
+    if( pkg == ((JCTree.JCCompilationUnit)_tp.getCompilationUnit()).packge )
+    {
+      return true;
+    }
+    // a nested class is accessible only if its enclosing classes are too
+    for( Symbol sym = type.tsym; sym instanceof Symbol.ClassSymbol; sym = sym.owner )
+    {
+      if( !sym.getModifiers().contains( javax.lang.model.element.Modifier.PUBLIC ) )
+      {
+        return false;
+      }
+    }
+    // with modules, assume only the JDK's java.* packages are exported
+    return JreUtil.isJava8() || pkg.getQualifiedName().toString().startsWith( "java." );
+  }
+
+  private String methodDescriptor( Type methodType )
+  {
+    return methodType.getParameterTypes().stream().map( this::descriptor ).collect( Collectors.joining( "", "(", ")" ) ) +
+           descriptor( methodType.getReturnType() );
+  }
+
+  private String descriptor( Type type )
+  {
+    switch( type.getKind() )
+    {
+      case BOOLEAN:
+        return "Z";
+      case BYTE:
+        return "B";
+      case CHAR:
+        return "C";
+      case SHORT:
+        return "S";
+      case INT:
+        return "I";
+      case LONG:
+        return "J";
+      case FLOAT:
+        return "F";
+      case DOUBLE:
+        return "D";
+      case VOID:
+        return "V";
+      case ARRAY:
+        return "[" + descriptor( ((Type.ArrayType)type).elemtype );
+      default:
+        return "L" + type.tsym.flatName().toString().replace( '.', '/' ) + ";";
+    }
+  }
+
   private JCExpression makeClassExpr( JCTree tree, Type type )
   {
     BasicJavacTask javacTask = (BasicJavacTask)_tp.getJavacTask();
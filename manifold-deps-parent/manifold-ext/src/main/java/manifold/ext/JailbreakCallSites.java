@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.ext;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import manifold.util.ReflectUtil;
+
+/**
+ * The bootstrap method for {@code invokedynamic} call sites the compiler emits for {@code @Jailbreak} member access
+ * when the {@code jailbreak-indy} plugin argument is present. Instead of resolving the member and calling it
+ * reflectively on each execution, as with {@link ReflectionRuntimeMethods}, the member is resolved once when the call
+ * site links and is bound to the call site as a constant method handle.
+ */
+@SuppressWarnings("WeakerAccess")
+public class JailbreakCallSites
+{
+  public static final int METHOD = 0;
+  public static final int STATIC_METHOD = 1;
+  public static final int GET_FIELD = 2;
+  public static final int GET_STATIC_FIELD = 3;
+  public static final int SET_FIELD = 4;
+  public static final int SET_STATIC_FIELD = 5;
+  public static final int CONSTRUCTOR = 6;
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  /**
+   * @param caller     The class containing the call site
+   * @param name       The name of the method or field, ignored for a constructor
+   * @param type       The type of the call site. For an instance member the receiver is the first parameter, for a
+   *                   field setter the value is the last parameter and is also returned.
+   * @param owner      The binary name of the class declaring or inheriting the member
+   * @param kind       One of {@link #METHOD}, {@link #STATIC_METHOD}, {@link #GET_FIELD}, {@link #GET_STATIC_FIELD},
+   *                   {@link #SET_FIELD}, {@link #SET_STATIC_FIELD}, or {@link #CONSTRUCTOR}
+   * @param descriptor The method descriptor of a method or constructor, for fields it is not used
+   */
+  public static CallSite bootstrap( MethodHandles.Lookup caller, String name, MethodType type,
+                                    String owner, int kind, String descriptor ) throws ReflectiveOperationException
+  {
+    ClassLoader loader = caller.lookupClass().getClassLoader();
+    Class<?> cls = Class.forName( owner, false, loader );
+    MethodHandle handle;
+    switch( kind )
+    {
+      case METHOD:
+      case STATIC_METHOD:
+        handle = findMethod( cls, name, MethodType.fromMethodDescriptorString( descriptor, loader ) );
+        break;
+      case GET_FIELD:
+      case GET_STATIC_FIELD:
+        handle = LOOKUP.unreflectGetter( findField( cls, name ).getField() );
+        break;
+      case SET_FIELD:
+      case SET_STATIC_FIELD:
+        handle = returnValue( findSetter( findField( cls, name ), kind == SET_STATIC_FIELD ) );
+        break;
+      case CONSTRUCTOR:
+        handle = findConstructor( cls, MethodType.fromMethodDescriptorString( descriptor, loader ) );
+        break;
+      default:
+        throw new IllegalArgumentException( "kind: " + kind );
+    }
+    return new ConstantCallSite( handle.asType( type ) );
+  }
+
+  private static MethodHandle findMethod( Class<?> cls, String name, MethodType methodType )
+    throws ReflectiveOperationException
+  {
+    ReflectUtil.MethodRef ref = ReflectUtil.method( cls, name, methodType.parameterArray() );
+    if( ref == null )
+    {
+      throw new NoSuchMethodException( cls.getName() + '.' + name + methodType );
+    }
+    // ReflectUtil makes the method accessible, so no access check is made here
+    return LOOKUP.unreflect( ref.getMethod() );
+  }
+
+  private static ReflectUtil.FieldRef findField( Class<?> cls, String name ) throws NoSuchFieldException
+  {
+    ReflectUtil.FieldRef ref = ReflectUtil.field( cls, name );
+    if( ref == null )
+    {
+      throw new NoSuchFieldException( cls.getName() + '.' + name );
+    }
+    return ref;
+  }
+
+  private static MethodHandle findSetter( ReflectUtil.FieldRef ref, boolean isStatic ) throws ReflectiveOperationException
+  {
+    try
+    {
+      return LOOKUP.unreflectSetter( ref.getField() );
+    }
+    catch( IllegalAccessException e )
+    {
+      // a final field has no setter handle, fall back to the reflective setter, which handles final fields
+      Class<?> fieldType = ref.getField().getType();
+      if( isStatic )
+      {
+        return LOOKUP.findVirtual( ReflectUtil.FieldRef.class, "setStatic",
+          MethodType.methodType( void.class, Object.class ) )
+          .bindTo( ref )
+          .asType( MethodType.methodType( void.class, fieldType ) );
+      }
+      return LOOKUP.findVirtual( ReflectUtil.FieldRef.class, "set",
+        MethodType.methodType( void.class, Object.class, Object.class ) )
+        .bindTo( ref )
+        .asType( MethodType.methodType( void.class, ref.getField().getDeclaringClass(), fieldType ) );
+    }
+  }
+
+  /**
+   * Makes a setter return the value it sets, as an assignment expression does.
+   */
+  private static MethodHandle returnValue( MethodHandle setter )
+  {
+    List<Class<?>> params = setter.type().parameterList();
+    Class<?> valueType = params.get( params.size() - 1 );
+    MethodHandle value = MethodHandles.dropArguments(
+      MethodHandles.identity( valueType ), 0, params.subList( 0, params.size() - 1 ) );
+    return MethodHandles.foldArguments( value, setter );
+  }
+
+  private static MethodHandle findConstructor( Class<?> cls, MethodType methodType ) throws ReflectiveOperationException
+  {
+    ReflectUtil.ConstructorRef ref = ReflectUtil.constructor( cls, methodType.parameterArray() );
+    if( ref == null )
+    {
+      throw new NoSuchMethodException( cls.getName() + ".<init>" + methodType );
+    }
+    return LOOKUP.unreflectConstructor( ref.getConstructor() );
+  }
+}
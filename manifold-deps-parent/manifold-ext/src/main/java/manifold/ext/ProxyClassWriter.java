@@ -0,0 +1,658 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.ext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import manifold.util.JreUtil;
+import manifold.util.ReflectUtil;
+import manifold.util.concurrent.LocklessLazyVar;
+
+/**
+ * A minimal class file writer for the straight-line forwarding methods of structural and dynamic proxies. Generating
+ * the proxy class directly avoids compiling Java source with javac at runtime, which is orders of magnitude slower.
+ * <p/>
+ * The writer keeps track of the classes the proxy references so {@link #defineClass} can choose a class loader that
+ * sees all of them and can verify the proxy has access to them. If not, {@link #defineClass} returns null and the
+ * caller falls back to compiling the proxy from source.
+ */
+class ProxyClassWriter
+{
+  static final int ACC_PUBLIC = 0x0001;
+  static final int ACC_PRIVATE = 0x0002;
+  static final int ACC_FINAL = 0x0010;
+  private static final int ACC_SUPER = 0x0020;
+
+  private static final int JAVA_8_VERSION = 52;
+
+  private static final LocklessLazyVar<ReflectUtil.MethodRef> DEFINE_CLASS = LocklessLazyVar.make(
+    () -> ReflectUtil.method( ClassLoader.class, "defineClass", String.class, byte[].class, int.class, int.class ) );
+
+  private final String _fqn;
+  private final String _internalName;
+  private final Class<?> _superclass;
+  private final Class<?> _iface;
+  private final ByteArrayOutputStream _pool;
+  private final DataOutputStream _poolOut;
+  private final Map<String, Integer> _poolIndex;
+  private int _poolCount;
+  private final List<byte[]> _fields;
+  private final List<byte[]> _methods;
+  private final Set<Class<?>> _referenced;
+
+  ProxyClassWriter( String fqn, Class<?> superclass, Class<?> iface )
+  {
+    _fqn = fqn;
+    _internalName = fqn.replace( '.', '/' );
+    _superclass = superclass;
+    _iface = iface;
+    _pool = new ByteArrayOutputStream();
+    _poolOut = new DataOutputStream( _pool );
+    _poolIndex = new HashMap<>();
+    _poolCount = 1;
+    _fields = new ArrayList<>();
+    _methods = new ArrayList<>();
+    _referenced = new LinkedHashSet<>();
+    reference( superclass );
+    reference( iface );
+  }
+
+  String getName()
+  {
+    return _fqn;
+  }
+
+  String getInternalName()
+  {
+    return _internalName;
+  }
+
+  void field( int access, String name, Class<?> type )
+  {
+    _fields.add( bytes( out -> {
+      out.writeShort( access );
+      out.writeShort( utf8( name ) );
+      out.writeShort( utf8( descriptor( type ) ) );
+      out.writeShort( 0 );
+    } ) );
+  }
+
+  Code code()
+  {
+    return new Code();
+  }
+
+  void method( int access, String name, String descriptor, Code code )
+  {
+    byte[] bytecode = code._bytes.toByteArray();
+    int codeAttr = utf8( "Code" );
+    _methods.add( bytes( out -> {
+      out.writeShort( access );
+      out.writeShort( utf8( name ) );
+      out.writeShort( utf8( descriptor ) );
+      out.writeShort( 1 );
+      out.writeShort( codeAttr );
+      out.writeInt( 12 + bytecode.length );
+      out.writeShort( code._maxStack );
+      out.writeShort( code._maxLocals );
+      out.writeInt( bytecode.length );
+      out.write( bytecode );
+      out.writeShort( 0 ); // exception table
+      out.writeShort( 0 ); // attributes
+    } ) );
+  }
+
+  byte[] toByteArray()
+  {
+    int thisClass = classRef( _internalName );
+    int superClass = classRef( _superclass );
+    int iface = classRef( _iface );
+    return bytes( out -> {
+      out.writeInt( 0xCAFEBABE );
+      out.writeShort( 0 );
+      out.writeShort( JAVA_8_VERSION );
+      out.writeShort( _poolCount );
+      _pool.writeTo( out );
+      out.writeShort( ACC_PUBLIC | ACC_SUPER );
+      out.writeShort( thisClass );
+      out.writeShort( superClass );
+      out.writeShort( 1 );
+      out.writeShort( iface );
+      out.writeShort( _fields.size() );
+      for( byte[] field : _fields )
+      {
+        out.write( field );
+      }
+      out.writeShort( _methods.size() );
+      for( byte[] method : _methods )
+      {
+        out.write( method );
+      }
+      out.writeShort( 0 );
+    } );
+  }
+
+  /**
+   * Defines the proxy class in the first of {@code loaders} resolving all the classes the proxy references to the same
+   * classes the proxy was generated with.
+   *
+   * @return The proxy class or null if no loader qualifies or the proxy does not have access to a class it references
+   */
+  Class<?> defineClass( ClassLoader... loaders )
+  {
+    byte[] bytes = toByteArray();
+    for( ClassLoader loader : loaders )
+    {
+      if( loader == null || !isUsableLoader( loader ) )
+      {
+        continue;
+      }
+      try
+      {
+        return (Class<?>)DEFINE_CLASS.get().invoke( loader, _fqn, bytes, 0, bytes.length );
+      }
+      catch( LinkageError e )
+      {
+        // another thread defined the proxy first
+        try
+        {
+          return Class.forName( _fqn, false, loader );
+        }
+        catch( ClassNotFoundException cnfe )
+        {
+          return null;
+        }
+      }
+      catch( RuntimeException e )
+      {
+        // e.g., the package is sealed or prohibited
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Do the classes the proxy references resolve in {@code loader} to the classes the proxy was generated with, and are
+   * they accessible to the proxy if it is defined there?
+   */
+  boolean isUsableLoader( ClassLoader loader )
+  {
+    String pkg = packageName( _fqn );
+    for( Class<?> cls : _referenced )
+    {
+      try
+      {
+        if( Class.forName( cls.getName(), false, loader ) != cls )
+        {
+          return false;
+        }
+      }
+      catch( ClassNotFoundException | LinkageError e )
+      {
+        return false;
+      }
+
+      if( !isPublic( cls ) &&
+          !(cls.getClassLoader() == loader && packageName( cls.getName() ).equals( pkg )) )
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isPublic( Class<?> cls )
+  {
+    if( !Modifier.isPublic( cls.getModifiers() ) )
+    {
+      return false;
+    }
+    Class<?> enclosing = cls.getEnclosingClass();
+    if( enclosing != null && !isPublic( enclosing ) )
+    {
+      return false;
+    }
+    if( JreUtil.isJava9orLater() )
+    {
+      // the proxy is in an unnamed module, the class' package must be exported to it
+      Object module = ReflectUtil.method( Class.class, "getModule" ).invoke( cls );
+      return (boolean)ReflectUtil.method( module, "isExported", String.class ).invoke( packageName( cls.getName() ) );
+    }
+    return true;
+  }
+
+  private static String packageName( String fqn )
+  {
+    int iDot = fqn.lastIndexOf( '.' );
+    return iDot < 0 ? "" : fqn.substring( 0, iDot );
+  }
+
+  private void reference( Class<?> cls )
+  {
+    while( cls.isArray() )
+    {
+      cls = cls.getComponentType();
+    }
+    if( !cls.isPrimitive() )
+    {
+      _referenced.add( cls );
+    }
+  }
+
+  static String descriptor( Class<?> type )
+  {
+    return MethodType.methodType( type ).toMethodDescriptorString().substring( 2 );
+  }
+
+  static String descriptor( Class<?> returnType, Class<?>... paramTypes )
+  {
+    return MethodType.methodType( returnType, paramTypes ).toMethodDescriptorString();
+  }
+
+  private static String internalName( Class<?> cls )
+  {
+    return cls.getName().replace( '.', '/' );
+  }
+
+  private static int slots( Class<?> type )
+  {
+    return type == void.class ? 0 : type == long.class || type == double.class ? 2 : 1;
+  }
+
+  private int utf8( String value )
+  {
+    return constant( "U" + value, out -> {
+      out.writeByte( 1 );
+      out.writeUTF( value );
+    } );
+  }
+
+  private int classRef( Class<?> cls )
+  {
+    reference( cls );
+    return classRef( internalName( cls ) );
+  }
+
+  private int classRef( String internalName )
+  {
+    int name = utf8( internalName );
+    return constant( "C" + internalName, out -> {
+      out.writeByte( 7 );
+      out.writeShort( name );
+    } );
+  }
+
+  private int string( String value )
+  {
+    int utf8 = utf8( value );
+    return constant( "S" + value, out -> {
+      out.writeByte( 8 );
+      out.writeShort( utf8 );
+    } );
+  }
+
+  private int memberRef( int tag, String owner, String name, String descriptor )
+  {
+    int ownerRef = classRef( owner );
+    int nameRef = utf8( name );
+    int descriptorRef = utf8( descriptor );
+    int nameAndType = constant( "N" + name + ' ' + descriptor, out -> {
+      out.writeByte( 12 );
+      out.writeShort( nameRef );
+      out.writeShort( descriptorRef );
+    } );
+    return constant( tag + owner + '.' + name + ' ' + descriptor, out -> {
+      out.writeByte( tag );
+      out.writeShort( ownerRef );
+      out.writeShort( nameAndType );
+    } );
+  }
+
+  private int constant( String key, Output entry )
+  {
+    Integer index = _poolIndex.get( key );
+    if( index == null )
+    {
+      try
+      {
+        entry.write( _poolOut );
+      }
+      catch( IOException e )
+      {
+        throw new RuntimeException( e );
+      }
+      index = _poolCount++;
+      _poolIndex.put( key, index );
+    }
+    return index;
+  }
+
+  private static byte[] bytes( Output content )
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try
+    {
+      content.write( new DataOutputStream( bytes ) );
+    }
+    catch( IOException e )
+    {
+      throw new RuntimeException( e );
+    }
+    return bytes.toByteArray();
+  }
+
+  private interface Output
+  {
+    void write( DataOutputStream out ) throws IOException;
+  }
+
+  /**
+   * Straight-line bytecode for a method body, tracks the operand stack depth and locals
+   */
+  class Code
+  {
+    private static final int ACONST_NULL = 0x01;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int ILOAD = 0x15;
+    private static final int AASTORE = 0x53;
+    private static final int POP = 0x57;
+    private static final int POP2 = 0x58;
+    private static final int DUP = 0x59;
+    private static final int I2L = 0x85;
+    private static final int I2F = 0x86;
+    private static final int I2D = 0x87;
+    private static final int L2F = 0x89;
+    private static final int L2D = 0x8A;
+    private static final int F2D = 0x8D;
+    private static final int IRETURN = 0xAC;
+    private static final int RETURN = 0xB1;
+    private static final int GETSTATIC = 0xB2;
+    private static final int GETFIELD = 0xB4;
+    private static final int PUTFIELD = 0xB5;
+    private static final int INVOKEVIRTUAL = 0xB6;
+    private static final int INVOKESPECIAL = 0xB7;
+    private static final int INVOKESTATIC = 0xB8;
+    private static final int INVOKEINTERFACE = 0xB9;
+    private static final int ANEWARRAY = 0xBD;
+    private static final int CHECKCAST = 0xC0;
+
+    private final ByteArrayOutputStream _bytes = new ByteArrayOutputStream();
+    private int _stack;
+    private int _maxStack;
+    private int _maxLocals;
+
+    private Code()
+    {
+    }
+
+    private void op( int opcode, int stackDelta )
+    {
+      _bytes.write( opcode );
+      _stack += stackDelta;
+      _maxStack = Math.max( _maxStack, _stack );
+    }
+
+    private void u2( int value )
+    {
+      _bytes.write( value >> 8 );
+      _bytes.write( value );
+    }
+
+    /**
+     * Loads the local variable of {@code type} at {@code slot}
+     *
+     * @return The slot following the variable
+     */
+    int load( Class<?> type, int slot )
+    {
+      int kind = type == long.class ? 1
+                 : type == float.class ? 2
+                   : type == double.class ? 3
+                     : type.isPrimitive() ? 0 : 4;
+      op( ILOAD + kind, slots( type ) );
+      _bytes.write( slot );
+      int next = slot + slots( type );
+      _maxLocals = Math.max( _maxLocals, next );
+      return next;
+    }
+
+    /**
+     * Loads the method parameters following {@code this}
+     */
+    void loadParams( Class<?>[] paramTypes )
+    {
+      int slot = 1;
+      for( Class<?> paramType : paramTypes )
+      {
+        slot = load( paramType, slot );
+      }
+    }
+
+    void getField( String owner, String name, Class<?> type )
+    {
+      op( GETFIELD, slots( type ) - 1 );
+      u2( memberRef( 9, owner, name, descriptor( type ) ) );
+    }
+
+    void getField( Class<?> owner, String name, Class<?> type )
+    {
+      reference( owner );
+      reference( type );
+      getField( internalName( owner ), name, type );
+    }
+
+    void putField( String owner, String name, Class<?> type )
+    {
+      op( PUTFIELD, -1 - slots( type ) );
+      u2( memberRef( 9, owner, name, descriptor( type ) ) );
+    }
+
+    void putField( Class<?> owner, String name, Class<?> type )
+    {
+      reference( owner );
+      reference( type );
+      putField( internalName( owner ), name, type );
+    }
+
+    void invokeSpecial( Class<?> owner, String name, Class<?> returnType, Class<?>... paramTypes )
+    {
+      invoke( INVOKESPECIAL, owner, name, returnType, paramTypes );
+    }
+
+    void invokeStatic( Class<?> owner, String name, Class<?> returnType, Class<?>... paramTypes )
+    {
+      invoke( INVOKESTATIC, owner, name, returnType, paramTypes );
+    }
+
+    /**
+     * Calls an instance method with invokevirtual or, if {@code owner} is an interface, invokeinterface
+     */
+    void invokeInstance( Class<?> owner, String name, Class<?> returnType, Class<?>... paramTypes )
+    {
+      invoke( owner.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL, owner, name, returnType, paramTypes );
+    }
+
+    private void invoke( int opcode, Class<?> owner, String name, Class<?> returnType, Class<?>[] paramTypes )
+    {
+      reference( owner );
+      reference( returnType );
+      int argSlots = opcode == INVOKESTATIC ? 0 : 1;
+      for( Class<?> paramType : paramTypes )
+      {
+        reference( paramType );
+        argSlots += slots( paramType );
+      }
+      op( opcode, slots( returnType ) - argSlots );
+      u2( memberRef( opcode == INVOKEINTERFACE ? 11 : 10, internalName( owner ), name,
+        descriptor( returnType, paramTypes ) ) );
+      if( opcode == INVOKEINTERFACE )
+      {
+        _bytes.write( argSlots );
+        _bytes.write( 0 );
+      }
+    }
+
+    /**
+     * Pushes the class literal for {@code type}
+     */
+    void classLiteral( Class<?> type )
+    {
+      if( type.isPrimitive() )
+      {
+        op( GETSTATIC, 1 );
+        u2( memberRef( 9, internalName( wrapper( type ) ), "TYPE", descriptor( Class.class ) ) );
+      }
+      else
+      {
+        op( LDC_W, 1 );
+        u2( classRef( type ) );
+      }
+    }
+
+    void string( String value )
+    {
+      if( value == null )
+      {
+        op( ACONST_NULL, 1 );
+      }
+      else
+      {
+        op( LDC_W, 1 );
+        u2( ProxyClassWriter.this.string( value ) );
+      }
+    }
+
+    void intConst( int value )
+    {
+      if( value <= 5 )
+      {
+        op( ICONST_0 + value, 1 );
+      }
+      else if( value <= Byte.MAX_VALUE )
+      {
+        op( BIPUSH, 1 );
+        _bytes.write( value );
+      }
+      else
+      {
+        op( SIPUSH, 1 );
+        u2( value );
+      }
+    }
+
+    void newArray( Class<?> componentType, int length )
+    {
+      intConst( length );
+      op( ANEWARRAY, 0 );
+      u2( classRef( componentType ) );
+    }
+
+    void dup()
+    {
+      op( DUP, 1 );
+    }
+
+    void arrayStore()
+    {
+      op( AASTORE, -3 );
+    }
+
+    void checkCast( Class<?> type )
+    {
+      op( CHECKCAST, 0 );
+      u2( classRef( type ) );
+    }
+
+    /**
+     * Boxes the primitive value on the stack
+     */
+    void box( Class<?> type )
+    {
+      invokeStatic( wrapper( type ), "valueOf", wrapper( type ), type );
+    }
+
+    /**
+     * Casts the object on the stack to {@code type}, unboxing it if {@code type} is primitive
+     */
+    void cast( Class<?> type )
+    {
+      if( type.isPrimitive() )
+      {
+        checkCast( wrapper( type ) );
+        invokeInstance( wrapper( type ), type.getName() + "Value", type );
+      }
+      else if( type != Object.class )
+      {
+        checkCast( type );
+      }
+    }
+
+    /**
+     * Widens the primitive value on the stack from {@code type} to {@code toType}
+     */
+    void widen( Class<?> type, Class<?> toType )
+    {
+      if( type == toType || !(toType == long.class || toType == float.class || toType == double.class) )
+      {
+        // int, short, char, and byte are all int on the stack
+        return;
+      }
+      int opcode = type == long.class
+                   ? toType == float.class ? L2F : L2D
+                   : type == float.class
+                     ? F2D
+                     : toType == long.class ? I2L : toType == float.class ? I2F : I2D;
+      op( opcode, slots( toType ) - slots( type ) );
+    }
+
+    void pop( Class<?> type )
+    {
+      if( type != void.class )
+      {
+        op( slots( type ) == 2 ? POP2 : POP, -slots( type ) );
+      }
+    }
+
+    void returnValue( Class<?> type )
+    {
+      int kind = type == void.class ? 5
+                 : type == long.class ? 1
+                   : type == float.class ? 2
+                     : type == double.class ? 3
+                       : type.isPrimitive() ? 0 : 4;
+      op( kind == 5 ? RETURN : IRETURN + kind, -slots( type ) );
+    }
+  }
+
+  private static Class<?> wrapper( Class<?> primitive )
+  {
+    return MethodType.methodType( primitive ).wrap().returnType();
+  }
+}
@@ -16,13 +16,14 @@
 
 package manifold.ext;
 
-import java.lang.reflect.Array;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.math.BigDecimal;
-import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -38,6 +39,7 @@ import manifold.ext.api.ICallHandler;
 import manifold.ext.api.ICoercionProvider;
 import manifold.ext.api.IProxyFactory;
 import manifold.ext.api.Structural;
+import manifold.util.ManExceptionUtil;
 import manifold.util.ReflectUtil;
 import manifold.util.ServiceUtil;
 import manifold.util.concurrent.ConcurrentHashSet;
@@ -48,6 +50,18 @@ public class RuntimeMethods
 {
   private static Map<Class, Map<Class, IProxyFactory<?,?>>> PROXY_CACHE = new ConcurrentHashMap<>();
   private static final Map<Object, Set<Class>> ID_MAP = new ConcurrentWeakHashMap<>();
+  private static final Map<Class, Map<Signature, ClassValue<MethodHandle>>> UNHANDLED_METHODS = new ConcurrentHashMap<>();
+  /** cached for a signature the interface does not have */
+  private static final ClassValue<MethodHandle> NO_METHOD = new ClassValue<MethodHandle>()
+  {
+    @Override
+    protected MethodHandle computeValue( Class<?> type )
+    {
+      // never asked, the interface does not have the method
+      return null;
+    }
+  };
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
   private static final LocklessLazyVar<Set<IProxyFactory>> _registeredProxyFactories =
     LocklessLazyVar.make( () -> {
       Set<IProxyFactory> registered = new HashSet<>();
@@ -87,12 +101,12 @@ public class RuntimeMethods
    *   thing.foo(); // foo() is an extension method on Person e.g., defined in MyPersonExt, however the runtime type of thing is just a Map (or Binding) thus the Person type identity is lost
    * </pre>
    */
-  //## todo: this is inefficient, we should consider caching the methods by signature along with the interfaces
   public static Object invokeUnhandled( Object thiz, Class proxiedIface, String name, Class returnType, Class[] paramTypes, Object[] args )
   {
     Set<Class> ifaces = ID_MAP.get( thiz );
     if( ifaces != null )
     {
+      Signature signature = null;
       for( Class iface: ifaces )
       {
         if( iface == proxiedIface )
@@ -100,18 +114,22 @@ public class RuntimeMethods
           continue;
         }
 
-        Method m = findMethod( iface, name, paramTypes );
-        if( m != null )
+        if( signature == null )
+        {
+          signature = new Signature( name, paramTypes );
+        }
+        ClassValue<MethodHandle> methods = findUnhandledMethod( iface, signature );
+        if( methods != NO_METHOD )
         {
           try
           {
-            Object result = m.invoke( constructProxy( thiz, iface ), args );
+            Object result = (Object)methods.get( thiz.getClass() ).invokeExact( thiz, args );
             result = coerce( result, returnType );
             return result;
           }
-          catch( Exception e )
+          catch( Throwable e )
           {
-            throw new RuntimeException( e );
+            throw ManExceptionUtil.unchecked( e );
           }
         }
       }
@@ -120,322 +138,91 @@ public class RuntimeMethods
   }
 
   /**
-   * Coerce the value from a JSON bindings value to more type-safe a Java value, using {@link ICoercionProvider}
-   * where applicable. Note for List the {@code type} corresponds with the deepest component type of the list.
+   * @return The handles calling {@code iface}'s method having {@code signature} with the receiver and an argument array,
+   * one per receiver class, or {@link #NO_METHOD} if {@code iface} does not have the method. Both are cached.
    */
-  public static Object coerce( Object value, Class<?> type )
+  private static ClassValue<MethodHandle> findUnhandledMethod( Class<?> iface, Signature signature )
   {
-    if( value == null )
-    {
-      if( type.isPrimitive() )
-      {
-        return defaultPrimitiveValue( type );
-      }
-      return null;
-    }
-
-    if( IBindingsBacked.class.isAssignableFrom( type ) )
+    Map<Signature, ClassValue<MethodHandle>> methods = UNHANDLED_METHODS.get( iface );
+    if( methods == null )
     {
-      return value;
+      UNHANDLED_METHODS.put( iface, methods = new ConcurrentHashMap<>() );
     }
-
-    if( value instanceof List )
-    {
-      Class<?> finalType = type;
-      //noinspection unchecked
-      return ((List)value).stream()
-      .map( e -> coerce( e, finalType ) )
-      .collect( Collectors.toList() );
-    }
-
-    if( type.isPrimitive() )
-    {
-      type = box( type );
-    }
-
-    Class<?> valueClass = value.getClass();
-    if( valueClass == type || type.isAssignableFrom( valueClass ) )
-    {
-      return value;
-    }
-
-    Object result = callCoercionProviders( value, type );
-    if( result != ICallHandler.UNHANDLED )
-    {
-      return result;
-    }
-
-    Object boxedValue = coerceBoxed( value, type );
-    if( boxedValue != null )
+    ClassValue<MethodHandle> method = methods.get( signature );
+    if( method == null )
     {
-      return boxedValue;
+      Method m = findMethod( iface, signature._name, signature._paramTypes );
+      method = m == null || Modifier.isStatic( m.getModifiers() ) ? NO_METHOD : makeUnhandledMethod( iface, m );
+      // the signature looked up with holds the caller's array, the cached one holds a copy
+      methods.put( signature.copy(), method );
     }
-
-    if( type == BigInteger.class )
-    {
-      if( value instanceof Number )
-      {
-        return BigInteger.valueOf( ((Number)value).longValue() );
-      }
-      if( value instanceof Boolean )
-      {
-        return ((Boolean)value) ? BigInteger.ONE : BigInteger.ZERO;
-      }
-      return new BigInteger( value.toString() );
-    }
-
-    if( type == BigDecimal.class )
-    {
-      if( value instanceof Boolean )
-      {
-        return ((Boolean)value) ? BigDecimal.ONE : BigDecimal.ZERO;
-      }
-      return new BigDecimal( value.toString() );
-    }
-
-    if( type == String.class )
-    {
-      return String.valueOf( value );
-    }
-
-    if( type.isEnum() )
-    {
-      String name = String.valueOf( value );
-      //noinspection unchecked
-      return Enum.valueOf( (Class<Enum>)type, name );
-    }
-
-    if( type.isArray() && valueClass.isArray() )
-    {
-      int length = Array.getLength( value );
-      Class<?> componentType = type.getComponentType();
-      Object array = Array.newInstance( componentType, length );
-      for( int i = 0; i < length; i++ )
-      {
-        Array.set( array, i, coerce( Array.get( value, i ), componentType ) );
-      }
-      return array;
-    }
-
-    // let the ClassCastException happen
-    return value;
+    return method;
   }
 
-  private static Object defaultPrimitiveValue( Class<?> type )
-  {
-    if( type == int.class ||
-        type == short.class )
-    {
-      return 0;
-    }
-    if( type == byte.class )
-    {
-      return (byte)0;
-    }
-    if( type == long.class )
-    {
-      return 0L;
-    }
-    if( type == float.class )
-    {
-      return 0f;
-    }
-    if( type == double.class )
-    {
-      return 0d;
-    }
-    if( type == boolean.class )
-    {
-      return false;
-    }
-    if( type == char.class )
-    {
-      return (char)0;
-    }
-    if( type == void.class )
-    {
-      return null;
-    }
-    throw new IllegalArgumentException( "Unsupported primitive type: " + type.getSimpleName() );
-  }
-
-  private static Object coerceBoxed( Object value, Class<?> type )
+  /**
+   * The handle for a receiver class calls the method as a proxy for the receiver would, see
+   * {@link StructuralCallSites#findTarget}. If the receiver class has the method, it is called directly, otherwise the
+   * proxy is made with a handle to its constructor, instead of looking up its factory for each call.
+   */
+  private static ClassValue<MethodHandle> makeUnhandledMethod( Class<?> iface, Method m )
   {
-    if( type == Boolean.class || type == boolean.class )
-    {
-      if( value instanceof Number )
-      {
-        return ((Number)value).intValue() != 0;
-      }
-      return Boolean.parseBoolean( value.toString() );
-    }
-
-    if( type == Byte.class || type == byte.class )
-    {
-      if( value instanceof Number )
-      {
-        return ((Number)value).byteValue() != 0;
-      }
-      if( value instanceof Boolean )
-      {
-        return ((Boolean)value) ? (byte)1 : (byte)0;
-      }
-      return Byte.parseByte( value.toString() );
-    }
-
-    if( type == Character.class || type == char.class )
-    {
-      if( value instanceof Number )
-      {
-        return (char)((Number)value).intValue();
-      }
-      String s = value.toString();
-      return s.isEmpty() ? (char)0 : s.charAt( 0 );
-    }
-
-    if( type == Short.class || type == short.class )
-    {
-      if( value instanceof Number )
-      {
-        return ((Number)value).shortValue();
-      }
-      if( value instanceof Boolean )
-      {
-        return ((Boolean)value) ? (short)1 : (short)0;
-      }
-      return Short.parseShort( value.toString() );
-    }
-
-    if( type == Integer.class || type == int.class )
-    {
-      if( value instanceof Number )
-      {
-        return ((Number)value).intValue();
-      }
-      if( value instanceof Boolean )
-      {
-        return ((Boolean)value) ? 1 : 0;
-      }
-      return Integer.parseInt( value.toString() );
-    }
-
-    if( type == Long.class || type == long.class )
-    {
-      if( value instanceof Number )
-      {
-        return ((Number)value).longValue();
-      }
-      if( value instanceof Boolean )
-      {
-        return ((Boolean)value) ? 1L : 0L;
-      }
-      return Long.parseLong( value.toString() );
-    }
-
-    if( type == Float.class || type == float.class )
+    MethodHandle ifaceMethod;
+    try
     {
-      if( value instanceof Number )
-      {
-        return ((Number)value).floatValue();
-      }
-      if( value instanceof Boolean )
-      {
-        return ((Boolean)value) ? 1f : 0f;
-      }
-      return Float.parseFloat( value.toString() );
+      ifaceMethod = LOOKUP.unreflect( m );
     }
-
-    if( type == Double.class || type == double.class )
+    catch( IllegalAccessException e )
     {
-      if( value instanceof Number )
-      {
-        return ((Number)value).doubleValue();
-      }
-      if( value instanceof Boolean )
-      {
-        return ((Boolean)value) ? 1d : 0d;
-      }
-      return Double.parseDouble( value.toString() );
+      throw new RuntimeException( e );
     }
-    return null;
-  }
-
-  private static Object callCoercionProviders( Object value, Class<?> type )
-  {
-    for( ICoercionProvider coercer: CoercionProviders.get() )
+    int paramCount = m.getParameterTypes().length;
+    return new ClassValue<MethodHandle>()
     {
-      Object coercedValue = coercer.coerce( value, type );
-      if( coercedValue != ICallHandler.UNHANDLED )
+      @Override
+      protected MethodHandle computeValue( Class<?> rootClass )
       {
-        return coercedValue;
+        try
+        {
+          return StructuralCallSites.findTarget( iface, m, ifaceMethod, rootClass )
+            .asType( MethodType.genericMethodType( paramCount + 1 ) )
+            .asSpreader( Object[].class, paramCount );
+        }
+        catch( ReflectiveOperationException e )
+        {
+          throw new RuntimeException( e );
+        }
       }
-    }
-    return ICallHandler.UNHANDLED;
+    };
   }
 
-  private static Class<?> box( Class<?> type )
+  /**
+   * Coerce the value from a JSON bindings value to more type-safe a Java value, using {@link ICoercionProvider}
+   * where applicable. Note for List the {@code type} corresponds with the deepest component type of the list. A List
+   * is coerced as a view of the bindings list, its elements are coerced on access and changes write through.
+   */
+  public static Object coerce( Object value, Class<?> type )
   {
-    if( type == boolean.class )
-    {
-      return Boolean.class;
-    }
-    if( type == byte.class )
-    {
-      return Byte.class;
-    }
-    if( type == char.class )
-    {
-      return Character.class;
-    }
-    if( type == short.class )
-    {
-      return Short.class;
-    }
-    if( type == int.class )
-    {
-      return Integer.class;
-    }
-    if( type == long.class )
-    {
-      return Long.class;
-    }
-    if( type == float.class )
-    {
-      return Float.class;
-    }
-    if( type == double.class )
-    {
-      return Double.class;
-    }
-    throw new IllegalStateException();
+    return Coercer.get( type ).coerce( value );
   }
 
   private static Method findMethod( Class<?> iface, String name, Class[] paramTypes )
   {
     try
     {
-      Method m = iface.getDeclaredMethod( name, paramTypes );
-      if( m == null )
+      return iface.getDeclaredMethod( name, paramTypes );
+    }
+    catch( NoSuchMethodException e )
+    {
+      for( Class superIface: iface.getInterfaces() )
       {
-        for( Class superIface: iface.getInterfaces() )
+        Method m = findMethod( superIface, name, paramTypes );
+        if( m != null )
         {
-          m = findMethod( superIface, name, paramTypes );
-          if( m != null )
-          {
-            break;
-          }
+          return m;
         }
       }
-      if( m != null )
-      {
-        return m;
-      }
-    }
-    catch( Exception e )
-    {
       return null;
     }
-    return null;
   }
 
   private static Object createNewProxy( Object root, Class<?> iface )
@@ -451,17 +238,7 @@ public class RuntimeMethods
       return root;
     }
 
-    Map<Class, IProxyFactory<?,?>> proxyByClass = PROXY_CACHE.get( iface );
-    if( proxyByClass == null )
-    {
-      PROXY_CACHE.put( iface, proxyByClass = new ConcurrentHashMap<>() );
-    }
-    IProxyFactory proxyFactory = proxyByClass.get( rootClass );
-    if( proxyFactory == null )
-    {
-      proxyFactory = createProxy( iface, rootClass );
-      proxyByClass.put( rootClass, proxyFactory );
-    }
+    IProxyFactory proxyFactory = getProxyFactory( iface, rootClass );
     try
     {
       // in Java 9+ in modular mode the proxy class belongs to the owner's module,
@@ -476,12 +253,41 @@ public class RuntimeMethods
     }
   }
 
+  static IProxyFactory getProxyFactory( Class<?> iface, Class<?> rootClass )
+  {
+    Map<Class, IProxyFactory<?,?>> proxyByClass = PROXY_CACHE.get( iface );
+    if( proxyByClass == null )
+    {
+      PROXY_CACHE.put( iface, proxyByClass = new ConcurrentHashMap<>() );
+    }
+    IProxyFactory proxyFactory = proxyByClass.get( rootClass );
+    if( proxyFactory == null )
+    {
+      proxyFactory = createProxy( iface, rootClass );
+      proxyByClass.put( rootClass, proxyFactory );
+    }
+    return proxyFactory;
+  }
+
+  /**
+   * Are structural calls on instances of {@code rootClass} handled by a proxy factory or by a call handler, as opposed
+   * to a proxy calling the methods {@code rootClass} implements
+   */
+  static boolean isHandledByProxy( Class<?> iface, Class<?> rootClass )
+  {
+    return maybeSelfProxyClass( rootClass, iface ) != null || DynamicProxyFactory.hasCallHandlerMethod( rootClass );
+  }
+
   private static IProxyFactory createProxy( Class iface, Class rootClass )
   {
     IProxyFactory proxyFactory = maybeSelfProxyClass( rootClass, iface );
     if( proxyFactory == null )
     {
-      proxyFactory = new DynamicProxyFactory( iface, rootClass );
+      // Prefer a proxy generated at compile-time to generating one here
+      Class proxyClass = StructuralProxyIndex.findProxyClass( iface, rootClass );
+      proxyFactory = proxyClass != null
+                     ? new DynamicProxyFactory( proxyClass )
+                     : new DynamicProxyFactory( iface, rootClass );
     }
     return proxyFactory;
   }
@@ -581,13 +387,10 @@ public class RuntimeMethods
 
     if( needsCoercion( arg ) )
     {
-      for( ICoercionProvider coercer: CoercionProviders.get() )
+      Object coercedValue = CoercionProviders.toBindingValue( arg );
+      if( coercedValue != ICallHandler.UNHANDLED )
       {
-        Object coercedValue = coercer.toBindingValue( arg );
-        if( coercedValue != ICallHandler.UNHANDLED )
-        {
-          return coercedValue;
-        }
+        return coercedValue;
       }
     }
 
@@ -612,4 +415,46 @@ public class RuntimeMethods
            type == Float.class ||
            type == Double.class;
   }
+
+  /**
+   * The name and parameter types of a method called via {@link #invokeUnhandled}
+   */
+  private static class Signature
+  {
+    private final String _name;
+    private final Class[] _paramTypes;
+
+    private Signature( String name, Class[] paramTypes )
+    {
+      _name = name;
+      _paramTypes = paramTypes;
+    }
+
+    private Signature copy()
+    {
+      return new Signature( _name, _paramTypes.clone() );
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+      if( this == o )
+      {
+        return true;
+      }
+      if( !(o instanceof Signature) )
+      {
+        return false;
+      }
+
+      Signature signature = (Signature)o;
+      return _name.equals( signature._name ) && Arrays.equals( _paramTypes, signature._paramTypes );
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return 31 * _name.hashCode() + Arrays.hashCode( _paramTypes );
+    }
+  }
 }
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.ext;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import manifold.ext.api.IProxyFactory;
+import manifold.util.ReflectUtil;
+
+/**
+ * The bootstrap method for {@code invokedynamic} call sites the compiler emits for calls through structural interfaces
+ * when the {@code structural-indy} plugin argument is present. Instead of constructing a proxy for each call, as with
+ * {@link RuntimeMethods#constructProxy(Object, Class)}, a call site caches a method handle for each receiver class it
+ * sees, up to {@link #MAX_CLASSES}, guarded by a receiver class check:
+ * <ul>
+ * <li>If the receiver class nominally implements the interface, the interface method is called.</li>
+ * <li>If the receiver class has a public method with the same name and parameter types and a compatible return type,
+ * that method is called directly and no proxy is involved.</li>
+ * <li>If the call is made through a generated proxy, e.g., for an extension method, the proxy's constructor is called
+ * from the method handle. The JIT can inline the proxy's method and eliminate its allocation.</li>
+ * <li>Otherwise, the proxy is made with {@link RuntimeMethods#constructProxy(Object, Class)}.</li>
+ * </ul>
+ * A call site seeing more receiver classes stops caching and makes all calls with
+ * {@link RuntimeMethods#constructProxy(Object, Class)}.
+ */
+public class StructuralCallSites
+{
+  static final int MAX_CLASSES = 8;
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  private static final MethodHandle IS_CLASS;
+  private static final MethodHandle RELINK;
+  private static final MethodHandle CONSTRUCT_PROXY;
+  private static final MethodHandle COERCE;
+
+  static
+  {
+    try
+    {
+      IS_CLASS = LOOKUP.findStatic( StructuralCallSites.class, "isClass",
+        MethodType.methodType( boolean.class, Object.class, Class.class ) );
+      RELINK = LOOKUP.findVirtual( StructuralCallSite.class, "relink",
+        MethodType.methodType( Object.class, Object[].class ) );
+      CONSTRUCT_PROXY = LOOKUP.findStatic( RuntimeMethods.class, "constructProxy",
+        MethodType.methodType( Object.class, Object.class, Class.class ) );
+      COERCE = LOOKUP.findStatic( RuntimeMethods.class, "coerce",
+        MethodType.methodType( Object.class, Object.class, Class.class ) );
+    }
+    catch( ReflectiveOperationException e )
+    {
+      throw new ExceptionInInitializerError( e );
+    }
+  }
+
+  /**
+   * @param caller     The class containing the call site
+   * @param name       The name of the interface method
+   * @param type       The type of the call site, the receiver is the first parameter
+   * @param iface      The binary name of the structural interface declaring the method
+   * @param descriptor The method descriptor of the interface method
+   */
+  public static CallSite bootstrap( MethodHandles.Lookup caller, String name, MethodType type,
+                                    String iface, String descriptor ) throws ReflectiveOperationException
+  {
+    ClassLoader loader = caller.lookupClass().getClassLoader();
+    Class<?> ifaceClass = Class.forName( iface, false, loader );
+    Method method = ifaceClass.getMethod( name,
+      MethodType.fromMethodDescriptorString( descriptor, loader ).parameterArray() );
+    return new StructuralCallSite( type, ifaceClass, method, caller.unreflect( method ) );
+  }
+
+  private static boolean isClass( Object receiver, Class<?> cls )
+  {
+    return receiver.getClass() == cls;
+  }
+
+  /**
+   * @return A handle calling {@code method} of {@code iface} on a receiver of class {@code rootClass} the way a call
+   * through a proxy would, without making a proxy if the receiver implements the method itself
+   */
+  static MethodHandle findTarget( Class<?> iface, Method method, MethodHandle ifaceMethod, Class<?> rootClass )
+    throws ReflectiveOperationException
+  {
+    if( iface.isAssignableFrom( rootClass ) )
+    {
+      return ifaceMethod;
+    }
+
+    if( !RuntimeMethods.isHandledByProxy( iface, rootClass ) )
+    {
+      MethodHandle direct = findDirectMethod( method, rootClass );
+      if( direct != null )
+      {
+        return direct;
+      }
+    }
+
+    IProxyFactory proxyFactory = RuntimeMethods.getProxyFactory( iface, rootClass );
+    if( proxyFactory instanceof DynamicProxyFactory )
+    {
+      // the constructor is already accessible
+      MethodHandle constructor = LOOKUP.unreflectConstructor( ((DynamicProxyFactory)proxyFactory).getConstructor() );
+      return MethodHandles.filterArguments( ifaceMethod, 0,
+        constructor.asType( MethodType.methodType( iface, Object.class ) ) );
+    }
+    return proxyTarget( iface, ifaceMethod );
+  }
+
+  private static MethodHandle findDirectMethod( Method ifaceMethod, Class<?> rootClass ) throws IllegalAccessException
+  {
+    Method method;
+    try
+    {
+      method = rootClass.getMethod( ifaceMethod.getName(), ifaceMethod.getParameterTypes() );
+    }
+    catch( NoSuchMethodException e )
+    {
+      return null;
+    }
+
+    Class<?> returnType = ifaceMethod.getReturnType();
+    if( Modifier.isStatic( method.getModifiers() ) ||
+        (returnType.isPrimitive()
+         ? method.getReturnType() != returnType
+         : !returnType.isAssignableFrom( method.getReturnType() )) )
+    {
+      return null;
+    }
+
+    ReflectUtil.setAccessible( method );
+    MethodHandle handle = LOOKUP.unreflect( method );
+    if( !returnType.isPrimitive() )
+    {
+      // as with the proxy, coerce the return value
+      handle = MethodHandles.filterReturnValue( handle.asType( handle.type().changeReturnType( Object.class ) ),
+        MethodHandles.insertArguments( COERCE, 1, returnType ) );
+    }
+    return handle;
+  }
+
+  private static MethodHandle proxyTarget( Class<?> iface, MethodHandle ifaceMethod )
+  {
+    return MethodHandles.filterArguments( ifaceMethod, 0,
+      MethodHandles.insertArguments( CONSTRUCT_PROXY, 1, iface )
+        .asType( MethodType.methodType( iface, Object.class ) ) );
+  }
+
+  private static class StructuralCallSite extends MutableCallSite
+  {
+    private final Class<?> _iface;
+    private final Method _method;
+    private final MethodHandle _ifaceMethod;
+    private int _classes;
+
+    StructuralCallSite( MethodType type, Class<?> iface, Method method, MethodHandle ifaceMethod )
+    {
+      super( type );
+      _iface = iface;
+      _method = method;
+      _ifaceMethod = ifaceMethod;
+      setTarget( RELINK.bindTo( this ).asCollector( Object[].class, type.parameterCount() ).asType( type ) );
+    }
+
+    /**
+     * Called when the call site sees a receiver class it has not cached
+     */
+    Object relink( Object[] args ) throws Throwable
+    {
+      Object receiver = args[0];
+      if( receiver == null )
+      {
+        throw new NullPointerException();
+      }
+
+      Class<?> rootClass = receiver.getClass();
+      MethodHandle target = findTarget( _iface, _method, _ifaceMethod, rootClass ).asType( type() );
+      synchronized( this )
+      {
+        if( _classes < MAX_CLASSES )
+        {
+          MethodHandle test = MethodHandles.insertArguments( IS_CLASS, 1, rootClass )
+            .asType( MethodType.methodType( boolean.class, type().parameterType( 0 ) ) );
+          test = MethodHandles.dropArguments( test, 1, type().parameterList().subList( 1, type().parameterCount() ) );
+          setTarget( MethodHandles.guardWithTest( test, target, getTarget() ) );
+        }
+        else if( _classes == MAX_CLASSES )
+        {
+          // megamorphic
+          setTarget( proxyTarget( _iface, _ifaceMethod ).asType( type() ) );
+        }
+        _classes++;
+      }
+      return target.invokeWithArguments( args );
+    }
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.ext;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import manifold.util.ManStringUtil;
+import manifold.util.StreamUtil;
+import manifold.util.concurrent.ConcurrentWeakHashMap;
+
+/**
+ * Maps (interface, root class) pairs to the structural proxy classes generated at compile-time with the
+ * {@code structural-proxies} plugin argument. Each class output directory having such proxies has an index file listing
+ * them, one per line:
+ * <pre>
+ *   &lt;interface name&gt; &lt;root class name&gt; &lt;proxy class name&gt; &lt;signature&gt;
+ * </pre>
+ * The signature is a hash of the members of the interface and the root class, see {@link #signature}. A proxy is used
+ * only if the classes found at runtime have the same signature, otherwise it is generated at runtime as if it were not
+ * listed.
+ */
+class StructuralProxyIndex
+{
+  static final String INDEX_FILE = "META-INF/manifold/structural-proxies";
+  private static final Map<ClassLoader, Map<String, Entry>> INDEX_BY_LOADER = new ConcurrentWeakHashMap<>();
+
+  private StructuralProxyIndex()
+  {
+  }
+
+  /**
+   * @return The proxy class generated at compile-time for {@code iface} and {@code rootClass} or null if there is none
+   */
+  static Class findProxyClass( Class<?> iface, Class<?> rootClass )
+  {
+    String key = key( iface.getName(), rootClass.getName() );
+    for( ClassLoader loader : new ClassLoader[] {rootClass.getClassLoader(), iface.getClassLoader(),
+                                                Thread.currentThread().getContextClassLoader()} )
+    {
+      if( loader == null )
+      {
+        continue;
+      }
+
+      Entry entry = getIndex( loader ).get( key );
+      if( entry != null && entry._signature.equals( signature( iface, rootClass ) ) )
+      {
+        Class proxyClass = loadProxyClass( entry._proxyName, loader, iface, rootClass );
+        if( proxyClass != null )
+        {
+          return proxyClass;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static Class loadProxyClass( String proxyName, ClassLoader loader, Class<?> iface, Class<?> rootClass )
+  {
+    try
+    {
+      Class<?> proxyClass = Class.forName( proxyName, false, loader );
+      Constructor[] ctors = proxyClass.getConstructors();
+      if( iface.isAssignableFrom( proxyClass ) &&
+          ctors.length == 1 && ctors[0].getParameterTypes().length == 1 && ctors[0].getParameterTypes()[0] == rootClass )
+      {
+        return proxyClass;
+      }
+    }
+    catch( ClassNotFoundException | LinkageError ignore )
+    {
+      // the index is stale, the proxy is generated at runtime
+    }
+    return null;
+  }
+
+  private static Map<String, Entry> getIndex( ClassLoader loader )
+  {
+    Map<String, Entry> index = INDEX_BY_LOADER.get( loader );
+    if( index == null )
+    {
+      INDEX_BY_LOADER.put( loader, index = readIndex( loader ) );
+    }
+    return index;
+  }
+
+  private static Map<String, Entry> readIndex( ClassLoader loader )
+  {
+    Map<String, Entry> index = new TreeMap<>();
+    try
+    {
+      Enumeration<URL> resources = loader.getResources( INDEX_FILE );
+      while( resources.hasMoreElements() )
+      {
+        try( Reader reader = StreamUtil.getInputStreamReader( resources.nextElement().openStream() ) )
+        {
+          read( reader, index );
+        }
+      }
+    }
+    catch( IOException ignore )
+    {
+      // proxies not listed are generated at runtime
+    }
+    return index.isEmpty() ? Collections.emptyMap() : index;
+  }
+
+  static String key( String ifaceName, String rootName )
+  {
+    return ifaceName + ' ' + rootName;
+  }
+
+  /**
+   * A hash of the declared members of {@code iface} and {@code rootClass} and of their supertypes, the members a proxy
+   * is generated from. JDK classes are left out, so a proxy stays usable on a later JDK.
+   */
+  static String signature( Class<?> iface, Class<?> rootClass )
+  {
+    Set<Class<?>> types = new LinkedHashSet<>();
+    addTypes( iface, types );
+    addTypes( rootClass, types );
+
+    StringBuilder sb = new StringBuilder();
+    for( Class<?> type : types )
+    {
+      List<String> members = new ArrayList<>();
+      for( Method method : type.getDeclaredMethods() )
+      {
+        if( !method.isSynthetic() )
+        {
+          members.add( method.toString() );
+        }
+      }
+      for( Field field : type.getDeclaredFields() )
+      {
+        if( !field.isSynthetic() )
+        {
+          members.add( field.toString() );
+        }
+      }
+      // reflection does not order members
+      Collections.sort( members );
+      sb.append( type.getName() ).append( ' ' ).append( Modifier.toString( type.getModifiers() ) ).append( '\n' );
+      members.forEach( member -> sb.append( member ).append( '\n' ) );
+    }
+    return ManStringUtil.getSHA1String( sb.toString() );
+  }
+
+  private static void addTypes( Class<?> type, Set<Class<?>> types )
+  {
+    if( type == null || type.getClassLoader() == null || !types.add( type ) )
+    {
+      // null, a JDK class or already added
+      return;
+    }
+    addTypes( type.getSuperclass(), types );
+    for( Class<?> superIface : type.getInterfaces() )
+    {
+      addTypes( superIface, types );
+    }
+  }
+
+  /**
+   * Reads the index file content into {@code index}, mapping {@link #key} to an entry. Lines without a signature, as
+   * written by earlier versions, are skipped.
+   */
+  static void read( Reader reader, Map<String, Entry> index ) throws IOException
+  {
+    for( String line : StreamUtil.getContent( reader ).split( "\n" ) )
+    {
+      String[] names = line.trim().split( " " );
+      if( names.length == 4 )
+      {
+        index.put( key( names[0], names[1] ), new Entry( names[2], names[3] ) );
+      }
+    }
+  }
+
+  static void write( Writer writer, Map<String, Entry> index ) throws IOException
+  {
+    for( Map.Entry<String, Entry> entry : index.entrySet() )
+    {
+      writer.write( entry.getKey() + ' ' + entry.getValue()._proxyName + ' ' + entry.getValue()._signature + '\n' );
+    }
+  }
+
+  /**
+   * The proxy class generated for an (interface, root class) pair and the {@link #signature} of the pair at the time
+   */
+  static final class Entry
+  {
+    final String _proxyName;
+    final String _signature;
+
+    Entry( String proxyName, String signature )
+    {
+      _proxyName = proxyName;
+      _signature = signature;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+      if( this == o )
+      {
+        return true;
+      }
+      if( !(o instanceof Entry) )
+      {
+        return false;
+      }
+      Entry that = (Entry)o;
+      return _proxyName.equals( that._proxyName ) && _signature.equals( that._signature );
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Objects.hash( _proxyName, _signature );
+    }
+  }
+}
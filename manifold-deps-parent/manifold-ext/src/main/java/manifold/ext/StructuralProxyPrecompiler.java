@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.ext;
+
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.code.Symbol;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import manifold.api.fs.IDirectory;
+import manifold.api.host.IModule;
+import manifold.internal.javac.JavacPlugin;
+import manifold.util.StreamUtil;
+
+/**
+ * Generates structural proxy classes at compile-time, enabled with the {@code structural-proxies} plugin argument.
+ * {@link ExtensionTransformer} adds the (interface, root class) pair for each cast to a structural interface from a
+ * concrete class. Once both classes are in the class output or on the class path, the proxy class
+ * {@link DynamicProxyFactory} would otherwise generate at runtime is written to the class output and listed in the
+ * {@link StructuralProxyIndex} file.
+ * <p/>
+ * Only proxies generated directly as class files are written, a proxy that must be compiled from source e.g., to call
+ * an extension method, is generated at runtime. So is a proxy still failing to load its classes after
+ * {@link #MAX_ATTEMPTS} generated classes.
+ * <p/>
+ * The classes are loaded with one class loader until it has loaded a class generated again, a class fails to load, or
+ * nothing is pending.
+ */
+class StructuralProxyPrecompiler implements TaskListener
+{
+  /** The number of times a pair is tried once its classes are generated, a class it depends on may not be yet */
+  private static final int MAX_ATTEMPTS = 8;
+
+  private final BasicJavacTask _javacTask;
+  private final Map<String, ProxyPair> _pending;
+  private final Set<String> _done;
+  private final Set<String> _generatedClasses;
+  private Map<String, StructuralProxyIndex.Entry> _index;
+  private ProxyClassLoader _loader;
+
+  StructuralProxyPrecompiler()
+  {
+    _javacTask = JavacPlugin.instance().getJavacTask();
+    _pending = new LinkedHashMap<>();
+    _done = new HashSet<>();
+    _generatedClasses = new HashSet<>();
+    _javacTask.addTaskListener( this );
+  }
+
+  void addProxy( Symbol.ClassSymbol iface, Symbol.ClassSymbol rootClass, boolean isCallHandler )
+  {
+    String key = StructuralProxyIndex.key( iface.flatName().toString(), rootClass.flatName().toString() );
+    if( _done.add( key ) )
+    {
+      ProxyPair pair = new ProxyPair( iface.flatName().toString(), rootClass.flatName().toString(), isCallHandler );
+      waitForClassFile( pair, iface );
+      waitForClassFile( pair, rootClass );
+      _pending.put( key, pair );
+    }
+  }
+
+  private void waitForClassFile( ProxyPair pair, Symbol.ClassSymbol classSym )
+  {
+    String fqn = classSym.flatName().toString();
+    if( (classSym.classfile == null || classSym.classfile.getKind() != JavaFileObject.Kind.CLASS) &&
+        !_generatedClasses.contains( fqn ) )
+    {
+      // compiling from source, the class file is not written until the class is generated
+      pair._waitingFor.add( fqn );
+    }
+  }
+
+  @Override
+  public void started( TaskEvent e )
+  {
+  }
+
+  @Override
+  public void finished( TaskEvent e )
+  {
+    if( e.getKind() != TaskEvent.Kind.GENERATE || e.getTypeElement() == null )
+    {
+      return;
+    }
+
+    String fqn = ((Symbol.ClassSymbol)e.getTypeElement()).flatName().toString();
+    _generatedClasses.add( fqn );
+    if( _loader != null && _loader.isLoaded( fqn ) )
+    {
+      // the loader has a previous version of the class
+      closeLoader();
+    }
+    List<ProxyPair> ready = new ArrayList<>();
+    for( ProxyPair pair : _pending.values() )
+    {
+      pair._waitingFor.remove( fqn );
+      if( pair._waitingFor.isEmpty() )
+      {
+        ready.add( pair );
+      }
+    }
+    if( !ready.isEmpty() )
+    {
+      generateProxies( ready );
+    }
+  }
+
+  private void generateProxies( List<ProxyPair> ready )
+  {
+    boolean written = false;
+    boolean failed = false;
+    try
+    {
+      ProxyClassLoader loader = getLoader();
+      for( ProxyPair pair : ready )
+      {
+        String key = StructuralProxyIndex.key( pair._ifaceName, pair._rootName );
+        try
+        {
+          Class<?> iface = Class.forName( pair._ifaceName, false, loader );
+          Class<?> rootClass = Class.forName( pair._rootName, false, loader );
+          ProxyClassWriter writer = generateProxyClass( iface, rootClass, pair._isCallHandler );
+          _pending.remove( key );
+          if( writer != null && writer.isUsableLoader( loader ) )
+          {
+            writeClassFile( writer );
+            getIndex().put( key,
+              new StructuralProxyIndex.Entry( writer.getName(), StructuralProxyIndex.signature( iface, rootClass ) ) );
+            written = true;
+          }
+        }
+        catch( ClassNotFoundException | LinkageError e )
+        {
+          // a class the proxy depends on, such as a superclass, is not generated yet, try again with the next class
+          failed = true;
+          if( ++pair._attempts >= MAX_ATTEMPTS )
+          {
+            _pending.remove( key );
+          }
+        }
+      }
+      if( written )
+      {
+        writeIndex();
+      }
+      if( failed || _pending.isEmpty() )
+      {
+        // a failed class is loaded again with a new loader
+        closeLoader();
+      }
+    }
+    catch( IOException e )
+    {
+      throw new RuntimeException( e );
+    }
+  }
+
+  private ProxyClassLoader getLoader() throws MalformedURLException
+  {
+    if( _loader == null )
+    {
+      _loader = new ProxyClassLoader( getClassPath(), getClass().getClassLoader() );
+    }
+    return _loader;
+  }
+
+  private void closeLoader()
+  {
+    try
+    {
+      _loader.close();
+    }
+    catch( IOException ignore )
+    {
+    }
+    _loader = null;
+  }
+
+  private static ProxyClassWriter generateProxyClass( Class<?> iface, Class<?> rootClass, boolean isCallHandler )
+  {
+    if( rootClass.getCanonicalName() == null )
+    {
+      // local or anonymous class
+      return null;
+    }
+
+    String name = DynamicProxyFactory.getRelativeProxyName( iface, rootClass );
+    return isCallHandler
+           ? DynamicTypeProxyGenerator.generateProxyClass( iface, rootClass, name )
+           : StructuralTypeProxyGenerator.generateProxyClass( iface, rootClass, name );
+  }
+
+  private URL[] getClassPath() throws MalformedURLException
+  {
+    IModule module = JavacPlugin.instance().getHost().getSingleModule();
+    List<URL> urls = new ArrayList<>();
+    for( IDirectory dir : module.getOutputPath() )
+    {
+      urls.add( dir.toURI().toURL() );
+    }
+    for( IDirectory dir : module.getJavaClassPath() )
+    {
+      urls.add( dir.toURI().toURL() );
+    }
+    return urls.toArray( new URL[0] );
+  }
+
+  private void writeClassFile( ProxyClassWriter writer ) throws IOException
+  {
+    JavaFileObject classFile = getFileManager().getJavaFileForOutput(
+      StandardLocation.CLASS_OUTPUT, writer.getName(), JavaFileObject.Kind.CLASS, null );
+    try( OutputStream out = classFile.openOutputStream() )
+    {
+      out.write( writer.toByteArray() );
+    }
+  }
+
+  private Map<String, StructuralProxyIndex.Entry> getIndex()
+  {
+    if( _index == null )
+    {
+      // keep the proxies from previous compilations, a stale entry is ignored at runtime
+      _index = new TreeMap<>();
+      try
+      {
+        FileObject indexFile = getFileManager().getFileForInput( StandardLocation.CLASS_OUTPUT, "", StructuralProxyIndex.INDEX_FILE );
+        if( indexFile != null )
+        {
+          try( Reader reader = indexFile.openReader( true ) )
+          {
+            StructuralProxyIndex.read( reader, _index );
+          }
+        }
+      }
+      catch( IOException | IllegalArgumentException ignore )
+      {
+        // no index yet
+      }
+    }
+    return _index;
+  }
+
+  private void writeIndex() throws IOException
+  {
+    FileObject indexFile = getFileManager().getFileForOutput( StandardLocation.CLASS_OUTPUT, "", StructuralProxyIndex.INDEX_FILE, null );
+    try( Writer writer = StreamUtil.getOutputStreamWriter( indexFile.openOutputStream() ) )
+    {
+      StructuralProxyIndex.write( writer, getIndex() );
+    }
+  }
+
+  private JavaFileManager getFileManager()
+  {
+    return _javacTask.getContext().get( JavaFileManager.class );
+  }
+
+  private static class ProxyPair
+  {
+    private final String _ifaceName;
+    private final String _rootName;
+    private final boolean _isCallHandler;
+    private final Set<String> _waitingFor;
+    private int _attempts;
+
+    private ProxyPair( String ifaceName, String rootName, boolean isCallHandler )
+    {
+      _ifaceName = ifaceName;
+      _rootName = rootName;
+      _isCallHandler = isCallHandler;
+      _waitingFor = new HashSet<>();
+    }
+  }
+
+  private static class ProxyClassLoader extends URLClassLoader
+  {
+    private ProxyClassLoader( URL[] urls, ClassLoader parent )
+    {
+      super( urls, parent );
+    }
+
+    private boolean isLoaded( String fqn )
+    {
+      return findLoadedClass( fqn ) != null;
+    }
+  }
+}
@@ -16,21 +16,21 @@
 
 package manifold.ext;
 
-import com.sun.tools.javac.api.BasicJavacTask;
-import com.sun.tools.javac.code.Symbol;
-import com.sun.tools.javac.code.Type;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
 import java.util.Arrays;
-import javax.lang.model.type.NoType;
+import java.util.HashSet;
+import java.util.Set;
 import manifold.ext.api.Structural;
-import manifold.internal.host.RuntimeManifoldHost;
-import manifold.internal.javac.ClassSymbols;
-import manifold.internal.javac.IDynamicJdk;
 import manifold.internal.runtime.protocols.ManClassesUrlConnection;
 
+import static manifold.ext.ProxyClassWriter.ACC_FINAL;
+import static manifold.ext.ProxyClassWriter.ACC_PRIVATE;
+import static manifold.ext.ProxyClassWriter.ACC_PUBLIC;
+import static manifold.ext.ProxyClassWriter.descriptor;
+
 /**
  * Used at runtime to dynamically proxy a type that structurally (as opposed to nominally)
  * implements an interface annotated with @{@link Structural}.
@@ -42,7 +42,6 @@ class StructuralTypeProxyGenerator
   private final Class<?> _iface;
   private Class<?> _rootClass;
   private final String _name;
-  private Symbol.ClassSymbol _rootClassSymbol;
 
   private StructuralTypeProxyGenerator( Class<?> iface, Class<?> rootClass, String name )
   {
@@ -52,6 +51,33 @@ class StructuralTypeProxyGenerator
   }
 
   static Class makeProxy( Class<?> iface, Class<?> rootClass, final String name )
+  {
+    Class proxyClass = defineProxy( iface, rootClass, name );
+    return proxyClass != null ? proxyClass : compileProxy( iface, rootClass, name );
+  }
+
+  /**
+   * Generates the proxy class file directly, without compiling source, when each interface method is satisfied by a
+   * public method or field of the root class.
+   *
+   * @return The proxy class or null if the proxy must be compiled from source, e.g., to call extension methods
+   */
+  static Class defineProxy( Class<?> iface, Class<?> rootClass, String name )
+  {
+    ProxyClassWriter writer = generateProxyClass( iface, rootClass, name );
+    return writer == null ? null : writer.defineClass( iface.getClassLoader(), rootClass.getClassLoader(),
+      StructuralTypeProxyGenerator.class.getClassLoader() );
+  }
+
+  /**
+   * @return The proxy class file or null if the proxy must be compiled from source
+   */
+  static ProxyClassWriter generateProxyClass( Class<?> iface, Class<?> rootClass, String name )
+  {
+    return new StructuralTypeProxyGenerator( iface, rootClass, name ).generateClass();
+  }
+
+  static Class compileProxy( Class<?> iface, Class<?> rootClass, final String name )
   {
     StructuralTypeProxyGenerator gen = new StructuralTypeProxyGenerator( iface, rootClass, name );
     String fqnProxy = getNamespace( iface ) + '.' + name;
@@ -73,6 +99,134 @@ class StructuralTypeProxyGenerator
     }
   }
 
+  private ProxyClassWriter generateClass()
+  {
+    ProxyClassWriter writer = new ProxyClassWriter( getNamespace( _iface ) + '.' + _name, Object.class, _iface );
+    writer.field( ACC_PRIVATE | ACC_FINAL, "_root", _rootClass );
+
+    ProxyClassWriter.Code ctor = writer.code();
+    ctor.load( Object.class, 0 );
+    ctor.invokeSpecial( Object.class, "<init>", void.class );
+    ctor.load( Object.class, 0 );
+    ctor.load( _rootClass, 1 );
+    ctor.putField( writer.getInternalName(), "_root", _rootClass );
+    ctor.returnValue( void.class );
+    writer.method( ACC_PUBLIC, "<init>", descriptor( void.class, _rootClass ), ctor );
+
+    Set<String> signatures = new HashSet<>();
+    for( Method mi : _iface.getMethods() )
+    {
+      String descriptor = descriptor( mi.getReturnType(), mi.getParameterTypes() );
+      if( !isForwarded( mi ) || !signatures.add( mi.getName() + descriptor ) )
+      {
+        continue;
+      }
+
+      ProxyClassWriter.Code code = writer.code();
+      code.load( Object.class, 0 );
+      code.getField( writer.getInternalName(), "_root", _rootClass );
+      if( !genFieldAccess( code, mi ) && !genMethodCall( code, mi ) )
+      {
+        return null;
+      }
+      writer.method( ACC_PUBLIC, mi.getName(), descriptor, code );
+    }
+
+    return writer;
+  }
+
+  /**
+   * Generates {@code _root.field} or {@code _root.field = p0} following the root, as with {@link #handleField}
+   */
+  private boolean genFieldAccess( ProxyClassWriter.Code code, Method mi )
+  {
+    Class<?> returnType = mi.getReturnType();
+    String propertyName = getPropertyNameFromGetter( mi );
+    if( propertyName != null )
+    {
+      Field field = findField( propertyName, _rootClass, returnType, Variance.Covariant );
+      if( field == null || Modifier.isStatic( field.getModifiers() ) )
+      {
+        return false;
+      }
+      code.getField( _rootClass, field.getName(), field.getType() );
+      genReturn( code, field.getType(), returnType );
+      return true;
+    }
+
+    propertyName = getPropertyNameFromSetter( mi );
+    if( propertyName != null )
+    {
+      Class<?> paramType = mi.getParameterTypes()[0];
+      Field field = findField( propertyName, _rootClass, paramType, Variance.Contravariant );
+      if( field == null || Modifier.isStatic( field.getModifiers() ) || Modifier.isFinal( field.getModifiers() ) )
+      {
+        return false;
+      }
+      code.load( paramType, 1 );
+      code.widen( paramType, field.getType() );
+      code.putField( _rootClass, field.getName(), field.getType() );
+      code.returnValue( void.class );
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Generates {@code _root.method(p0, ...)} following the root, if the root class has a public method with the
+   * interface method's parameter types. Otherwise the call may involve an extension method or a conversion and is left
+   * to the compiler.
+   */
+  private boolean genMethodCall( ProxyClassWriter.Code code, Method mi )
+  {
+    Method method;
+    try
+    {
+      method = _rootClass.getMethod( mi.getName(), mi.getParameterTypes() );
+    }
+    catch( NoSuchMethodException e )
+    {
+      return false;
+    }
+
+    Class<?> returnType = mi.getReturnType();
+    Class<?> rootReturnType = method.getReturnType();
+    if( Modifier.isStatic( method.getModifiers() ) ||
+        (returnType != void.class && rootReturnType == void.class) ||
+        (returnType.isPrimitive() && returnType != void.class && rootReturnType != returnType &&
+         !arePrimitiveTypesAssignable( returnType, rootReturnType )) )
+    {
+      return false;
+    }
+    code.loadParams( mi.getParameterTypes() );
+    code.invokeInstance( _rootClass, mi.getName(), rootReturnType, mi.getParameterTypes() );
+    genReturn( code, rootReturnType, returnType );
+    return true;
+  }
+
+  private void genReturn( ProxyClassWriter.Code code, Class<?> valueType, Class<?> returnType )
+  {
+    if( returnType == void.class )
+    {
+      code.pop( valueType );
+    }
+    else if( returnType.isPrimitive() )
+    {
+      code.widen( valueType, returnType );
+    }
+    else
+    {
+      if( valueType.isPrimitive() )
+      {
+        code.box( valueType );
+      }
+      code.classLiteral( returnType );
+      code.invokeStatic( RuntimeMethods.class, "coerce", Object.class, Object.class, Class.class );
+      code.cast( returnType );
+    }
+    code.returnValue( returnType );
+  }
+
   private StringBuilder generateProxy()
   {
     return new StringBuilder()
@@ -111,19 +265,18 @@ class StructuralTypeProxyGenerator
     return sb.toString();
   }
 
+  private boolean isForwarded( Method mi )
+  {
+    return !(mi.isDefault() && !implementsMethod( _rootClass, mi )) &&
+           !Modifier.isStatic( mi.getModifiers() ) &&
+           !mi.isBridge() && !mi.isSynthetic() &&
+           mi.getAnnotation( ExtensionMethod.class ) == null &&
+           !isObjectMethod( mi );
+  }
+
   private void genInterfaceMethodDecl( StringBuilder sb, Method mi, Class rootType )
   {
-    if( (mi.isDefault() && !implementsMethod( rootType, mi )) ||
-        Modifier.isStatic( mi.getModifiers() ) ||
-        mi.isBridge() || mi.isSynthetic() )
-    {
-      return;
-    }
-    if( mi.getAnnotation( ExtensionMethod.class ) != null )
-    {
-      return;
-    }
-    if( isObjectMethod( mi ) )
+    if( !isForwarded( mi ) )
     {
       return;
     }
@@ -295,7 +448,7 @@ class StructuralTypeProxyGenerator
           break;
         }
 
-        if( hasPotentialMethod( getRootClassSymbol(), name, method.getParameterCount() ) )
+        if( hasPotentialMethod( _rootClass, name, method.getParameterCount() ) )
         {
           // try not to let a field match when a method should match
           break;
@@ -336,7 +489,7 @@ class StructuralTypeProxyGenerator
     if( name.length() > "set".length() &&
         name.startsWith( "set" ) )
     {
-      if( hasPotentialMethod( getRootClassSymbol(), name, method.getParameterCount() ) )
+      if( hasPotentialMethod( _rootClass, name, method.getParameterCount() ) )
       {
         // try not to let a field match when a method should match
         return null;
@@ -357,28 +510,27 @@ class StructuralTypeProxyGenerator
     return propertyName;
   }
 
-  private boolean hasPotentialMethod( Symbol.ClassSymbol rootClassSymbol, String name, int paramCount )
+  private boolean hasPotentialMethod( Class<?> cls, String name, int paramCount )
   {
-    if( rootClassSymbol == null || rootClassSymbol instanceof NoType )
+    if( cls == null )
     {
       return false;
     }
 
-    for( Symbol member : IDynamicJdk.instance().getMembers( rootClassSymbol, e -> e.flatName().toString().equals( name ) ) )
+    for( Method method : cls.getDeclaredMethods() )
     {
-      Symbol.MethodSymbol methodSym = (Symbol.MethodSymbol)member;
-      if( methodSym.getParameters().size() == paramCount )
+      if( !method.isSynthetic() && method.getName().equals( name ) && method.getParameterCount() == paramCount )
       {
         return true;
       }
     }
-    if( hasPotentialMethod( (Symbol.ClassSymbol)rootClassSymbol.getSuperclass().tsym, name, paramCount ) )
+    if( hasPotentialMethod( cls.getSuperclass(), name, paramCount ) )
     {
       return true;
     }
-    for( Type iface : rootClassSymbol.getInterfaces() )
+    for( Class<?> iface : cls.getInterfaces() )
     {
-      if( hasPotentialMethod( (Symbol.ClassSymbol)iface.tsym, name, paramCount ) )
+      if( hasPotentialMethod( iface, name, paramCount ) )
       {
         return true;
       }
@@ -386,17 +538,6 @@ class StructuralTypeProxyGenerator
     return false;
   }
 
-  private Symbol.ClassSymbol getRootClassSymbol()
-  {
-    if( _rootClassSymbol == null )
-    {
-      ClassSymbols classSymbols = ClassSymbols.instance( RuntimeManifoldHost.get().getSingleModule() );
-      BasicJavacTask javacTask = classSymbols.getJavacTask_PlainFileMgr();
-      _rootClassSymbol = classSymbols.getClassSymbol( javacTask, _rootClass.getCanonicalName() ).getFirst();
-    }
-    return _rootClassSymbol;
-  }
-
   public static boolean isObjectMethod( Method mi )
   {
     Class[] paramTypes = null;
@@ -48,4 +48,27 @@ public interface ICoercionProvider
    * surfaces as a {@link java.time.LocalDateTime} in the Java API.
    */
   Object toBindingValue( Object value );
+
+  /**
+   * Override to return true if whether this provider handles a coercion depends only on the class of the value and the
+   * target type, never on the value itself. A class decided provider that declines a coercion is not asked again for
+   * the same value class and target type, see {@code CoercionDispatcher}.
+   * @return True if this provider's decision to handle a coercion depends only on classes. False by default.
+   */
+  default boolean isClassDecided()
+  {
+    return false;
+  }
+
+  /**
+   * Override if coercions to some target types are class decided and others are not, e.g., a provider deciding by
+   * value only for the types it looks up values in.
+   * @param type The type to convert to.
+   * @return True if this provider's decision to coerce a value to {@code type} depends only on classes. By default
+   * {@link #isClassDecided()}.
+   */
+  default boolean isClassDecided( Class<?> type )
+  {
+    return isClassDecided();
+  }
 }
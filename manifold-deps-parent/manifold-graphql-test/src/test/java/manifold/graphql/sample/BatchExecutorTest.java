@@ -0,0 +1,129 @@
+package manifold.graphql.sample;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.script.Bindings;
+import manifold.api.json.Json;
+import manifold.api.templ.DisableStringLiteralTemplates;
+import manifold.graphql.request.BatchExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+import static manifold.graphql.sample.queries.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@DisableStringLiteralTemplates
+public class BatchExecutorTest
+{
+  private HttpServer _server;
+  private AtomicInteger _posts;
+  private String _url;
+
+  @Before
+  public void startServer() throws Exception
+  {
+    _posts = new AtomicInteger();
+    _server = HttpServer.create( new InetSocketAddress( "localhost", 0 ), 0 );
+    _server.createContext( "/graphql", exchange -> {
+      _posts.incrementAndGet();
+      // answer each request of the batch with a movie titled after the requested id
+      List<?> requests = (List<?>)Json.fromJson(
+        new InputStreamReader( exchange.getRequestBody(), StandardCharsets.UTF_8 ) );
+      StringBuilder response = new StringBuilder( "[" );
+      for( Object request: requests )
+      {
+        Object id = ((Bindings)((Bindings)request).get( "variables" )).get( "id" );
+        response.append( response.length() > 1 ? "," : "" );
+        if( "bad".equals( id ) )
+        {
+          response.append( "\"not a result\"" );
+          continue;
+        }
+        response.append( "{\"data\": {\"movie\": {\"id\": \"" ).append( id )
+          .append( "\", \"title\": \"Movie " ).append( id ).append( "\"}}}" );
+      }
+      byte[] body = response.append( "]" ).toString().getBytes( StandardCharsets.UTF_8 );
+      exchange.sendResponseHeaders( 200, body.length );
+      exchange.getResponseBody().write( body );
+      exchange.close();
+    } );
+    _server.start();
+    _url = "http://localhost:" + _server.getAddress().getPort() + "/graphql";
+  }
+
+  @After
+  public void stopServer()
+  {
+    _server.stop( 0 );
+  }
+
+  @Test
+  public void testBatch() throws Exception
+  {
+    BatchExecutor batch = new BatchExecutor()
+      .withMaxSize( 3 )
+      .withWindow( 50 );
+    List<CompletableFuture<OneMovie.Result>> results = new ArrayList<>();
+    for( int i = 0; i < 5; i++ )
+    {
+      results.add( OneMovie.builder( String.valueOf( i ) ).build().request( _url ).post( batch ) );
+    }
+    for( int i = 0; i < results.size(); i++ )
+    {
+      OneMovie.Result result = results.get( i ).get();
+      assertEquals( "Movie " + i, result.getMovie().getTitle() );
+    }
+    // three sent when the batch was full, two when the window passed
+    assertEquals( 2, _posts.get() );
+  }
+
+  @Test
+  public void testBatchPerHeaders() throws Exception
+  {
+    BatchExecutor batch = new BatchExecutor()
+      .withMaxSize( 2 )
+      .withWindow( 50 );
+    CompletableFuture<OneMovie.Result> first = OneMovie.builder( "1" ).build().request( _url )
+      .withBearerAuthorization( "first" ).post( batch );
+    CompletableFuture<OneMovie.Result> second = OneMovie.builder( "2" ).build().request( _url )
+      .withBearerAuthorization( "second" ).post( batch );
+
+    assertEquals( "Movie 1", first.get().getMovie().getTitle() );
+    assertEquals( "Movie 2", second.get().getMovie().getTitle() );
+    // different credentials, not batched together
+    assertEquals( 2, _posts.get() );
+  }
+
+  @Test
+  public void testMalformedResultFailsOnlyItsRequest() throws Exception
+  {
+    BatchExecutor batch = new BatchExecutor()
+      .withMaxSize( 3 );
+    CompletableFuture<OneMovie.Result> first = OneMovie.builder( "1" ).build().request( _url ).post( batch );
+    CompletableFuture<OneMovie.Result> bad = OneMovie.builder( "bad" ).build().request( _url ).post( batch );
+    CompletableFuture<OneMovie.Result> last = OneMovie.builder( "3" ).build().request( _url ).post( batch );
+
+    assertEquals( "Movie 1", first.get().getMovie().getTitle() );
+    assertEquals( "Movie 3", last.get().getMovie().getTitle() );
+    try
+    {
+      bad.get();
+      fail();
+    }
+    catch( ExecutionException e )
+    {
+      assertTrue( e.getCause() instanceof IllegalStateException );
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.internal.javac;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import junit.framework.TestCase;
+import manifold.api.host.IModule;
+import manifold.api.type.ITypeManifold;
+import manifold.graphql.type.GqlManifold;
+import manifold.internal.host.RuntimeManifoldHost;
+import manifold.util.concurrent.ConcurrentHashSet;
+
+/**
+ * Generates the GraphQL types of this module on prefetch workers, as javac does with {@code -Dmanifold.javac.prefetch}.
+ * The queries render against the schema in another file, so workers read each other's models.
+ */
+public class GqlPrefetchTest extends TestCase
+{
+  private static final DiagnosticListener<JavaFileObject> IGNORE = diagnostic -> {};
+
+  public void testGqlTypesGeneratedOnWorkers() throws Exception
+  {
+    IModule module = RuntimeManifoldHost.get().getSingleModule();
+    List<String> fqns = module.getTypeManifolds().stream()
+      .filter( tm -> tm instanceof GqlManifold )
+      .flatMap( tm -> tm.getAllTypeNames().stream() )
+      .sorted()
+      .collect( Collectors.toList() );
+    assertTrue( fqns.size() > 1 );
+
+    List<String> expected = new ArrayList<>();
+    for( String fqn: fqns )
+    {
+      expected.add( produce( module, fqn ) );
+    }
+
+    System.setProperty( SourcePrefetcher.PREFETCH, "4" );
+    SourcePrefetcher prefetcher = SourcePrefetcher.make();
+    System.clearProperty( SourcePrefetcher.PREFETCH );
+
+    Set<Thread> producingThreads = new ConcurrentHashSet<>();
+    CountDownLatch produced = new CountDownLatch( fqns.size() );
+    List<GeneratedJavaStubFileObject> stubs = new ArrayList<>();
+    for( String fqn: fqns )
+    {
+      Set<ITypeManifold> tms = module.findTypeManifoldsFor( fqn );
+      SourceSupplier supplier = new SourceSupplier( fqn, tms, () -> {
+        producingThreads.add( Thread.currentThread() );
+        try
+        {
+          return produce( module, fqn );
+        }
+        finally
+        {
+          produced.countDown();
+        }
+      } );
+      assertTrue( fqn, supplier.isPrefetchable() );
+      GeneratedJavaStubFileObject stub = new GeneratedJavaStubFileObject( fqn, supplier );
+      stub.prefetch( prefetcher );
+      stubs.add( stub );
+    }
+
+    // every source is produced before this thread reads any of them
+    assertTrue( produced.await( 60, TimeUnit.SECONDS ) );
+    for( int i = 0; i < fqns.size(); i++ )
+    {
+      assertEquals( fqns.get( i ), expected.get( i ), stubs.get( i ).getCharContent( true ).toString() );
+    }
+    assertFalse( producingThreads.isEmpty() );
+    for( Thread thread: producingThreads )
+    {
+      assertTrue( thread.getName(), thread.getName().startsWith( "manifold-prefetch" ) );
+    }
+  }
+
+  private static String produce( IModule module, String fqn )
+  {
+    return ((GeneratedJavaStubFileObject)module.produceFile( fqn, StandardLocation.SOURCE_PATH, IGNORE ))
+      .getCharContent( true ).toString();
+  }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.graphql.request;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.script.Bindings;
+import manifold.api.json.Requester;
+import manifold.util.concurrent.LockingLazyVar;
+
+/**
+ * Sends the queries and mutations added from {@link Executor#post(BatchExecutor)} to a GraphQL server in batches, each
+ * batch is one HTTP POST having an array of the request bodies as its payload. The server responds with an array of
+ * the results in the same order, as supported by Apollo Server, graphql-java-servlet and others.
+ * <p/>
+ * Requests are batched together only if their {@link Executor}s have the same url, headers and timeout, requests to
+ * other servers or with other credentials go in separate batches. A batch is sent when it reaches the maximum size or
+ * when the window has passed since its first request was added, whichever comes first:
+ * <pre><code>
+ * BatchExecutor batch = new BatchExecutor()
+ *   .withMaxSize(20)
+ *   .withWindow(5);
+ * CompletableFuture&lt;OneMovie.Result&gt; first = OneMovie.builder("1").build().request(url).post(batch);
+ * CompletableFuture&lt;OneMovie.Result&gt; second = OneMovie.builder("2").build().request(url).post(batch);
+ * </code></pre>
+ */
+public class BatchExecutor
+{
+  private static final LockingLazyVar<ScheduledExecutorService> TIMER =
+    LockingLazyVar.make( () -> Executors.newSingleThreadScheduledExecutor( r -> {
+      Thread thread = new Thread( r, "manifold-graphql-batch" );
+      thread.setDaemon( true );
+      return thread;
+    } ) );
+
+  private int _maxSize;
+  private long _window;
+  private final Map<Target, Batch> _batches;
+
+  public BatchExecutor()
+  {
+    _maxSize = 10;
+    _window = 10;
+    _batches = new HashMap<>();
+  }
+
+  /**
+   * The number of requests sending a batch immediately. Default is 10.
+   */
+  public BatchExecutor withMaxSize( int maxSize )
+  {
+    if( maxSize < 1 )
+    {
+      throw new IllegalArgumentException( "maxSize: " + maxSize );
+    }
+    _maxSize = maxSize;
+    return this;
+  }
+
+  /**
+   * The time in milliseconds a batch waits for more requests after its first request is added. Default is 10.
+   */
+  public BatchExecutor withWindow( long millis )
+  {
+    _window = millis;
+    return this;
+  }
+
+  /**
+   * Adds a request body to the batch of requests having the same {@code url}, {@code headers} and {@code timeout}.
+   *
+   * @return A future completing with the request's result, the {@code data} and {@code errors} of the response
+   */
+  synchronized CompletableFuture<Bindings> add( String url, Map<String, String> headers, int timeout,
+                                                Bindings requestBody )
+  {
+    Target target = new Target( url, headers, timeout );
+    Batch batch = _batches.computeIfAbsent( target, k -> new Batch() );
+    Pending pending = new Pending( requestBody );
+    batch._pending.add( pending );
+    if( batch._pending.size() >= _maxSize )
+    {
+      flush( target );
+    }
+    else if( batch._scheduledFlush == null )
+    {
+      batch._scheduledFlush = TIMER.get().schedule( () -> flush( target ), _window, TimeUnit.MILLISECONDS );
+    }
+    return pending._result;
+  }
+
+  /**
+   * Sends the current batches now, if they have requests.
+   */
+  public void flush()
+  {
+    List<Target> targets;
+    synchronized( this )
+    {
+      targets = new ArrayList<>( _batches.keySet() );
+    }
+    targets.forEach( this::flush );
+  }
+
+  private void flush( Target target )
+  {
+    Batch batch;
+    synchronized( this )
+    {
+      batch = _batches.remove( target );
+      if( batch == null )
+      {
+        return;
+      }
+      if( batch._scheduledFlush != null )
+      {
+        batch._scheduledFlush.cancel( false );
+      }
+    }
+
+    List<Pending> pending = batch._pending;
+    List<Bindings> payload = new ArrayList<>( pending.size() );
+    for( Pending p: pending )
+    {
+      payload.add( p._requestBody );
+    }
+    target.makeRequester().<Object>postManyAsync( "", payload, Requester.Format.Json )
+      .whenComplete( ( response, e ) -> complete( pending, response, e ) );
+  }
+
+  private static void complete( List<Pending> batch, Object response, Throwable e )
+  {
+    if( e == null && !(response instanceof List && ((List)response).size() == batch.size()) )
+    {
+      e = new IllegalStateException( "Expecting an array of " + batch.size() + " results, found: " + response );
+    }
+    for( int i = 0; i < batch.size(); i++ )
+    {
+      CompletableFuture<Bindings> result = batch.get( i )._result;
+      if( e != null )
+      {
+        result.completeExceptionally( e );
+        continue;
+      }
+
+      // a malformed result fails only its own request, the rest of the batch still completes
+      Object item = ((List)response).get( i );
+      if( item instanceof Bindings )
+      {
+        result.complete( (Bindings)item );
+      }
+      else
+      {
+        result.completeExceptionally( new IllegalStateException( "Expecting a result object, found: " + item ) );
+      }
+    }
+  }
+
+  /**
+   * Where and how a batch is sent, requests are batched together only if they have the same target.
+   */
+  private static class Target
+  {
+    private final String _url;
+    private final Map<String, String> _headers;
+    private final int _timeout;
+
+    Target( String url, Map<String, String> headers, int timeout )
+    {
+      _url = url;
+      _headers = new HashMap<>( headers );
+      _timeout = timeout;
+    }
+
+    Requester<Bindings> makeRequester()
+    {
+      Requester<Bindings> requester = new Requester<>( _url );
+      _headers.forEach( requester::withHeader );
+      return requester.withTimeout( _timeout );
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+      if( this == o )
+      {
+        return true;
+      }
+      if( o == null || getClass() != o.getClass() )
+      {
+        return false;
+      }
+      Target target = (Target)o;
+      return _timeout == target._timeout &&
+             _url.equals( target._url ) &&
+             _headers.equals( target._headers );
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Objects.hash( _url, _headers, _timeout );
+    }
+  }
+
+  private static class Batch
+  {
+    private final List<Pending> _pending;
+    private ScheduledFuture<?> _scheduledFlush;
+
+    Batch()
+    {
+      _pending = new ArrayList<>();
+    }
+  }
+
+  private static class Pending
+  {
+    private final Bindings _requestBody;
+    private final CompletableFuture<Bindings> _result;
+
+    Pending( Bindings requestBody )
+    {
+      _requestBody = requestBody;
+      _result = new CompletableFuture<>();
+    }
+  }
+}
@@ -16,6 +16,11 @@
 
 package manifold.graphql.request;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import javax.script.Bindings;
 import manifold.api.json.Requester;
 
@@ -46,12 +51,17 @@ import manifold.api.json.Requester;
 public class Executor<T>
 {
   private final GqlRequestBody _reqArgs;
+  private final String _url;
+  private final Map<String, String> _headers;
+  private int _timeout;
   private Requester<Bindings> _requester;
 
   public Executor( String url, String operation, String query, Bindings variables )
   {
+    _url = url;
+    _headers = new HashMap<>();
     _requester = new Requester<>( url );
-    _requester.withHeader( "Content-Type", "application/json" );
+    withHeader( "Content-Type", "application/json" );
     _reqArgs = GqlRequestBody.create( query, variables );
   }
 
@@ -61,6 +71,7 @@ public class Executor<T>
    */
   public Executor<T> withHeader( String name, String value )
   {
+    _headers.put( name, value );
     _requester.withHeader( name, value );
     return this;
   }
@@ -71,8 +82,9 @@ public class Executor<T>
   @SuppressWarnings("unused")
   public Executor<T> withBasicAuthorization( String username, String password )
   {
-    _requester.withBasicAuthorization( username, password );
-    return this;
+    String authorization = Base64.getEncoder()
+      .encodeToString( ("$username:$password").getBytes( StandardCharsets.UTF_8 ) );
+    return withHeader( "Authorization", "Basic $authorization" );
   }
 
   /**
@@ -101,6 +113,7 @@ public class Executor<T>
    */
   public Executor<T> withTimeout( int timeout )
   {
+    _timeout = timeout;
     _requester.withTimeout( timeout );
     return this;
   }
@@ -125,6 +138,18 @@ public class Executor<T>
     return (T)((Bindings)_requester.postOne( "", _reqArgs.getBindings(), format )).get( "data" );
   }
 
+  /**
+   * Adds this request to {@code batch}, sent in one HTTP POST with the other requests of the batch having the same
+   * url, headers and timeout as this executor.
+   *
+   * @return A future completing with the {@code data} of this request's result
+   */
+  public CompletableFuture<T> post( BatchExecutor batch )
+  {
+    //noinspection unchecked
+    return batch.add( _url, _headers, _timeout, _reqArgs.getBindings() ).thenApply( result -> (T)result.get( "data" ) );
+  }
+
   /**
    */
   public T get()
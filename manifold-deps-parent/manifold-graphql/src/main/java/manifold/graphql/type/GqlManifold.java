@@ -44,6 +44,15 @@ public class GqlManifold extends JavaTypeManifold<GqlModel>
     return EXTS.contains( fileExtension );
   }
 
+  /**
+   * A model parses only its own file, other models are read when rendering, never when making one.
+   */
+  @Override
+  public boolean isThreadSafe()
+  {
+    return true;
+  }
+
   @Override
   public boolean isInnerType( String topLevel, String relativeInner )
   {
@@ -145,7 +145,10 @@ class GqlParentType
     return _registry.getType( childName ).isPresent();
   }
 
-  void render( StringBuilder sb )
+  /**
+   * Synchronized since rendering fills {@code _typeToUnions}.
+   */
+  synchronized void render( StringBuilder sb )
   {
     SrcLinkedClass srcClass = new SrcLinkedClass( getFqn(), Interface, _file )
       .addAnnotation( new SrcAnnotationExpression( DisableStringLiteralTemplates.class.getSimpleName() ) )
@@ -1166,25 +1169,27 @@ class GqlParentType
 
   //todo: there is a bug in graphql-java where the line number info is off by one (+1)
   // see https://github.com/graphql-java/graphql-java/issues/1512
-  private static Boolean GRAPHQL_LINE_OFFSET_BUG = null;
+  // volatile and read once per call, types may render on several threads, see GqlManifold#isThreadSafe()
+  private static volatile Boolean GRAPHQL_LINE_OFFSET_BUG = null;
   private SourceLocation getActualSourceLocation( SrcLinkedClass srcClass, Node node )
   {
     String startSymbol = getStartSymbol( node );
     SourceLocation loc = node.getSourceLocation();
-    if( GRAPHQL_LINE_OFFSET_BUG == null )
+    Boolean lineOffsetBug = GRAPHQL_LINE_OFFSET_BUG;
+    if( lineOffsetBug == null )
     {
-      GRAPHQL_LINE_OFFSET_BUG = !srcClass.verifyOffset( loc.getLine(), loc.getColumn(), startSymbol );
-      if( GRAPHQL_LINE_OFFSET_BUG &&
+      lineOffsetBug = !srcClass.verifyOffset( loc.getLine(), loc.getColumn(), startSymbol );
+      if( lineOffsetBug &&
           !srcClass.verifyOffset( loc.getLine() - 1, loc.getColumn(), startSymbol ) )
       {
-        GRAPHQL_LINE_OFFSET_BUG = null;
         System.out.println( "GRAPHQL_LINE_OFFSET_BUG check failure" );
         return loc;
       }
+      GRAPHQL_LINE_OFFSET_BUG = lineOffsetBug;
     }
 
     int line = loc.getLine();
-    if( GRAPHQL_LINE_OFFSET_BUG )
+    if( lineOffsetBug )
     {
       // adjust for the graphql-java line location bug
       line--;
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.api.host;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import javax.script.Bindings;
+import junit.framework.TestCase;
+import manifold.api.json.Json;
+
+public class JsonStreamParseTest extends TestCase
+{
+  public void testReaderStreamAndBufferMatchString()
+  {
+    String json = makeSample( 2000 );
+    Object expected = Json.fromJson( json );
+
+    assertEquals( expected, Json.fromJson( new StringReader( json ) ) );
+    assertEquals( expected, Json.fromJson( new ByteArrayInputStream( json.getBytes( StandardCharsets.UTF_8 ) ) ) );
+    assertEquals( expected, Json.fromJson( ByteBuffer.wrap( json.getBytes( StandardCharsets.UTF_8 ) ) ) );
+  }
+
+  public void testStringsSpanningReads()
+  {
+    StringBuilder longValue = new StringBuilder();
+    for( int i = 0; i < 20000; i++ )
+    {
+      longValue.append( (char)('a' + i % 26) );
+    }
+    String json = "{\"long\": \"" + longValue + "\", \"escaped\": \"a\\tb\\u00E9\\\"c\", \"uni\": \"h\u00e9llo\"}";
+
+    // a reader returning a few chars at a time puts string runs and escapes across buffer refills
+    Bindings bindings = (Bindings)Json.fromJson( new TrickleReader( json, 7 ) );
+    assertEquals( longValue.toString(), bindings.get( "long" ) );
+    assertEquals( "a\tb\u00e9\"c", bindings.get( "escaped" ) );
+    assertEquals( "h\u00e9llo", bindings.get( "uni" ) );
+
+    bindings = (Bindings)Json.fromJson( new ByteArrayInputStream( json.getBytes( StandardCharsets.UTF_8 ) ) );
+    assertEquals( "h\u00e9llo", bindings.get( "uni" ) );
+  }
+
+  public void testReadFailureIsReported()
+  {
+    Reader failing = new Reader()
+    {
+      private boolean _read;
+
+      @Override
+      public int read( char[] cbuf, int off, int len ) throws IOException
+      {
+        if( _read )
+        {
+          throw new IOException( "connection reset" );
+        }
+        _read = true;
+        cbuf[off] = '[';
+        return 1;
+      }
+
+      @Override
+      public void close()
+      {
+      }
+    };
+
+    try
+    {
+      Json.fromJson( failing );
+      fail();
+    }
+    catch( RuntimeException e )
+    {
+      assertTrue( e.getMessage().contains( "connection reset" ) );
+    }
+  }
+
+  private static String makeSample( int count )
+  {
+    StringBuilder sb = new StringBuilder( "[" );
+    for( int i = 0; i < count; i++ )
+    {
+      if( i > 0 )
+      {
+        sb.append( ",\n" );
+      }
+      sb.append( "{\"id\": " ).append( i )
+        .append( ", \"name\": \"item number " ).append( i ).append( "\"" )
+        .append( ", \"price\": " ).append( i * 1.5 )
+        .append( ", \"tags\": [\"x\", \"y\\n\"], \"active\": " ).append( i % 2 == 0 )
+        .append( ", \"note\": null}" );
+    }
+    return sb.append( "]" ).toString();
+  }
+
+  private static class TrickleReader extends Reader
+  {
+    private final String _text;
+    private final int _max;
+    private int _pos;
+
+    TrickleReader( String text, int max )
+    {
+      _text = text;
+      _max = max;
+    }
+
+    @Override
+    public int read( char[] cbuf, int off, int len )
+    {
+      if( _pos >= _text.length() )
+      {
+        return -1;
+      }
+      int count = Math.min( Math.min( len, _max ), _text.length() - _pos );
+      _text.getChars( _pos, _pos + count, cbuf, off );
+      _pos += count;
+      return count;
+    }
+
+    @Override
+    public void close()
+    {
+    }
+  }
+}
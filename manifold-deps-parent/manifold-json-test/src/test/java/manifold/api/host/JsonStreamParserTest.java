@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.api.host;
+
+import abc.TopLevelArray;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Iterator;
+import javax.script.Bindings;
+import junit.framework.TestCase;
+import manifold.api.json.Json;
+import manifold.api.json.JsonStreamParser;
+
+import static manifold.api.json.JsonStreamParser.Event.*;
+
+public class JsonStreamParserTest extends TestCase
+{
+  public void testEvents()
+  {
+    JsonStreamParser parser = new JsonStreamParser( new StringReader( "{\"a\": [1, 2.5, {\"b\": null}], \"c\": true}" ) );
+    assertEquals( START_OBJECT, parser.next() );
+    assertEquals( FIELD_NAME, parser.next() );
+    assertEquals( "a", parser.getFieldName() );
+    assertEquals( START_ARRAY, parser.next() );
+    assertEquals( VALUE, parser.next() );
+    assertEquals( 1, parser.getValue() );
+    assertEquals( VALUE, parser.next() );
+    assertEquals( 2.5, parser.getValue() );
+    assertEquals( START_OBJECT, parser.next() );
+    assertEquals( FIELD_NAME, parser.next() );
+    assertEquals( "b", parser.getFieldName() );
+    assertEquals( VALUE, parser.next() );
+    assertNull( parser.getValue() );
+    assertEquals( END_OBJECT, parser.next() );
+    assertEquals( END_ARRAY, parser.next() );
+    assertEquals( FIELD_NAME, parser.next() );
+    assertEquals( "c", parser.getFieldName() );
+    assertEquals( VALUE, parser.next() );
+    assertEquals( true, parser.getValue() );
+    assertEquals( END_OBJECT, parser.next() );
+    assertFalse( parser.hasNext() );
+  }
+
+  public void testReadValueMatchesTreeParser()
+  {
+    String json = "{\"name\": \"Scott\", \"list\": [1, {\"x\": [\"y\"]}], \"empty\": {}}";
+    JsonStreamParser parser = new JsonStreamParser( new StringReader( json ) );
+    parser.next();
+    assertEquals( Json.fromJson( json ), parser.readValue() );
+    assertFalse( parser.hasNext() );
+  }
+
+  public void testSkipValue()
+  {
+    JsonStreamParser parser = new JsonStreamParser( new StringReader( "{\"skip\": {\"deep\": [1, {\"z\": []}]}, \"keep\": 5}" ) );
+    parser.next();
+    parser.next();
+    parser.next();
+    parser.skipValue();
+    assertEquals( FIELD_NAME, parser.next() );
+    assertEquals( "keep", parser.getFieldName() );
+    assertEquals( VALUE, parser.next() );
+    assertEquals( 5, parser.getValue() );
+  }
+
+  public void testTypedArrayElements()
+  {
+    String json = "[{\"foo\": \"hi\"}, {\"foo\": \"bye\"}]";
+    Iterator<TopLevelArray.TopLevelArrayItem> items =
+      new JsonStreamParser( new StringReader( json ) ).elements( TopLevelArray.TopLevelArrayItem.class );
+    assertEquals( "hi", items.next().getFoo() );
+    assertEquals( "bye", items.next().getFoo() );
+    assertFalse( items.hasNext() );
+  }
+
+  public void testNewlineDelimitedElements()
+  {
+    String json = "{\"foo\": \"a\"}\n{\"foo\": \"b\"}\n\n[1, 2]\n";
+    Iterator<Object> values = new JsonStreamParser( new StringReader( json ) ).elements( Object.class );
+    assertEquals( "a", ((Bindings)values.next()).get( "foo" ) );
+    assertEquals( "b", ((Bindings)values.next()).get( "foo" ) );
+    assertEquals( Arrays.asList( 1, 2 ), values.next() );
+    assertFalse( values.hasNext() );
+  }
+
+  public void testErrors()
+  {
+    for( String bad: new String[] {"{\"a\" 1}", "[1 2]", "{\"a\": 1", "[1,]"} )
+    {
+      JsonStreamParser parser = new JsonStreamParser( new StringReader( bad ) );
+      try
+      {
+        while( parser.hasNext() )
+        {
+          parser.next();
+        }
+        fail( bad );
+      }
+      catch( RuntimeException e )
+      {
+        assertTrue( e.getCause().getMessage().startsWith( "[1:" ) );
+      }
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.api.host;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import junit.framework.TestCase;
+import manifold.api.json.Json;
+import manifold.api.json.Writer;
+
+public class JsonStreamWriteTest extends TestCase
+{
+  public void testStreamMatchesString()
+  {
+    Writer writer = new Writer( Json.fromJson( makeSample( 100 ) ) );
+
+    StringWriter json = new StringWriter();
+    writer.toJson( json );
+    assertEquals( writer.toJson(), json.toString() );
+
+    StringWriter yaml = new StringWriter();
+    writer.toYaml( yaml );
+    assertEquals( writer.toYaml(), yaml.toString() );
+
+    StringWriter xml = new StringWriter();
+    writer.toXml( xml );
+    assertEquals( writer.toXml(), xml.toString() );
+  }
+
+  public void testCompact()
+  {
+    Object value = Json.fromJson( makeSample( 100 ) );
+    StringBuilder compact = new StringBuilder();
+    new Writer( value ).toJson( compact, true );
+    assertEquals( -1, compact.indexOf( "\n" ) );
+    assertEquals( -1, compact.indexOf( ": " ) );
+    assertEquals( value, Json.fromJson( compact.toString() ) );
+
+    compact = new StringBuilder();
+    new Writer( Json.fromJson( "{\"a\": [], \"b\": {}, \"c\": [[1], \"x\\ty\"]}" ) ).toJson( compact, true );
+    assertEquals( "{\"a\":[],\"b\":{},\"c\":[[1],\"x\\ty\"]}", compact.toString() );
+  }
+
+  public void testUtf8Stream() throws IOException
+  {
+    Object value = Json.fromJson( "{\"uni\": \"h\u00e9llo \u4e16\u754c\"}" );
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try( java.io.Writer out = new BufferedWriter( new OutputStreamWriter( bytes, StandardCharsets.UTF_8 ) ) )
+    {
+      new Writer( value ).toJson( out, true );
+    }
+    assertEquals( value, Json.fromJson( new String( bytes.toByteArray(), StandardCharsets.UTF_8 ) ) );
+  }
+
+  private static String makeSample( int count )
+  {
+    StringBuilder sb = new StringBuilder( "[" );
+    for( int i = 0; i < count; i++ )
+    {
+      if( i > 0 )
+      {
+        sb.append( ",\n" );
+      }
+      sb.append( "{\"id\": " ).append( i )
+        .append( ", \"name\": \"item number " ).append( i ).append( "\"" )
+        .append( ", \"price\": " ).append( i * 1.5 )
+        .append( ", \"tags\": [\"x\", \"y\\n\"], \"active\": " ).append( i % 2 == 0 )
+        .append( ", \"nested\": {\"empty\": [], \"note\": null}}" );
+    }
+    return sb.append( "]" ).toString();
+  }
+}
@@ -301,6 +301,16 @@ public class JsonTest extends TestCase
     hasEnum.setBar( HasEnum.bar._4_0 );
     assertEquals( HasEnum.bar._4_0, hasEnum.getBar() );
     assertEquals( 4.0, ((Map)hasEnum).get( "bar" ) );
+    ((Map)hasEnum).put( "bar", 4 );
+    assertEquals( HasEnum.bar._4_0, hasEnum.getBar() );
+    ((Map)hasEnum).put( "bar", "5" );
+    assertEquals( HasEnum.bar._5, hasEnum.getBar() );
+    ((Map)hasEnum).put( "bar", "blue" );
+    assertEquals( HasEnum.bar.blue, hasEnum.getBar() );
+    ((Map)hasEnum).put( "bar", "green" );
+    assertEquals( HasEnum.bar.green, hasEnum.getBar() );
+    ((Map)hasEnum).put( "bar", null );
+    assertNull( hasEnum.getBar() );
 
     hasEnum.setFoo( HasEnum.MyEnum.red );
     assertEquals( HasEnum.MyEnum.red, hasEnum.getFoo() );
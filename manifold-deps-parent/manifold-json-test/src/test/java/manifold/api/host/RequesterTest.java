@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.api.host;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.script.Bindings;
+import junit.framework.TestCase;
+import manifold.api.json.Requester;
+import manifold.api.json.ResponseCache;
+import manifold.ext.DataBindings;
+
+public class RequesterTest extends TestCase
+{
+  private HttpServer _server;
+  private Set<Integer> _clientPorts;
+  private String _urlBase;
+
+  @Override
+  protected void setUp() throws Exception
+  {
+    _clientPorts = ConcurrentHashMap.newKeySet();
+    _server = HttpServer.create( new InetSocketAddress( "localhost", 0 ), 0 );
+    _server.createContext( "/", exchange -> {
+      _clientPorts.add( exchange.getRemoteAddress().getPort() );
+      int received = drain( exchange.getRequestBody() );
+      String path = exchange.getRequestURI().getPath();
+      if( path.startsWith( "/cached" ) )
+      {
+        if( "\"v1\"".equals( exchange.getRequestHeaders().getFirst( "If-None-Match" ) ) )
+        {
+          exchange.sendResponseHeaders( 304, -1 );
+          exchange.close();
+          return;
+        }
+        exchange.getResponseHeaders().add( "ETag", "\"v1\"" );
+      }
+      byte[] body = ("{\"path\": \"" + path + "\", \"method\": \"" + exchange.getRequestMethod() +
+                     "\", \"received\": " + received +
+                     ", \"length\": \"" + exchange.getRequestHeaders().getFirst( "Content-Length" ) +
+                     "\", \"encoding\": \"" + exchange.getRequestHeaders().getFirst( "Transfer-Encoding" ) + "\"}").getBytes( StandardCharsets.UTF_8 );
+      exchange.sendResponseHeaders( path.startsWith( "/missing" ) ? 404 : 200, body.length );
+      exchange.getResponseBody().write( body );
+      exchange.close();
+    } );
+    _server.start();
+    _urlBase = "http://localhost:" + _server.getAddress().getPort();
+  }
+
+  @Override
+  protected void tearDown()
+  {
+    _server.stop( 0 );
+  }
+
+  public void testConnectionReuse()
+  {
+    Requester<Bindings> req = new Requester<>( _urlBase );
+    for( int i = 0; i < 3; i++ )
+    {
+      assertEquals( "/one/" + i, req.getOne( "/one/" + i ).get( "path" ) );
+    }
+    try
+    {
+      req.getOne( "/missing" );
+      fail();
+    }
+    catch( RuntimeException e )
+    {
+      // expected
+    }
+    assertEquals( "/after", req.getOne( "/after" ).get( "path" ) );
+    assertEquals( 1, _clientPorts.size() );
+  }
+
+  public void testAsync() throws Exception
+  {
+    Requester<Bindings> req = new Requester<>( _urlBase );
+    List<CompletableFuture<Bindings>> gets = new ArrayList<>();
+    for( int i = 0; i < 10; i++ )
+    {
+      gets.add( req.getOneAsync( "/one/" + i ) );
+    }
+    Bindings payload = new DataBindings();
+    payload.put( "name", "Scott" );
+    CompletableFuture<Bindings> post = req.postOneAsync( "/post", payload );
+
+    for( int i = 0; i < gets.size(); i++ )
+    {
+      assertEquals( "/one/" + i, gets.get( i ).get().get( "path" ) );
+    }
+    assertEquals( "POST", post.get().get( "method" ) );
+    assertTrue( (Integer)post.get().get( "received" ) > 0 );
+
+    try
+    {
+      req.getOneAsync( "/missing" ).get();
+      fail();
+    }
+    catch( ExecutionException e )
+    {
+      // expected
+    }
+  }
+
+  public void testRequestBody()
+  {
+    Requester<Bindings> req = new Requester<>( _urlBase );
+    Bindings payload = new DataBindings();
+    payload.put( "name", "Scott" );
+    Bindings response = req.postOne( "/post", payload );
+    assertEquals( String.valueOf( response.get( "received" ) ), response.get( "length" ) );
+    assertEquals( "null", response.get( "encoding" ) );
+
+    System.setProperty( "manifold.json.chunkedRequests", "true" );
+    try
+    {
+      response = req.postOne( "/post", payload );
+      assertEquals( "null", response.get( "length" ) );
+      assertEquals( "chunked", response.get( "encoding" ) );
+      assertTrue( (Integer)response.get( "received" ) > 0 );
+    }
+    finally
+    {
+      System.clearProperty( "manifold.json.chunkedRequests" );
+    }
+  }
+
+  public void testCache() throws Exception
+  {
+    ResponseCache cache = new ResponseCache( 10, 100, TimeUnit.MILLISECONDS );
+    Requester<Bindings> req = new Requester<Bindings>( _urlBase ).withCache( cache );
+    Bindings first = req.getOne( "/cached" );
+    first.put( "path", "changed" );
+    assertEquals( "/cached", req.getOne( "/cached" ).get( "path" ) );
+    assertEquals( 1, cache.getMisses() );
+    assertEquals( 1, cache.getHits() );
+
+    Thread.sleep( 150 );
+    assertEquals( "/cached", req.getOne( "/cached" ).get( "path" ) );
+    assertEquals( 1, cache.getRevalidations() );
+
+    req.getOne( "/cached/other" );
+    assertEquals( 2, cache.getMisses() );
+  }
+
+  private static int drain( InputStream stream ) throws IOException
+  {
+    int count = 0;
+    while( stream.read() >= 0 )
+    {
+      count++;
+    }
+    return count;
+  }
+}
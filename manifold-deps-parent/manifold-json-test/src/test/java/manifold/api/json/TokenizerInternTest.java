@@ -0,0 +1,100 @@
+package manifold.api.json;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Tokenizes member names with interning enabled, as with {@code -Dmanifold.json.internKeys=true}
+ */
+public class TokenizerInternTest extends TestCase
+{
+  public void testRepeatedNamesAreSameInstance()
+  {
+    List<String> names = names( "\"name\" \"age\" 'name' \"age\" \"name\"" );
+    assertEquals( "name", names.get( 0 ) );
+    assertEquals( "age", names.get( 1 ) );
+    assertSame( names.get( 0 ), names.get( 2 ) );
+    assertSame( names.get( 0 ), names.get( 4 ) );
+    assertSame( names.get( 1 ), names.get( 3 ) );
+  }
+
+  public void testValuesAreNotInterned()
+  {
+    Tokenizer tokenizer = new Tokenizer( new StringReader( "\"name\" \"name\" \"name\"" ), true );
+    String name = tokenizer.next( true ).getString();
+    String value = tokenizer.next( false ).getString();
+    assertEquals( name, value );
+    assertNotSame( name, value );
+    assertSame( name, tokenizer.next( true ).getString() );
+  }
+
+  public void testEscapedNames()
+  {
+    List<String> names = names( "\"abc\" \"a\\u0062c\" \"a\\u0062c\" \"tab\\there\" \"tab\\u0009here\"" );
+    assertSame( names.get( 0 ), names.get( 1 ) );
+    assertSame( names.get( 0 ), names.get( 2 ) );
+    assertEquals( "tab\there", names.get( 3 ) );
+    assertSame( names.get( 3 ), names.get( 4 ) );
+  }
+
+  public void testLongNamesAreNotInterned()
+  {
+    String max = repeat( 'a', 64 );
+    String tooLong = repeat( 'b', 65 );
+    List<String> names = names( quote( max ) + quote( max ) + quote( tooLong ) + quote( tooLong ) );
+    assertSame( names.get( 0 ), names.get( 1 ) );
+    assertEquals( tooLong, names.get( 2 ) );
+    assertEquals( names.get( 2 ), names.get( 3 ) );
+    assertNotSame( names.get( 2 ), names.get( 3 ) );
+  }
+
+  public void testFullTable()
+  {
+    StringBuilder json = new StringBuilder();
+    for( int i = 0; i < 4096; i++ )
+    {
+      json.append( quote( "n" + i ) );
+    }
+    // the table is full, these are not added
+    json.append( quote( "extra" ) ).append( quote( "extra" ) );
+    // these were added before the table filled
+    json.append( quote( "n0" ) ).append( quote( "n4095" ) );
+
+    List<String> names = names( json.toString() );
+    assertEquals( 4100, names.size() );
+    assertEquals( "extra", names.get( 4096 ) );
+    assertEquals( names.get( 4096 ), names.get( 4097 ) );
+    assertNotSame( names.get( 4096 ), names.get( 4097 ) );
+    assertSame( names.get( 0 ), names.get( 4098 ) );
+    assertSame( names.get( 4095 ), names.get( 4099 ) );
+  }
+
+  private static List<String> names( String json )
+  {
+    Tokenizer tokenizer = new Tokenizer( new StringReader( json ), true );
+    List<String> names = new ArrayList<>();
+    for( Token token = tokenizer.next( true ); token.getType() != TokenType.EOF; token = tokenizer.next( true ) )
+    {
+      assertEquals( TokenType.STRING, token.getType() );
+      names.add( token.getString() );
+    }
+    return names;
+  }
+
+  private static String quote( String name )
+  {
+    return '"' + name + "\" ";
+  }
+
+  private static String repeat( char c, int count )
+  {
+    StringBuilder sb = new StringBuilder();
+    for( int i = 0; i < count; i++ )
+    {
+      sb.append( c );
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,31 @@
+package manifold.api.json;
+
+import java.io.StringReader;
+import junit.framework.TestCase;
+
+public class TokenizerTest extends TestCase
+{
+  public void testUnicodeEscapes()
+  {
+    assertEquals( "A\u00e9\u00e9\u20ac", string( "\"\\u0041\\u00e9\\u00E9\\u20aC\"" ) );
+    assertEquals( "\uabcd\uABCD\uffff", string( "\"\\uabcd\\uABCD\\uFFff\"" ) );
+  }
+
+  public void testBadUnicodeEscape()
+  {
+    assertEquals( TokenType.ERROR, token( "\"\\u00g9\"" ).getType() );
+    assertEquals( TokenType.ERROR, token( "\"\\u00\"" ).getType() );
+  }
+
+  private static String string( String json )
+  {
+    Token token = token( json );
+    assertEquals( TokenType.STRING, token.getType() );
+    return token.getString();
+  }
+
+  private static Token token( String json )
+  {
+    return new Tokenizer( new StringReader( json ) ).next( false );
+  }
+}
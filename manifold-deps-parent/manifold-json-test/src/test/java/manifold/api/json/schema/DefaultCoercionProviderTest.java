@@ -0,0 +1,98 @@
+package manifold.api.json.schema;
+
+import java.time.LocalDate;
+import junit.framework.TestCase;
+import manifold.ext.api.IBindingType;
+
+import static manifold.ext.api.ICallHandler.UNHANDLED;
+
+public class DefaultCoercionProviderTest extends TestCase
+{
+  public void testClassDecidedExceptForEnums()
+  {
+    DefaultCoercionProvider provider = new DefaultCoercionProvider();
+    assertTrue( provider.isClassDecided() );
+    assertTrue( provider.isClassDecided( String.class ) );
+    assertTrue( provider.isClassDecided( LocalDate.class ) );
+    // the value is looked up in the enum's constants
+    assertFalse( provider.isClassDecided( Color.class ) );
+    assertSame( Color.Red, provider.coerce( "red", Color.class ) );
+    assertSame( UNHANDLED, provider.coerce( "blue", Color.class ) );
+  }
+
+  public void testEnumOfNumbers()
+  {
+    DefaultCoercionProvider provider = new DefaultCoercionProvider();
+    assertSame( Size.Small, provider.coerce( 1, Size.class ) );
+    assertSame( Size.Large, provider.coerce( 2L, Size.class ) );
+    assertSame( Size.Large, provider.coerce( "2", Size.class ) );
+    assertSame( Size.Unknown, provider.coerce( "none", Size.class ) );
+    // neither converts to an Integer, these match no constant
+    assertSame( UNHANDLED, provider.coerce( "big", Size.class ) );
+    assertSame( UNHANDLED, provider.coerce( "99999999999", Size.class ) );
+    assertSame( UNHANDLED, provider.coerce( "1.5", Size.class ) );
+    // digits of any script parse as an Integer
+    assertSame( Size.Large, provider.coerce( "\u0662", Size.class ) );
+  }
+
+  public void testEnumOfDecimalsParsesAsDouble()
+  {
+    DefaultCoercionProvider provider = new DefaultCoercionProvider();
+    assertSame( Weight.Half, provider.coerce( "0.5", Weight.class ) );
+    // the forms Double.parseDouble accepts
+    assertSame( Weight.Half, provider.coerce( " 0.5 ", Weight.class ) );
+    assertSame( Weight.Half, provider.coerce( "0.5d", Weight.class ) );
+    assertSame( Weight.Half, provider.coerce( "0.5f", Weight.class ) );
+    assertSame( Weight.Half, provider.coerce( "0x1p-1", Weight.class ) );
+    assertSame( Weight.Infinite, provider.coerce( "Infinity", Weight.class ) );
+    assertSame( UNHANDLED, provider.coerce( "half", Weight.class ) );
+    assertSame( UNHANDLED, provider.coerce( "0.5 kg", Weight.class ) );
+  }
+
+  public enum Weight implements IBindingType
+  {
+    Half( 0.5 ), Infinite( Double.POSITIVE_INFINITY );
+
+    private final double _value;
+
+    Weight( double value )
+    {
+      _value = value;
+    }
+
+    @Override
+    public Object toBindingValue()
+    {
+      return _value;
+    }
+  }
+
+  public enum Size implements IBindingType
+  {
+    Small( 1 ), Large( 2 ), Unknown( "none" );
+
+    private final Object _value;
+
+    Size( Object value )
+    {
+      _value = value;
+    }
+
+    @Override
+    public Object toBindingValue()
+    {
+      return _value;
+    }
+  }
+
+  public enum Color implements IBindingType
+  {
+    Red;
+
+    @Override
+    public Object toBindingValue()
+    {
+      return "red";
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package manifold.internal.javac;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import junit.framework.TestCase;
+import manifold.api.host.IModule;
+import manifold.api.json.JsonTypeManifold;
+import manifold.api.type.ContributorKind;
+import manifold.api.type.ITypeManifold;
+import manifold.internal.host.RuntimeManifoldHost;
+import manifold.util.concurrent.ConcurrentHashSet;
+
+/**
+ * Generates the JSON types of this module on prefetch workers, as javac does with {@code -Dmanifold.javac.prefetch}
+ */
+public class JsonPrefetchTest extends TestCase
+{
+  private static final DiagnosticListener<JavaFileObject> IGNORE = diagnostic -> {};
+
+  public void testJsonTypesGeneratedOnWorkers() throws Exception
+  {
+    IModule module = RuntimeManifoldHost.get().getSingleModule();
+    List<String> fqns = module.getTypeManifolds().stream()
+      .filter( tm -> tm instanceof JsonTypeManifold )
+      .flatMap( tm -> tm.getAllTypeNames().stream() )
+      // a type with an extension class is produced on the javac thread, see SourceSupplier#isPrefetchable()
+      .filter( fqn -> module.findTypeManifoldsFor( fqn ).stream()
+        .noneMatch( tm -> tm.getContributorKind() == ContributorKind.Supplemental ) )
+      .sorted()
+      .collect( Collectors.toList() );
+    assertTrue( fqns.size() > 10 );
+    assertFalse( fqns.contains( "abc.Person" ) );
+    assertFalse( new SourceSupplier( "abc.Person", module.findTypeManifoldsFor( "abc.Person" ), () -> "" )
+      .isPrefetchable() );
+
+    List<String> expected = new ArrayList<>();
+    for( String fqn: fqns )
+    {
+      expected.add( produce( module, fqn ) );
+    }
+
+    System.setProperty( SourcePrefetcher.PREFETCH, "4" );
+    SourcePrefetcher prefetcher = SourcePrefetcher.make();
+    System.clearProperty( SourcePrefetcher.PREFETCH );
+
+    Set<Thread> producingThreads = new ConcurrentHashSet<>();
+    CountDownLatch produced = new CountDownLatch( fqns.size() );
+    List<GeneratedJavaStubFileObject> stubs = new ArrayList<>();
+    for( String fqn: fqns )
+    {
+      Set<ITypeManifold> tms = module.findTypeManifoldsFor( fqn );
+      SourceSupplier supplier = new SourceSupplier( fqn, tms, () -> {
+        producingThreads.add( Thread.currentThread() );
+        try
+        {
+          return produce( module, fqn );
+        }
+        finally
+        {
+          produced.countDown();
+        }
+      } );
+      assertTrue( fqn, supplier.isPrefetchable() );
+      GeneratedJavaStubFileObject stub = new GeneratedJavaStubFileObject( fqn, supplier );
+      stub.prefetch( prefetcher );
+      stubs.add( stub );
+    }
+
+    // every source is produced before this thread reads any of them
+    assertTrue( produced.await( 60, TimeUnit.SECONDS ) );
+    for( int i = 0; i < fqns.size(); i++ )
+    {
+      assertEquals( fqns.get( i ), expected.get( i ), stubs.get( i ).getCharContent( true ).toString() );
+    }
+    assertFalse( producingThreads.isEmpty() );
+    for( Thread thread: producingThreads )
+    {
+      assertTrue( thread.getName(), thread.getName().startsWith( "manifold-prefetch" ) );
+    }
+  }
+
+  private static String produce( IModule module, String fqn )
+  {
+    return ((GeneratedJavaStubFileObject)module.produceFile( fqn, StandardLocation.SOURCE_PATH, IGNORE ))
+      .getCharContent( true ).toString();
+  }
+}
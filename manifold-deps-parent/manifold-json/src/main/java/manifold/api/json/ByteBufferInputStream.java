@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2018 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.api.json;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the remaining bytes of a buffer without copying them, e.g., a memory-mapped file. The buffer's position is
+ * advanced as bytes are read.
+ */
+class ByteBufferInputStream extends InputStream
+{
+  private final ByteBuffer _buffer;
+
+  ByteBufferInputStream( ByteBuffer buffer )
+  {
+    _buffer = buffer;
+  }
+
+  @Override
+  public int read()
+  {
+    return _buffer.hasRemaining() ? _buffer.get() & 0xff : -1;
+  }
+
+  @Override
+  public int read( byte[] b, int off, int len )
+  {
+    if( len == 0 )
+    {
+      return 0;
+    }
+    if( !_buffer.hasRemaining() )
+    {
+      return -1;
+    }
+    len = Math.min( len, _buffer.remaining() );
+    _buffer.get( b, off, len );
+    return len;
+  }
+
+  @Override
+  public int available()
+  {
+    return _buffer.remaining();
+  }
+}
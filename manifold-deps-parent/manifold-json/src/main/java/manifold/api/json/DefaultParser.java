@@ -16,6 +16,8 @@
 
 package manifold.api.json;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
 import java.util.List;
 import javax.script.ScriptException;
@@ -33,8 +35,20 @@ public class DefaultParser implements IJsonParser
   @Override
   public Object parseJson( String jsonText, boolean withBigNumbers, boolean withTokens ) throws ScriptException
   {
-    SimpleParserImpl parser = new SimpleParserImpl( new Tokenizer( new StringReader( jsonText ) ), withBigNumbers );
+    return parseJson( new StringReader( jsonText ), withBigNumbers, withTokens );
+  }
+
+  @Override
+  public Object parseJson( Reader jsonReader, boolean withBigNumbers, boolean withTokens ) throws ScriptException
+  {
+    Tokenizer tokenizer = new Tokenizer( jsonReader );
+    SimpleParserImpl parser = new SimpleParserImpl( tokenizer, withBigNumbers );
     Object result = parser.parse( withTokens );
+    IOException ioe = tokenizer.getIOException();
+    if( ioe != null )
+    {
+      throw new ScriptException( ioe );
+    }
     List<String> errors = parser.getErrors();
     if( errors.size() != 0 )
     {
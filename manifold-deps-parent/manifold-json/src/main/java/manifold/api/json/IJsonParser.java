@@ -16,7 +16,12 @@
 
 package manifold.api.json;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import javax.script.ScriptException;
+import manifold.util.StreamUtil;
 
 /**
  */
@@ -36,6 +41,41 @@ public interface IJsonParser
    */
   Object parseJson( String jsonText, boolean withBigNumbers, boolean withTokens ) throws ScriptException;
 
+  /**
+   * Parse Json text read from {@code jsonReader}, which is not closed. See {@link #parseJson(String, boolean, boolean)}.
+   * <p/>
+   * The default implementation reads the full text first, implementations should override it to parse as they read.
+   */
+  default Object parseJson( Reader jsonReader, boolean withBigNumbers, boolean withTokens ) throws ScriptException
+  {
+    try
+    {
+      return parseJson( StreamUtil.getContent( jsonReader ), withBigNumbers, withTokens );
+    }
+    catch( IOException e )
+    {
+      throw new ScriptException( e );
+    }
+  }
+
+  /**
+   * Parse UTF-8 encoded Json text read from {@code jsonStream}, which is not closed. See
+   * {@link #parseJson(String, boolean, boolean)}.
+   */
+  default Object parseJson( InputStream jsonStream, boolean withBigNumbers, boolean withTokens ) throws ScriptException
+  {
+    return parseJson( StreamUtil.getInputStreamReader( jsonStream ), withBigNumbers, withTokens );
+  }
+
+  /**
+   * Parse UTF-8 encoded Json text from the remaining bytes of {@code jsonBytes}. See
+   * {@link #parseJson(String, boolean, boolean)}.
+   */
+  default Object parseJson( ByteBuffer jsonBytes, boolean withBigNumbers, boolean withTokens ) throws ScriptException
+  {
+    return parseJson( new ByteBufferInputStream( jsonBytes ), withBigNumbers, withTokens );
+  }
+
   static IJsonParser getDefaultParser()
   {
     return DefaultParser.instance();
@@ -17,7 +17,10 @@
 package manifold.api.json;
 
 
+import java.io.InputStream;
+import java.io.Reader;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.List;
 import javax.script.Bindings;
 import javax.script.ScriptException;
@@ -96,6 +99,72 @@ public class Json
     }
   }
 
+  /**
+   * Parse JSON read from {@code json} without first reading it into a string. The reader is not closed.
+   *
+   * @return A JSON value (primitive/boxed type, String, List of JSON values, or Bindings of String/JSON value)
+   */
+  @SuppressWarnings("UnusedDeclaration")
+  public static Object fromJson( Reader json )
+  {
+    return fromJson( json, false, false );
+  }
+  public static Object fromJson( Reader json, boolean withBigNumbers, boolean withTokens )
+  {
+    try
+    {
+      return PARSER.get().parseJson( json, withBigNumbers, withTokens );
+    }
+    catch( ScriptException e )
+    {
+      throw new RuntimeException( e );
+    }
+  }
+
+  /**
+   * Parse UTF-8 encoded JSON read from {@code json}. The stream is not closed.
+   *
+   * @return A JSON value (primitive/boxed type, String, List of JSON values, or Bindings of String/JSON value)
+   */
+  @SuppressWarnings("UnusedDeclaration")
+  public static Object fromJson( InputStream json )
+  {
+    return fromJson( json, false, false );
+  }
+  public static Object fromJson( InputStream json, boolean withBigNumbers, boolean withTokens )
+  {
+    try
+    {
+      return PARSER.get().parseJson( json, withBigNumbers, withTokens );
+    }
+    catch( ScriptException e )
+    {
+      throw new RuntimeException( e );
+    }
+  }
+
+  /**
+   * Parse UTF-8 encoded JSON from the remaining bytes of {@code json}, e.g., a memory-mapped file.
+   *
+   * @return A JSON value (primitive/boxed type, String, List of JSON values, or Bindings of String/JSON value)
+   */
+  @SuppressWarnings("UnusedDeclaration")
+  public static Object fromJson( ByteBuffer json )
+  {
+    return fromJson( json, false, false );
+  }
+  public static Object fromJson( ByteBuffer json, boolean withBigNumbers, boolean withTokens )
+  {
+    try
+    {
+      return PARSER.get().parseJson( json, withBigNumbers, withTokens );
+    }
+    catch( ScriptException e )
+    {
+      throw new RuntimeException( e );
+    }
+  }
+
   /**
    * Makes a tree of structure types reflecting the Bindings.
    * <p/>
@@ -0,0 +1,450 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.api.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.script.Bindings;
+import javax.script.ScriptException;
+import manifold.ext.CompactMap;
+import manifold.ext.DataBindings;
+import manifold.ext.RuntimeMethods;
+import manifold.util.StreamUtil;
+
+/**
+ * A pull parser reporting JSON text as a sequence of {@link Event}s, so a document of any size is processed in constant
+ * memory. The source may have several top-level values separated by whitespace, such as newline-delimited JSON.
+ * <pre>
+ *   try( JsonStreamParser parser = new JsonStreamParser( reader ) )
+ *   {
+ *     while( parser.hasNext() )
+ *     {
+ *       switch( parser.next() )
+ *       {
+ *         case FIELD_NAME: ... parser.getFieldName() ...
+ *         case VALUE: ... parser.getValue() ...
+ *         ...
+ *       }
+ *     }
+ *   }
+ * </pre>
+ * Use {@link #readValue()} to materialize the object or array at the current event as {@link Bindings} or a
+ * {@link List}, and {@link #elements(Class)} to visit the elements of a large array one at a time as a JSON type:
+ * <pre>
+ *   Iterator&lt;Person&gt; persons = new JsonStreamParser( reader ).elements( Person.class );
+ * </pre>
+ * Errors in the JSON text and failures reading the source are thrown as a {@link RuntimeException} caused by a
+ * {@link ScriptException}, as with {@link Json#fromJson(Reader)}.
+ */
+public class JsonStreamParser implements Closeable
+{
+  public enum Event
+  {
+    START_OBJECT,
+    END_OBJECT,
+    START_ARRAY,
+    END_ARRAY,
+    FIELD_NAME,
+    /** A string, number, boolean or null value, see {@link #getValue()} */
+    VALUE
+  }
+
+  private enum State
+  {
+    TOP, VALUE, OBJECT_FIRST, OBJECT_NEXT, ARRAY_FIRST, ARRAY_NEXT
+  }
+
+  private final Reader _reader;
+  private final Tokenizer _tokenizer;
+  private final boolean _useBig;
+  private final CompactMap.Shapes _shapes;
+  private final Deque<Event> _containers;
+  private Token _token;
+  private State _state;
+  private Event _event;
+  private String _fieldName;
+  private Object _value;
+
+  public JsonStreamParser( Reader reader )
+  {
+    this( reader, false );
+  }
+
+  /**
+   * @param withBigNumbers Parse decimal numbers as BigDecimals and integers as BigIntegers, otherwise they are Double
+   *                       and Integer.
+   */
+  public JsonStreamParser( Reader reader, boolean withBigNumbers )
+  {
+    _reader = reader;
+    _tokenizer = new Tokenizer( reader );
+    _useBig = withBigNumbers;
+    _shapes = SimpleParserImpl.newShapes();
+    _containers = new ArrayDeque<>();
+    _state = State.TOP;
+    advance();
+  }
+
+  /**
+   * Parses UTF-8 encoded JSON from {@code stream}.
+   */
+  public JsonStreamParser( InputStream stream )
+  {
+    this( StreamUtil.getInputStreamReader( stream ) );
+  }
+
+  /**
+   * @return True if there is another event, false if the end of the source is reached.
+   */
+  public boolean hasNext()
+  {
+    return _state != State.TOP || _token.getType() != TokenType.EOF;
+  }
+
+  public Event next()
+  {
+    if( !hasNext() )
+    {
+      throw new NoSuchElementException();
+    }
+
+    switch( _state )
+    {
+      case OBJECT_NEXT:
+        if( _token.getType() != TokenType.RCURLY )
+        {
+          check( TokenType.COMMA, "," );
+          advance( true );
+          return fieldName();
+        }
+        // fall through
+      case OBJECT_FIRST:
+        return _token.getType() == TokenType.RCURLY ? endContainer( Event.END_OBJECT ) : fieldName();
+
+      case ARRAY_NEXT:
+        if( _token.getType() != TokenType.RSQUARE )
+        {
+          expect( TokenType.COMMA, "," );
+          return startValue();
+        }
+        // fall through
+      case ARRAY_FIRST:
+        return _token.getType() == TokenType.RSQUARE ? endContainer( Event.END_ARRAY ) : startValue();
+
+      default:
+        return startValue();
+    }
+  }
+
+  /**
+   * @return The current event, or null if {@link #next()} has not been called.
+   */
+  public Event getEvent()
+  {
+    return _event;
+  }
+
+  /**
+   * @return The name of the most recent {@link Event#FIELD_NAME}.
+   */
+  public String getFieldName()
+  {
+    return _fieldName;
+  }
+
+  /**
+   * @return The value of the current {@link Event#VALUE}: a String, Integer, Long, Double, BigInteger, BigDecimal,
+   * Boolean or null.
+   */
+  public Object getValue()
+  {
+    return _value;
+  }
+
+  /**
+   * @return The number of open objects and arrays, including one started by the current event.
+   */
+  public int getDepth()
+  {
+    return _containers.size();
+  }
+
+  /**
+   * Reads the value starting at the current event in full. At a {@link Event#START_OBJECT} or
+   * {@link Event#START_ARRAY} the parser advances to the matching end event.
+   *
+   * @return Bindings for an object, a List for an array, otherwise the value of the current {@link Event#VALUE}.
+   */
+  public Object readValue()
+  {
+    switch( checkValueStart() )
+    {
+      case START_OBJECT:
+      {
+        // same backing map as the tree parser
+        Map<String, Object> members = SimpleParserImpl.newMembersMap( _shapes );
+        Bindings bindings = new DataBindings( members );
+        while( next() != Event.END_OBJECT )
+        {
+          String key = _fieldName;
+          next();
+          bindings.put( key, readValue() );
+        }
+        SimpleParserImpl.trimMembersMap( members );
+        return bindings;
+      }
+      case START_ARRAY:
+      {
+        List<Object> list = new ArrayList<>();
+        while( next() != Event.END_ARRAY )
+        {
+          list.add( readValue() );
+        }
+        return list;
+      }
+      default:
+        return _value;
+    }
+  }
+
+  /**
+   * Skips the value starting at the current event, without materializing it.
+   */
+  public void skipValue()
+  {
+    if( checkValueStart() == Event.VALUE )
+    {
+      return;
+    }
+
+    int depth = getDepth();
+    do
+    {
+      next();
+    } while( getDepth() >= depth );
+  }
+
+  /**
+   * Visits array elements one at a time, each fully read with {@link #readValue()} and coerced to {@code type}. If
+   * {@code type} is a JSON type, each element is a view of its Bindings.
+   * <ul>
+   * <li>At a {@link Event#START_ARRAY} the elements of that array are visited.</li>
+   * <li>Before the first event, if the source is a top-level array its elements are visited, otherwise each top-level
+   * value is visited, as in newline-delimited JSON.</li>
+   * </ul>
+   */
+  public <E> Iterator<E> elements( Class<E> type )
+  {
+    boolean inArray;
+    if( _event == Event.START_ARRAY )
+    {
+      inArray = true;
+    }
+    else if( _event == null )
+    {
+      inArray = _token.getType() == TokenType.LSQUARE;
+      if( inArray )
+      {
+        next();
+      }
+    }
+    else
+    {
+      throw new IllegalStateException( "Expecting an array or the start of the source, found: " + _event );
+    }
+
+    return new Iterator<E>()
+    {
+      private boolean _done;
+      private boolean _hasPending;
+      private E _pending;
+
+      @Override
+      public boolean hasNext()
+      {
+        if( !_hasPending && !_done )
+        {
+          JsonStreamParser parser = JsonStreamParser.this;
+          if( inArray ? parser.next() == Event.END_ARRAY : !parser.hasNext() )
+          {
+            _done = true;
+          }
+          else
+          {
+            if( !inArray )
+            {
+              parser.next();
+            }
+            _pending = coerce( readValue(), type );
+            _hasPending = true;
+          }
+        }
+        return _hasPending;
+      }
+
+      @Override
+      public E next()
+      {
+        if( !hasNext() )
+        {
+          throw new NoSuchElementException();
+        }
+        E element = _pending;
+        _pending = null;
+        _hasPending = false;
+        return element;
+      }
+    };
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    _reader.close();
+  }
+
+  private static <E> E coerce( Object value, Class<E> type )
+  {
+    //noinspection unchecked
+    return type == Object.class ? (E)value : (E)RuntimeMethods.coerce( value, type );
+  }
+
+  private Event checkValueStart()
+  {
+    if( _event == Event.START_OBJECT || _event == Event.START_ARRAY || _event == Event.VALUE )
+    {
+      return _event;
+    }
+    throw new IllegalStateException( "Expecting the start of a value, found: " + _event );
+  }
+
+  private Event startValue()
+  {
+    switch( _token.getType() )
+    {
+      case LCURLY:
+        return startContainer( Event.START_OBJECT, State.OBJECT_FIRST );
+      case LSQUARE:
+        return startContainer( Event.START_ARRAY, State.ARRAY_FIRST );
+      case INTEGER:
+      case DOUBLE:
+        _value = SimpleParserImpl.parseNumber( _token, _useBig );
+        break;
+      case STRING:
+        _value = _token.getString();
+        break;
+      case TRUE:
+        _value = true;
+        break;
+      case FALSE:
+        _value = false;
+        break;
+      case NULL:
+        _value = null;
+        break;
+      default:
+        throw error( "Unexpected token '" + _token.getString() + "'" );
+    }
+    advance();
+    endValue();
+    return _event = Event.VALUE;
+  }
+
+  private Event startContainer( Event event, State state )
+  {
+    advance( event == Event.START_OBJECT );
+    _containers.push( event );
+    _state = state;
+    _value = null;
+    return _event = event;
+  }
+
+  private Event endContainer( Event event )
+  {
+    advance();
+    _containers.pop();
+    endValue();
+    _value = null;
+    return _event = event;
+  }
+
+  private void endValue()
+  {
+    Event container = _containers.peek();
+    _state = container == null
+             ? State.TOP
+             : container == Event.START_OBJECT ? State.OBJECT_NEXT : State.ARRAY_NEXT;
+  }
+
+  private Event fieldName()
+  {
+    if( _token.getType() != TokenType.STRING )
+    {
+      throw error( "expecting 'a string', found '" + _token.getString() + "'" );
+    }
+    _fieldName = _token.getString();
+    advance();
+    expect( TokenType.COLON, ":" );
+    _state = State.VALUE;
+    _value = null;
+    return _event = Event.FIELD_NAME;
+  }
+
+  private void expect( TokenType type, String s )
+  {
+    check( type, s );
+    advance();
+  }
+
+  private void check( TokenType type, String s )
+  {
+    if( _token.getType() != type )
+    {
+      throw error( "expecting '" + s + "', found '" + _token.getString() + "'" );
+    }
+  }
+
+  private void advance()
+  {
+    advance( false );
+  }
+
+  private void advance( boolean toMemberName )
+  {
+    _token = _tokenizer.next( toMemberName );
+    IOException ioe = _tokenizer.getIOException();
+    if( ioe != null )
+    {
+      throw new RuntimeException( new ScriptException( ioe ) );
+    }
+  }
+
+  private RuntimeException error( String msg )
+  {
+    return new RuntimeException(
+      new ScriptException( "[" + _token.getLineNumber() + ":" + _token.getColumn() + "] " + msg ) );
+  }
+}
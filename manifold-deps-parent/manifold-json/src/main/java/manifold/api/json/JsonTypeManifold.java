@@ -36,4 +36,14 @@ public class JsonTypeManifold extends AbstractJsonTypeManifold<JsonModel>
   {
     return fileExtension.equals( FILE_EXTENSION );
   }
+
+  /**
+   * A model parses its own file, a {@code $ref} to another file is transformed in the thread's own
+   * {@link manifold.api.json.schema.JsonSchemaTransformerSession}, and rendering touches only the model's types.
+   */
+  @Override
+  public boolean isThreadSafe()
+  {
+    return true;
+  }
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.api.json;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Function;
+import manifold.util.JsonUtil;
+import manifold.util.StreamUtil;
+
+/**
+ * Sends JSON requests over HTTP and reads their responses, shared by the {@code URL} extension methods, see
+ * {@code ManUrlExt}, and {@link ResponseCache}.
+ */
+public final class RequestUtil
+{
+  /**
+   * System property, if true a request's JSON is streamed as it is written using chunked transfer encoding. Otherwise,
+   * the JSON is buffered and sent with its length, since not all servers accept a chunked request.
+   */
+  private static final String CHUNKED_REQUESTS = "manifold.json.chunkedRequests";
+
+  private RequestUtil()
+  {
+  }
+
+  /**
+   * Opens a connection to {@code url} and sends the request, the response is not yet read, see
+   * {@link #receiveResponse(HttpURLConnection, Function)}. Note for GET and DELETE {@code jsonValue} is not sent, the
+   * url should already have it.
+   */
+  public static HttpURLConnection openRequest( URL url, String httpMethod, Object jsonValue,
+                                               Map<String, String> headers, int timeout ) throws IOException
+  {
+    HttpURLConnection conn = (HttpURLConnection)url.openConnection();
+    conn.setRequestMethod( httpMethod );
+    conn.setRequestProperty( "Content-Type", "application/x-www-form-urlencoded" );
+    headers.forEach( conn::setRequestProperty );
+    conn.setConnectTimeout( timeout );
+    if( jsonValue != null &&
+        !httpMethod.equals( "GET" ) && !httpMethod.equals( "DELETE" ) )
+    {
+      sendJsonValue( jsonValue, conn );
+    }
+    return conn;
+  }
+
+  private static void sendJsonValue( Object jsonValue, HttpURLConnection conn ) throws IOException
+  {
+    conn.setDoOutput( true );
+    if( Boolean.getBoolean( CHUNKED_REQUESTS ) )
+    {
+      // stream the JSON as it is written, the length is not known beforehand
+      conn.setChunkedStreamingMode( 0 );
+      try( Writer out = new BufferedWriter( new OutputStreamWriter( conn.getOutputStream(), StandardCharsets.UTF_8 ) ) )
+      {
+        JsonUtil.toJson( out, jsonValue, false );
+      }
+    }
+    else
+    {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try( Writer out = new OutputStreamWriter( bytes, StandardCharsets.UTF_8 ) )
+      {
+        JsonUtil.toJson( out, jsonValue, false );
+      }
+      conn.setFixedLengthStreamingMode( bytes.size() );
+      try( OutputStream out = conn.getOutputStream() )
+      {
+        bytes.writeTo( out );
+      }
+    }
+  }
+
+  /**
+   * Parses the response as it is read. Since the connection is not disconnected and the response, or the error
+   * response, is read to the end, the underlying connection is kept alive for reuse by later requests to the same
+   * host, see the {@code http.keepAlive} and {@code http.maxConnections} system properties.
+   */
+  public static <R> R receiveResponse( HttpURLConnection conn, Function<Reader, R> parser ) throws IOException
+  {
+    InputStream stream;
+    try
+    {
+      stream = conn.getInputStream();
+    }
+    catch( IOException e )
+    {
+      InputStream error = conn.getErrorStream();
+      if( error != null )
+      {
+        try( InputStream in = error )
+        {
+          drain( in );
+        }
+      }
+      throw e;
+    }
+
+    try( InputStream in = stream )
+    {
+      R result = parser.apply( StreamUtil.getInputStreamReader( in ) );
+      drain( in );
+      return result;
+    }
+  }
+
+  /**
+   * Reads {@code stream} to the end, so its connection may be reused.
+   */
+  public static void drain( InputStream stream ) throws IOException
+  {
+    byte[] buffer = new byte[1024];
+    //noinspection StatementWithEmptyBody
+    while( stream.read( buffer ) >= 0 );
+  }
+
+  /**
+   * @return The full text content of {@code reader}, for use as a plain text response parser.
+   */
+  public static String readContent( Reader reader )
+  {
+    try
+    {
+      return StreamUtil.getContent( reader );
+    }
+    catch( IOException e )
+    {
+      throw new RuntimeException( e );
+    }
+  }
+}
@@ -16,6 +16,8 @@
 
 package manifold.api.json;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
@@ -23,7 +25,17 @@ import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import manifold.json.extensions.java.net.URL.ManUrlExt;
+import manifold.util.concurrent.LockingLazyVar;
 
 /**
  * This class defines methods to simplify making HTTP requests involved with basic REST API calls supporting via GET,
@@ -42,6 +54,13 @@ import manifold.json.extensions.java.net.URL.ManUrlExt;
  * user.setName("Scott");
  * req.putOne("/$id", user);
  * </code></pre>
+ * Each request method has an {@code Async} variant returning a {@link CompletableFuture}, the request is made on the
+ * executor set with {@link #withExecutor(Executor)}:
+ * <pre><code>
+ * CompletableFuture&lt;User&gt; user = req.getOneAsync("/$id");
+ * </code></pre>
+ * Responses are parsed as they are read and connections are kept alive for reuse by later requests to the same host.
+ * <p/>
  * Note this class is intended for <i>basic</i> REST API use and is designed to supplement more capable REST API
  * frameworks such as Spring.
  *
@@ -51,10 +70,31 @@ import manifold.json.extensions.java.net.URL.ManUrlExt;
  */
 public class Requester<T>
 {
+  /**
+   * Runs as many requests at once as the JDK keeps connections alive per host, {@code http.maxConnections}, further
+   * requests wait in its queue. Idle threads time out.
+   */
+  private static final LockingLazyVar<ExecutorService> DEFAULT_EXECUTOR =
+    LockingLazyVar.make( () -> {
+      int threads = Math.max( 1, Integer.getInteger( "http.maxConnections", 5 ) );
+      AtomicInteger count = new AtomicInteger();
+      ThreadFactory threadFactory = r -> {
+        Thread thread = new Thread( r, "manifold-requester-" + count.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+      };
+      ThreadPoolExecutor executor = new ThreadPoolExecutor( threads, threads, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), threadFactory );
+      executor.allowCoreThreadTimeOut( true );
+      return executor;
+    } );
+
   private final String _urlBase;
   private Format _format;
   private Map<String, String> _headers;
   private int _timeout;
+  private Executor _executor;
+  private ResponseCache _cache;
 
   public enum Format
   {
@@ -143,6 +183,27 @@ public class Requester<T>
     return this;
   }
 
+  /**
+   * Cache the responses of GET requests in {@code cache}, so repeated requests skip the server, or at least the
+   * transfer and parsing of an unchanged response. See {@link ResponseCache}.
+   */
+  public Requester<T> withCache( ResponseCache cache )
+  {
+    _cache = cache;
+    return this;
+  }
+
+  /**
+   * The executor making the requests of the {@code Async} methods, such as {@link #getOneAsync(String)}. The default
+   * executor is a shared pool of daemon threads, as many as {@code http.maxConnections}, default 5. Requests beyond
+   * that wait for a thread.
+   */
+  public Requester<T> withExecutor( Executor executor )
+  {
+    _executor = executor;
+    return this;
+  }
+
   /**
    * Use HTTP GET for a single {@code T} JSON API object specified in the {@code urlSuffix}, such as {@code "/108"}.
    *
@@ -205,6 +266,25 @@ public class Requester<T>
     return request( urlSuffix, Http.GET, format, arguments );
   }
 
+  /**
+   * Same as calling:
+   * {@link #getOneAsync(String, Object, Format)} with {@code getOneAsync(urlSuffix, null, _format)}
+   */
+  public CompletableFuture<T> getOneAsync( String urlSuffix )
+  {
+    return getOneAsync( urlSuffix, null, _format );
+  }
+
+  /**
+   * Makes the request of {@link #getOne(String, Object, Format)} on this requester's executor.
+   *
+   * @return A future completing with the response, or exceptionally if the request fails
+   */
+  public CompletableFuture<T> getOneAsync( String urlSuffix, Object arguments, Format format )
+  {
+    return requestAsync( urlSuffix, Http.GET, format, arguments );
+  }
+
   /**
    * Uses HTTP GET for the complete list of {@code T} JSON API objects as a {@code IJsonList<T>}.
    *
@@ -261,6 +341,25 @@ public class Requester<T>
     return request( urlSuffix, Http.GET, format, arguments );
   }
 
+  /**
+   * Same as calling:
+   * {@link #getManyAsync(String, Object, Format)} with {@code getManyAsync(urlSuffix, null, _format)}
+   */
+  public CompletableFuture<IJsonList<T>> getManyAsync( String urlSuffix )
+  {
+    return getManyAsync( urlSuffix, null, _format );
+  }
+
+  /**
+   * Makes the request of {@link #getMany(String, Object, Format)} on this requester's executor.
+   *
+   * @return A future completing with the response, or exceptionally if the request fails
+   */
+  public CompletableFuture<IJsonList<T>> getManyAsync( String urlSuffix, Object arguments, Format format )
+  {
+    return requestAsync( urlSuffix, Http.GET, format, arguments );
+  }
+
   /**
    * Same as calling:
    * {@link #postOne(String, Object, Format)} with {@code postOne("", payload, _format)}
@@ -295,6 +394,25 @@ public class Requester<T>
     return request( urlSuffix, Http.POST, format, payload );
   }
 
+  /**
+   * Same as calling:
+   * {@link #postOneAsync(String, Object, Format)} with {@code postOneAsync(urlSuffix, payload, _format)}
+   */
+  public <R> CompletableFuture<R> postOneAsync( String urlSuffix, T payload )
+  {
+    return postOneAsync( urlSuffix, payload, _format );
+  }
+
+  /**
+   * Makes the request of {@link #postOne(String, Object, Format)} on this requester's executor.
+   *
+   * @return A future completing with the response, or exceptionally if the request fails
+   */
+  public <R> CompletableFuture<R> postOneAsync( String urlSuffix, T payload, Format format )
+  {
+    return requestAsync( urlSuffix, Http.POST, format, payload );
+  }
+
   /**
    * Same as calling:
    * {@link #postMany(String, List, Format)} with {@code postMany("", payload, _format)}
@@ -329,6 +447,25 @@ public class Requester<T>
     return request( urlSuffix, Http.POST, format, payload );
   }
 
+  /**
+   * Same as calling:
+   * {@link #postManyAsync(String, List, Format)} with {@code postManyAsync(urlSuffix, payload, _format)}
+   */
+  public <R> CompletableFuture<R> postManyAsync( String urlSuffix, List<T> payload )
+  {
+    return postManyAsync( urlSuffix, payload, _format );
+  }
+
+  /**
+   * Makes the request of {@link #postMany(String, List, Format)} on this requester's executor.
+   *
+   * @return A future completing with the response, or exceptionally if the request fails
+   */
+  public <R> CompletableFuture<R> postManyAsync( String urlSuffix, List<T> payload, Format format )
+  {
+    return requestAsync( urlSuffix, Http.POST, format, payload );
+  }
+
   /**
    * Same as calling:
    * {@link #putOne(String, Object, Format)} with {@code putOne("", payload, _format)}
@@ -363,6 +500,25 @@ public class Requester<T>
     return request( urlSuffix, Http.PUT, format, payload );
   }
 
+  /**
+   * Same as calling:
+   * {@link #putOneAsync(String, Object, Format)} with {@code putOneAsync(urlSuffix, payload, _format)}
+   */
+  public <R> CompletableFuture<R> putOneAsync( String urlSuffix, T payload )
+  {
+    return putOneAsync( urlSuffix, payload, _format );
+  }
+
+  /**
+   * Makes the request of {@link #putOne(String, Object, Format)} on this requester's executor.
+   *
+   * @return A future completing with the response, or exceptionally if the request fails
+   */
+  public <R> CompletableFuture<R> putOneAsync( String urlSuffix, T payload, Format format )
+  {
+    return requestAsync( urlSuffix, Http.PUT, format, payload );
+  }
+
   /**
    * Same as calling:
    * {@link #putMany(String, List, Format)} with {@code putMany("", payload, _format)}
@@ -397,6 +553,25 @@ public class Requester<T>
     return request( urlSuffix, Http.PUT, format, payload );
   }
 
+  /**
+   * Same as calling:
+   * {@link #putManyAsync(String, List, Format)} with {@code putManyAsync(urlSuffix, payload, _format)}
+   */
+  public <R> CompletableFuture<R> putManyAsync( String urlSuffix, List<T> payload )
+  {
+    return putManyAsync( urlSuffix, payload, _format );
+  }
+
+  /**
+   * Makes the request of {@link #putMany(String, List, Format)} on this requester's executor.
+   *
+   * @return A future completing with the response, or exceptionally if the request fails
+   */
+  public <R> CompletableFuture<R> putManyAsync( String urlSuffix, List<T> payload, Format format )
+  {
+    return requestAsync( urlSuffix, Http.PUT, format, payload );
+  }
+
   /**
    * Same as calling:
    * {@link #patchOne(String, Object, Format)} with {@code patchOne("", payload, _format)}
@@ -431,6 +606,25 @@ public class Requester<T>
     return request( urlSuffix, Http.PATCH, format, payload );
   }
 
+  /**
+   * Same as calling:
+   * {@link #patchOneAsync(String, Object, Format)} with {@code patchOneAsync(urlSuffix, payload, _format)}
+   */
+  public <R> CompletableFuture<R> patchOneAsync( String urlSuffix, T payload )
+  {
+    return patchOneAsync( urlSuffix, payload, _format );
+  }
+
+  /**
+   * Makes the request of {@link #patchOne(String, Object, Format)} on this requester's executor.
+   *
+   * @return A future completing with the response, or exceptionally if the request fails
+   */
+  public <R> CompletableFuture<R> patchOneAsync( String urlSuffix, T payload, Format format )
+  {
+    return requestAsync( urlSuffix, Http.PATCH, format, payload );
+  }
+
   /**
    * Same as calling:
    * {@link #patchMany(String, List, Format)} with {@code patchMany("", payload, _format)}
@@ -465,6 +659,25 @@ public class Requester<T>
     return request( urlSuffix, Http.PATCH, format, payload );
   }
 
+  /**
+   * Same as calling:
+   * {@link #patchManyAsync(String, List, Format)} with {@code patchManyAsync(urlSuffix, payload, _format)}
+   */
+  public <R> CompletableFuture<R> patchManyAsync( String urlSuffix, List<T> payload )
+  {
+    return patchManyAsync( urlSuffix, payload, _format );
+  }
+
+  /**
+   * Makes the request of {@link #patchMany(String, List, Format)} on this requester's executor.
+   *
+   * @return A future completing with the response, or exceptionally if the request fails
+   */
+  public <R> CompletableFuture<R> patchManyAsync( String urlSuffix, List<T> payload, Format format )
+  {
+    return requestAsync( urlSuffix, Http.PATCH, format, payload );
+  }
+
   /**
    * Same as calling:
    * {@link #delete(String, Object, Format)} with {@code delete("", arguments, _format)}
@@ -508,26 +721,102 @@ public class Requester<T>
     return request( urlSuffix, Http.DELETE, format, arguments );
   }
 
+  /**
+   * Same as calling:
+   * {@link #deleteAsync(String, Object, Format)} with {@code deleteAsync(urlSuffix, arguments, _format)}
+   */
+  public <R> CompletableFuture<R> deleteAsync( String urlSuffix, Object arguments )
+  {
+    return deleteAsync( urlSuffix, arguments, _format );
+  }
+
+  /**
+   * Makes the request of {@link #delete(String, Object, Format)} on this requester's executor.
+   *
+   * @return A future completing with the response, or exceptionally if the request fails
+   */
+  public <R> CompletableFuture<R> deleteAsync( String urlSuffix, Object arguments, Format format )
+  {
+    return requestAsync( urlSuffix, Http.DELETE, format, arguments );
+  }
+
+
+  private <R> CompletableFuture<R> requestAsync( String urlSuffix, Http method, Format format, Object jsonValue )
+  {
+    // the settings at the time of the call apply, regardless of later withXxx() calls
+    Map<String, String> headers = new HashMap<>( _headers );
+    int timeout = _timeout;
+    Executor executor = _executor == null ? DEFAULT_EXECUTOR.get() : _executor;
+    return CompletableFuture.supplyAsync(
+      () -> request( urlSuffix, method, format, jsonValue, headers, timeout ), executor );
+  }
 
   private <R> R request( String urlSuffix, Http method, Format format, Object jsonValue )
   {
+    return request( urlSuffix, method, format, jsonValue, new HashMap<>( _headers ), _timeout );
+  }
+
+  private <R> R request( String urlSuffix, Http method, Format format, Object jsonValue,
+                         Map<String, String> headers, int timeout )
+  {
+    switch( format )
+    {
+      case Json:
+        headers.put( "Accept", "application/json" );
+        break;
+      case Yaml:
+        headers.put( "Accept", "application/x-yaml, application/yaml, text/yaml;q=0.9" );
+        break;
+    }
+
+    ResponseCache cache = _cache;
+    if( cache != null && method == Http.GET )
+    {
+      return Request.send( ( url, p, m ) -> getCached( cache, url, p, format, headers, timeout ),
+        method, jsonValue, _urlBase, urlSuffix );
+    }
+
     switch( format )
     {
       case Json:
-        _headers.put( "Accept", "application/json" );
-        return Request.send( ( url, p, m ) -> ManUrlExt.sendJsonRequest( url, m, jsonValue, _headers, _timeout ),
+        return Request.send( ( url, p, m ) -> ManUrlExt.sendJsonRequest( url, m, jsonValue, headers, timeout ),
           method, jsonValue, _urlBase, urlSuffix );
       case Yaml:
-        _headers.put( "Accept", "application/x-yaml, application/yaml, text/yaml;q=0.9" );
-        return Request.send( ( url, p, m ) -> ManUrlExt.sendYamlRequest( url, m, jsonValue, _headers, _timeout ),
+        return Request.send( ( url, p, m ) -> ManUrlExt.sendYamlRequest( url, m, jsonValue, headers, timeout ),
           method, jsonValue, _urlBase, urlSuffix );
       case Text:
-        return Request.send( ( url, p, m ) -> ManUrlExt.sendPlainTextRequest( url, m, jsonValue, _headers, _timeout ),
+        return Request.send( ( url, p, m ) -> ManUrlExt.sendPlainTextRequest( url, m, jsonValue, headers, timeout ),
           method, jsonValue, _urlBase, urlSuffix );
     }
     throw new IllegalArgumentException( "format: " + format );
   }
 
+  private static Object getCached( ResponseCache cache, URL url, Object arguments, Format format,
+                                   Map<String, String> headers, int timeout )
+  {
+    Function<Reader, ?> parser;
+    switch( format )
+    {
+      case Json:
+        parser = Json::fromJson;
+        break;
+      case Yaml:
+        parser = Yaml::fromYaml;
+        break;
+      default:
+        parser = RequestUtil::readContent;
+    }
+
+    try
+    {
+      return cache.get( ManUrlExt.makeUrl( url.toString(), arguments ), headers, timeout, parser );
+    }
+    catch( IOException e )
+    {
+      throw new RuntimeException( e );
+    }
+  }
+
   @FunctionalInterface
   private interface Request
   {
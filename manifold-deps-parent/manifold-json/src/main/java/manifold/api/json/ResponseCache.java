@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2019 - Manifold Systems LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package manifold.api.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import manifold.ext.DataBindings;
+import manifold.util.JsonUtil;
+import manifold.util.concurrent.Cache;
+
+/**
+ * Caches the parsed responses of HTTP GET requests made with a {@link Requester}, see
+ * {@link Requester#withCache(ResponseCache)}. A cache may be shared by several requesters.
+ * <p/>
+ * Responses are keyed by the request URL, including its arguments, and the request headers. A cached response is used
+ * without a request until it is older than the time-to-live. After that, if the response had an {@code ETag}, the
+ * request is made with {@code If-None-Match} and a {@code 304 Not Modified} response renews the cached response,
+ * otherwise the new response replaces it. When the cache is full responses are evicted, favoring those used recently.
+ * <p/>
+ * Each request is answered with a deep copy of the cached response, so changes to it do not affect the cache.
+ */
+public class ResponseCache
+{
+  /** Put in the underlying cache for a key without a response */
+  private static final Entry NONE = new Entry( null, null, 0 );
+
+  private final Cache<String, Entry> _entries;
+  private final long _ttl;
+
+  //statistics
+  private final AtomicInteger _hits = new AtomicInteger();
+  private final AtomicInteger _revalidations = new AtomicInteger();
+  private final AtomicInteger _misses = new AtomicInteger();
+
+  /**
+   * @param maxSize The maximum number of cached responses
+   * @param ttl     The time a cached response is used without a request
+   * @param unit    The unit of {@code ttl}
+   */
+  public ResponseCache( int maxSize, long ttl, TimeUnit unit )
+  {
+    _entries = new Cache<>( "Response cache", maxSize, key -> NONE );
+    _ttl = unit.toNanos( ttl );
+  }
+
+  Object get( URL url, Map<String, String> headers, int timeout, Function<Reader, ?> parser ) throws IOException
+  {
+    String key = url + "\n" + new TreeMap<>( headers );
+    Entry entry = _entries.get( key );
+    if( entry == NONE )
+    {
+      entry = null;
+    }
+    else if( System.nanoTime() - entry._expires < 0 )
+    {
+      _hits.incrementAndGet();
+      return copy( entry._value );
+    }
+
+    HttpURLConnection conn = RequestUtil.openRequest( url, "GET", null, headers, timeout );
+    if( entry != null && entry._etag != null )
+    {
+      conn.setRequestProperty( "If-None-Match", entry._etag );
+    }
+    if( entry != null && entry._etag != null && conn.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED )
+    {
+      try( InputStream stream = conn.getInputStream() )
+      {
+        RequestUtil.drain( stream );
+      }
+      _revalidations.incrementAndGet();
+      _entries.put( key, new Entry( entry._value, entry._etag, System.nanoTime() + _ttl ) );
+      return copy( entry._value );
+    }
+
+    Object value = RequestUtil.receiveResponse( conn, parser );
+    _misses.incrementAndGet();
+    String cacheControl = conn.getHeaderField( "Cache-Control" );
+    if( cacheControl != null && cacheControl.contains( "no-store" ) )
+    {
+      _entries.evict( key );
+      return value;
+    }
+    _entries.put( key, new Entry( value, conn.getHeaderField( "ETag" ), System.nanoTime() + _ttl ) );
+    return copy( value );
+  }
+
+  private static Object copy( Object value )
+  {
+    return JsonUtil.deepCopyValue( value, DataBindings::new );
+  }
+
+  /**
+   * @return The number of requests answered from the cache without a request to the server
+   */
+  public int getHits()
+  {
+    return _hits.get();
+  }
+
+  /**
+   * @return The number of requests answered from the cache after the server responded {@code 304 Not Modified}
+   */
+  public int getRevalidations()
+  {
+    return _revalidations.get();
+  }
+
+  /**
+   * @return The number of requests answered with a new response from the server
+   */
+  public int getMisses()
+  {
+    return _misses.get();
+  }
+
+  public int getSize()
+  {
+    return _entries.getUtilizedSize();
+  }
+
+  public void clear()
+  {
+    _entries.clear();
+    _hits.set( 0 );
+    _revalidations.set( 0 );
+    _misses.set( 0 );
+  }
+
+  @Override
+  public String toString()
+  {
+    return "ResponseCache( Hits:" + getHits() + ", Revalidations:" + getRevalidations() + ", Misses:" + getMisses() +
+           ", Size:" + getSize() + " )";
+  }
+
+  private static class Entry
+  {
+    private final Object _value;
+    private final String _etag;
+    private final long _expires;
+
+    Entry( Object value, String etag, long expires )
+    {
+      _value = value;
+      _etag = etag;
+      _expires = expires;
+    }
+  }
+}
@@ -21,7 +21,9 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import javax.script.Bindings;
+import manifold.ext.CompactMap;
 import manifold.ext.DataBindings;
 import manifold.util.Pair;
 
@@ -48,7 +50,15 @@ import manifold.util.Pair;
 
 final class SimpleParserImpl
 {
+  /**
+   * System property, if true parsed JSON objects are backed by a {@link CompactMap}, which uses much less memory than
+   * a LinkedHashMap with many small objects.
+   */
+  static final String COMPACT_OBJECTS = "manifold.json.compact";
+  private static final boolean COMPACT = Boolean.getBoolean( COMPACT_OBJECTS );
+
   private final Tokenizer _tokenizer;
+  private final CompactMap.Shapes _shapes;
   private Token _token;
   private final List<String> _errors;
   private boolean _useBig;
@@ -58,6 +68,7 @@ final class SimpleParserImpl
   {
     _tokenizer = tokenizer;
     _useBig = useBig;
+    _shapes = newShapes();
     _errors = new ArrayList<>();
     advance();
   }
@@ -87,6 +98,11 @@ final class SimpleParserImpl
     _token = _tokenizer.next();
   }
 
+  private void advanceToMember()
+  {
+    _token = _tokenizer.next( true );
+  }
+
   // array = "[" [ value { "," value } ] "]".
   private Object parseArray()
   {
@@ -108,23 +124,46 @@ final class SimpleParserImpl
   // object = "{" [ member { "," member } ] "}".
   private Object parseObject()
   {
-    // using a LinkedHashMap to preserve insertion order, necessary for IJ plugin
-    Bindings map = new DataBindings( new LinkedHashMap<>() );
+    Map<String, Object> members = newMembersMap( _shapes );
+    Bindings map = new DataBindings( members );
 
-    advance();
+    advanceToMember();
     if( _token.getType() == TokenType.STRING )
     {
       parseMember( map );
       while( _token.getType() == TokenType.COMMA )
       {
-        advance();
+        advanceToMember();
         parseMember( map );
       }
     }
     checkAndSkip( TokenType.RCURLY, "}" );
+    trimMembersMap( members );
     return map;
   }
 
+  /**
+   * @return The shapes shared by the objects of a parse, null unless they are backed by a {@link CompactMap}
+   */
+  static CompactMap.Shapes newShapes()
+  {
+    return COMPACT ? new CompactMap.Shapes() : null;
+  }
+
+  static Map<String, Object> newMembersMap( CompactMap.Shapes shapes )
+  {
+    // both preserve insertion order, necessary for IJ plugin
+    return shapes != null ? new CompactMap( shapes ) : new LinkedHashMap<>();
+  }
+
+  static void trimMembersMap( Map<String, Object> members )
+  {
+    if( members instanceof CompactMap )
+    {
+      ((CompactMap)members).trimToSize();
+    }
+  }
+
   // member = string ":" value.
   private void parseMember( Bindings map )
   {
@@ -150,40 +189,8 @@ final class SimpleParserImpl
         val = parseArray();
         break;
       case INTEGER:
-        if( _useBig )
-        {
-          val = new BigInteger( _token.getString() );
-        }
-        else
-        {
-          try
-          {
-            val = Integer.parseInt( _token.getString() );
-          }
-          catch( NumberFormatException e0 )
-          {
-            // we have an overflow, the tokenizer guarantees the format is correct
-            try
-            {
-              val = Long.parseLong( _token.getString() );
-            }
-            catch( NumberFormatException e1 )
-            {
-              val = 0;
-            }
-          }
-        }
-        advance();
-        break;
       case DOUBLE:
-        if( _useBig )
-        {
-          val = new BigDecimal( _token.getString() );
-        }
-        else
-        {
-          val = Double.parseDouble( _token.getString() );
-        }
+        val = parseNumber( _token, _useBig );
         advance();
         break;
       case STRING:
@@ -209,6 +216,35 @@ final class SimpleParserImpl
     return val;
   }
   
+  static Object parseNumber( Token token, boolean useBig )
+  {
+    if( token.getType() == TokenType.DOUBLE )
+    {
+      return useBig ? new BigDecimal( token.getString() ) : (Object)Double.parseDouble( token.getString() );
+    }
+
+    if( useBig )
+    {
+      return new BigInteger( token.getString() );
+    }
+    try
+    {
+      return Integer.parseInt( token.getString() );
+    }
+    catch( NumberFormatException e0 )
+    {
+      // we have an overflow, the tokenizer guarantees the format is correct
+      try
+      {
+        return Long.parseLong( token.getString() );
+      }
+      catch( NumberFormatException e1 )
+      {
+        return 0;
+      }
+    }
+  }
+
   private void addError()
   {
     _errors.add( "[" + _token.getLineNumber() + ":" + _token.getColumn() + "] Unexpected token '" + _token.getString() + "'" );
@@ -19,17 +19,46 @@ package manifold.api.json;
 import java.io.IOException;
 import java.io.Reader;
 
+/**
+ * Scans JSON tokens from a {@link Reader}. Characters are read in bulk into a buffer, so the source need not be
+ * buffered, and runs of unescaped string characters are copied from the buffer in one step.
+ */
 final class Tokenizer
 {
+  /**
+   * System property, if true member names are interned per parse, so each distinct name is one String no matter how
+   * many objects have it, as with the records of a large JSON array.
+   */
+  static final String INTERN_KEYS = "manifold.json.internKeys";
+  private static final boolean INTERN = Boolean.getBoolean( INTERN_KEYS );
+  private static final int BUFFER_SIZE = 8192;
+
   private Reader _source;
+  private final char[] _buffer;
+  private final StringBuilder _chars;
+  private final SymbolTable _symbols;
+  private int _pos;
+  private int _limit;
+  private IOException _ioe;
   private char _ch;
   private int _line;
   private int _column;
   private int _offset;
 
   Tokenizer( Reader source )
+  {
+    this( source, INTERN );
+  }
+
+  /**
+   * @param internKeys True to intern member names regardless of {@link #INTERN_KEYS}
+   */
+  Tokenizer( Reader source, boolean internKeys )
   {
     _source = source;
+    _buffer = new char[BUFFER_SIZE];
+    _chars = new StringBuilder();
+    _symbols = internKeys ? new SymbolTable() : null;
     _offset = 0;
     _line = 1;
     _column = 0;
@@ -37,6 +66,14 @@ final class Tokenizer
   }
 
   Token next()
+  {
+    return next( false );
+  }
+
+  /**
+   * @param memberName True if the next token should be a member name, which is then interned if enabled
+   */
+  Token next( boolean memberName )
   {
     Token T;
     eatWhiteSpace();
@@ -44,7 +81,7 @@ final class Tokenizer
     {
       case '"':
       case '\'':
-        T = consumeString( _ch );
+        T = consumeString( _ch, memberName && _symbols != null );
         break;
       case '-':
       case '0':
@@ -152,9 +189,10 @@ final class Tokenizer
     char = unescaped | "\" ('"' | "\" | "/" | "b" | "f" | "n" | "r" | "t" | "u" hex hex hex hex).
     unescaped = any printable Unicode character except '"', "'" or "\".
   */
-  private Token consumeString( char quote )
+  private Token consumeString( char quote, boolean intern )
   {
-    StringBuilder sb = new StringBuilder();
+    StringBuilder sb = _chars;
+    sb.setLength( 0 );
     int line = _line;
     int column = _column;
     int offset = _offset;
@@ -200,11 +238,7 @@ final class Tokenizer
             {
               if( isHexDigit( _ch ) )
               {
-                u = u * 16 + _ch - '0';
-                if( _ch >= 'A' )
-                { // handle hex numbers: 'A' = 65, '0' = 48. 'A'-'0' = 17, 17 - 7 = 10
-                  u = u - 7;
-                }
+                u = u * 16 + Character.digit( _ch, 16 );
               }
               else
               {
@@ -224,13 +258,12 @@ final class Tokenizer
       }
       else
       {
-        sb.append( _ch );
-        nextChar();
+        appendRun( sb, quote );
       }
     }
     if( _ch == quote )
     {
-      T = new Token( TokenType.STRING, sb.toString(), offset, line, column );
+      T = new Token( TokenType.STRING, intern ? _symbols.intern( sb ) : sb.toString(), offset, line, column );
     }
     else
     {
@@ -378,19 +411,41 @@ final class Tokenizer
     }
   }
 
-  private void nextChar()
+  /**
+   * Appends the current char and the chars following it in the buffer up to the next quote, escape or line break.
+   */
+  private void appendRun( StringBuilder sb, char quote )
   {
-    int c;
-
-    try
+    int end = _pos;
+    while( end < _limit )
     {
-      c = _source.read();
-      _offset++;
-    }
-    catch( IOException e )
-    {
-      c = -1;
+      char c = _buffer[end];
+      if( c == quote || c == '\\' || c == '\n' || c == '\0' )
+      {
+        break;
+      }
+      end++;
     }
+    sb.append( _ch ).append( _buffer, _pos, end - _pos );
+    _column += end - _pos;
+    _offset += end - _pos;
+    _pos = end;
+    nextChar();
+  }
+
+  /**
+   * @return The exception reading the source, if reading failed. The tokenizer treats a failed read as the end of the
+   * source.
+   */
+  IOException getIOException()
+  {
+    return _ioe;
+  }
+
+  private void nextChar()
+  {
+    int c = _pos < _limit || fill() ? _buffer[_pos++] : -1;
+    _offset++;
     if( c == '\n' )
     {
       _column = 0;
@@ -407,8 +462,106 @@ final class Tokenizer
     _ch = (char)c;
   }
 
+  private boolean fill()
+  {
+    if( _ioe != null )
+    {
+      return false;
+    }
+
+    try
+    {
+      int count;
+      do
+      {
+        count = _source.read( _buffer, 0, _buffer.length );
+      } while( count == 0 );
+      if( count < 0 )
+      {
+        return false;
+      }
+      _pos = 0;
+      _limit = count;
+      return true;
+    }
+    catch( IOException e )
+    {
+      _ioe = e;
+      return false;
+    }
+  }
+
   private boolean moreChars()
   {
     return _ch != '\0';
   }
+
+  /**
+   * A bounded table of strings looked up by their characters, so a string already in the table is found without
+   * making a new one.
+   */
+  private static final class SymbolTable
+  {
+    private static final int MAX_LENGTH = 64;
+    private static final int MAX_SIZE = 4096;
+
+    private String[] _table = new String[64];
+    private int _size;
+
+    String intern( CharSequence chars )
+    {
+      int length = chars.length();
+      if( length > MAX_LENGTH )
+      {
+        return chars.toString();
+      }
+
+      int hash = 0;
+      for( int i = 0; i < length; i++ )
+      {
+        hash = 31 * hash + chars.charAt( i );
+      }
+      int mask = _table.length - 1;
+      int slot = (hash ^ (hash >>> 16)) & mask;
+      for( String symbol = _table[slot]; symbol != null; symbol = _table[slot] )
+      {
+        if( symbol.hashCode() == hash && symbol.contentEquals( chars ) )
+        {
+          return symbol;
+        }
+        slot = (slot + 1) & mask;
+      }
+
+      String symbol = chars.toString();
+      if( _size < MAX_SIZE )
+      {
+        _table[slot] = symbol;
+        if( ++_size * 2 > _table.length )
+        {
+          rehash();
+        }
+      }
+      return symbol;
+    }
+
+    private void rehash()
+    {
+      String[] old = _table;
+      _table = new String[old.length * 2];
+      int mask = _table.length - 1;
+      for( String symbol: old )
+      {
+        if( symbol != null )
+        {
+          int hash = symbol.hashCode();
+          int slot = (hash ^ (hash >>> 16)) & mask;
+          while( _table[slot] != null )
+          {
+            slot = (slot + 1) & mask;
+          }
+          _table[slot] = symbol;
+        }
+      }
+    }
+  }
 }
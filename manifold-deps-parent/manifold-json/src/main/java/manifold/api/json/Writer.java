@@ -51,10 +51,22 @@ public class Writer
     return JsonUtil.toJson( _value );
   }
   public void toJson( Appendable target )
+  {
+    toJson( target, false );
+  }
+
+  /**
+   * Serializes this instance as JSON directly to {@code target} without first building the document as a String.
+   * To stream UTF-8 encoded JSON, {@code target} can be a {@link java.io.BufferedWriter} over an
+   * {@link java.io.OutputStreamWriter}.
+   *
+   * @param compact If true, the JSON is written without line breaks and indentation
+   */
+  public void toJson( Appendable target, boolean compact )
   {
     try
     {
-      target.append( JsonUtil.toJson( _value ) );
+      JsonUtil.toJson( target, _value, compact );
     }
     catch( IOException e )
     {
@@ -75,14 +87,7 @@ public class Writer
   }
   public void toYaml( Appendable target )
   {
-    try
-    {
-      target.append( toYaml() );
-    }
-    catch( IOException e )
-    {
-      throw new RuntimeException( e );
-    }
+    Yaml.toYaml( _value, target );
   }
 
   /**
@@ -98,7 +103,7 @@ public class Writer
   {
     try
     {
-      target.append( JsonUtil.toXml( _value ) );
+      JsonUtil.toXml( _value, "object", target, 0 );
     }
     catch( IOException e )
     {
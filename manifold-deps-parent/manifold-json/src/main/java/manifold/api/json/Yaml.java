@@ -16,8 +16,11 @@
 
 package manifold.api.json;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import javax.script.ScriptException;
 import manifold.ext.DataBindings;
 import manifold.util.Pair;
@@ -55,10 +58,25 @@ public class Yaml
   }
 
   public static Object fromYaml( String yaml, boolean withBigNumbers, boolean withTokens )
+  {
+    return fromYaml( load -> load.loadFromString( yaml ), withTokens );
+  }
+
+  /**
+   * Parse YAML read from {@code yaml} without first reading it into a string. The reader is not closed.
+   *
+   * @return A javax.script.Bindings instance
+   */
+  public static Object fromYaml( Reader yaml )
+  {
+    return fromYaml( load -> load.loadFromReader( yaml ), false );
+  }
+
+  private static Object fromYaml( Function<Load, Object> loader, boolean withTokens )
   {
     try
     {
-      return parseYaml( yaml, withBigNumbers, withTokens );
+      return parseYaml( loader, withTokens );
     }
     catch( ScriptException e )
     {
@@ -80,6 +98,15 @@ public class Yaml
    * @param target A {@link StringBuilder} to write the YAML in
    */
   public static void toYaml( Object jsonValue, StringBuilder target )
+  {
+    toYaml( jsonValue, (Appendable)target );
+  }
+
+  /**
+   * Serializes a JSON value to YAML 1.2, writing directly to {@code target} as the YAML is produced. An
+   * {@link IOException} from {@code target} is thrown as a {@link RuntimeException}.
+   */
+  public static void toYaml( Object jsonValue, Appendable target )
   {
     DumpSettings settings = new DumpSettingsBuilder()
       .setBestLineBreak( "\n" )
@@ -93,25 +120,39 @@ public class Yaml
         @Override
         public void write( String str )
         {
-          target.append( str );
+          try
+          {
+            target.append( str );
+          }
+          catch( IOException e )
+          {
+            throw new RuntimeException( e );
+          }
         }
 
         @Override
         public void write( String str, int offset, int length )
         {
-          target.append( str, offset, offset + length );
+          try
+          {
+            target.append( str, offset, offset + length );
+          }
+          catch( IOException e )
+          {
+            throw new RuntimeException( e );
+          }
         }
       } );
   }
 
-  private static Object parseYaml( String yaml, boolean withBigNumbers, boolean withTokens ) throws ScriptException
+  private static Object parseYaml( Function<Load, Object> loader, boolean withTokens ) throws ScriptException
   {
     LoadSettings loadSettings = new LoadSettingsBuilder()
       .setUseMarks( true )
       .setDefaultMap( DataBindings::new )
       .build();
     Load load = new Load( loadSettings, new MyConstructor( loadSettings, withTokens ) );
-    return load.loadFromString( yaml );
+    return loader.apply( load );
   }
 
   private static class MyConstructor extends StandardConstructor
@@ -100,4 +100,10 @@ public class BigNumberFormatResolver implements IJsonFormatTypeResolver
 
     return UNHANDLED;
   }
+
+  @Override
+  public boolean isClassDecided()
+  {
+    return true;
+  }
 }
@@ -98,4 +98,10 @@ public class BinaryFormatResolver implements IJsonFormatTypeResolver
 
     return UNHANDLED;
   }
+
+  @Override
+  public boolean isClassDecided()
+  {
+    return true;
+  }
 }
@@ -16,10 +16,12 @@
 
 package manifold.api.json.schema;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import manifold.ext.RuntimeMethods;
 import manifold.ext.api.IBindingType;
 import manifold.ext.api.ICoercionProvider;
-import manifold.util.ReflectUtil;
 
 
 import static manifold.ext.api.ICallHandler.UNHANDLED;
@@ -41,15 +43,7 @@ public class DefaultCoercionProvider implements ICoercionProvider
     }
 
     // Handle format types
-    for( IJsonFormatTypeResolver resolver: FormatTypeResolvers.get() )
-    {
-      Object coercedValue = resolver.coerce( value, type );
-      if( coercedValue != UNHANDLED )
-      {
-        return coercedValue;
-      }
-    }
-    return UNHANDLED;
+    return FormatTypeResolvers.coerce( value, type );
   }
 
   @Override
@@ -62,36 +56,141 @@ public class DefaultCoercionProvider implements ICoercionProvider
     }
 
     // Format types
-    for( IJsonFormatTypeResolver resolver: FormatTypeResolvers.get() )
+    return FormatTypeResolvers.toBindingValue( value );
+  }
+
+  /**
+   * Whether a value converts to an enum constant depends on the value, otherwise coercions are decided as the format
+   * type resolvers decide them
+   */
+  @Override
+  public boolean isClassDecided( Class<?> type )
+  {
+    return !isBindingEnum( type ) && isClassDecided();
+  }
+
+  @Override
+  public boolean isClassDecided()
+  {
+    return FormatTypeResolvers.isClassDecided();
+  }
+
+  private static boolean isBindingEnum( Class<?> type )
+  {
+    return type.isEnum() && IBindingType.class.isAssignableFrom( type );
+  }
+
+  private Object coerceEnum( Object value, Class<?> type )
+  {
+    if( isBindingEnum( type ) )
     {
-      Object coercedValue = resolver.toBindingValue( value );
-      if( coercedValue != UNHANDLED )
+      IBindingType enumConst = ENUM_INDEXES.get( type ).find( value );
+      if( enumConst != null )
       {
-        return coercedValue;
+        return enumConst;
       }
     }
     return UNHANDLED;
   }
 
-  private Object coerceEnum( Object value, Class<?> type )
+  private static final ClassValue<EnumIndex> ENUM_INDEXES = new ClassValue<EnumIndex>()
   {
-    if( type.isEnum() && IBindingType.class.isAssignableFrom( type ) )
+    @Override
+    protected EnumIndex computeValue( Class<?> type )
     {
-      if( IBindingType.class.isAssignableFrom( type ) )
+      return new EnumIndex( type );
+    }
+  };
+
+  /**
+   * Maps the binding values of an {@link IBindingType} enum to its constants. The values are indexed by class since
+   * a value is coerced to the class of an enum value to be compared with it.
+   */
+  private static class EnumIndex
+  {
+    private final Map<Class<?>, Map<Object, IBindingType>> _constsByValue;
+
+    EnumIndex( Class<?> type )
+    {
+      _constsByValue = new LinkedHashMap<>();
+      for( Object constant: type.getEnumConstants() )
       {
-        //noinspection ConstantConditions
-        IBindingType[] values = (IBindingType[])ReflectUtil.method( type, "values" ).invokeStatic();
-        for( IBindingType enumConst: values )
+        IBindingType enumConst = (IBindingType)constant;
+        Object jsonValue = enumConst.toBindingValue();
+        if( jsonValue != null )
         {
-          Object jsonValue = enumConst.toBindingValue();
-          Object coercedValue = RuntimeMethods.coerce( value, jsonValue.getClass() );
-          if( jsonValue.equals( coercedValue ) )
-          {
-            return enumConst;
-          }
+          _constsByValue.computeIfAbsent( jsonValue.getClass(), k -> new HashMap<>() )
+            .putIfAbsent( jsonValue, enumConst );
         }
       }
     }
-    return UNHANDLED;
+
+    /**
+     * @return The first enum constant having a binding value equal to {@code value} coerced to the binding value's
+     * class, or null if there is none.
+     */
+    IBindingType find( Object value )
+    {
+      IBindingType match = null;
+      for( Map.Entry<Class<?>, Map<Object, IBindingType>> entry: _constsByValue.entrySet() )
+      {
+        Object coercedValue = coerceToBindingClass( value, entry.getKey() );
+        if( coercedValue == null )
+        {
+          // the value does not convert to this class e.g., "blue" to Integer, it can't match these constants
+          continue;
+        }
+        IBindingType enumConst = entry.getValue().get( coercedValue );
+        if( enumConst != null && (match == null || ((Enum)enumConst).ordinal() < ((Enum)match).ordinal()) )
+        {
+          match = enumConst;
+        }
+      }
+      return match;
+    }
+
+    /**
+     * @return {@code value} coerced to {@code type}, a class of binding values, or null if it does not convert. Only a
+     * conversion to a number can fail, from a value that is neither a number nor a boolean. Text that can't start a
+     * number is skipped up front, otherwise the number's parser decides.
+     */
+    private static Object coerceToBindingClass( Object value, Class<?> type )
+    {
+      if( value instanceof Number || value instanceof Boolean || !Number.class.isAssignableFrom( type ) )
+      {
+        return RuntimeMethods.coerce( value, type );
+      }
+
+      if( !mayStartNumber( String.valueOf( value ) ) )
+      {
+        return null;
+      }
+      try
+      {
+        return RuntimeMethods.coerce( value, type );
+      }
+      catch( NumberFormatException e )
+      {
+        // e.g., "1.5" or "99999999999" to Integer
+        return null;
+      }
+    }
+
+    /**
+     * @return False if {@code text} can't be parsed as a number of any kind e.g., "blue"
+     */
+    private static boolean mayStartNumber( String text )
+    {
+      for( int i = 0; i < text.length(); i++ )
+      {
+        char c = text.charAt( i );
+        if( c > ' ' )
+        {
+          // a digit of any script, a sign, a decimal point, NaN or Infinity
+          return Character.isDigit( c ) || c == '-' || c == '+' || c == '.' || c == 'N' || c == 'I';
+        }
+      }
+      return false;
+    }
   }
 }
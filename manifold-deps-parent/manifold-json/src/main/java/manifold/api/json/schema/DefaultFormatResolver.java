@@ -171,4 +171,10 @@ public class DefaultFormatResolver implements IJsonFormatTypeResolver
     
     return UNHANDLED;
   }
+
+  @Override
+  public boolean isClassDecided()
+  {
+    return true;
+  }
 }
@@ -21,18 +21,47 @@ import java.util.Collections;
 import java.util.List;
 import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
+import manifold.ext.CoercionDispatcher;
 import manifold.util.concurrent.LocklessLazyVar;
 
 public class FormatTypeResolvers
 {
   private static final LocklessLazyVar<List<IJsonFormatTypeResolver>> _formatResolvers =
     LocklessLazyVar.make( FormatTypeResolvers::loadFormatTypeResolvers );
+  private static final LocklessLazyVar<Boolean> _classDecided =
+    LocklessLazyVar.make( () -> get().stream().allMatch( IJsonFormatTypeResolver::isClassDecided ) );
+  private static final CoercionDispatcher<IJsonFormatTypeResolver> _dispatcher =
+    new CoercionDispatcher<>( FormatTypeResolvers::get );
 
   public static List<IJsonFormatTypeResolver> get()
   {
     return _formatResolvers.get();
   }
 
+  /**
+   * @return True if all the resolvers are {@linkplain IJsonFormatTypeResolver#isClassDecided() class decided}
+   */
+  public static boolean isClassDecided()
+  {
+    return _classDecided.get();
+  }
+
+  /**
+   * Coerce {@code value} with the first resolver handling it, see {@link CoercionDispatcher}.
+   */
+  public static Object coerce( Object value, Class<?> type )
+  {
+    return _dispatcher.coerce( value, type );
+  }
+
+  /**
+   * Coerce {@code value} to a bindings value with the first resolver handling it, see {@link CoercionDispatcher}.
+   */
+  public static Object toBindingValue( Object value )
+  {
+    return _dispatcher.toBindingValue( value );
+  }
+
   private static List<IJsonFormatTypeResolver> loadFormatTypeResolvers()
   {
     try
@@ -16,14 +16,12 @@
 
 package manifold.json.extensions.java.net.URL;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import manifold.api.json.Yaml;
 import manifold.ext.api.Jailbreak;
 import manifold.json.extensions.javax.script.Bindings.ManBindingsExt;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
@@ -32,11 +30,12 @@ import java.net.URL;
 import java.net.URLEncoder;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import javax.script.Bindings;
 import manifold.api.json.Json;
+import manifold.api.json.RequestUtil;
 import manifold.ext.api.Extension;
 import manifold.ext.api.This;
-import manifold.util.JsonUtil;
 import manifold.util.StreamUtil;
 
 /**
@@ -130,22 +129,22 @@ public class ManUrlExt
   }
 
   /**
-   * Use HTTP GET, POST, PUT, PATCH, or DELETE to send JSON bindings to a URL and return the raw response body as a
-   * String.
+   * Use HTTP GET, POST, PUT, PATCH, or DELETE to send JSON bindings to a URL and parse the response body as it is
+   * read.
    *
    * @param httpMethod The HTTP method to use: "GET", "POST", "PUT", "PATCH", or "DELETE"
    * @param jsonValue A JSON value (primitive/boxed type, String, List of JSON values, or Bindings of String/JSON value)
    * @param headers Optional header name/value pairs
    * @param timeout Connection timeout, zero is interpreted as an infinite timeout, a negative value indicates default
+   * @param parser Parses the response body from a reader
    *
-   * @param headers
-   * @return The raw response as a String.
+   * @return The parsed response.
    *
    * @see #sendJsonRequest(URL, String, Object)
    * @see #sendYamlRequest(URL, String, Object)
    */
-  private static String sendRequest( URL url, String httpMethod, Object jsonValue,
-                                     Map<String, String> headers, int timeout )
+  private static <R> R sendRequest( URL url, String httpMethod, Object jsonValue,
+                                    Map<String, String> headers, int timeout, Function<Reader, R> parser )
   {
     try
     {
@@ -153,17 +152,7 @@ public class ManUrlExt
       {
         url = makeUrl( url.toString(), jsonValue );
       }
-      HttpURLConnection conn = (HttpURLConnection)url.openConnection();
-      conn.setRequestMethod( httpMethod );
-      conn.setRequestProperty( "Content-Type", "application/x-www-form-urlencoded" );
-      headers.forEach( conn::setRequestProperty );
-      conn.setConnectTimeout( timeout );
-      if( jsonValue != null &&
-          !httpMethod.equals( "GET" ) && !httpMethod.equals( "DELETE" ) )
-      {
-        sendJsonValue( jsonValue, conn );
-      }
-      return receiveResponse( conn );
+      return RequestUtil.receiveResponse( RequestUtil.openRequest( url, httpMethod, jsonValue, headers, timeout ), parser );
     }
     catch( Exception e )
     {
@@ -171,26 +160,6 @@ public class ManUrlExt
     }
   }
 
-  private static void sendJsonValue( Object jsonValue, HttpURLConnection conn ) throws IOException
-  {
-    String json = JsonUtil.toJson( jsonValue );
-    byte[] bytes = json.getBytes( StandardCharsets.UTF_8 );
-    conn.setFixedLengthStreamingMode( bytes.length );
-    conn.setDoOutput( true );
-    try( OutputStream out = conn.getOutputStream() )
-    {
-      out.write( bytes );
-    }
-  }
-
-  private static String receiveResponse( HttpURLConnection conn ) throws IOException
-  {
-    try( Reader in = StreamUtil.getInputStreamReader( conn.getInputStream() ) )
-    {
-      return StreamUtil.getContent( in );
-    }
-  }
-
   /**
    * Use HTTP GET, POST, PUT, or PATCH to send JSON bindings to a URL with a JSON response.
    *
@@ -199,7 +168,7 @@ public class ManUrlExt
    *
    * @return A JSON value parsed from the JSON response.
    *
-   * @see #sendRequest(URL, String, Object, Map, int)
+   * @see #sendRequest(URL, String, Object, Map, int, Function)
    */
   @SuppressWarnings("unused")
   public static Object sendJsonRequest( @This URL url, String httpMethod, Object jsonValue )
@@ -209,7 +178,7 @@ public class ManUrlExt
   public static Object sendJsonRequest( @This URL url, String httpMethod, Object jsonValue,
                                         Map<String, String> headers, int timeout )
   {
-    return Json.fromJson( sendRequest( url, httpMethod, jsonValue, headers, timeout ) );
+    return sendRequest( url, httpMethod, jsonValue, headers, timeout, Json::fromJson );
   }
 
   /**
@@ -220,7 +189,7 @@ public class ManUrlExt
    *
    * @return A JSON value parsed from the YAML response.
    *
-   * @see #sendRequest(URL, String, Object, Map, int)
+   * @see #sendRequest(URL, String, Object, Map, int, Function)
    */
   @SuppressWarnings("unused")
   public static Object sendYamlRequest( @This URL url, String httpMethod, Object jsonValue )
@@ -230,7 +199,7 @@ public class ManUrlExt
   public static Object sendYamlRequest( @This URL url, String httpMethod, Object jsonValue,
                                         Map<String, String> headers, int timeout )
   {
-    return Yaml.fromYaml( sendRequest( url, httpMethod, jsonValue, headers, timeout ) );
+    return sendRequest( url, httpMethod, jsonValue, headers, timeout, Yaml::fromYaml );
   }
 
   /**
@@ -241,7 +210,7 @@ public class ManUrlExt
    *
    * @return The raw response body as plain text
    *
-   * @see #sendRequest(URL, String, Object, Map, int)
+   * @see #sendRequest(URL, String, Object, Map, int, Function)
    */
   @SuppressWarnings("unused")
   public static String sendPlainTextRequest( @This URL url, String httpMethod, Object jsonValue )
@@ -251,7 +220,7 @@ public class ManUrlExt
   public static String sendPlainTextRequest( @This URL url, String httpMethod, Object jsonValue,
                                              Map<String, String> headers, int timeout )
   {
-    return sendRequest( url, httpMethod, jsonValue, headers, timeout );
+    return sendRequest( url, httpMethod, jsonValue, headers, timeout, RequestUtil::readContent );
   }
 
   /**
@@ -0,0 +1,130 @@
+package manifold.api.fs.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import junit.framework.TestCase;
+import manifold.api.fs.IDirectory;
+import manifold.api.fs.IFile;
+import manifold.api.host.IModule;
+import manifold.internal.host.RuntimeManifoldHost;
+import manifold.internal.host.TestModule;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ */
+public class PathCacheTest extends TestCase
+{
+  private TemporaryFolder _tmp;
+  private File _root;
+
+  @Override
+  protected void setUp() throws Exception
+  {
+    _tmp = new TemporaryFolder();
+    _tmp.create();
+    _root = _tmp.newFolder( "root" );
+    makeTree( _root, 3, 6, 20 );
+  }
+
+  @Override
+  protected void tearDown() throws Exception
+  {
+    _tmp.delete();
+  }
+
+  public void testParallelScanMatchesSequential()
+  {
+    IModule module = new TestModule( new RuntimeManifoldHost(), "pathcache", _root );
+    IDirectory dir = module.getHost().getFileSystem().getIDirectory( _root );
+
+    PathCache sequential = new PathCache( module, () -> Collections.singletonList( dir ), () -> {}, 1 );
+    PathCache parallel = new PathCache( module, () -> Collections.singletonList( dir ), () -> {}, 8 );
+
+    assertEquals( index( sequential ), index( parallel ) );
+    assertEquals( 3, sequential.getExtensionCaches().size() );
+  }
+
+  public void testSnapshotRevalidatesOnlyModifiedDirs() throws IOException
+  {
+    IModule module = new TestModule( new RuntimeManifoldHost(), "pathcache", _root );
+    IDirectory dir = module.getHost().getFileSystem().getIDirectory( _root );
+    File snapshotFile = _tmp.newFile( "pathcache.snapshot" );
+
+    // date the tree so the recorded listings are not racy
+    long past = System.currentTimeMillis() - 60_000;
+    try( Stream<Path> paths = Files.walk( _root.toPath() ) )
+    {
+      paths.map( Path::toFile ).filter( File::isDirectory ).forEach( f -> f.setLastModified( past ) );
+    }
+
+    PathCacheSnapshot snapshot = PathCacheSnapshot.load( snapshotFile );
+    Set<String> first = listAll( snapshot, dir );
+    assertEquals( 0, snapshot.getReusedCount() );
+    snapshot.save();
+
+    snapshot = PathCacheSnapshot.load( snapshotFile );
+    assertEquals( first, listAll( snapshot, dir ) );
+    assertEquals( 0, snapshot.getListedCount() );
+    snapshot.save();
+
+    File pkg = new File( _root, "pkg1" + File.separator + "pkg2" );
+    Files.write( new File( pkg, "Added.json" ).toPath(), new byte[0] );
+    pkg.setLastModified( past + 10_000 );
+    snapshot = PathCacheSnapshot.load( snapshotFile );
+    Set<String> second = listAll( snapshot, dir );
+    assertEquals( 1, snapshot.getListedCount() );
+    assertEquals( first.size() + 1, second.size() );
+    assertTrue( second.contains( "pkg1/pkg2/Added.json" ) );
+  }
+
+  private Set<String> listAll( PathCacheSnapshot snapshot, IDirectory dir )
+  {
+    Set<String> names = new TreeSet<>();
+    listAll( snapshot, dir, "", names );
+    return names;
+  }
+
+  private void listAll( PathCacheSnapshot snapshot, IDirectory dir, String path, Set<String> names )
+  {
+    snapshot.listFiles( dir ).forEach( file -> names.add( path + file.getName() ) );
+    snapshot.listDirs( dir ).forEach( subdir -> listAll( snapshot, subdir, path + subdir.getName() + '/', names ) );
+  }
+
+  private Map<String, Set<String>> index( PathCache cache )
+  {
+    Map<String, Set<String>> index = new TreeMap<>();
+    cache.getExtensionCaches().forEach( ( ext, fqnCache ) ->
+      fqnCache.getFqns().forEach( fqn -> {
+        IFile file = fqnCache.get( fqn );
+        index.computeIfAbsent( ext + ':' + fqn, k -> new TreeSet<>() ).add( file.getName() );
+        index.put( "reverse:" + file.getName(), new TreeSet<>( cache.getFqnForFile( file ) ) );
+      } ) );
+    return index;
+  }
+
+  private void makeTree( File dir, int depth, int dirsPerLevel, int filesPerDir ) throws IOException
+  {
+    //noinspection ResultOfMethodCallIgnored
+    dir.mkdirs();
+    for( int i = 0; i < filesPerDir; i++ )
+    {
+      String ext = i % 3 == 0 ? ".json" : i % 3 == 1 ? ".graphql" : ".properties";
+      Files.write( new File( dir, "Res" + i + ext ).toPath(), new byte[0] );
+    }
+    if( depth > 0 )
+    {
+      for( int i = 0; i < dirsPerLevel; i++ )
+      {
+        makeTree( new File( dir, "pkg" + i ), depth - 1, dirsPerLevel, filesPerDir );
+      }
+    }
+  }
+}
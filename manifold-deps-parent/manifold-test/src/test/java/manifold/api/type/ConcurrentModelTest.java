@@ -0,0 +1,161 @@
+package manifold.api.type;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import manifold.api.host.IModule;
+import manifold.internal.host.RuntimeManifoldHost;
+import manifold.internal.host.TestModule;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Asks for the same model on several threads at once, as javac and prefetch workers do
+ */
+public class ConcurrentModelTest extends TestCase
+{
+  private static final int THREADS = 8;
+
+  public void testModelMadeOnce() throws Exception
+  {
+    TemporaryFolder tmp = new TemporaryFolder();
+    tmp.create();
+    try
+    {
+      File file = new File( tmp.getRoot(), "abc/A.txt" );
+      //noinspection ResultOfMethodCallIgnored
+      file.getParentFile().mkdirs();
+      Files.write( file.toPath(), "a".getBytes( StandardCharsets.UTF_8 ) );
+
+      AtomicInteger made = new AtomicInteger();
+      ContentManifold tm = new ContentManifold( "txt" )
+      {
+        @Override
+        public void init( IModule module )
+        {
+          init( module, ( fqn, files ) -> {
+            made.incrementAndGet();
+            try
+            {
+              // give the other threads time to ask for the model too
+              Thread.sleep( 50 );
+            }
+            catch( InterruptedException e )
+            {
+              Thread.currentThread().interrupt();
+            }
+            return new Model( module.getHost(), fqn, files );
+          } );
+        }
+      };
+      new TestModule( new RuntimeManifoldHost(), "concurrent", tmp.getRoot(), tm );
+
+      ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+      try
+      {
+        CountDownLatch start = new CountDownLatch( 1 );
+        List<Future<ContentManifold.Model>> models = new ArrayList<>();
+        for( int i = 0; i < THREADS; i++ )
+        {
+          models.add( executor.submit( () -> {
+            start.await();
+            return tm.getModel( "abc.A" );
+          } ) );
+        }
+        start.countDown();
+
+        ContentManifold.Model model = models.get( 0 ).get();
+        assertEquals( "a", model.getContent() );
+        for( Future<ContentManifold.Model> other : models )
+        {
+          assertSame( model, other.get() );
+        }
+        assertEquals( 1, made.get() );
+      }
+      finally
+      {
+        executor.shutdown();
+      }
+    }
+    finally
+    {
+      tmp.delete();
+    }
+  }
+
+  public void testThreadSafeModelsMadeInParallel() throws Exception
+  {
+    TemporaryFolder tmp = new TemporaryFolder();
+    tmp.create();
+    try
+    {
+      for( String name: new String[]{"A", "B"} )
+      {
+        File file = new File( tmp.getRoot(), "abc/" + name + ".txt" );
+        //noinspection ResultOfMethodCallIgnored
+        file.getParentFile().mkdirs();
+        Files.write( file.toPath(), name.getBytes( StandardCharsets.UTF_8 ) );
+      }
+
+      // each model waits for the other to be in the making, which a lock shared by the models never allows
+      CountDownLatch making = new CountDownLatch( 2 );
+      AtomicBoolean serialized = new AtomicBoolean();
+      ContentManifold tm = new ContentManifold( "txt" )
+      {
+        @Override
+        public void init( IModule module )
+        {
+          init( module, ( fqn, files ) -> {
+            making.countDown();
+            try
+            {
+              if( !making.await( 10, TimeUnit.SECONDS ) )
+              {
+                serialized.set( true );
+              }
+            }
+            catch( InterruptedException e )
+            {
+              Thread.currentThread().interrupt();
+            }
+            return new Model( module.getHost(), fqn, files );
+          } );
+        }
+
+        @Override
+        public boolean isThreadSafe()
+        {
+          return true;
+        }
+      };
+      new TestModule( new RuntimeManifoldHost(), "parallel", tmp.getRoot(), tm );
+
+      ExecutorService executor = Executors.newFixedThreadPool( 2 );
+      try
+      {
+        Future<ContentManifold.Model> a = executor.submit( () -> tm.getModel( "abc.A" ) );
+        Future<ContentManifold.Model> b = executor.submit( () -> tm.getModel( "abc.B" ) );
+        assertEquals( "A", a.get().getContent() );
+        assertEquals( "B", b.get().getContent() );
+        assertFalse( serialized.get() );
+      }
+      finally
+      {
+        executor.shutdown();
+      }
+    }
+    finally
+    {
+      tmp.delete();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package manifold.api.type;
+
+import java.io.IOException;
+import java.util.Set;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import manifold.api.fs.IFile;
+import manifold.api.host.IManifoldHost;
+import manifold.api.host.IModule;
+import manifold.util.StreamUtil;
+
+/**
+ * A type manifold for tests, a resource file with its extension is a type, the file's content is the type's Java source
+ */
+public class ContentManifold extends JavaTypeManifold<ContentManifold.Model>
+{
+  private final String _fileExtension;
+
+  public ContentManifold( String fileExtension )
+  {
+    _fileExtension = fileExtension;
+  }
+
+  @Override
+  public void init( IModule module )
+  {
+    init( module, ( fqn, files ) -> new Model( module.getHost(), fqn, files ) );
+  }
+
+  @Override
+  public boolean handlesFileExtension( String fileExtension )
+  {
+    return fileExtension.equals( _fileExtension );
+  }
+
+  @Override
+  public boolean isInnerType( String topLevelFqn, String relativeInner )
+  {
+    return false;
+  }
+
+  @Override
+  protected String contribute( JavaFileManager.Location location, String topLevelFqn, String existing,
+                               Model model, DiagnosticListener<JavaFileObject> errorHandler )
+  {
+    return model.getContent();
+  }
+
+  public static class Model implements IModel
+  {
+    private final IManifoldHost _host;
+    private final String _fqn;
+    private final Set<IFile> _files;
+    private final String _content;
+
+    Model( IManifoldHost host, String fqn, Set<IFile> files )
+    {
+      _host = host;
+      _fqn = fqn;
+      _files = files;
+      try
+      {
+        _content = StreamUtil.getContent( StreamUtil.getInputStreamReader( files.iterator().next().openInputStream() ) );
+      }
+      catch( IOException e )
+      {
+        throw new RuntimeException( e );
+      }
+    }
+
+    public String getContent()
+    {
+      return _content;
+    }
+
+    @Override
+    public IManifoldHost getHost()
+    {
+      return _host;
+    }
+
+    @Override
+    public String getFqn()
+    {
+      return _fqn;
+    }
+
+    @Override
+    public Set<IFile> getFiles()
+    {
+      return _files;
+    }
+
+    @Override
+    public void addFile( IFile file )
+    {
+      _files.add( file );
+    }
+
+    @Override
+    public void removeFile( IFile file )
+    {
+      _files.remove( file );
+    }
+
+    @Override
+    public void updateFile( IFile file )
+    {
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package manifold.api.type;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import junit.framework.TestCase;
+import manifold.api.fs.IFile;
+import manifold.api.host.ITypeSystemListener;
+import manifold.api.host.RefreshKind;
+import manifold.api.host.RefreshRequest;
+import manifold.internal.host.RuntimeManifoldHost;
+import manifold.internal.host.TestModule;
+import manifold.util.ReflectUtil;
+import manifold.util.concurrent.LocklessLazyVar;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Refreshes resource files with {@code manifold.refresh.incremental} enabled, the way an IDE host does
+ */
+public class IncrementalRefreshTest extends TestCase
+{
+  private static final String INCREMENTAL = "manifold.refresh.incremental";
+
+  private TemporaryFolder _tmp;
+  private File _root;
+  private ListeningHost _host;
+  private TestModule _module;
+  private ContentManifold _tm;
+  private List<Boolean> _typeNamesChanged;
+
+  @Override
+  protected void setUp() throws Exception
+  {
+    // the flag is read once, reread it with the property set
+    System.setProperty( INCREMENTAL, "true" );
+    ((LocklessLazyVar)ReflectUtil.field( ResourceFileTypeManifold.class, "INCREMENTAL_REFRESH" ).getStatic()).clear();
+
+    _host = new ListeningHost();
+    _tmp = new TemporaryFolder();
+    _tmp.create();
+    _root = _tmp.getRoot();
+    write( "abc/A.txt", "a" );
+    write( "abc/B.txt", "b" );
+
+    _tm = new ContentManifold( "txt" );
+    _typeNamesChanged = new ArrayList<>();
+    _module = new TestModule( _host, "refresh", _root, _tm )
+    {
+      @Override
+      public void typeNamesChanged( ITypeManifold tm )
+      {
+        // the manifold's types are current when it notifies
+        _typeNamesChanged.add( tm == _tm && _tm.isType( "abc.C" ) );
+      }
+    };
+  }
+
+  @Override
+  protected void tearDown() throws Exception
+  {
+    System.clearProperty( INCREMENTAL );
+    ((LocklessLazyVar)ReflectUtil.field( ResourceFileTypeManifold.class, "INCREMENTAL_REFRESH" ).getStatic()).clear();
+
+    _tmp.delete();
+  }
+
+  public void testCreateModifyDelete() throws IOException
+  {
+    assertTrue( _tm.isType( "abc.A" ) );
+    assertTrue( _tm.isType( "abc.B" ) );
+    assertFalse( _tm.isType( "abc.C" ) );
+    ContentManifold.Model a = _tm.getModel( "abc.A" );
+    ContentManifold.Model b = _tm.getModel( "abc.B" );
+    assertEquals( "a", a.getContent() );
+
+    IFile c = write( "abc/C.txt", "c" );
+    _host.refresh( new RefreshRequest( c, new String[]{"abc.C"}, _module, RefreshKind.CREATION ) );
+    assertTrue( _tm.isType( "abc.C" ) );
+    assertEquals( Collections.singletonList( true ), _typeNamesChanged );
+    assertEquals( "c", _tm.getModel( "abc.C" ).getContent() );
+    // the other models are not rebuilt
+    assertSame( a, _tm.getModel( "abc.A" ) );
+    assertSame( b, _tm.getModel( "abc.B" ) );
+
+    IFile aFile = write( "abc/A.txt", "changed" );
+    _host.refresh( new RefreshRequest( aFile, new String[]{"abc.A"}, _module, RefreshKind.MODIFICATION ) );
+    ContentManifold.Model changed = _tm.getModel( "abc.A" );
+    assertNotSame( a, changed );
+    assertEquals( "changed", changed.getContent() );
+    assertSame( b, _tm.getModel( "abc.B" ) );
+
+    IFile bFile = _host.getFileSystem().getIFile( new File( _root, "abc/B.txt" ) );
+    assertTrue( bFile.delete() );
+    _host.refresh( new RefreshRequest( bFile, new String[]{"abc.B"}, _module, RefreshKind.DELETION ) );
+    assertFalse( _tm.isType( "abc.B" ) );
+    assertNull( _tm.getModel( "abc.B" ) );
+    assertEquals( Arrays.asList( true, true, true ), _typeNamesChanged );
+    assertSame( changed, _tm.getModel( "abc.A" ) );
+    assertTrue( _tm.isType( "abc.C" ) );
+  }
+
+  private IFile write( String path, String content ) throws IOException
+  {
+    File file = new File( _root, path );
+    //noinspection ResultOfMethodCallIgnored
+    file.getParentFile().mkdirs();
+    Files.write( file.toPath(), content.getBytes( StandardCharsets.UTF_8 ) );
+    return _host.getFileSystem().getIFile( file );
+  }
+
+  /**
+   * Keeps the listeners and notifies them of a refresh, those asking to be notified early first
+   */
+  private static class ListeningHost extends RuntimeManifoldHost
+  {
+    private final List<ITypeSystemListener> _listeners = new ArrayList<>();
+
+    @Override
+    public void addTypeSystemListenerAsWeakRef( Object ctx, ITypeSystemListener listener )
+    {
+      _listeners.add( listener );
+    }
+
+    void refresh( RefreshRequest request )
+    {
+      _listeners.stream().filter( ITypeSystemListener::notifyEarly ).forEach( l -> l.refreshedTypes( request ) );
+      _listeners.stream().filter( l -> !l.notifyEarly() ).forEach( l -> l.refreshedTypes( request ) );
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package manifold.internal.host;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import manifold.api.host.IManifoldHost;
+import manifold.api.type.ITypeManifold;
+
+/**
+ * A module for tests having only {@code root} on its source path and only the given type manifolds, which it initializes
+ */
+public class TestModule extends SimpleModule
+{
+  private final String _name;
+  private final Set<ITypeManifold> _tms;
+
+  public TestModule( IManifoldHost host, String name, File root, ITypeManifold... tms )
+  {
+    super( host, Collections.emptyList(), Collections.singletonList( host.getFileSystem().getIDirectory( root ) ),
+      Collections.emptyList() );
+    _name = name;
+    _tms = new LinkedHashSet<>();
+    Collections.addAll( _tms, tms );
+    _tms.forEach( tm -> tm.init( this ) );
+  }
+
+  @Override
+  public String getName()
+  {
+    return _name;
+  }
+
+  @Override
+  public Set<ITypeManifold> getTypeManifolds()
+  {
+    return _tms;
+  }
+}
@@ -0,0 +1,136 @@
+package manifold.internal.host;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import junit.framework.TestCase;
+import manifold.api.type.IModel;
+import manifold.api.type.ITypeManifold;
+import manifold.api.type.JavaTypeManifold;
+import manifold.api.type.ResourceFileTypeManifold;
+
+/**
+ */
+public class TypeManifoldIndexTest extends TestCase
+{
+  public void testCandidates()
+  {
+    NamedManifold abc = new NamedManifold( "abc.Foo", "abc.Foo.Bar" );
+    NamedManifold xyz = new NamedManifold( "xyz.Baz" );
+    TopLevelManifold extensions = new TopLevelManifold( "abc.Foo" );
+    TypeManifoldIndex index = new TypeManifoldIndex( new LinkedHashSet<>( Arrays.asList( abc, xyz, extensions ) ) );
+
+    assertEquals( set( abc, extensions ), set( index.findCandidates( "abc.Foo" ) ) );
+    assertEquals( set( abc, extensions ), set( index.findCandidates( "abc.Foo.Bar.Inner" ) ) );
+    assertEquals( set( abc, extensions ), set( index.findCandidates( "abc.Foo\$Inner" ) ) );
+    assertEquals( set( xyz, extensions ), set( index.findCandidates( "xyz.Baz" ) ) );
+    // the overriding manifold is asked about any name, its types are not its top-level names
+    assertEquals( set( extensions ), set( index.findCandidates( "abc.Foo_Extension" ) ) );
+    assertEquals( set( extensions ), set( index.findCandidates( "abc" ) ) );
+    assertEquals( set( abc, xyz, extensions ), set( index.findCandidates( "abc.Foo<String>" ) ) );
+  }
+
+  public void testInvalidateReindexesOnlyThatManifold()
+  {
+    NamedManifold abc = new NamedManifold( "abc.Foo" );
+    NamedManifold xyz = new NamedManifold( "xyz.Baz" );
+    TypeManifoldIndex index = new TypeManifoldIndex( new LinkedHashSet<>( Arrays.asList( abc, xyz ) ) );
+    // indexed on the first lookup
+    assertEquals( 0, abc._indexed );
+    assertEquals( set( abc ), set( index.findCandidates( "abc.Foo" ) ) );
+    assertEquals( 1, abc._indexed );
+    assertEquals( 1, xyz._indexed );
+
+    abc._names = Arrays.asList( "abc.Bar", "xyz.Baz.Nested" );
+    index.invalidate( abc );
+    assertEquals( set(), set( index.findCandidates( "abc.Foo" ) ) );
+    assertEquals( set( abc ), set( index.findCandidates( "abc.Bar" ) ) );
+    assertEquals( set( xyz ), set( index.findCandidates( "xyz.Baz" ) ) );
+    assertEquals( set( xyz, abc ), set( index.findCandidates( "xyz.Baz.Nested" ) ) );
+    assertEquals( 2, abc._indexed );
+    assertEquals( 1, xyz._indexed );
+
+    // removing a name keeps the names nested in it
+    xyz._names = Collections.emptyList();
+    index.invalidate( xyz );
+    assertEquals( set(), set( index.findCandidates( "xyz.Baz" ) ) );
+    assertEquals( set( abc ), set( index.findCandidates( "xyz.Baz.Nested" ) ) );
+    assertEquals( 2, abc._indexed );
+    assertEquals( 2, xyz._indexed );
+  }
+
+  private static Set<ITypeManifold> set( ITypeManifold... tms )
+  {
+    return new HashSet<>( Arrays.asList( tms ) );
+  }
+
+  private static Set<ITypeManifold> set( Iterable<ITypeManifold> tms )
+  {
+    Set<ITypeManifold> set = new HashSet<>();
+    tms.forEach( set::add );
+    return set;
+  }
+
+  /**
+   * A manifold resolving types the way {@link ResourceFileTypeManifold} does, by its top-level names
+   */
+  private static class NamedManifold extends JavaTypeManifold<IModel>
+  {
+    private Collection<String> _names;
+    private int _indexed;
+
+    NamedManifold( String... names )
+    {
+      _names = Arrays.asList( names );
+    }
+
+    @Override
+    public Collection<String> getTopLevelTypeNames()
+    {
+      _indexed++;
+      return _names;
+    }
+
+    @Override
+    public boolean handlesFileExtension( String fileExtension )
+    {
+      return false;
+    }
+
+    @Override
+    public boolean isInnerType( String topLevelFqn, String relativeInner )
+    {
+      return false;
+    }
+
+    @Override
+    protected String contribute( JavaFileManager.Location location, String topLevelFqn, String existing, IModel model,
+                                 DiagnosticListener<JavaFileObject> errorHandler )
+    {
+      return null;
+    }
+  }
+
+  /**
+   * A manifold resolving its own top-level names, like an extension producer
+   */
+  private static class TopLevelManifold extends NamedManifold
+  {
+    TopLevelManifold( String... names )
+    {
+      super( names );
+    }
+
+    @Override
+    public String findTopLevelFqn( String fqn )
+    {
+      return fqn.endsWith( "_Extension" ) ? fqn : null;
+    }
+  }
+}
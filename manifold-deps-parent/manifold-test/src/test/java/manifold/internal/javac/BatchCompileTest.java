@@ -0,0 +1,134 @@
+package manifold.internal.javac;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import junit.framework.TestCase;
+import manifold.api.host.IModule;
+import manifold.api.type.ContentManifold;
+import manifold.internal.host.RuntimeManifoldHost;
+import manifold.internal.host.TestModule;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Compiles the same manifold types one javac task per type and in a batch, the two ways a runtime load compiles them
+ */
+public class BatchCompileTest extends TestCase
+{
+  private static final List<String> OPTIONS = Arrays.asList( "-source", "8", "-g", "-nowarn", "-proc:none" );
+
+  private TemporaryFolder _tmp;
+  private File _root;
+
+  @Override
+  protected void setUp() throws Exception
+  {
+    _tmp = new TemporaryFolder();
+    _tmp.create();
+    _root = _tmp.getRoot();
+    write( "abc/A.src", "package abc; public class A { public B b() { return new B(); } public C c() { return null; } }" );
+    write( "abc/B.src", "package abc; public class B { public C c() { return new C(); } }" );
+    write( "abc/C.src", "package abc; public class C { public String name() { return \"c\"; } }" );
+    write( "abc/R.src", "package abc; public class R { public B b() { return null; } public Bad bad() { return null; } }" );
+    write( "abc/Bad.src", "package abc; public class Bad { int x = \"not an int\"; }" );
+    write( "abc/D.src", "package abc; public class D { public C c( Object E ) { return E == null ? null : (C)E; } }" );
+    write( "abc/E.src", "package abc; public class E { }" );
+  }
+
+  @Override
+  protected void tearDown() throws Exception
+  {
+    _tmp.delete();
+  }
+
+  public void testBatchMatchesUnbatched()
+  {
+    JavaParser unbatched = makeParser();
+    JavaParser batched = makeParser();
+
+    InMemoryClassJavaFileObject a = batched.compileBatch( "abc.A", OPTIONS, 10, new DiagnosticCollector<>() );
+    assertNotNull( a );
+    for( String fqn: new String[]{"abc.A", "abc.B", "abc.C"} )
+    {
+      // the batch compiled all three
+      InMemoryClassJavaFileObject fromBatch = batched.compileBatch( fqn, OPTIONS, 10, new DiagnosticCollector<>() );
+      assertSame( fromBatch, batched.compile( fqn, OPTIONS, new DiagnosticCollector<>() ) );
+
+      InMemoryClassJavaFileObject cls = unbatched.compile( fqn, OPTIONS, new DiagnosticCollector<>() );
+      assertNotNull( cls );
+      assertTrue( fqn, Arrays.equals( cls.getBytes(), fromBatch.getBytes() ) );
+    }
+  }
+
+  public void testFailingTypeDoesNotBlockOthers()
+  {
+    JavaParser unbatched = makeParser();
+    JavaParser batched = makeParser();
+
+    // the batch includes R's references, one of which does not compile
+    DiagnosticCollector<JavaFileObject> errors = new DiagnosticCollector<>();
+    InMemoryClassJavaFileObject r = batched.compileBatch( "abc.R", OPTIONS, 10, errors );
+    DiagnosticCollector<JavaFileObject> unbatchedErrors = new DiagnosticCollector<>();
+    // R does not need Bad's class, it loads the same as when compiled alone, with the same error
+    assertNotNull( r );
+    assertTrue( Arrays.equals( unbatched.compile( "abc.R", OPTIONS, unbatchedErrors ).getBytes(), r.getBytes() ) );
+    assertEquals( 1, errors.getDiagnostics().size() );
+    assertEquals( unbatchedErrors.getDiagnostics().toString(), errors.getDiagnostics().toString() );
+
+    for( String fqn: new String[]{"abc.B", "abc.C"} )
+    {
+      InMemoryClassJavaFileObject cls = batched.compileBatch( fqn, OPTIONS, 10, new DiagnosticCollector<>() );
+      assertNotNull( fqn, cls );
+      assertTrue( fqn, Arrays.equals( unbatched.compile( fqn, OPTIONS, new DiagnosticCollector<>() ).getBytes(), cls.getBytes() ) );
+    }
+    assertNull( batched.compileBatch( "abc.Bad", OPTIONS, 10, new DiagnosticCollector<>() ) );
+  }
+
+  public void testOnlyTypePositionsAreFollowed()
+  {
+    JavaParser batched = makeParser();
+
+    assertNotNull( batched.compileBatch( "abc.D", OPTIONS, 10, new DiagnosticCollector<>() ) );
+    // C is referenced as a type, E only names a parameter
+    assertNotNull( batched.findCompiledClass( "abc.C" ) );
+    assertNull( batched.findCompiledClass( "abc.E" ) );
+  }
+
+  private JavaParser makeParser()
+  {
+    return new JavaParser( new SourceHost( _root ) );
+  }
+
+  private void write( String path, String content ) throws IOException
+  {
+    File file = new File( _root, path );
+    //noinspection ResultOfMethodCallIgnored
+    file.getParentFile().mkdirs();
+    Files.write( file.toPath(), content.getBytes( StandardCharsets.UTF_8 ) );
+  }
+
+  /**
+   * A host whose module has only {@code root} on its source path and only a manifold producing the Java source in a
+   * {@code .src} file
+   */
+  private static class SourceHost extends RuntimeManifoldHost
+  {
+    private final TestModule _module;
+
+    SourceHost( File root )
+    {
+      _module = new TestModule( this, "batch", root, new ContentManifold( "src" ) );
+    }
+
+    @Override
+    public IModule getSingleModule()
+    {
+      return _module;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package manifold.internal.javac;
+
+import com.sun.tools.javac.util.Context;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileObject;
+import junit.framework.TestCase;
+import manifold.api.type.ContributorKind;
+import manifold.api.type.ITypeManifold;
+import manifold.util.concurrent.ConcurrentHashSet;
+
+/**
+ * Compares the content and diagnostics of a prefetched stub with those of a stub producing its source on the javac
+ * thread
+ */
+public class SourcePrefetcherTest extends TestCase
+{
+  private SourcePrefetcher _prefetcher;
+  private List<String> _reported;
+  private Set<Thread> _reportingThreads;
+  private IssueReporter<JavaFileObject> _issueReporter;
+
+  @Override
+  protected void setUp() throws Exception
+  {
+    System.setProperty( SourcePrefetcher.PREFETCH, "2" );
+    _prefetcher = SourcePrefetcher.make();
+    System.clearProperty( SourcePrefetcher.PREFETCH );
+
+    _reported = Collections.synchronizedList( new ArrayList<>() );
+    _reportingThreads = new ConcurrentHashSet<>();
+    Context context = new Context();
+    context.put( DiagnosticListener.class, (DiagnosticListener<JavaFileObject>)diagnostic -> {
+      _reported.add( diagnostic.getKind() + ": " + diagnostic.getMessage( Locale.getDefault() ) );
+      _reportingThreads.add( Thread.currentThread() );
+    } );
+    _issueReporter = new IssueReporter<>( () -> context );
+  }
+
+  public void testPrefetchedMatchesUnprefetched() throws Exception
+  {
+    Set<Thread> producingThreads = new ConcurrentHashSet<>();
+    CountDownLatch started = new CountDownLatch( 1 );
+    Supplier<String> produce = () -> {
+      producingThreads.add( Thread.currentThread() );
+      if( isWorker() )
+      {
+        started.countDown();
+      }
+      _issueReporter.reportWarning( "unused member" );
+      _issueReporter.reportError( "bad member" );
+      return "package abc; public class Foo {}";
+    };
+
+    GeneratedJavaStubFileObject unprefetched = makeStub( produce );
+    String expectedContent = unprefetched.getCharContent( true ).toString();
+    List<String> expectedDiagnostics = new ArrayList<>( _reported );
+    assertEquals( 2, expectedDiagnostics.size() );
+    assertEquals( Collections.singleton( Thread.currentThread() ), producingThreads );
+
+    _reported.clear();
+    producingThreads.clear();
+    GeneratedJavaStubFileObject prefetched = makeStub( produce );
+    prefetched.prefetch( _prefetcher );
+    assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+    assertEquals( expectedContent, prefetched.getCharContent( true ).toString() );
+    assertEquals( expectedDiagnostics, _reported );
+
+    // produced on a worker, reported on the javac thread
+    assertEquals( 1, producingThreads.size() );
+    assertFalse( producingThreads.contains( Thread.currentThread() ) );
+    assertEquals( Collections.singleton( Thread.currentThread() ), _reportingThreads );
+  }
+
+  public void testFailedPrefetchReportsOnce() throws Exception
+  {
+    CountDownLatch failed = new CountDownLatch( 1 );
+    Supplier<String> produce = () -> {
+      _issueReporter.reportError( "bad member" );
+      if( isWorker() )
+      {
+        failed.countDown();
+        throw new IllegalStateException();
+      }
+      return "package abc; public class Foo {}";
+    };
+
+    GeneratedJavaStubFileObject prefetched = makeStub( produce );
+    prefetched.prefetch( _prefetcher );
+    assertTrue( failed.await( 10, TimeUnit.SECONDS ) );
+    // the worker's diagnostics are dropped, the javac thread produces the source again
+    assertEquals( "package abc; public class Foo {}", prefetched.getCharContent( true ).toString() );
+    assertEquals( Collections.singletonList( "ERROR: bad member" ), _reported );
+  }
+
+  private static boolean isWorker()
+  {
+    return Thread.currentThread().getName().startsWith( "manifold-prefetch" );
+  }
+
+  private static GeneratedJavaStubFileObject makeStub( Supplier<String> produce )
+  {
+    ITypeManifold tm = (ITypeManifold)Proxy.newProxyInstance( SourcePrefetcherTest.class.getClassLoader(),
+      new Class[]{ITypeManifold.class},
+      ( proxy, method, args ) -> {
+        switch( method.getName() )
+        {
+          case "getContributorKind":
+            return ContributorKind.Primary;
+          case "isSelfCompile":
+            return false;
+          case "isThreadSafe":
+            return true;
+          default:
+            throw new UnsupportedOperationException( method.getName() );
+        }
+      } );
+    return new GeneratedJavaStubFileObject( "abc.Foo", new SourceSupplier( "abc.Foo", Collections.singleton( tm ), produce ) );
+  }
+}
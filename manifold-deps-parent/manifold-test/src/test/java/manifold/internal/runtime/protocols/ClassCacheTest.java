@@ -0,0 +1,229 @@
+package manifold.internal.runtime.protocols;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+import manifold.api.fs.IFile;
+import manifold.api.type.ContributorKind;
+import manifold.api.type.ITypeManifold;
+import manifold.internal.host.RuntimeManifoldHost;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ */
+public class ClassCacheTest extends TestCase
+{
+  private static final List<String> OPTIONS = Collections.singletonList( "-g" );
+
+  private TemporaryFolder _tmp;
+  private File _dir;
+  private Map<String, ITypeManifold> _typeManifolds;
+  private Map<String, byte[]> _compiledClasses;
+  private boolean _compiling;
+  private ClassCache _cache;
+
+  @Override
+  protected void setUp() throws Exception
+  {
+    _tmp = new TemporaryFolder();
+    _tmp.create();
+    _dir = _tmp.getRoot();
+    _typeManifolds = new HashMap<>();
+    _compiledClasses = new HashMap<>();
+    _cache = new ClassCache( new File( _dir, "cache" ).toPath(),
+      fqn -> _typeManifolds.containsKey( fqn ) ? Collections.singleton( _typeManifolds.get( fqn ) ) : Collections.emptySet(),
+      fqn -> {
+        // stands in for the JavaParser, which has compiled the class on a miss
+        assertTrue( "the parser is used only to write an entry", _compiling );
+        return _compiledClasses.get( fqn );
+      } );
+  }
+
+  @Override
+  protected void tearDown() throws Exception
+  {
+    _tmp.delete();
+  }
+
+  public void testHit() throws IOException
+  {
+    addType( "abc.A", write( "A.json", "{\"b\": \"B.json\"}" ) );
+    String key = _cache.makeKey( "abc.A", OPTIONS );
+    assertNotNull( key );
+    assertFalse( _cache.contains( key ) );
+    assertNull( _cache.get( "abc.A", key ) );
+
+    byte[] bytes = makeClassFile( "abc/A", "java/lang/Object" );
+    put( "abc.A", key, bytes );
+    assertTrue( _cache.contains( key ) );
+    assertEquals( key, _cache.makeKey( "abc.A", OPTIONS ) );
+    assertTrue( Arrays.equals( bytes, _cache.get( "abc.A", key ) ) );
+  }
+
+  public void testNotCacheable() throws IOException
+  {
+    assertNull( _cache.makeKey( "abc.A", OPTIONS ) );
+    addType( "abc.A", write( "A.json", "{}" ), ContributorKind.Supplemental, false );
+    assertNull( _cache.makeKey( "abc.A", OPTIONS ) );
+    addType( "abc.A", write( "A.json", "{}" ), ContributorKind.Primary, true );
+    assertNull( _cache.makeKey( "abc.A", OPTIONS ) );
+  }
+
+  public void testChangedResourceChangesKey() throws IOException
+  {
+    File file = write( "A.json", "{\"name\": \"string\"}" );
+    addType( "abc.A", file );
+    String key = _cache.makeKey( "abc.A", OPTIONS );
+
+    write( "A.json", "{\"name\": \"integer\"}" );
+    assertFalse( key.equals( _cache.makeKey( "abc.A", OPTIONS ) ) );
+    write( "A.json", "{\"name\": \"string\"}" );
+    assertEquals( key, _cache.makeKey( "abc.A", OPTIONS ) );
+
+    // same content in a different directory, references in it resolve against a different directory
+    File other = new File( _dir, "other" );
+    assertTrue( other.mkdir() );
+    File otherFile = new File( other, "A.json" );
+    Files.write( otherFile.toPath(), "{\"name\": \"string\"}".getBytes( StandardCharsets.UTF_8 ) );
+    addType( "abc.A", otherFile );
+    assertFalse( key.equals( _cache.makeKey( "abc.A", OPTIONS ) ) );
+  }
+
+  public void testReferencedFileChangeInvalidates() throws IOException
+  {
+    addType( "abc.A", write( "A.json", "{\"b\": \"B.json\"}" ) );
+    addType( "abc.B", write( "B.json", "{\"c\": \"C.json\"}" ) );
+    addType( "abc.C", write( "C.json", "{\"name\": \"string\"}" ) );
+    // A references B, B references C, which A does not reference
+    _compiledClasses.put( "abc.B", makeClassFile( "abc/B", "java/lang/Object", "abc/C" ) );
+    _compiledClasses.put( "abc.B\$Inner", makeClassFile( "abc/B\$Inner", "java/lang/Object" ) );
+
+    String key = _cache.makeKey( "abc.A", OPTIONS );
+    byte[] bytes = makeClassFile( "abc/A", "java/lang/Object", "abc/B", "abc/B\$Inner", "[Labc/B;" );
+    put( "abc.A", key, bytes );
+    assertTrue( Arrays.equals( bytes, _cache.get( "abc.A", key ) ) );
+
+    // A's resource does not change, but C, which A depends on through B, does
+    write( "C.json", "{\"name\": \"integer\"}" );
+    assertEquals( key, _cache.makeKey( "abc.A", OPTIONS ) );
+    assertNull( _cache.get( "abc.A", key ) );
+
+    put( "abc.A", key, bytes );
+    assertTrue( Arrays.equals( bytes, _cache.get( "abc.A", key ) ) );
+    write( "B.json", "{\"c\": \"C.json\", \"d\": 1}" );
+    assertNull( _cache.get( "abc.A", key ) );
+  }
+
+  public void testDependenciesOfCachedReferenceInvalidate() throws IOException
+  {
+    addType( "abc.A", write( "A.json", "{\"b\": \"B.json\"}" ) );
+    addType( "abc.B", write( "B.json", "{\"c\": \"C.json\"}" ) );
+    addType( "abc.C", write( "C.json", "{\"name\": \"string\"}" ) );
+
+    // B is compiled and cached in one process
+    _compiledClasses.put( "abc.C", makeClassFile( "abc/C", "java/lang/Object" ) );
+    String keyB = _cache.makeKey( "abc.B", OPTIONS );
+    put( "abc.B", keyB, makeClassFile( "abc/B", "java/lang/Object", "abc/C" ) );
+
+    // in the next, B is a hit and only A is compiled, the parser knows nothing of B or C
+    _compiledClasses.clear();
+    assertNotNull( _cache.get( "abc.B", keyB ) );
+    String keyA = _cache.makeKey( "abc.A", OPTIONS );
+    byte[] bytes = makeClassFile( "abc/A", "java/lang/Object", "abc/B" );
+    put( "abc.A", keyA, bytes );
+    assertTrue( Arrays.equals( bytes, _cache.get( "abc.A", keyA ) ) );
+
+    // C is recorded for A through B's entry
+    write( "C.json", "{\"name\": \"integer\"}" );
+    assertEquals( keyA, _cache.makeKey( "abc.A", OPTIONS ) );
+    assertNull( _cache.get( "abc.A", keyA ) );
+  }
+
+  private void put( String fqn, String key, byte[] bytes )
+  {
+    _compiling = true;
+    try
+    {
+      _cache.put( fqn, OPTIONS, key, bytes );
+    }
+    finally
+    {
+      _compiling = false;
+    }
+  }
+
+  private File write( String name, String content ) throws IOException
+  {
+    File file = new File( _dir, name );
+    Files.write( file.toPath(), content.getBytes( StandardCharsets.UTF_8 ) );
+    return file;
+  }
+
+  private void addType( String fqn, File file )
+  {
+    addType( fqn, file, ContributorKind.Primary, false );
+  }
+
+  /**
+   * Adds a type produced from {@code file} by a type manifold, which does not generate source
+   */
+  private void addType( String fqn, File file, ContributorKind kind, boolean selfCompile )
+  {
+    IFile iFile = RuntimeManifoldHost.get().getFileSystem().getIFile( file );
+    _typeManifolds.put( fqn, (ITypeManifold)Proxy.newProxyInstance( getClass().getClassLoader(), new Class[]{ITypeManifold.class},
+      ( proxy, method, args ) -> {
+        switch( method.getName() )
+        {
+          case "findFilesForType":
+            return Collections.singletonList( iFile );
+          case "getContributorKind":
+            return kind;
+          case "isSelfCompile":
+            return selfCompile;
+          default:
+            throw new UnsupportedOperationException( method.getName() );
+        }
+      } ) );
+  }
+
+  /**
+   * Makes a class file having only a constant pool referencing {@code classNames}, the first of which is the class
+   */
+  private static byte[] makeClassFile( String... classNames ) throws IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream( bytes );
+    out.writeInt( 0xCAFEBABE );
+    out.writeShort( 0 );
+    out.writeShort( 52 );
+    out.writeShort( 1 + classNames.length * 2 + 2 );
+    for( int i = 0; i < classNames.length; i++ )
+    {
+      out.writeByte( 1 );
+      out.writeUTF( classNames[i] );
+      out.writeByte( 7 );
+      out.writeShort( 1 + i * 2 );
+    }
+    // a long takes two entries
+    out.writeByte( 5 );
+    out.writeLong( 42 );
+    out.writeShort( 0x21 );
+    out.writeShort( 2 );
+    out.writeShort( 4 );
+    out.writeShort( 0 );
+    out.writeShort( 0 );
+    out.writeShort( 0 );
+    out.writeShort( 0 );
+    return bytes.toByteArray();
+  }
+}
@@ -586,6 +586,11 @@ public class ReflectUtil
       _field = f;
     }
 
+    public Field getField()
+    {
+      return _field;
+    }
+
     public Object get( Object receiver )
     {
       try
@@ -704,6 +709,11 @@ public class ReflectUtil
       _constructor = constructor;
     }
 
+    public Constructor<?> getConstructor()
+    {
+      return _constructor;
+    }
+
     public Object newInstance( Object... args )
     {
       try